@@ -0,0 +1,227 @@
+package fr.vergne.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import fr.vergne.benchmark.SamplingReport.Iteration;
+import fr.vergne.benchmark.SamplingReport.StopReason;
+import fr.vergne.benchmark.util.SampleStatistics;
+
+/**
+ * An {@link AdaptiveSampler} executes the same part of a {@link Benchmark}
+ * repeatedly to measure one of its outputs, until the measure is precise
+ * enough. The measured part is a {@link ResettableSubgraph}, which is reset
+ * before each iteration, so only the {@link Task}s depending on the reset
+ * {@link Task} are executed again.<br/>
+ * <br/>
+ * The output of the {@link Benchmark} should be a {@link Number}. The sampling
+ * stops once the confidence interval of its mean is tighter than the target
+ * (see {@link #setRelativeTarget(double)} and
+ * {@link #setAbsoluteTarget(double)}), once the maximum number of iterations
+ * is reached, once the time budget is consumed or once a {@link Task} fails.
+ * The statistics obtained after each iteration are provided in the
+ * {@link SamplingReport}.
+ * 
+ * @author Matthieu Vergne <matthieu.vergne@gmail.com>
+ * 
+ */
+public class AdaptiveSampler {
+
+	private final ResettableSubgraph subgraph;
+	private final Object outputId;
+	private double confidence = 0.95;
+	private double target = 0.05;
+	private boolean isRelative = true;
+	private int minIterations = 2;
+	private int maxIterations = 1000;
+	private long timeBudget = 0;
+
+	/**
+	 * 
+	 * @param benchmark
+	 *            the {@link Benchmark} to execute
+	 * @param task
+	 *            the {@link Task} to reset before each iteration
+	 * @param resetInputId
+	 *            the ID of the reset input of the {@link Task}
+	 * @param outputId
+	 *            the ID of the {@link Benchmark} output to measure
+	 */
+	public AdaptiveSampler(Benchmark benchmark, Task task, Object resetInputId,
+			Object outputId) {
+		this(new ResettableSubgraph(benchmark, task, resetInputId), outputId);
+	}
+
+	/**
+	 * 
+	 * @param subgraph
+	 *            the {@link ResettableSubgraph} to execute in each iteration
+	 * @param outputId
+	 *            the ID of the {@link Benchmark} output to measure
+	 */
+	public AdaptiveSampler(ResettableSubgraph subgraph, Object outputId) {
+		this.subgraph = subgraph;
+		this.outputId = outputId;
+	}
+
+	public ResettableSubgraph getSubgraph() {
+		return subgraph;
+	}
+
+	/**
+	 * 
+	 * @param confidence
+	 *            the confidence level of the interval, like 0.95 for 95%
+	 */
+	public void setConfidence(double confidence) {
+		if (confidence <= 0 || confidence >= 1) {
+			throw new IllegalArgumentException(
+					"The confidence should be in ]0;1[: " + confidence);
+		} else {
+			this.confidence = confidence;
+		}
+	}
+
+	public double getConfidence() {
+		return confidence;
+	}
+
+	/**
+	 * Stop once the half width of the confidence interval is lower than or
+	 * equal to the given ratio of the mean. This is the default behaviour,
+	 * with a ratio of 0.05.
+	 * 
+	 * @param ratio
+	 *            the ratio of the mean to reach, like 0.01 for 1%
+	 */
+	public void setRelativeTarget(double ratio) {
+		this.target = ratio;
+		this.isRelative = true;
+	}
+
+	/**
+	 * Stop once the half width of the confidence interval is lower than or
+	 * equal to the given value.
+	 * 
+	 * @param halfWidth
+	 *            the half width to reach, in the unit of the output
+	 */
+	public void setAbsoluteTarget(double halfWidth) {
+		this.target = halfWidth;
+		this.isRelative = false;
+	}
+
+	/**
+	 * 
+	 * @param iterations
+	 *            the minimum number of iterations before to check the
+	 *            confidence interval, at least 2
+	 */
+	public void setMinIterations(int iterations) {
+		this.minIterations = Math.max(2, iterations);
+	}
+
+	public int getMinIterations() {
+		return minIterations;
+	}
+
+	/**
+	 * 
+	 * @param iterations
+	 *            the maximum number of iterations to make
+	 */
+	public void setMaxIterations(int iterations) {
+		if (iterations <= 0) {
+			throw new IllegalArgumentException(
+					"The number of iterations should be strictly positive: "
+							+ iterations);
+		} else {
+			this.maxIterations = iterations;
+		}
+	}
+
+	public int getMaxIterations() {
+		return maxIterations;
+	}
+
+	/**
+	 * 
+	 * @param budget
+	 *            the time after which no new iteration is started, 0 for no
+	 *            limit
+	 * @param unit
+	 *            the {@link TimeUnit} of the budget
+	 */
+	public void setTimeBudget(long budget, TimeUnit unit) {
+		this.timeBudget = unit.toNanos(budget);
+	}
+
+	public long getTimeBudget(TimeUnit unit) {
+		return unit.convert(timeBudget, TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * Execute the measured {@link Task}s until one of the stop conditions is
+	 * reached.
+	 * 
+	 * @return the {@link SamplingReport} of the sampling
+	 */
+	public SamplingReport sample() {
+		long start = System.nanoTime();
+		SampleStatistics statistics = new SampleStatistics();
+		List<Iteration> iterations = new ArrayList<Iteration>();
+		while (true) {
+			RunSummary summary = subgraph.iterate();
+			if (summary.hasFailures()) {
+				iterations.add(new Iteration(iterations.size(), Double.NaN,
+						summary, statistics.getMean(), statistics
+								.getHalfWidth(confidence)));
+				return new SamplingReport(statistics, iterations,
+						StopReason.FAILURE, confidence);
+			} else {
+				double value = measure();
+				statistics.add(value);
+				double halfWidth = statistics.getHalfWidth(confidence);
+				iterations.add(new Iteration(iterations.size(), value,
+						summary, statistics.getMean(), halfWidth));
+				StopReason reason = null;
+				if (iterations.size() >= minIterations
+						&& isPrecise(halfWidth, statistics.getMean())) {
+					reason = StopReason.CONFIDENCE_REACHED;
+				} else if (iterations.size() >= maxIterations) {
+					reason = StopReason.ITERATIONS_EXHAUSTED;
+				} else if (timeBudget > 0
+						&& System.nanoTime() - start >= timeBudget) {
+					reason = StopReason.TIME_EXHAUSTED;
+				} else {
+					// continue sampling
+				}
+				if (reason != null) {
+					return new SamplingReport(statistics, iterations, reason,
+							confidence);
+				} else {
+					// next iteration
+				}
+			}
+		}
+	}
+
+	private double measure() {
+		Object output = subgraph.getBenchmark().getOutput(outputId);
+		if (output instanceof Number) {
+			return ((Number) output).doubleValue();
+		} else {
+			throw new IllegalStateException("The output " + outputId
+					+ " is not a number: " + output);
+		}
+	}
+
+	private boolean isPrecise(double halfWidth, double mean) {
+		if (isRelative) {
+			return halfWidth <= target * Math.abs(mean);
+		} else {
+			return halfWidth <= target;
+		}
+	}
+}
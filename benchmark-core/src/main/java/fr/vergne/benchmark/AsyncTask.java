@@ -0,0 +1,54 @@
+package fr.vergne.benchmark;
+
+/**
+ * An {@link AsyncTask} is a {@link Task} which can be executed without
+ * blocking the calling thread, typically because it relies on non-blocking
+ * operations. Instead of calling {@link #execute()}, a runner supporting it
+ * calls {@link #executeAsync(Callback)}, which starts the execution and
+ * returns immediately. The {@link Callback} is then notified once the
+ * execution is finished, possibly from another thread.<br/>
+ * <br/>
+ * Runners which do not support asynchronous execution still call
+ * {@link #execute()}, which should block until the execution is finished.
+ * 
+ * @author Matthieu Vergne <matthieu.vergne@gmail.com>
+ * 
+ */
+public interface AsyncTask extends Task {
+
+	/**
+	 * Start the execution of this {@link AsyncTask}. Exactly one of the
+	 * methods of the {@link Callback} should be called once the execution is
+	 * finished. Like for {@link #execute()}, this method should be called only
+	 * if {@link #isExecutable()} and {@link #shouldBeExecuted()} return both
+	 * <code>true</code>.
+	 * 
+	 * @param callback
+	 *            the {@link Callback} to notify at the end of the execution
+	 */
+	public void executeAsync(Callback callback);
+
+	/**
+	 * A {@link Callback} is notified at the end of the execution of an
+	 * {@link AsyncTask}.
+	 * 
+	 * @author Matthieu Vergne <matthieu.vergne@gmail.com>
+	 * 
+	 */
+	public static interface Callback {
+
+		/**
+		 * Notify that the execution has succeeded, so the outputs of the
+		 * {@link AsyncTask} are available.
+		 */
+		public void succeeded();
+
+		/**
+		 * Notify that the execution has failed.
+		 * 
+		 * @param cause
+		 *            the reason of the failure
+		 */
+		public void failed(Exception cause);
+	}
+}
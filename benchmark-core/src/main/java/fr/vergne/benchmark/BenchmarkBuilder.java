@@ -3,20 +3,28 @@ package fr.vergne.benchmark;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.LinkedHashSet;
 import java.util.LinkedList;
+import java.util.List;
 import java.util.Map;
+import java.util.Map.Entry;
 
 import fr.vergne.benchmark.impl.ForcedLink;
 import fr.vergne.benchmark.impl.ImmutableBenchmark;
+import fr.vergne.benchmark.impl.StreamLink;
 import fr.vergne.benchmark.impl.SyncLink;
 import fr.vergne.benchmark.util.IOIdentifier;
+import fr.vergne.benchmark.util.Pipe;
 
 /**
  * Builder to facilitate the creation of a {@link Benchmark}. All the methods
  * return the current builder to facilitate call chaining, excepted
- * {@link #createInstance()} which returns the built {@link Benchmark}.
+ * {@link #createInstance()} which returns the built {@link Benchmark},
+ * {@link #createPlan()} which returns its compiled {@link ExecutionPlan},
+ * {@link #createReplicas(int)} which returns several independent instances of
+ * it and {@link #add(TaskFactory)} which returns the {@link Task} created.
  * 
  * @author Matthieu Vergne <matthieu.vergne@gmail.com>
  * 
@@ -28,6 +36,7 @@ public class BenchmarkBuilder {
 	private final Collection<Link<?>> links = new LinkedHashSet<Link<?>>();
 	private final Map<Object, IOIdentifier> inputs = new HashMap<Object, IOIdentifier>();
 	private final Map<Object, IOIdentifier> outputs = new HashMap<Object, IOIdentifier>();
+	private final Map<Task, TaskFactory<?>> factories = new IdentityHashMap<Task, TaskFactory<?>>();
 
 	/**
 	 * Calling {@link #createInstance()} just after calling this method create
@@ -38,6 +47,7 @@ public class BenchmarkBuilder {
 		tasks.clear();
 		inputs.clear();
 		outputs.clear();
+		factories.clear();
 		return this;
 	}
 
@@ -53,6 +63,23 @@ public class BenchmarkBuilder {
 		return this;
 	}
 
+	/**
+	 * Add a {@link Task} created by a {@link TaskFactory}. The {@link Task}
+	 * returned can be linked like any other {@link Task} added, and the
+	 * {@link TaskFactory} is used again for each replica created through
+	 * {@link #createReplicas(int)}.
+	 * 
+	 * @param factory
+	 *            the {@link TaskFactory} to use
+	 * @return the {@link Task} created and added
+	 */
+	public <T extends Task> T add(TaskFactory<T> factory) {
+		T task = factory.createTask();
+		tasks.add(task);
+		factories.put(task, factory);
+		return task;
+	}
+
 	/**
 	 * This method removes a {@link Task} from the {@link Benchmark}. If this
 	 * {@link Task} is still linked to others or used as an input/output of the
@@ -92,6 +119,7 @@ public class BenchmarkBuilder {
 				}
 			}
 			tasks.remove(task);
+			factories.remove(task);
 		} else {
 			// nothing to remove
 		}
@@ -178,6 +206,54 @@ public class BenchmarkBuilder {
 		}
 	}
 
+	/**
+	 * This method links two {@link Task}s previously added through a
+	 * {@link StreamLink}, so the target {@link Task} consumes the items of the
+	 * source {@link Task} while they are produced. The {@link StreamLink} is
+	 * not re-made if it has been made with a previous call. A sink can be
+	 * linked to a single consumer, because the source {@link Task} fills only
+	 * the last {@link Pipe} it receives.
+	 * 
+	 * @param from
+	 *            the {@link Task} producing the items
+	 * @param sinkId
+	 *            the ID of the input receiving the {@link Pipe} to fill
+	 * @param to
+	 *            the {@link Task} consuming the items
+	 * @param inputId
+	 *            the ID of the input receiving the {@link Pipe} to read
+	 * @param capacity
+	 *            the maximum number of items waiting to be consumed
+	 * @throws IllegalArgumentException
+	 *             if the {@link Task}s have not been added, or if the sink is
+	 *             already linked to another consumer
+	 */
+	public <T> BenchmarkBuilder linkStream(Task from, Object sinkId, Task to,
+			Object inputId, int capacity) {
+		if (!tasks.contains(from)) {
+			throw new IllegalArgumentException(
+					"The source task has not been added: " + from);
+		} else if (!tasks.contains(to)) {
+			throw new IllegalArgumentException(
+					"The target task has not been added: " + to);
+		} else {
+			StreamLink<T> stream = new StreamLink<T>(from, sinkId, to,
+					inputId, capacity);
+			for (Link<?> link : links) {
+				if (link instanceof StreamLink && !link.equals(stream)
+						&& link.getSourceTask() == from
+						&& ((StreamLink<?>) link).getSinkId().equals(sinkId)) {
+					throw new IllegalArgumentException("The sink " + sinkId
+							+ " of " + from + " is already linked: " + link);
+				} else {
+					// not the same sink
+				}
+			}
+			links.add(stream);
+			return this;
+		}
+	}
+
 	/**
 	 * This method removes a previously made {@link SyncLink}. If such a link
 	 * does not exist, nothing happen.
@@ -273,6 +349,7 @@ public class BenchmarkBuilder {
 			unrelate(task);
 		}
 		tasks.retainAll(retained);
+		factories.keySet().retainAll(retained);
 		return this;
 	}
 
@@ -324,4 +401,92 @@ public class BenchmarkBuilder {
 		return new ImmutableBenchmark(tasks, links, inputs, outputs);
 	}
 
+	/**
+	 * This method is equivalent to {@link #createInstance()}, but the
+	 * {@link Benchmark} is compiled into an {@link ExecutionPlan}, so its
+	 * structure is analysed once for all. The new {@link Benchmark} can be
+	 * retrieved through {@link ExecutionPlan#getBenchmark()}.
+	 * 
+	 * @return a new {@link ExecutionPlan} based on all the {@link Task}s and
+	 *         links previously added
+	 */
+	public ExecutionPlan createPlan() {
+		return new ExecutionPlan(createInstance(), inputs.values());
+	}
+
+	/**
+	 * This method creates several {@link Benchmark}s similar to the one
+	 * returned by {@link #createInstance()}, but which do not share any
+	 * {@link Task} instance, so they can be executed concurrently, for
+	 * instance through a {@link ReplicationRunner}. Each {@link Task} is
+	 * created through the {@link TaskFactory} used to add it, so all of them
+	 * should have been added through {@link #add(TaskFactory)}. The inputs of
+	 * the {@link Task}s which are not linked should be set by the
+	 * {@link TaskFactory} or through the inputs of each {@link Benchmark}.
+	 * 
+	 * @param count
+	 *            the number of replicas to create
+	 * @return the {@link Benchmark}s created, independent from each other and
+	 *         from the {@link Task}s added to this builder
+	 * @throws IllegalStateException
+	 *             if a {@link Task} has been added without {@link TaskFactory}
+	 */
+	public List<Benchmark> createReplicas(int count) {
+		for (Task task : tasks) {
+			if (!factories.containsKey(task)) {
+				throw new IllegalStateException(
+						"The task cannot be replicated: it has not been added through a factory: "
+								+ task);
+			} else {
+				// replicable task
+			}
+		}
+
+		List<Benchmark> replicas = new LinkedList<Benchmark>();
+		for (int i = 0; i < count; i++) {
+			Map<Task, Task> copies = new IdentityHashMap<Task, Task>();
+			Collection<Task> replicaTasks = new LinkedHashSet<Task>();
+			for (Task task : tasks) {
+				Task copy = factories.get(task).createTask();
+				copies.put(task, copy);
+				replicaTasks.add(copy);
+			}
+			Collection<Link<?>> replicaLinks = new LinkedHashSet<Link<?>>();
+			for (Link<?> link : links) {
+				replicaLinks.add(replicate(link, copies));
+			}
+			replicas.add(new ImmutableBenchmark(replicaTasks, replicaLinks,
+					replicate(inputs, copies), replicate(outputs, copies)));
+		}
+		return replicas;
+	}
+
+	private Link<?> replicate(Link<?> link, Map<Task, Task> copies) {
+		Task from = copies.get(link.getSourceTask());
+		Task to = copies.get(link.getTargetTask());
+		if (link instanceof SyncLink) {
+			return new SyncLink<Object>(from,
+					((SyncLink<?>) link).getSourceId(), to, link.getTargetId());
+		} else if (link instanceof ForcedLink) {
+			return new ForcedLink<Object>(from, link.getValue(), to,
+					link.getTargetId());
+		} else if (link instanceof StreamLink) {
+			StreamLink<?> stream = (StreamLink<?>) link;
+			return new StreamLink<Object>(from, stream.getSinkId(), to,
+					stream.getTargetId(), stream.getCapacity());
+		} else {
+			throw new IllegalStateException("Unmanaged link: " + link);
+		}
+	}
+
+	private Map<Object, IOIdentifier> replicate(
+			Map<Object, IOIdentifier> identifiers, Map<Task, Task> copies) {
+		Map<Object, IOIdentifier> replicas = new HashMap<Object, IOIdentifier>();
+		for (Entry<Object, IOIdentifier> entry : identifiers.entrySet()) {
+			IOIdentifier id = entry.getValue();
+			replicas.put(entry.getKey(),
+					new IOIdentifier(copies.get(id.getTask()), id.getId()));
+		}
+		return replicas;
+	}
 }
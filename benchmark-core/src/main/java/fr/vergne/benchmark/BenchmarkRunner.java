@@ -1,7 +1,22 @@
 package fr.vergne.benchmark;
 
 import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
 import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 import fr.vergne.benchmark.event.BenchmarkEvent;
 import fr.vergne.benchmark.event.BenchmarkEventListener;
@@ -9,13 +24,51 @@ import fr.vergne.benchmark.event.LinkTransferedEvent;
 import fr.vergne.benchmark.event.TaskExecutedEvent;
 import fr.vergne.benchmark.event.TaskFailedEvent;
 import fr.vergne.benchmark.event.TaskSelectedEvent;
+import fr.vergne.benchmark.event.TaskTimedOutEvent;
+import fr.vergne.benchmark.event.WarmupEvent;
+import fr.vergne.benchmark.impl.ImmutableBenchmark;
+import fr.vergne.benchmark.impl.StreamLink;
+import fr.vergne.benchmark.util.DaemonThreadFactory;
+import fr.vergne.benchmark.util.Pipe;
+import fr.vergne.benchmark.util.ReadyQueue;
+import fr.vergne.benchmark.util.ResourceBudget;
 
 /**
  * A {@link BenchmarkRunner} aims at running a {@link Benchmark} step by step.
  * Each time the {@link #run()} method is called, a {@link Task} of the
  * {@link Benchmark} is selected and executed. During each single run, several
  * {@link BenchmarkEvent}s are generated and can be catched by registering a
- * listener with {@link #registerListener(BenchmarkEventListener)}.
+ * listener with {@link #registerListener(BenchmarkEventListener)}. To execute
+ * several {@link Task}s in a row, {@link #runAll()},
+ * {@link #runSteps(int)} and {@link #runUntil(StopCondition)} can be used
+ * instead of calling {@link #run()} repeatedly.<br/>
+ * <br/>
+ * The {@link Task}s ready to be executed are tracked through a
+ * {@link ReadyQueue}: a {@link Task} is checked again only when one of its
+ * input is set through a {@link Link} or when it has been executed. All the
+ * {@link Task}s are checked only when no {@link Task} is known to be ready, so
+ * the changes made outside of this {@link BenchmarkRunner} (e.g. inputs set
+ * manually between two runs) are still considered. When several {@link Task}s
+ * are ready, a {@link TaskSelectionPolicy} can be used to choose which one to
+ * execute first (see {@link #setSelectionPolicy(TaskSelectionPolicy)}).<br/>
+ * <br/>
+ * A timeout can be set for all the {@link Task}s through
+ * {@link #setTimeout(long, TimeUnit)} or for specific ones through
+ * {@link #setTimeout(Task, long, TimeUnit)}. A {@link Task} having a timeout
+ * is executed by a watchdog thread, and if it does not finish in time it is
+ * interrupted and abandoned: a {@link TaskTimedOutEvent} is generated and the
+ * run continues without waiting for it. During a batch run, the {@link Task}
+ * which has timed out and all the {@link Task}s depending on it are not
+ * executed anymore until the end of the run. Whatever the kind of run, a
+ * {@link Task} which has timed out is not executed again as long as its
+ * abandoned execution is still running.<br/>
+ * <br/>
+ * The first executions of a {@link Task} are usually slower, because the JVM
+ * has not optimised its code yet. These executions can be made in warmup (see
+ * {@link #setWarmup(boolean)}), in which case the {@link BenchmarkEvent}s are
+ * wrapped into {@link WarmupEvent}s, so the listeners can exclude them, and the
+ * {@link WarmupAwareTask}s are notified. The {@link PhasedRunner} uses it to
+ * separate the warmup from the measurement of repeated {@link Task}s.
  * 
  * @author Matthieu Vergne <matthieu.vergne@gmail.com>
  * 
@@ -23,7 +76,21 @@ import fr.vergne.benchmark.event.TaskSelectedEvent;
 public class BenchmarkRunner {
 
 	private Benchmark benchmark = null;
+	private ReadyQueue readyQueue = null;
 	private Collection<BenchmarkEventListener> listeners = new LinkedHashSet<BenchmarkEventListener>();
+	private long defaultTimeout = 0;
+	private final Map<Task, Long> timeouts = new IdentityHashMap<Task, Long>();
+	private ExecutorService watchdog = null;
+	private ExecutorService consumerExecutor = null;
+	private final Collection<Task> watched = Collections
+			.newSetFromMap(new IdentityHashMap<Task, Boolean>());
+	private final Collection<Task> lingering = Collections
+			.newSetFromMap(new IdentityHashMap<Task, Boolean>());
+	private final Collection<Task> abandoned = new LinkedList<Task>();
+	private TaskSelectionPolicy policy = null;
+	private ResourceBudget budget = null;
+	private volatile boolean isWarmup = false;
+	private final Collection<TaskExecutionHook> hooks = new CopyOnWriteArraySet<TaskExecutionHook>();
 
 	public BenchmarkRunner() {
 	}
@@ -34,12 +101,110 @@ public class BenchmarkRunner {
 
 	public void setBenchmark(Benchmark benchmark) {
 		this.benchmark = benchmark;
+		this.readyQueue = benchmark == null ? null : new ReadyQueue(
+				benchmark.getTasks(), policy);
 	}
 
 	public Benchmark getBenchmark() {
 		return benchmark;
 	}
 
+	/**
+	 * Set the {@link TaskSelectionPolicy} used to choose which {@link Task} to
+	 * execute first when several are ready. The policy is notified of the
+	 * execution time of each {@link Task} executed by this
+	 * {@link BenchmarkRunner}.
+	 * 
+	 * @param policy
+	 *            the {@link TaskSelectionPolicy} to use, <code>null</code> to
+	 *            execute the {@link Task}s in the order they become ready
+	 */
+	public void setSelectionPolicy(TaskSelectionPolicy policy) {
+		this.policy = policy;
+		if (benchmark == null) {
+			// the policy will be used with the next benchmark
+		} else {
+			readyQueue = new ReadyQueue(benchmark.getTasks(), policy);
+		}
+	}
+
+	public TaskSelectionPolicy getSelectionPolicy() {
+		return policy;
+	}
+
+	/**
+	 * Set the {@link ResourceBudget} limiting the {@link Task}s executed at
+	 * the same time. It is relevant only for the runners executing several
+	 * {@link Task}s concurrently: a {@link BenchmarkRunner} executes a single
+	 * {@link Task} at a time, which is always accepted by the budget.
+	 * 
+	 * @param budget
+	 *            the {@link ResourceBudget} to use, <code>null</code> for no
+	 *            limit
+	 */
+	public void setResourceBudget(ResourceBudget budget) {
+		this.budget = budget;
+	}
+
+	public ResourceBudget getResourceBudget() {
+		return budget;
+	}
+
+	/**
+	 * Set the timeout applied to the {@link Task}s which do not have their
+	 * own timeout.
+	 * 
+	 * @param timeout
+	 *            the maximum execution time of a {@link Task}, 0 or less for
+	 *            no timeout
+	 * @param unit
+	 *            the {@link TimeUnit} of the timeout
+	 */
+	public void setTimeout(long timeout, TimeUnit unit) {
+		defaultTimeout = Math.max(0, unit.toNanos(timeout));
+	}
+
+	/**
+	 * Set the timeout of a specific {@link Task}, which replaces the one set
+	 * through {@link #setTimeout(long, TimeUnit)}.
+	 * 
+	 * @param task
+	 *            the {@link Task} to limit
+	 * @param timeout
+	 *            the maximum execution time of the {@link Task}, 0 or less
+	 *            for no timeout
+	 * @param unit
+	 *            the {@link TimeUnit} of the timeout
+	 */
+	public void setTimeout(Task task, long timeout, TimeUnit unit) {
+		timeouts.put(task, Math.max(0, unit.toNanos(timeout)));
+	}
+
+	/**
+	 * Remove the timeout specific to a {@link Task}, so the one set through
+	 * {@link #setTimeout(long, TimeUnit)} applies again.
+	 * 
+	 * @param task
+	 *            the {@link Task} to consider
+	 */
+	public void removeTimeout(Task task) {
+		timeouts.remove(task);
+	}
+
+	/**
+	 * 
+	 * @param task
+	 *            the {@link Task} to consider
+	 * @param unit
+	 *            the {@link TimeUnit} to use
+	 * @return the timeout applied to this {@link Task}, 0 if there is none
+	 */
+	public long getTimeout(Task task, TimeUnit unit) {
+		Long timeout = timeouts.get(task);
+		return unit.convert(timeout == null ? defaultTimeout : timeout,
+				TimeUnit.NANOSECONDS);
+	}
+
 	/**
 	 * Execute a single {@link Task} of the {@link Benchmark} managed by this
 	 * {@link BenchmarkRunner}. During the process, several
@@ -50,7 +215,8 @@ public class BenchmarkRunner {
 	 * <li>A {@link TaskExecutedEvent} if the execution of the {@link Task} runs
 	 * well,</li>
 	 * <li>A {@link TaskFailedEvent} if the {@link Task} fail to be executed
-	 * fully,</li>
+	 * fully, which is a {@link TaskTimedOutEvent} if it has exceeded its
+	 * timeout,</li>
 	 * <li>A {@link LinkTransferedEvent} for each {@link Link} transferred.</li>
 	 * </ol>
 	 * 
@@ -65,23 +231,585 @@ public class BenchmarkRunner {
 		if (task == null) {
 			throw new NoTaskToRunException(benchmark);
 		} else {
-			spreadEvent(new TaskSelectedEvent(task));
+			TaskFailedEvent failure = execute(task, null);
+			if (failure == null) {
+				// execution succeeded
+			} else {
+				if (failure instanceof TaskTimedOutEvent) {
+					readyQueue.hold(task);
+					releaseSkipped(Collections.singleton(task));
+				} else {
+					// not running anymore
+				}
+				throw new FailedTaskException(task, failure.getCause());
+			}
+		}
+	}
+
+	/**
+	 * Execute the {@link Task}s of the {@link Benchmark} until none of them is
+	 * ready to be executed anymore. Contrary to {@link #run()}, no exception
+	 * is used to notify the end of the run or the failure of a {@link Task}:
+	 * all of them are provided in the {@link RunSummary} returned. A
+	 * {@link Task} which fails is not executed again during this run, unless
+	 * it receives a new input through a {@link Link}. The
+	 * {@link BenchmarkEvent}s generated are the same than for {@link #run()}.
+	 * 
+	 * @return the {@link RunSummary} of the run
+	 */
+	public RunSummary runAll() {
+		return runUntil(null);
+	}
+
+	/**
+	 * Same as {@link #runAll()}, but stops once the given number of
+	 * {@link Task}s have been executed.
+	 * 
+	 * @param steps
+	 *            the maximum number of {@link Task}s to execute
+	 * @return the {@link RunSummary} of the run
+	 */
+	public RunSummary runSteps(final int steps) {
+		return runUntil(new StopCondition() {
+
+			@Override
+			public boolean isReached(RunSummary summary) {
+				return summary.getSteps() >= steps;
+			}
+		});
+	}
+
+	/**
+	 * Same as {@link #runAll()}, but stops as soon as the given
+	 * {@link StopCondition} is reached. The condition is evaluated before each
+	 * {@link Task} execution.
+	 * 
+	 * @param condition
+	 *            the {@link StopCondition} to satisfy, <code>null</code> to
+	 *            never stop before the end
+	 * @return the {@link RunSummary} of the run
+	 */
+	public RunSummary runUntil(StopCondition condition) {
+		RunSummary summary = new RunSummary();
+		Collection<Task> skipped = new LinkedList<Task>();
+		try {
+			while (condition == null || !condition.isReached(summary)) {
+				Task task = selectTask();
+				if (task == null) {
+					summary.finish(true);
+					return summary;
+				} else {
+					TaskFailedEvent failure = execute(task, summary);
+					summary.countStep();
+					if (failure == null) {
+						// execution succeeded
+					} else {
+						summary.addFailure(failure);
+						if (failure instanceof TaskTimedOutEvent) {
+							skipDownstream(task, skipped);
+						} else {
+							readyQueue.suspend(task);
+						}
+					}
+				}
+			}
+			summary.finish(false);
+			return summary;
+		} finally {
+			releaseSkipped(skipped);
+			readyQueue.resumeAll();
+		}
+	}
+
+	/**
+	 * Execute a {@link Task}, generate the corresponding
+	 * {@link BenchmarkEvent}s and transfer its outgoing {@link Link}s if it
+	 * succeeds.
+	 * 
+	 * @param summary
+	 *            the {@link RunSummary} to complete with the execution time,
+	 *            <code>null</code> if there is none
+	 * @return the {@link TaskFailedEvent} generated if the execution has
+	 *         failed, <code>null</code> otherwise
+	 */
+	private TaskFailedEvent execute(Task task, RunSummary summary) {
+		spreadEvent(new TaskSelectedEvent(task));
+		for (Link<?> link : openStreams(task)) {
+			transfer(link);
+		}
+		long start = System.nanoTime();
+		BenchmarkEvent result = watchExecution(task);
+		long duration = getExecutionTime(task, result, start);
+		TaskFailedEvent failure = result instanceof TaskFailedEvent
+				? (TaskFailedEvent) result : null;
+		notifyExecution(task, duration);
+		if (summary == null) {
+			// no summary to complete
+		} else {
+			summary.addExecutionTime(duration);
+		}
+		if (failure == null) {
+			spreadEvent(new TaskExecutedEvent(task, duration,
+					TimeUnit.NANOSECONDS));
+		} else {
+			spreadEvent(failure);
+			return failure;
+		}
+		for (Link<?> link : ImmutableBenchmark.getOutgoingLinks(
+				benchmark, task)) {
+			transfer(link);
+		}
+		readyQueue.check(task);
+		return null;
+	}
+
+	/**
+	 * 
+	 * @param task
+	 *            the {@link Task} executed
+	 * @param measured
+	 *            the execution time measured by the runner, in nanoseconds
+	 * @return the execution time measured by the {@link Task} itself if it is
+	 *         a {@link SelfTimedTask} which knows it, the one measured by the
+	 *         runner otherwise
+	 */
+	protected long getExecutionTime(Task task, long measured) {
+		if (task instanceof SelfTimedTask) {
+			Long time = ((SelfTimedTask) task)
+					.getExecutionTime(TimeUnit.NANOSECONDS);
+			return time == null ? measured : time;
+		} else {
+			return measured;
+		}
+	}
+
+	/**
+	 * 
+	 * @param task
+	 *            the {@link Task} executed
+	 * @param result
+	 *            the result of {@link #watchExecution(Task)}
+	 * @param start
+	 *            the {@link System#nanoTime()} taken before to call
+	 *            {@link #watchExecution(Task)}
+	 * @return the execution time of the {@link Task}, as provided by
+	 *         {@link #getExecutionTime(Task, long)}: for a successful
+	 *         execution, the time measured by {@link #executeTask(Task)}
+	 *         without the {@link TaskExecutionHook}s, otherwise the time
+	 *         elapsed since the start
+	 */
+	protected long getExecutionTime(Task task, BenchmarkEvent result,
+			long start) {
+		if (result instanceof TaskExecutedEvent) {
+			return getExecutionTime(task, ((TaskExecutedEvent) result)
+					.getExecutionTime(TimeUnit.NANOSECONDS));
+		} else {
+			return getExecutionTime(task, System.nanoTime() - start);
+		}
+	}
+
+	/**
+	 * Notify the {@link TaskSelectionPolicy}, if any, of the execution time of
+	 * a {@link Task}.
+	 * 
+	 * @param task
+	 *            the {@link Task} executed
+	 * @param duration
+	 *            the execution time, in nanoseconds
+	 */
+	protected void notifyExecution(Task task, long duration) {
+		if (policy == null) {
+			// no policy to notify
+		} else {
+			policy.notifyExecution(task, duration, TimeUnit.NANOSECONDS);
+		}
+	}
+
+	/**
+	 * Call {@link Task#execute()} on the current thread, surrounded by the
+	 * calls to the registered {@link TaskExecutionHook}s. No
+	 * {@link BenchmarkEvent} is generated.
+	 * 
+	 * @param task
+	 *            the {@link Task} to execute
+	 * @return the time spent in {@link Task#execute()}, in nanoseconds, which
+	 *         does not include the {@link TaskExecutionHook}s
+	 */
+	protected long executeTask(Task task) {
+		boolean isWarmup = this.isWarmup;
+		for (TaskExecutionHook hook : hooks) {
+			hook.beforeExecution(task, isWarmup);
+		}
+		boolean isSuccessful = false;
+		long duration;
+		try {
+			long start = System.nanoTime();
+			task.execute();
+			duration = System.nanoTime() - start;
+			isSuccessful = true;
+		} finally {
+			for (TaskExecutionHook hook : hooks) {
+				hook.afterExecution(task, isWarmup, isSuccessful);
+			}
+		}
+		return duration;
+	}
+
+	/**
+	 * Execute a {@link Task} directly if it has no timeout, or through the
+	 * watchdog thread otherwise. No {@link BenchmarkEvent} is generated.
+	 * 
+	 * @param task
+	 *            the {@link Task} to execute
+	 * @return the {@link TaskFailedEvent} to generate if the execution has
+	 *         failed, a {@link TaskExecutedEvent} providing the time measured
+	 *         by {@link #executeTask(Task)} otherwise
+	 */
+	protected BenchmarkEvent watchExecution(final Task task) {
+		long timeout = getTimeout(task, TimeUnit.NANOSECONDS);
+		if (timeout == 0) {
 			try {
-				task.execute();
-				spreadEvent(new TaskExecutedEvent(task));
+				return new TaskExecutedEvent(task, executeTask(task),
+						TimeUnit.NANOSECONDS);
 			} catch (Exception ex) {
-				spreadEvent(new TaskFailedEvent(task, ex));
-				throw new FailedTaskException(task, ex);
+				return new TaskFailedEvent(task, ex);
+			}
+		} else {
+			Future<Long> future = getWatchdog().submit(new Callable<Long>() {
+
+				@Override
+				public Long call() {
+					watch(task);
+					try {
+						return executeTask(task);
+					} finally {
+						unwatch(task);
+					}
+				}
+			});
+			try {
+				return new TaskExecutedEvent(task, future.get(timeout,
+						TimeUnit.NANOSECONDS), TimeUnit.NANOSECONDS);
+			} catch (ExecutionException e) {
+				Throwable cause = e.getCause();
+				if (cause instanceof Exception) {
+					return new TaskFailedEvent(task, (Exception) cause);
+				} else if (cause instanceof Error) {
+					throw (Error) cause;
+				} else {
+					return new TaskFailedEvent(task, new RuntimeException(cause));
+				}
+			} catch (TimeoutException e) {
+				future.cancel(true);
+				return new TaskTimedOutEvent(task, timeout,
+						TimeUnit.NANOSECONDS);
+			} catch (InterruptedException e) {
+				future.cancel(true);
+				Thread.currentThread().interrupt();
+				return new TaskFailedEvent(task, e);
+			}
+		}
+	}
+
+	/**
+	 * Poll the next {@link Task} of the {@link ReadyQueue} which fits in the
+	 * {@link ResourceBudget} and acquire its resources. The {@link Task}s
+	 * blocked because of the lack of resources are tried first, in the order
+	 * they have been blocked. The ready {@link Task}s which do not fit are
+	 * held in the {@link ReadyQueue} and added to the blocked ones, so lighter
+	 * {@link Task}s can use the remaining resources.
+	 * 
+	 * @param blocked
+	 *            the {@link Task}s blocked so far, updated by this method
+	 * @return the {@link Task} to execute, <code>null</code> if none can be
+	 *         executed with the available resources
+	 */
+	protected Task pollAdmissible(List<Task> blocked) {
+		if (budget == null) {
+			return readyQueue.poll();
+		} else {
+			Iterator<Task> iterator = blocked.iterator();
+			while (iterator.hasNext()) {
+				Task task = iterator.next();
+				if (budget.tryAcquire(task)) {
+					iterator.remove();
+					return task;
+				} else {
+					// still not enough resources
+				}
+			}
+			Task task;
+			while ((task = readyQueue.poll()) != null) {
+				if (budget.tryAcquire(task)) {
+					return task;
+				} else {
+					readyQueue.hold(task);
+					blocked.add(task);
+				}
+			}
+			return null;
+		}
+	}
+
+	/**
+	 * Release the resources acquired for a {@link Task} through
+	 * {@link #pollAdmissible(List)}.
+	 * 
+	 * @param task
+	 *            the {@link Task} which has finished its execution
+	 */
+	protected void releaseResources(Task task) {
+		if (budget == null) {
+			// no resource acquired
+		} else {
+			budget.release(task);
+		}
+	}
+
+	/**
+	 * Release in the {@link ReadyQueue} the {@link Task}s which have remained
+	 * blocked by {@link #pollAdmissible(List)} until the end of a run.
+	 * 
+	 * @param blocked
+	 *            the {@link Task}s blocked
+	 */
+	protected void unblock(List<Task> blocked) {
+		for (Task task : blocked) {
+			readyQueue.release(task);
+		}
+		blocked.clear();
+	}
+
+	private synchronized ExecutorService getWatchdog() {
+		if (watchdog == null) {
+			watchdog = Executors
+					.newCachedThreadPool(new DaemonThreadFactory());
+		} else {
+			// already created
+		}
+		return watchdog;
+	}
+
+	/**
+	 * 
+	 * @param task
+	 *            the {@link Task} to consider
+	 * @return <code>true</code> if the {@link Task} is the target of a
+	 *         {@link StreamLink}, <code>false</code> otherwise
+	 */
+	protected boolean isStreamConsumer(Task task) {
+		for (Link<?> link : ImmutableBenchmark.getIncomingLinks(
+				benchmark, task)) {
+			if (link instanceof StreamLink) {
+				return true;
+			} else {
+				// not a stream
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Provide the {@link ExecutorService} executing the consumers of the
+	 * {@link StreamLink}s, which gives a thread to each of them. Concurrent
+	 * runners should use it rather than their own threads, so a consumer
+	 * never waits for a thread occupied by its producer, whatever the number
+	 * of producers or stages. Its threads are daemon threads which terminate
+	 * once idle for some time.
+	 * 
+	 * @return the {@link ExecutorService} for the stream consumers
+	 */
+	protected synchronized ExecutorService getConsumerExecutor() {
+		if (consumerExecutor == null) {
+			consumerExecutor = Executors
+					.newCachedThreadPool(new DaemonThreadFactory());
+		} else {
+			// already created
+		}
+		return consumerExecutor;
+	}
+
+	/**
+	 * Hold a {@link Task} in the {@link ReadyQueue}, as well as all the
+	 * {@link Task}s which depend on it directly or indirectly, so none of them
+	 * is executed until they are released. This is typically used for a
+	 * {@link Task} which has timed out, because it could be still running and
+	 * its outputs will not be available.
+	 * 
+	 * @param task
+	 *            the {@link Task} to skip with its dependents
+	 * @param skipped
+	 *            the {@link Task}s already skipped, completed with the new
+	 *            ones
+	 */
+	protected void skipDownstream(Task task, Collection<Task> skipped) {
+		Collection<Task> known = Collections
+				.newSetFromMap(new IdentityHashMap<Task, Boolean>());
+		known.addAll(skipped);
+		Queue<Task> remaining = new LinkedList<Task>();
+		remaining.add(task);
+		while (!remaining.isEmpty()) {
+			Task next = remaining.poll();
+			if (known.add(next)) {
+				skipped.add(next);
+				readyQueue.hold(next);
+				for (Link<?> link : ImmutableBenchmark.getOutgoingLinks(
+						benchmark, next)) {
+					remaining.add(link.getTargetTask());
+				}
+			} else {
+				// already skipped
+			}
+		}
+	}
+
+	/**
+	 * Open the {@link StreamLink}s going out of a {@link Task} about to be
+	 * executed, so the {@link Task} receives the {@link Pipe}s to fill. The
+	 * {@link StreamLink}s should then be transferred, so their targets can
+	 * consume the {@link Pipe}s while the {@link Task} is executed.
+	 * 
+	 * @param task
+	 *            the {@link Task} about to be executed
+	 * @return the {@link StreamLink}s opened
+	 */
+	protected Collection<Link<?>> openStreams(Task task) {
+		Collection<Link<?>> streams = new LinkedList<Link<?>>();
+		for (Link<?> link : ImmutableBenchmark.getOutgoingLinks(
+				benchmark, task)) {
+			if (link instanceof StreamLink) {
+				StreamLink<?> stream = (StreamLink<?>) link;
+				stream.open();
+				if (isConcurrent()) {
+					// the consumer can empty the pipe
+				} else {
+					stream.getValue().forbidWaiting();
+				}
+				streams.add(link);
+			} else {
+				// transferred after the execution
 			}
-			for (Link<?> link : benchmark.getLinks()) {
-				if (link.getSourceTask() == task && link.isTransferable()) {
-					link.transfer();
-					spreadEvent(new LinkTransferedEvent(link));
+		}
+		return streams;
+	}
+
+	/**
+	 * Tell whether several {@link Task}s can be executed at the same time. If
+	 * not, the consumers of the {@link StreamLink}s are executed only once
+	 * their producers are finished, so {@link #openStreams(Task)} forbids the
+	 * producers to wait for room in their {@link Pipe}s: they fail as soon as
+	 * a {@link Pipe} is full instead of blocking the run forever.
+	 * 
+	 * @return <code>true</code> if the {@link Task}s can be executed
+	 *         concurrently, <code>false</code> otherwise
+	 */
+	protected boolean isConcurrent() {
+		return false;
+	}
+
+	/**
+	 * Forbid the producers to wait for room in their {@link Pipe}s if their
+	 * consumers are not admitted by the {@link ResourceBudget} while only such
+	 * producers are running: no {@link Task} could then release the resources
+	 * needed by the consumers, so a full {@link Pipe} would block the run
+	 * forever.
+	 * 
+	 * @param blocked
+	 *            the {@link Task}s not admitted by the {@link ResourceBudget}
+	 * @param running
+	 *            the {@link Task}s running
+	 */
+	protected void refuseBlockedStreams(Collection<Task> blocked,
+			Collection<Task> running) {
+		Collection<StreamLink<?>> streams = new LinkedList<StreamLink<?>>();
+		Collection<Task> producers = Collections
+				.newSetFromMap(new IdentityHashMap<Task, Boolean>());
+		for (Task task : blocked) {
+			for (Link<?> link : ImmutableBenchmark.getIncomingLinks(
+					benchmark, task)) {
+				if (link instanceof StreamLink
+						&& running.contains(link.getSourceTask())) {
+					streams.add((StreamLink<?>) link);
+					producers.add(link.getSourceTask());
 				} else {
-					// unrelated link
+					// not fed by a running producer
 				}
 			}
 		}
+		if (!streams.isEmpty() && producers.containsAll(running)) {
+			for (StreamLink<?> stream : streams) {
+				stream.getValue().forbidWaiting();
+			}
+		} else {
+			// other tasks may release resources for the consumers
+		}
+	}
+
+	/**
+	 * Transfer a {@link Link} if it is transferable, generate the
+	 * corresponding {@link LinkTransferedEvent}, and check whether its target
+	 * {@link Task} has become ready.
+	 * 
+	 * @param link
+	 *            the {@link Link} to transfer
+	 */
+	protected void transfer(Link<?> link) {
+		if (link.isTransferable()) {
+			link.transfer();
+			spreadEvent(new LinkTransferedEvent(link));
+			readyQueue.check(link.getTargetTask());
+		} else {
+			// nothing to transfer
+		}
+	}
+
+	/**
+	 * Enter or leave the warmup. While in warmup, the {@link BenchmarkEvent}s
+	 * generated are wrapped into {@link WarmupEvent}s. The
+	 * {@link WarmupAwareTask}s of the {@link Benchmark} are notified
+	 * immediately, so this method should not be called while the
+	 * {@link Benchmark} is running.
+	 * 
+	 * @param isWarmup
+	 *            <code>true</code> to enter the warmup, <code>false</code> to
+	 *            leave it
+	 */
+	public void setWarmup(boolean isWarmup) {
+		this.isWarmup = isWarmup;
+		if (benchmark == null) {
+			// no task to notify
+		} else {
+			for (Task task : benchmark.getTasks()) {
+				if (task instanceof WarmupAwareTask) {
+					((WarmupAwareTask) task).setWarmup(isWarmup);
+				} else {
+					// not concerned
+				}
+			}
+		}
+	}
+
+	/**
+	 * 
+	 * @return <code>true</code> if this {@link BenchmarkRunner} is in warmup,
+	 *         <code>false</code> otherwise
+	 */
+	public boolean isWarmup() {
+		return isWarmup;
+	}
+
+	/**
+	 * 
+	 * @param hook
+	 *            the {@link TaskExecutionHook} to notify around each execution
+	 *            of a {@link Task}
+	 */
+	public void registerHook(TaskExecutionHook hook) {
+		hooks.add(hook);
+	}
+
+	public void unregisterHook(TaskExecutionHook hook) {
+		hooks.remove(hook);
 	}
 
 	public void registerListener(BenchmarkEventListener listener) {
@@ -92,20 +820,147 @@ public class BenchmarkRunner {
 		listeners.remove(listener);
 	}
 
-	private void spreadEvent(BenchmarkEvent event) {
+	/**
+	 * Provide the {@link BenchmarkEvent} to all the registered
+	 * {@link BenchmarkEventListener}s.
+	 * 
+	 * @param event
+	 *            the {@link BenchmarkEvent} to spread
+	 */
+	protected void spreadEvent(BenchmarkEvent event) {
+		if (isWarmup) {
+			event = new WarmupEvent(event);
+		} else {
+			// measured event
+		}
 		for (BenchmarkEventListener listener : listeners) {
 			listener.eventGenerated(event);
 		}
 	}
 
-	private Task selectTask() {
-		for (Task task : benchmark.getTasks()) {
-			if (task.isExecutable() && task.shouldBeExecuted()) {
-				return task;
+	/**
+	 * 
+	 * @return the {@link ReadyQueue} tracking the {@link Task}s of the
+	 *         {@link Benchmark} which are ready to be executed
+	 */
+	protected ReadyQueue getReadyQueue() {
+		return readyQueue;
+	}
+
+	/**
+	 * Register an execution of a {@link Task} which may continue after the
+	 * {@link Task} has timed out and has been abandoned. It should be called
+	 * by the thread executing the {@link Task}, which has to call
+	 * {@link #unwatch(Task)} once this execution is over, whatever its
+	 * outcome.
+	 * 
+	 * @param task
+	 *            the {@link Task} about to be executed
+	 */
+	protected void watch(Task task) {
+		synchronized (watched) {
+			watched.add(task);
+		}
+	}
+
+	/**
+	 * Notify the end of an execution registered through {@link #watch(Task)}.
+	 * If the {@link Task} has been abandoned in the meantime, the resources
+	 * kept for it by {@link #releaseResourcesLater(Task)} are released.
+	 * 
+	 * @param task
+	 *            the {@link Task} which has been executed
+	 */
+	protected void unwatch(Task task) {
+		synchronized (watched) {
+			watched.remove(task);
+			if (lingering.remove(task)) {
+				releaseResources(task);
 			} else {
-				continue;
+				// resources already released
 			}
 		}
-		return null;
+	}
+
+	/**
+	 * 
+	 * @param task
+	 *            the {@link Task} to consider
+	 * @return <code>true</code> if an execution of this {@link Task}
+	 *         registered through {@link #watch(Task)} is still running,
+	 *         <code>false</code> otherwise
+	 */
+	protected boolean isWatched(Task task) {
+		synchronized (watched) {
+			return watched.contains(task);
+		}
+	}
+
+	/**
+	 * Release the resources of a {@link Task} which has timed out once its
+	 * abandoned execution is over, so the {@link Task}s executed meanwhile do
+	 * not compete with it for them.
+	 * 
+	 * @param task
+	 *            the {@link Task} which has timed out
+	 */
+	protected void releaseResourcesLater(Task task) {
+		synchronized (watched) {
+			if (watched.contains(task)) {
+				lingering.add(task);
+			} else {
+				releaseResources(task);
+			}
+		}
+	}
+
+	/**
+	 * Release in the {@link ReadyQueue} the {@link Task}s held by
+	 * {@link #skipDownstream(Task, Collection)} at the end of a run. The ones
+	 * which are still running, because they have been abandoned, remain held
+	 * until their execution is over (see {@link #releaseAbandoned()}), so they
+	 * are not executed twice at the same time.
+	 * 
+	 * @param skipped
+	 *            the {@link Task}s skipped during the run
+	 */
+	protected void releaseSkipped(Collection<Task> skipped) {
+		for (Task task : skipped) {
+			if (isWatched(task)) {
+				abandoned.add(task);
+			} else {
+				readyQueue.release(task);
+			}
+		}
+	}
+
+	/**
+	 * Release in the {@link ReadyQueue} the {@link Task}s kept held by
+	 * {@link #releaseSkipped(Collection)} which are not running anymore. It
+	 * should be called at the start of each run.
+	 */
+	protected void releaseAbandoned() {
+		Iterator<Task> iterator = abandoned.iterator();
+		while (iterator.hasNext()) {
+			Task task = iterator.next();
+			if (isWatched(task)) {
+				// still running
+			} else {
+				iterator.remove();
+				readyQueue.release(task);
+			}
+		}
+	}
+
+	private Task selectTask() {
+		releaseAbandoned();
+		Task task = readyQueue.poll();
+		if (task == null) {
+			readyQueue.checkAll();
+			task = readyQueue.poll();
+		} else {
+			// ready task already known
+		}
+		return task;
 	}
 }
@@ -0,0 +1,443 @@
+package fr.vergne.benchmark;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Queue;
+
+import fr.vergne.benchmark.impl.ForcedLink;
+import fr.vergne.benchmark.impl.ImmutableBenchmark;
+import fr.vergne.benchmark.impl.SyncLink;
+import fr.vergne.benchmark.util.IOIdentifier;
+
+/**
+ * An {@link ExecutionPlan} is a compiled view of the structure of a
+ * {@link Benchmark}, computed once to avoid browsing the {@link Task}s and
+ * {@link Link}s during the execution. Each {@link Task} receives an integer ID,
+ * from 0 to {@link #getTaskCount()} excluded, and the dependencies induced by
+ * the {@link Link}s ({@link SyncLink}s as well as {@link ForcedLink}s) are
+ * stored in dense arrays of IDs.<br/>
+ * <br/>
+ * The {@link Task}s are ordered topologically and grouped by level: a
+ * {@link Task} of level 0 does not depend on any other, while a {@link Task}
+ * of level N depends at least on a {@link Task} of level N-1. Cycles are
+ * allowed (e.g. a {@link ForcedLink} used to reset a previous {@link Task}),
+ * but the {@link Task}s involved are reported by {@link #getCyclicTasks()} and
+ * are ordered after the others.<br/>
+ * <br/>
+ * Some problems can also be identified before to run the {@link Benchmark},
+ * like the {@link Task}s which will never be executable (see
+ * {@link #getNeverExecutableTasks()}).
+ * 
+ * @author Matthieu Vergne <matthieu.vergne@gmail.com>
+ * 
+ */
+public class ExecutionPlan {
+
+	private final Benchmark benchmark;
+	private final Task[] tasks;
+	private final Map<Task, Integer> ids = new IdentityHashMap<Task, Integer>();
+	private final int[] successorOffsets;
+	private final int[] successors;
+	private final int[] predecessorOffsets;
+	private final int[] predecessors;
+	private final int[] order;
+	private final int[] levels;
+	private final int[][] levelTasks;
+	private final Collection<Task> cyclicTasks;
+	private final Collection<Task> neverExecutableTasks;
+
+	/**
+	 * 
+	 * @param benchmark
+	 *            the {@link Benchmark} to compile
+	 * @param inputs
+	 *            the inputs of the {@link Task}s used as inputs of the
+	 *            {@link Benchmark}, which can receive values from outside the
+	 *            {@link Benchmark}
+	 */
+	ExecutionPlan(Benchmark benchmark, Collection<IOIdentifier> inputs) {
+		this.benchmark = benchmark;
+		this.tasks = benchmark.getTasks().toArray(new Task[0]);
+		for (Task task : tasks) {
+			ids.put(task, ids.size());
+		}
+
+		int count = tasks.length;
+		int[][] successorIds = new int[count][];
+		int[][] predecessorIds = new int[count][];
+		for (int id = 0; id < count; id++) {
+			successorIds[id] = toIds(
+					ImmutableBenchmark.getOutgoingLinks(benchmark, tasks[id]),
+					true);
+			predecessorIds[id] = toIds(
+					ImmutableBenchmark.getIncomingLinks(benchmark, tasks[id]),
+					false);
+		}
+		successorOffsets = new int[count + 1];
+		successors = flatten(successorIds, successorOffsets);
+		predecessorOffsets = new int[count + 1];
+		predecessors = flatten(predecessorIds, predecessorOffsets);
+
+		order = new int[count];
+		levels = new int[count];
+		cyclicTasks = Collections.unmodifiableCollection(sortTopologically());
+		levelTasks = groupByLevel();
+		neverExecutableTasks = Collections
+				.unmodifiableCollection(searchNeverExecutableTasks(inputs));
+	}
+
+	private int[] toIds(Collection<Link<?>> links, boolean targets) {
+		int[] linked = new int[links.size()];
+		int size = 0;
+		for (Link<?> link : links) {
+			int id = getId(targets ? link.getTargetTask() : link
+					.getSourceTask());
+			boolean isKnown = false;
+			for (int index = 0; index < size && !isKnown; index++) {
+				isKnown = linked[index] == id;
+			}
+			if (isKnown) {
+				// several links between the same tasks
+			} else {
+				linked[size++] = id;
+			}
+		}
+		return Arrays.copyOf(linked, size);
+	}
+
+	private int[] flatten(int[][] arrays, int[] offsets) {
+		int total = 0;
+		for (int id = 0; id < arrays.length; id++) {
+			offsets[id] = total;
+			total += arrays[id].length;
+		}
+		offsets[arrays.length] = total;
+		int[] flat = new int[total];
+		for (int id = 0; id < arrays.length; id++) {
+			System.arraycopy(arrays[id], 0, flat, offsets[id],
+					arrays[id].length);
+		}
+		return flat;
+	}
+
+	private Collection<Task> sortTopologically() {
+		int count = tasks.length;
+		int[] remaining = new int[count];
+		Queue<Integer> free = new ArrayDeque<Integer>();
+		for (int id = 0; id < count; id++) {
+			remaining[id] = predecessorOffsets[id + 1] - predecessorOffsets[id];
+			if (remaining[id] == 0) {
+				free.add(id);
+			} else {
+				// wait for its predecessors
+			}
+		}
+
+		boolean[] sorted = new boolean[count];
+		int size = 0;
+		while (!free.isEmpty()) {
+			int id = free.poll();
+			order[size++] = id;
+			sorted[id] = true;
+			levels[id] = computeLevel(id, sorted);
+			for (int index = successorOffsets[id]; index < successorOffsets[id + 1]; index++) {
+				int successor = successors[index];
+				remaining[successor]--;
+				if (remaining[successor] == 0) {
+					free.add(successor);
+				} else {
+					// wait for the other predecessors
+				}
+			}
+		}
+
+		Collection<Task> cyclic = new LinkedList<Task>();
+		for (int id = 0; id < count; id++) {
+			if (sorted[id]) {
+				// not in a cycle
+			} else {
+				order[size++] = id;
+				sorted[id] = true;
+				levels[id] = computeLevel(id, sorted);
+				cyclic.add(tasks[id]);
+			}
+		}
+		return cyclic;
+	}
+
+	private int computeLevel(int id, boolean[] sorted) {
+		int level = 0;
+		for (int index = predecessorOffsets[id]; index < predecessorOffsets[id + 1]; index++) {
+			int predecessor = predecessors[index];
+			if (sorted[predecessor] && predecessor != id) {
+				level = Math.max(level, levels[predecessor] + 1);
+			} else {
+				// cyclic dependency, ignored
+			}
+		}
+		return level;
+	}
+
+	private int[][] groupByLevel() {
+		int levelCount = 0;
+		for (int level : levels) {
+			levelCount = Math.max(levelCount, level + 1);
+		}
+		int[] sizes = new int[levelCount];
+		for (int level : levels) {
+			sizes[level]++;
+		}
+		int[][] grouped = new int[levelCount][];
+		for (int level = 0; level < levelCount; level++) {
+			grouped[level] = new int[sizes[level]];
+			sizes[level] = 0;
+		}
+		for (int id : order) {
+			int level = levels[id];
+			grouped[level][sizes[level]++] = id;
+		}
+		return grouped;
+	}
+
+	private Collection<Task> searchNeverExecutableTasks(
+			Collection<IOIdentifier> inputs) {
+		Map<Task, Collection<Object>> inputIds = new IdentityHashMap<Task, Collection<Object>>();
+		for (IOIdentifier input : inputs) {
+			Collection<Object> ids = inputIds.get(input.getTask());
+			if (ids == null) {
+				ids = new HashSet<Object>();
+				inputIds.put(input.getTask(), ids);
+			} else {
+				// already an input of the benchmark
+			}
+			ids.add(input.getId());
+		}
+
+		boolean[] never = new boolean[tasks.length];
+		for (int id = 0; id < tasks.length; id++) {
+			never[id] = !tasks[id].isExecutable();
+		}
+
+		// a task fed by a never executed task may miss one of its inputs
+		boolean isChanged = true;
+		while (isChanged) {
+			isChanged = false;
+			for (int id = 0; id < tasks.length; id++) {
+				if (never[id]
+						&& canReceiveInputs(id, inputIds.get(tasks[id]), never)) {
+					never[id] = false;
+					isChanged = true;
+				} else {
+					// nothing new
+				}
+			}
+		}
+
+		Collection<Task> found = new LinkedList<Task>();
+		for (int id : order) {
+			if (never[id]) {
+				found.add(tasks[id]);
+			} else {
+				// can be executed
+			}
+		}
+		return found;
+	}
+
+	/**
+	 * Tell whether each input of a {@link Task} which is fed by a
+	 * {@link Link} or by an input of the {@link Benchmark} can receive a
+	 * value. The inputs fed only by {@link ForcedLink}s are not required,
+	 * because such {@link Link}s are typically used to reset a {@link Task},
+	 * but they can still provide a value.
+	 */
+	private boolean canReceiveInputs(int id, Collection<Object> inputIds,
+			boolean[] never) {
+		Collection<Object> required = new HashSet<Object>();
+		Collection<Object> received = new HashSet<Object>();
+		if (inputIds == null) {
+			// not an input of the benchmark
+		} else {
+			required.addAll(inputIds);
+			received.addAll(inputIds);
+		}
+		for (Link<?> link : ImmutableBenchmark.getIncomingLinks(benchmark,
+				tasks[id])) {
+			if (link instanceof ForcedLink) {
+				// optional input
+			} else {
+				required.add(link.getTargetId());
+			}
+			if (never[getId(link.getSourceTask())]) {
+				// no value to receive
+			} else {
+				received.add(link.getTargetId());
+			}
+		}
+		return required.isEmpty() ? !received.isEmpty() : received
+				.containsAll(required);
+	}
+
+	/**
+	 * 
+	 * @return the {@link Benchmark} compiled in this {@link ExecutionPlan}
+	 */
+	public Benchmark getBenchmark() {
+		return benchmark;
+	}
+
+	/**
+	 * 
+	 * @return the number of {@link Task}s in this {@link ExecutionPlan}
+	 */
+	public int getTaskCount() {
+		return tasks.length;
+	}
+
+	/**
+	 * 
+	 * @param task
+	 *            a {@link Task} of the {@link Benchmark}
+	 * @return the ID of this {@link Task}
+	 */
+	public int getId(Task task) {
+		Integer id = ids.get(task);
+		if (id == null) {
+			throw new NoSuchElementException("Unknown task: " + task);
+		} else {
+			return id;
+		}
+	}
+
+	/**
+	 * 
+	 * @param id
+	 *            the ID of a {@link Task}
+	 * @return the {@link Task} having this ID
+	 */
+	public Task getTask(int id) {
+		return tasks[id];
+	}
+
+	/**
+	 * 
+	 * @param id
+	 *            the ID of a {@link Task}
+	 * @return the IDs of the {@link Task}s receiving a {@link Link} from this
+	 *         {@link Task}
+	 */
+	public int[] getSuccessors(int id) {
+		return Arrays.copyOfRange(successors, successorOffsets[id],
+				successorOffsets[id + 1]);
+	}
+
+	/**
+	 * 
+	 * @param id
+	 *            the ID of a {@link Task}
+	 * @return the IDs of the {@link Task}s providing a {@link Link} to this
+	 *         {@link Task}
+	 */
+	public int[] getPredecessors(int id) {
+		return Arrays.copyOfRange(predecessors, predecessorOffsets[id],
+				predecessorOffsets[id + 1]);
+	}
+
+	/**
+	 * 
+	 * @return the IDs of all the {@link Task}s, each {@link Task} being after
+	 *         the ones it depends on (excepted for cycles)
+	 */
+	public int[] getTopologicalOrder() {
+		return order.clone();
+	}
+
+	/**
+	 * 
+	 * @param id
+	 *            the ID of a {@link Task}
+	 * @return the dependency level of the {@link Task}
+	 */
+	public int getLevel(int id) {
+		return levels[id];
+	}
+
+	/**
+	 * 
+	 * @return the number of dependency levels
+	 */
+	public int getLevelCount() {
+		return levelTasks.length;
+	}
+
+	/**
+	 * 
+	 * @param level
+	 *            a dependency level
+	 * @return the IDs of the {@link Task}s of this level, in topological
+	 *         order
+	 */
+	public int[] getTasksAtLevel(int level) {
+		return levelTasks[level].clone();
+	}
+
+	/**
+	 * 
+	 * @return <code>true</code> if the {@link Link}s do not form any cycle,
+	 *         <code>false</code> otherwise
+	 */
+	public boolean isAcyclic() {
+		return cyclicTasks.isEmpty();
+	}
+
+	/**
+	 * 
+	 * @return the {@link Task}s which are part of a cycle or depend on one
+	 */
+	public Collection<Task> getCyclicTasks() {
+		return cyclicTasks;
+	}
+
+	/**
+	 * A {@link Task} is considered as never executable if it is not
+	 * executable yet and one of its inputs cannot receive a value: the input
+	 * is not an input of the {@link Benchmark} and all the {@link Task}s
+	 * linked to it are never executable too. The inputs fed only by
+	 * {@link ForcedLink}s are not considered as required, unless the
+	 * {@link Task} has no other way to receive a value, and the inputs fed by
+	 * nothing are assumed to be already set. Such a {@link Task} cannot
+	 * receive all its inputs during the execution, so it will never be
+	 * executed unless they are set manually.
+	 * 
+	 * @return the {@link Task}s which will never be executable
+	 */
+	public Collection<Task> getNeverExecutableTasks() {
+		return neverExecutableTasks;
+	}
+
+	/**
+	 * 
+	 * @return the {@link Task}s of each level, from the level 0 to the last
+	 */
+	public List<Collection<Task>> getLevels() {
+		List<Collection<Task>> list = new ArrayList<Collection<Task>>(
+				levelTasks.length);
+		for (int[] level : levelTasks) {
+			Collection<Task> collection = new ArrayList<Task>(level.length);
+			for (int id : level) {
+				collection.add(tasks[id]);
+			}
+			list.add(Collections.unmodifiableCollection(collection));
+		}
+		return list;
+	}
+}
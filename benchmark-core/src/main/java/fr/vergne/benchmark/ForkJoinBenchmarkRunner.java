@@ -0,0 +1,654 @@
+package fr.vergne.benchmark;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import fr.vergne.benchmark.event.BenchmarkEvent;
+import fr.vergne.benchmark.event.BenchmarkEventListener;
+import fr.vergne.benchmark.event.LinkTransferedEvent;
+import fr.vergne.benchmark.event.TaskExecutedEvent;
+import fr.vergne.benchmark.event.TaskFailedEvent;
+import fr.vergne.benchmark.event.TaskSelectedEvent;
+import fr.vergne.benchmark.event.TaskTimedOutEvent;
+import fr.vergne.benchmark.impl.StreamLink;
+import fr.vergne.benchmark.util.ReadyQueue;
+import fr.vergne.benchmark.util.ResourceBudget;
+
+/**
+ * A {@link ForkJoinBenchmarkRunner} is a {@link BenchmarkRunner} which
+ * executes concurrently the {@link Task}s of the {@link Benchmark} through a
+ * {@link ForkJoinPool}. Contrary to the {@link ParallelBenchmarkRunner}, there
+ * is no coordinating thread nor central queue: the worker which finishes a
+ * {@link Task} transfers its {@link Link}s itself and forks the {@link Task}s
+ * which become ready, which are pushed on its own deque. The worker thus
+ * continues with the {@link Task}s which depend on the one it has just
+ * executed, while idle workers steal the remaining ones. This is relevant for
+ * {@link Task}s which are so fast that a central queue becomes the
+ * bottleneck.<br/>
+ * <br/>
+ * The readiness is tracked for each {@link Task} separately: each
+ * {@link Task} counts its sources being executed, and the worker which
+ * finishes the last of them checks whether the {@link Task} is ready and
+ * claims it, while holding only the lock of this {@link Task}. Only the
+ * {@link RunSummary}, the stop conditions and the {@link BenchmarkEvent}s are
+ * synchronized on the whole run, so the {@link BenchmarkEventListener}s do not
+ * need to be thread safe, although they are called from different threads.
+ * The {@link BenchmarkEvent}s of a given {@link Task} are generated in the
+ * same order than with a {@link ParallelBenchmarkRunner}, and a {@link Task}
+ * is never executed twice at the same time. Like for the
+ * {@link ParallelBenchmarkRunner}, a {@link ResourceBudget} can limit the
+ * {@link Task}s executed concurrently, and the {@link StreamLink}s are
+ * transferred when their source {@link Task} is forked, their consumers being
+ * executed on threads of their own rather than by the workers. A
+ * {@link TaskSelectionPolicy} orders only the {@link Task}s ready at the start
+ * of the run, the other ones being forked as soon as they are ready.
+ * 
+ * @author Matthieu Vergne <matthieu.vergne@gmail.com>
+ * 
+ */
+public class ForkJoinBenchmarkRunner extends BenchmarkRunner {
+
+	private final ForkJoinPool pool;
+
+	/**
+	 * Creates a {@link ForkJoinBenchmarkRunner} which executes the
+	 * {@link Task}s through the given {@link ForkJoinPool}. This
+	 * {@link ForkJoinPool} is not shut down by this runner.
+	 * 
+	 * @param pool
+	 *            the {@link ForkJoinPool} to use
+	 */
+	public ForkJoinBenchmarkRunner(ForkJoinPool pool) {
+		this.pool = pool;
+	}
+
+	/**
+	 * Creates a {@link ForkJoinBenchmarkRunner} with its own
+	 * {@link ForkJoinPool} of the given parallelism.
+	 * 
+	 * @param parallelism
+	 *            the maximum number of {@link Task}s executed concurrently
+	 */
+	public ForkJoinBenchmarkRunner(int parallelism) {
+		this(new ForkJoinPool(parallelism));
+	}
+
+	/**
+	 * Equivalent to {@link #ForkJoinBenchmarkRunner(int)} with as many
+	 * workers as available processors.
+	 */
+	public ForkJoinBenchmarkRunner() {
+		this(Runtime.getRuntime().availableProcessors());
+	}
+
+	public ForkJoinPool getPool() {
+		return pool;
+	}
+
+	/**
+	 * The consumers of the {@link StreamLink}s are executed outside of the
+	 * {@link ForkJoinPool}, so they are always executed while their producers
+	 * are running.
+	 */
+	@Override
+	protected boolean isConcurrent() {
+		return true;
+	}
+
+	/**
+	 * Execute all the {@link Task}s of the {@link Benchmark} until none of
+	 * them is ready to be executed anymore, like
+	 * {@link ParallelBenchmarkRunner#run()}.
+	 * 
+	 * @throws NoTaskToRunException
+	 *             if no {@link Task} of the {@link Benchmark} can be selected
+	 *             for execution
+	 * @throws FailedTaskException
+	 *             if one of the {@link Task}s executed has generated an
+	 *             exception
+	 */
+	@Override
+	public void run() throws NoTaskToRunException {
+		RunSummary summary = execute(null, Integer.MAX_VALUE, true);
+		if (summary.getSteps() == 0) {
+			throw new NoTaskToRunException(getBenchmark());
+		} else if (summary.hasFailures()) {
+			TaskFailedEvent failure = summary.getFailures().get(0);
+			throw new FailedTaskException(failure.getTask(), failure.getCause());
+		} else {
+			// all tasks executed successfully
+		}
+	}
+
+	/**
+	 * Same as {@link BenchmarkRunner#runUntil(StopCondition)}, but the
+	 * {@link Task}s are executed concurrently. The {@link StopCondition} is
+	 * evaluated before each {@link Task} is forked, and the {@link Task}s
+	 * already running when it is reached are waited for.
+	 */
+	@Override
+	public RunSummary runUntil(StopCondition condition) {
+		return execute(condition, Integer.MAX_VALUE, false);
+	}
+
+	/**
+	 * Same as {@link BenchmarkRunner#runSteps(int)}, but the {@link Task}s are
+	 * executed concurrently.
+	 */
+	@Override
+	public RunSummary runSteps(int steps) {
+		return execute(null, steps, false);
+	}
+
+	private RunSummary execute(StopCondition condition, int maxSteps,
+			boolean stopOnFailure) {
+		Run run = new Run(condition, maxSteps, stopOnFailure);
+		try {
+			List<TaskAction> actions;
+			synchronized (run) {
+				releaseAbandoned();
+				run.createNodes();
+				getReadyQueue().checkAll();
+				actions = run.pollReady();
+			}
+			for (TaskAction action : actions) {
+				pool.execute(action);
+			}
+			synchronized (run) {
+				while (!run.running.isEmpty()) {
+					try {
+						run.wait();
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+						throw new IllegalStateException(
+								"Interrupted while waiting for the running tasks.",
+								e);
+					}
+				}
+				if (run.error == null) {
+					// tasks blocked by abandoned ones are executed by another run
+					run.summary.finish(!run.isStopped && run.blocked.isEmpty());
+					return run.summary;
+				} else if (run.error instanceof Error) {
+					throw (Error) run.error;
+				} else {
+					throw (RuntimeException) run.error;
+				}
+			}
+		} finally {
+			synchronized (run) {
+				unblock(run.blocked);
+				releaseSkipped(run.skipped);
+				getReadyQueue().resumeAll();
+			}
+		}
+	}
+
+	/**
+	 * A {@link Node} tracks the readiness of a {@link Task} during a
+	 * {@link Run}. Its fields are guarded by the {@link Node} itself, except
+	 * the counter of running sources, which is atomic.
+	 */
+	private static class Node {
+		private final Task task;
+		private final List<Link<?>> outgoingLinks = new LinkedList<Link<?>>();
+		private final List<Node> targets = new LinkedList<Node>();
+		private final AtomicInteger runningSources = new AtomicInteger();
+		private final Collection<Link<?>> postponed = new LinkedList<Link<?>>();
+		private boolean isClaimed = false;
+		private boolean isRunning = false;
+		private boolean isSuspended = false;
+
+		public Node(Task task) {
+			this.task = task;
+		}
+	}
+
+	/**
+	 * A {@link Run} gathers the state of a single call to
+	 * {@link ForkJoinBenchmarkRunner#execute(StopCondition, int, boolean)}. It
+	 * is also the lock used to synchronize the {@link RunSummary}, the stop
+	 * conditions and the {@link BenchmarkEvent}s.
+	 */
+	private class Run {
+		private final StopCondition condition;
+		private final int maxSteps;
+		private final boolean stopOnFailure;
+		private final Map<Task, Node> nodes = new IdentityHashMap<Task, Node>();
+		private final RunSummary summary = new RunSummary();
+		private final Collection<Task> running = new HashSet<Task>();
+		private final Collection<Task> skipped = Collections
+				.newSetFromMap(new ConcurrentHashMap<Task, Boolean>());
+		private final List<Task> blocked = new LinkedList<Task>();
+		private int dispatched = 0;
+		private boolean isStopped = false;
+		private Throwable error = null;
+
+		public Run(StopCondition condition, int maxSteps, boolean stopOnFailure) {
+			this.condition = condition;
+			this.maxSteps = maxSteps;
+			this.stopOnFailure = stopOnFailure;
+		}
+
+		/**
+		 * Create the {@link Node}s of the {@link Task}s, which are not
+		 * modified afterwards. The {@link Task}s still executed by a previous
+		 * run are considered as running.
+		 */
+		public void createNodes() {
+			Benchmark benchmark = getBenchmark();
+			for (Task task : benchmark.getTasks()) {
+				Node node = new Node(task);
+				if (isWatched(task)) {
+					node.isClaimed = true;
+					node.isRunning = true;
+				} else {
+					// available
+				}
+				nodes.put(task, node);
+			}
+			for (Link<?> link : benchmark.getLinks()) {
+				Node source = nodes.get(link.getSourceTask());
+				source.outgoingLinks.add(link);
+				source.targets.add(nodes.get(link.getTargetTask()));
+			}
+		}
+
+		/**
+		 * Dispatch the {@link Task}s which are ready according to the
+		 * {@link ReadyQueue}, unless the run has to stop.
+		 * 
+		 * @return the {@link TaskAction}s to fork
+		 */
+		public List<TaskAction> pollReady() {
+			ReadyQueue readyQueue = getReadyQueue();
+			List<TaskAction> actions = new LinkedList<TaskAction>();
+			Task task;
+			while (!shouldStop() && (task = readyQueue.poll()) != null) {
+				Node node = nodes.get(task);
+				if (claim(node)) {
+					dispatch(node, actions);
+				} else {
+					// claimed by a worker in the meantime
+				}
+			}
+			refuseBlockedStreams(blocked, running);
+			return actions;
+		}
+
+		/**
+		 * 
+		 * @return <code>true</code> if no {@link Task} should be dispatched
+		 *         anymore, <code>false</code> otherwise
+		 */
+		private boolean shouldStop() {
+			if (isStopped || error != null) {
+				return true;
+			} else if (dispatched >= maxSteps || stopOnFailure
+					&& summary.hasFailures() || condition != null
+					&& condition.isReached(summary)) {
+				isStopped = true;
+				return true;
+			} else {
+				return false;
+			}
+		}
+
+		/**
+		 * Claim a {@link Node} if its {@link Task} is ready, so no other
+		 * worker dispatches it. Only the lock of the {@link Node} is taken.
+		 * 
+		 * @return <code>true</code> if the {@link Node} has been claimed,
+		 *         <code>false</code> otherwise
+		 */
+		private boolean claim(Node node) {
+			synchronized (node) {
+				if (node.isClaimed || node.isSuspended
+						|| node.runningSources.get() > 0
+						|| skipped.contains(node.task)
+						|| !node.task.isExecutable()
+						|| !node.task.shouldBeExecuted()) {
+					return false;
+				} else {
+					node.isClaimed = true;
+					return true;
+				}
+			}
+		}
+
+		private void unclaim(Node node) {
+			synchronized (node) {
+				node.isClaimed = false;
+			}
+		}
+
+		/**
+		 * Transfer a {@link Link} to its target, or postpone it if the target
+		 * is running. Only the lock of the target {@link Node} is taken.
+		 * 
+		 * @return <code>true</code> if the {@link Link} has been transferred,
+		 *         <code>false</code> otherwise
+		 */
+		private boolean transferTo(Node target, Link<?> link) {
+			synchronized (target) {
+				if (target.isRunning) {
+					target.postponed.add(link);
+					return false;
+				} else if (link.isTransferable()) {
+					link.transfer();
+					target.isSuspended = false;
+					return true;
+				} else {
+					return false;
+				}
+			}
+		}
+
+		/**
+		 * Start a claimed {@link Node} if the run does not have to stop and
+		 * the {@link ResourceBudget} admits it. Its {@link StreamLink}s are
+		 * transferred, so their consumers are dispatched too if they are
+		 * ready.
+		 * 
+		 * @param actions
+		 *            the {@link TaskAction}s to fork, completed with the ones
+		 *            dispatched
+		 */
+		private void dispatch(Node node, List<TaskAction> actions) {
+			ResourceBudget budget = getResourceBudget();
+			Task task = node.task;
+			if (shouldStop()) {
+				unclaim(node);
+			} else if (budget != null && !budget.tryAcquire(task)) {
+				// remains claimed until admitted
+				blocked.add(task);
+			} else {
+				start(node, actions);
+			}
+		}
+
+		/**
+		 * Start a {@link Node} admitted by the {@link ResourceBudget}.
+		 */
+		private void start(Node node, List<TaskAction> actions) {
+			Task task = node.task;
+			synchronized (node) {
+				node.isRunning = true;
+			}
+			running.add(task);
+			dispatched++;
+			spreadEvent(new TaskSelectedEvent(task));
+			final TaskAction action = new TaskAction(this, node);
+			if (isStreamConsumer(task)) {
+				// never waits for a worker occupied by its producer
+				getConsumerExecutor().execute(new Runnable() {
+
+					@Override
+					public void run() {
+						action.invoke();
+					}
+				});
+			} else {
+				actions.add(action);
+			}
+			Iterator<Node> targets = node.targets.iterator();
+			for (Link<?> link : node.outgoingLinks) {
+				Node target = targets.next();
+				if (link instanceof StreamLink) {
+					// consumed while the task is running
+				} else {
+					target.runningSources.incrementAndGet();
+				}
+			}
+			for (Link<?> link : openStreams(task)) {
+				Node consumer = nodes.get(link.getTargetTask());
+				if (transferTo(consumer, link)) {
+					spreadEvent(new LinkTransferedEvent(link));
+				} else {
+					// postponed
+				}
+				if (claim(consumer)) {
+					dispatch(consumer, actions);
+				} else {
+					// not ready
+				}
+			}
+		}
+
+		/**
+		 * Update the {@link Node}s once a {@link Task} is finished: transfer
+		 * its {@link Link}s if it has succeeded and claim the {@link Task}s
+		 * which become ready. Only the locks of the {@link Node}s concerned
+		 * are taken, so several workers can do it concurrently.
+		 * 
+		 * @param transferred
+		 *            the {@link Link}s transferred, to notify later
+		 * @return the {@link Node}s claimed, to dispatch
+		 */
+		public List<Node> propagate(Node node, boolean isSuccessful,
+				boolean isTimedOut, List<Link<?>> transferred) {
+			List<Node> ready = new LinkedList<Node>();
+			if (isTimedOut) {
+				// still running, the dependent tasks are skipped
+				return ready;
+			} else {
+				Collection<Link<?>> postponed;
+				synchronized (node) {
+					node.isRunning = false;
+					node.isClaimed = false;
+					node.isSuspended = !isSuccessful;
+					postponed = new LinkedList<Link<?>>(node.postponed);
+					node.postponed.clear();
+				}
+				for (Link<?> link : postponed) {
+					if (transferTo(node, link)) {
+						transferred.add(link);
+					} else {
+						// nothing new to transfer
+					}
+				}
+
+				Iterator<Node> targets = node.targets.iterator();
+				for (Link<?> link : node.outgoingLinks) {
+					Node target = targets.next();
+					if (link instanceof StreamLink) {
+						// transferred when the task has started
+					} else {
+						if (isSuccessful && transferTo(target, link)) {
+							transferred.add(link);
+						} else {
+							// nothing to transfer
+						}
+						if (target.runningSources.decrementAndGet() == 0
+								&& claim(target)) {
+							ready.add(target);
+						} else {
+							// not ready
+						}
+					}
+				}
+				if (claim(node)) {
+					ready.add(node);
+				} else {
+					// not ready anymore
+				}
+				return ready;
+			}
+		}
+
+		/**
+		 * Generate the {@link BenchmarkEvent}s corresponding to the end of a
+		 * {@link Task} and dispatch the {@link Task}s which have become ready.
+		 * 
+		 * @return the {@link TaskAction}s to fork
+		 */
+		public List<TaskAction> complete(Node node, TaskFailedEvent failure,
+				long duration, List<Link<?>> transferred, List<Node> ready) {
+			Task task = node.task;
+			running.remove(task);
+			if (failure instanceof TaskTimedOutEvent) {
+				releaseResourcesLater(task);
+			} else {
+				releaseResources(task);
+			}
+			summary.countStep();
+			summary.addExecutionTime(duration);
+			notifyExecution(task, duration);
+			if (failure == null) {
+				spreadEvent(new TaskExecutedEvent(task, duration,
+						TimeUnit.NANOSECONDS));
+			} else {
+				spreadEvent(failure);
+				summary.addFailure(failure);
+				if (failure instanceof TaskTimedOutEvent) {
+					skipDownstream(task, skipped);
+					blocked.removeAll(skipped);
+				} else {
+					// suspended until it receives new inputs
+				}
+			}
+			for (Link<?> link : transferred) {
+				spreadEvent(new LinkTransferedEvent(link));
+			}
+			return dispatchAll(ready);
+		}
+
+		/**
+		 * Abort the run because of an error raised by a {@link Task} or by
+		 * the bookkeeping of its end.
+		 * 
+		 * @return the {@link TaskAction}s to fork, none
+		 */
+		public List<TaskAction> fail(Node node, Throwable e, List<Node> ready) {
+			running.remove(node.task);
+			releaseResources(node.task);
+			abort(e);
+			return dispatchAll(ready);
+		}
+
+		/**
+		 * Dispatch the {@link Node}s claimed, then the blocked {@link Task}s
+		 * which are now admitted by the {@link ResourceBudget}.
+		 */
+		private List<TaskAction> dispatchAll(List<Node> ready) {
+			List<TaskAction> actions = new LinkedList<TaskAction>();
+			for (Node node : ready) {
+				dispatch(node, actions);
+			}
+			Iterator<Task> iterator = blocked.iterator();
+			ResourceBudget budget = getResourceBudget();
+			while (!shouldStop() && iterator.hasNext()) {
+				Task task = iterator.next();
+				if (budget.tryAcquire(task)) {
+					iterator.remove();
+					start(nodes.get(task), actions);
+				} else {
+					// still not enough resources
+				}
+			}
+			refuseBlockedStreams(blocked, running);
+			return actions;
+		}
+
+		/**
+		 * Record an error which aborts the run: no new {@link Task} is
+		 * executed, and the first error is rethrown once the running
+		 * {@link Task}s are finished.
+		 */
+		public void abort(Throwable e) {
+			if (error == null) {
+				error = e;
+			} else if (error != e) {
+				error.addSuppressed(e);
+			} else {
+				// already recorded
+			}
+			isStopped = true;
+		}
+	}
+
+	/**
+	 * A {@link TaskAction} executes a single {@link Task}, then forks the
+	 * {@link Task}s which have become ready. They are not joined, so long
+	 * chains of {@link Task}s do not grow the stack: the end of the run is
+	 * notified through the {@link Run} once no {@link Task} is running.
+	 */
+	@SuppressWarnings("serial")
+	private class TaskAction extends RecursiveAction {
+		private final Run run;
+		private final Node node;
+
+		public TaskAction(Run run, Node node) {
+			this.run = run;
+			this.node = node;
+		}
+
+		@Override
+		protected void compute() {
+			Task task = node.task;
+			long start = System.nanoTime();
+			BenchmarkEvent result = null;
+			Throwable error = null;
+			try {
+				result = watchExecution(task);
+			} catch (RuntimeException | Error e) {
+				// typically an Error, which aborts the run
+				error = e;
+			}
+			List<Link<?>> transferred = new LinkedList<Link<?>>();
+			List<Node> ready;
+			List<TaskAction> actions;
+			if (error == null) {
+				long duration = getExecutionTime(task, result, start);
+				TaskFailedEvent failure = result instanceof TaskFailedEvent
+						? (TaskFailedEvent) result : null;
+				ready = run.propagate(node, failure == null,
+						failure instanceof TaskTimedOutEvent, transferred);
+				synchronized (run) {
+					try {
+						actions = run.complete(node, failure, duration,
+								transferred, ready);
+					} catch (RuntimeException | Error e) {
+						// typically a listener which has failed
+						actions = run.fail(node, e, ready);
+					}
+					notifyEnd();
+				}
+			} else {
+				ready = run.propagate(node, false, false, transferred);
+				synchronized (run) {
+					actions = run.fail(node, error, ready);
+					notifyEnd();
+				}
+			}
+			for (TaskAction action : actions) {
+				if (ForkJoinTask.getPool() == pool) {
+					action.fork();
+				} else {
+					// executed by a stream consumer thread
+					pool.execute(action);
+				}
+			}
+		}
+
+		private void notifyEnd() {
+			if (run.running.isEmpty()) {
+				run.notifyAll();
+			} else {
+				// other tasks still running
+			}
+		}
+	}
+}
@@ -0,0 +1,30 @@
+package fr.vergne.benchmark;
+
+import java.util.Collection;
+
+import fr.vergne.benchmark.impl.ImmutableBenchmark;
+
+/**
+ * An {@link InvalidatableTask} is a {@link Task} which can be requested to be
+ * executed again, for instance because a value it depends on has changed (see
+ * {@link ImmutableBenchmark#invalidate(Task)}). Once invalidated, the
+ * {@link Task} should be executed again as soon as the inputs invalidated have
+ * been set again.
+ * 
+ * @author Matthieu Vergne <matthieu.vergne@gmail.com>
+ * 
+ */
+public interface InvalidatableTask extends Task {
+
+	/**
+	 * Consider this {@link Task} as not executed and the given inputs as not
+	 * set, so {@link #shouldBeExecuted()} returns <code>true</code> and
+	 * {@link #isExecutable()} returns <code>false</code> until these inputs
+	 * are set again.
+	 * 
+	 * @param inputIds
+	 *            the IDs of the inputs which will receive new values, possibly
+	 *            none
+	 */
+	public void invalidate(Collection<Object> inputIds);
+}
@@ -0,0 +1,532 @@
+package fr.vergne.benchmark;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import fr.vergne.benchmark.event.BenchmarkEvent;
+import fr.vergne.benchmark.event.BenchmarkEventListener;
+import fr.vergne.benchmark.event.LinkTransferedEvent;
+import fr.vergne.benchmark.event.TaskExecutedEvent;
+import fr.vergne.benchmark.event.TaskFailedEvent;
+import fr.vergne.benchmark.event.TaskSelectedEvent;
+import fr.vergne.benchmark.event.TaskTimedOutEvent;
+import fr.vergne.benchmark.impl.ImmutableBenchmark;
+import fr.vergne.benchmark.impl.StreamLink;
+import fr.vergne.benchmark.util.DaemonThreadFactory;
+import fr.vergne.benchmark.util.Pipe;
+import fr.vergne.benchmark.util.ReadyQueue;
+import fr.vergne.benchmark.util.ResourceBudget;
+
+/**
+ * A {@link ParallelBenchmarkRunner} is a {@link BenchmarkRunner} which executes
+ * concurrently all the {@link Task}s of the {@link Benchmark} which are ready
+ * to be executed. The {@link Task}s are executed through an
+ * {@link ExecutorService}, which can be provided to control the threads used.<br/>
+ * <br/>
+ * The {@link BenchmarkEvent}s are all generated by the thread calling
+ * {@link #run()}, so the {@link BenchmarkEventListener}s do not need to be
+ * thread safe. For a given {@link Task}, they are generated in the same order
+ * than with a {@link BenchmarkRunner}: a {@link TaskSelectedEvent} when the
+ * {@link Task} is submitted for execution, then a {@link TaskExecutedEvent} or
+ * a {@link TaskFailedEvent} when it finishes, and finally a
+ * {@link LinkTransferedEvent} for each {@link Link} transferred from it.<br/>
+ * <br/>
+ * A {@link Task} is never executed twice at the same time and its inputs are
+ * never set while it is executed: a {@link Link} targeting a running
+ * {@link Task} is transferred once this {@link Task} has finished. The only
+ * exception is the {@link StreamLink}, which is transferred when its source
+ * {@link Task} is submitted, so the consumer is executed while the producer
+ * fills the {@link Pipe}. The consumers are not executed through the
+ * {@link ExecutorService} but on threads of their own, so they never wait for
+ * a thread occupied by their producers, whatever the number of streams or
+ * stages.<br/>
+ * <br/>
+ * An {@link AsyncTask} is not executed through the {@link ExecutorService}:
+ * its execution is started through {@link AsyncTask#executeAsync(AsyncTask.Callback)}
+ * and it is considered as running until its {@link AsyncTask.Callback} is
+ * notified, so it does not occupy any thread while waiting.<br/>
+ * <br/>
+ * When a {@link Task} exceeds its timeout, it is interrupted and abandoned: a
+ * {@link TaskTimedOutEvent} is generated and the {@link Task}s depending on it
+ * are skipped until the end of the run, while the independent ones continue
+ * to be executed.<br/>
+ * <br/>
+ * A {@link ResourceBudget} can limit the {@link Task}s executed at the same
+ * time (see {@link #setResourceBudget(ResourceBudget)}): a ready {@link Task}
+ * is executed only if its resources are available, otherwise it waits for
+ * other {@link Task}s to finish while lighter {@link Task}s use the remaining
+ * resources. A {@link Task} which has timed out keeps its resources until its
+ * abandoned execution is really over, so the {@link Task}s waiting for them
+ * may remain for a later run.
+ * 
+ * @author Matthieu Vergne <matthieu.vergne@gmail.com>
+ * 
+ */
+public class ParallelBenchmarkRunner extends BenchmarkRunner {
+
+	private final ExecutorService executor;
+
+	/**
+	 * Creates a {@link ParallelBenchmarkRunner} which executes the
+	 * {@link Task}s through the given {@link ExecutorService}. This
+	 * {@link ExecutorService} is not shut down by this runner.
+	 * 
+	 * @param executor
+	 *            the {@link ExecutorService} to use
+	 */
+	public ParallelBenchmarkRunner(ExecutorService executor) {
+		this.executor = executor;
+	}
+
+	/**
+	 * Creates a {@link ParallelBenchmarkRunner} which executes up to the
+	 * given number of {@link Task}s at the same time. The threads used are
+	 * daemon threads, so they do not prevent the JVM to terminate.
+	 * 
+	 * @param threads
+	 *            the maximum number of {@link Task}s executed concurrently
+	 */
+	public ParallelBenchmarkRunner(int threads) {
+		this(Executors.newFixedThreadPool(threads, new DaemonThreadFactory()));
+	}
+
+	/**
+	 * Equivalent to {@link #ParallelBenchmarkRunner(int)} with as many threads
+	 * as available processors.
+	 */
+	public ParallelBenchmarkRunner() {
+		this(Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Creates a {@link ParallelBenchmarkRunner} which executes each
+	 * {@link Task} on its own virtual thread. This is relevant when the
+	 * {@link Task}s spend most of their time blocked on I/O operations: many
+	 * of them can then run at the same time without requiring as many
+	 * platform threads. The {@link BenchmarkEvent}s are still generated by the
+	 * thread calling {@link #run()}.<br/>
+	 * <br/>
+	 * Virtual threads are available since Java 21, while this library is
+	 * compatible with older versions, so the {@link ExecutorService} is
+	 * retrieved by reflection. Use {@link #isVirtualThreadSupported()} to know
+	 * whether the current JVM supports it.
+	 * 
+	 * @return a new {@link ParallelBenchmarkRunner} using virtual threads
+	 * @throws UnsupportedOperationException
+	 *             if the current JVM does not support virtual threads
+	 */
+	public static ParallelBenchmarkRunner createWithVirtualThreads() {
+		Method factory = getVirtualThreadExecutorFactory();
+		if (factory == null) {
+			throw new UnsupportedOperationException(
+					"Virtual threads are not supported by this JVM: "
+							+ System.getProperty("java.version"));
+		} else {
+			try {
+				return new ParallelBenchmarkRunner(
+						(ExecutorService) factory.invoke(null));
+			} catch (IllegalAccessException | InvocationTargetException e) {
+				throw new UnsupportedOperationException(
+						"Impossible to create a virtual thread executor", e);
+			}
+		}
+	}
+
+	/**
+	 * 
+	 * @return <code>true</code> if {@link #createWithVirtualThreads()} can be
+	 *         used with the current JVM, <code>false</code> otherwise
+	 */
+	public static boolean isVirtualThreadSupported() {
+		return getVirtualThreadExecutorFactory() != null;
+	}
+
+	private static Method getVirtualThreadExecutorFactory() {
+		try {
+			return Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+		} catch (NoSuchMethodException e) {
+			return null;
+		}
+	}
+
+	public ExecutorService getExecutor() {
+		return executor;
+	}
+
+	/**
+	 * The consumers of the {@link StreamLink}s have their own threads, so they
+	 * are always executed while their producers are running.
+	 */
+	@Override
+	protected boolean isConcurrent() {
+		return true;
+	}
+
+	/**
+	 * Execute all the {@link Task}s of the {@link Benchmark} managed by this
+	 * {@link ParallelBenchmarkRunner} until none of them is ready to be
+	 * executed anymore. Each time a {@link Task} finishes, its {@link Link}s
+	 * are transferred and the {@link Task}s which become ready are executed in
+	 * turn. The {@link BenchmarkEvent}s generated are the same than for
+	 * {@link BenchmarkRunner#run()}.<br/>
+	 * <br/>
+	 * If a {@link Task} fails, no new {@link Task} is executed, but the ones
+	 * already running are waited for before to throw the exception. The same
+	 * applies to an {@link Error}, which is rethrown as is by any kind of run.
+	 * 
+	 * @throws NoTaskToRunException
+	 *             if no {@link Task} of the {@link Benchmark} can be selected
+	 *             for execution
+	 * @throws FailedTaskException
+	 *             if one of the {@link Task}s executed has generated an
+	 *             exception
+	 */
+	@Override
+	public void run() throws NoTaskToRunException {
+		RunSummary summary = execute(null, Integer.MAX_VALUE, true);
+		if (summary.getSteps() == 0) {
+			throw new NoTaskToRunException(getBenchmark());
+		} else if (summary.hasFailures()) {
+			TaskFailedEvent failure = summary.getFailures().get(0);
+			throw new FailedTaskException(failure.getTask(), failure.getCause());
+		} else {
+			// all tasks executed successfully
+		}
+	}
+
+	/**
+	 * Same as {@link BenchmarkRunner#runUntil(StopCondition)}, but the
+	 * {@link Task}s are executed concurrently. The {@link StopCondition} is
+	 * evaluated before each {@link Task} submission, and the {@link Task}s
+	 * already running when it is reached are waited for.
+	 */
+	@Override
+	public RunSummary runUntil(StopCondition condition) {
+		return execute(condition, Integer.MAX_VALUE, false);
+	}
+
+	/**
+	 * Same as {@link BenchmarkRunner#runSteps(int)}, but the {@link Task}s are
+	 * executed concurrently.
+	 */
+	@Override
+	public RunSummary runSteps(int steps) {
+		return execute(null, steps, false);
+	}
+
+	private RunSummary execute(StopCondition condition, int maxSteps,
+			boolean stopOnFailure) {
+		Benchmark benchmark = getBenchmark();
+		ReadyQueue readyQueue = getReadyQueue();
+		RunSummary summary = new RunSummary();
+		BlockingQueue<Completion> completions = new LinkedBlockingQueue<Completion>();
+		Collection<Task> running = new HashSet<Task>();
+		Map<Task, Future<?>> futures = new HashMap<Task, Future<?>>();
+		Map<Task, Long> deadlines = new HashMap<Task, Long>();
+		Collection<Task> abandoned = new HashSet<Task>();
+		Collection<Task> skipped = new HashSet<Task>();
+		List<Task> blocked = new LinkedList<Task>();
+		Map<Task, Collection<Link<?>>> postponed = new HashMap<Task, Collection<Link<?>>>();
+		int dispatched = 0;
+		boolean isStopped = false;
+		Error error = null;
+
+		try {
+			releaseAbandoned();
+			readyQueue.checkAll();
+			while (true) {
+				while (!isStopped) {
+					if (dispatched >= maxSteps
+							|| stopOnFailure && summary.hasFailures()
+							|| condition != null
+							&& condition.isReached(summary)) {
+						isStopped = true;
+					} else {
+						Task task = pollAdmissible(blocked);
+						if (task == null) {
+							break;
+						} else {
+							long timeout = getTimeout(task,
+									TimeUnit.NANOSECONDS);
+							if (timeout > 0) {
+								deadlines.put(task, System.nanoTime()
+										+ timeout);
+							} else {
+								// no deadline to enforce
+							}
+							Collection<Link<?>> streams = openStreams(task);
+							futures.put(task,
+									dispatch(task, running, completions));
+							dispatched++;
+							for (Link<?> link : streams) {
+								Task target = link.getTargetTask();
+								if (running.contains(target)
+										|| abandoned.contains(target)) {
+									postpone(postponed, link);
+								} else {
+									transfer(link);
+								}
+							}
+						}
+					}
+				}
+				refuseBlockedStreams(blocked, running);
+
+				if (running.isEmpty()) {
+					break;
+				} else {
+					Completion completion = waitCompletion(completions,
+							deadlines);
+					if (completion == null) {
+						for (Task task : removeExpired(deadlines)) {
+							running.remove(task);
+							abandoned.add(task);
+							Future<?> future = futures.remove(task);
+							if (future != null) {
+								future.cancel(true);
+							} else {
+								// asynchronous task, nothing to interrupt
+							}
+							releaseResourcesLater(task);
+							summary.countStep();
+							TaskFailedEvent failure = new TaskTimedOutEvent(
+									task,
+									getTimeout(task, TimeUnit.NANOSECONDS),
+									TimeUnit.NANOSECONDS);
+							spreadEvent(failure);
+							summary.addFailure(failure);
+							skipDownstream(task, skipped);
+							blocked.removeAll(skipped);
+						}
+					} else if (abandoned.contains(completion.task)) {
+						// late completion, resources released by unwatch()
+					} else if (completion.exception instanceof Error) {
+						// rethrown once the running tasks are finished
+						Task task = completion.task;
+						running.remove(task);
+						futures.remove(task);
+						deadlines.remove(task);
+						releaseResources(task);
+						if (error == null) {
+							error = (Error) completion.exception;
+						} else {
+							error.addSuppressed(completion.exception);
+						}
+						isStopped = true;
+						readyQueue.suspend(task);
+						readyQueue.release(task);
+					} else {
+						Task task = completion.task;
+						running.remove(task);
+						futures.remove(task);
+						deadlines.remove(task);
+						releaseResources(task);
+						summary.countStep();
+						long duration = getExecutionTime(task,
+								completion.duration);
+						summary.addExecutionTime(duration);
+						notifyExecution(task, duration);
+						if (completion.exception == null) {
+							spreadEvent(new TaskExecutedEvent(task, duration,
+									TimeUnit.NANOSECONDS));
+							for (Link<?> link : ImmutableBenchmark.getOutgoingLinks(
+									benchmark, task)) {
+								Task target = link.getTargetTask();
+								if (running.contains(target)
+										|| abandoned.contains(target)) {
+									postpone(postponed, link);
+								} else {
+									transfer(link);
+								}
+							}
+						} else {
+							Throwable cause = completion.exception;
+							TaskFailedEvent failure = new TaskFailedEvent(task,
+									cause instanceof Exception ? (Exception) cause
+											: new RuntimeException(cause));
+							spreadEvent(failure);
+							summary.addFailure(failure);
+							readyQueue.suspend(task);
+						}
+
+						Collection<Link<?>> links = postponed.remove(task);
+						if (links != null) {
+							for (Link<?> link : links) {
+								transfer(link);
+							}
+						} else {
+							// no link waiting for this task
+						}
+						if (skipped.contains(task)) {
+							// depends on a task which has timed out
+						} else {
+							readyQueue.release(task);
+						}
+					}
+				}
+			}
+			if (error != null) {
+				throw error;
+			} else {
+				// tasks blocked by abandoned ones are executed by another run
+				summary.finish(!isStopped && blocked.isEmpty());
+				return summary;
+			}
+		} finally {
+			unblock(blocked);
+			releaseSkipped(skipped);
+			readyQueue.resumeAll();
+		}
+	}
+
+	/**
+	 * Start the execution of a {@link Task}, which will post its
+	 * {@link Completion} once finished.
+	 * 
+	 * @return the {@link Future} of the execution, <code>null</code> for an
+	 *         {@link AsyncTask}
+	 */
+	private Future<?> dispatch(final Task task, Collection<Task> running,
+			final BlockingQueue<Completion> completions) {
+		getReadyQueue().hold(task);
+		running.add(task);
+		spreadEvent(new TaskSelectedEvent(task));
+		if (task instanceof AsyncTask) {
+			final long start = System.nanoTime();
+			watch(task);
+			try {
+				((AsyncTask) task).executeAsync(new AsyncTask.Callback() {
+
+					@Override
+					public void succeeded() {
+						unwatch(task);
+						completions.add(new Completion(task, null, System
+								.nanoTime() - start));
+					}
+
+					@Override
+					public void failed(Exception cause) {
+						unwatch(task);
+						completions.add(new Completion(task, cause, System
+								.nanoTime() - start));
+					}
+				});
+			} catch (Throwable ex) {
+				unwatch(task);
+				completions.add(new Completion(task, ex, System.nanoTime()
+						- start));
+			}
+			return null;
+		} else {
+			ExecutorService target = isStreamConsumer(task)
+					? getConsumerExecutor() : executor;
+			return target.submit(new Runnable() {
+
+				@Override
+				public void run() {
+					watch(task);
+					long start = System.nanoTime();
+					Throwable exception = null;
+					long duration;
+					try {
+						// the hooks are not part of the measure
+						duration = executeTask(task);
+					} catch (Throwable ex) {
+						exception = ex;
+						duration = System.nanoTime() - start;
+					}
+					unwatch(task);
+					completions.add(new Completion(task, exception, duration));
+				}
+			});
+		}
+	}
+
+	/**
+	 * Wait for the next {@link Completion}, but not after the earliest
+	 * deadline.
+	 * 
+	 * @return the next {@link Completion}, <code>null</code> if a deadline has
+	 *         been reached before
+	 */
+	private Completion waitCompletion(BlockingQueue<Completion> completions,
+			Map<Task, Long> deadlines) {
+		try {
+			if (deadlines.isEmpty()) {
+				return completions.take();
+			} else {
+				long earliest = Long.MAX_VALUE;
+				long now = System.nanoTime();
+				for (long deadline : deadlines.values()) {
+					earliest = Math.min(earliest, deadline - now);
+				}
+				return completions.poll(earliest, TimeUnit.NANOSECONDS);
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException(
+					"Interrupted while waiting for the running tasks.", e);
+		}
+	}
+
+	private Collection<Task> removeExpired(Map<Task, Long> deadlines) {
+		Collection<Task> expired = new LinkedList<Task>();
+		long now = System.nanoTime();
+		Iterator<Entry<Task, Long>> iterator = deadlines.entrySet().iterator();
+		while (iterator.hasNext()) {
+			Entry<Task, Long> entry = iterator.next();
+			if (entry.getValue() - now <= 0) {
+				expired.add(entry.getKey());
+				iterator.remove();
+			} else {
+				// still some time
+			}
+		}
+		return expired;
+	}
+
+	private void postpone(Map<Task, Collection<Link<?>>> postponed,
+			Link<?> link) {
+		Task target = link.getTargetTask();
+		Collection<Link<?>> links = postponed.get(target);
+		if (links == null) {
+			links = new LinkedList<Link<?>>();
+			postponed.put(target, links);
+		} else {
+			// reuse the existing collection
+		}
+		links.add(link);
+	}
+
+	/**
+	 * A {@link Completion} notifies the end of the execution of a
+	 * {@link Task}, with the {@link Throwable} generated if it has failed. An
+	 * {@link Error} is posted as well, so the coordinator does not wait
+	 * forever and can rethrow it.
+	 */
+	private static class Completion {
+		private final Task task;
+		private final Throwable exception;
+		private final long duration;
+
+		public Completion(Task task, Throwable exception, long duration) {
+			this.task = task;
+			this.exception = exception;
+			this.duration = duration;
+		}
+	}
+}
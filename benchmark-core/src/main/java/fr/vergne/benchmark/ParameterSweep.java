@@ -0,0 +1,283 @@
+package fr.vergne.benchmark;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import fr.vergne.benchmark.util.DaemonThreadFactory;
+
+/**
+ * A {@link ParameterSweep} evaluates a {@link Benchmark} over all the
+ * combinations of values of its inputs. A domain of values is given for each
+ * input through {@link #setDomain(Object, Collection)}, and each point of the
+ * cartesian product of these domains is evaluated on its own {@link Benchmark}
+ * instance, created through {@link BenchmarkBuilder#createReplicas(int)}, so
+ * the points can be evaluated concurrently. The points are enumerated in the
+ * order of the domains, the last input changing first.<br/>
+ * <br/>
+ * The points are evaluated through an {@link ExecutorService}, but they are
+ * not all submitted at once: a new point is submitted only when a thread is
+ * available, so a {@link SweepPruner} can use the results already obtained to
+ * skip the next points (see {@link #setPruner(SweepPruner)}). Each
+ * {@link SweepResult} is provided to a {@link SweepSink} as soon as its point
+ * is evaluated, so the {@link Benchmark} instances are not kept once
+ * provided.<br/>
+ * <br/>
+ * When the {@link ExecutorService} is created by the {@link ParameterSweep}
+ * itself, it is shut down by {@link #close()}, which should be called once
+ * the {@link ParameterSweep} is not used anymore.
+ * 
+ * @author Matthieu Vergne <matthieu.vergne@gmail.com>
+ * 
+ */
+public class ParameterSweep implements Closeable {
+
+	private final BenchmarkBuilder template;
+	private final ExecutorService executor;
+	private final boolean isOwned;
+	private final int parallelism;
+	private final Map<Object, List<Object>> domains = new LinkedHashMap<Object, List<Object>>();
+	private SweepPruner pruner = null;
+
+	/**
+	 * Creates a {@link ParameterSweep} which evaluates up to the given number
+	 * of points at the same time through the given {@link ExecutorService}.
+	 * This {@link ExecutorService} is not shut down by this sweep.
+	 * 
+	 * @param template
+	 *            the {@link BenchmarkBuilder} used to create the
+	 *            {@link Benchmark} of each point
+	 * @param executor
+	 *            the {@link ExecutorService} to use
+	 * @param parallelism
+	 *            the maximum number of points evaluated concurrently
+	 */
+	public ParameterSweep(BenchmarkBuilder template, ExecutorService executor,
+			int parallelism) {
+		this(template, executor, parallelism, false);
+	}
+
+	private ParameterSweep(BenchmarkBuilder template,
+			ExecutorService executor, int parallelism, boolean isOwned) {
+		if (parallelism <= 0) {
+			throw new IllegalArgumentException(
+					"The parallelism should be strictly positive: "
+							+ parallelism);
+		} else {
+			this.template = template;
+			this.executor = executor;
+			this.parallelism = parallelism;
+			this.isOwned = isOwned;
+		}
+	}
+
+	/**
+	 * Creates a {@link ParameterSweep} which evaluates up to the given number
+	 * of points at the same time. The threads used are daemon threads, so
+	 * they do not prevent the JVM to terminate, and they are stopped by
+	 * {@link #close()}.
+	 * 
+	 * @param template
+	 *            the {@link BenchmarkBuilder} used to create the
+	 *            {@link Benchmark} of each point
+	 * @param threads
+	 *            the maximum number of points evaluated concurrently
+	 */
+	public ParameterSweep(BenchmarkBuilder template, int threads) {
+		this(template, Executors.newFixedThreadPool(threads,
+				new DaemonThreadFactory()), threads, true);
+	}
+
+	/**
+	 * Equivalent to {@link #ParameterSweep(BenchmarkBuilder, int)} with as
+	 * many threads as available processors.
+	 */
+	public ParameterSweep(BenchmarkBuilder template) {
+		this(template, Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * 
+	 * @param inputId
+	 *            the ID of the {@link Benchmark} input
+	 * @param values
+	 *            the values to give to this input
+	 */
+	public void setDomain(Object inputId, Collection<?> values) {
+		if (values.isEmpty()) {
+			throw new IllegalArgumentException("The domain of " + inputId
+					+ " should not be empty.");
+		} else {
+			domains.put(inputId, new ArrayList<Object>(values));
+		}
+	}
+
+	/**
+	 * 
+	 * @param inputId
+	 *            the ID of the {@link Benchmark} input
+	 * @return the values given to this input, <code>null</code> if no domain
+	 *         has been set for it
+	 */
+	public List<Object> getDomain(Object inputId) {
+		List<Object> domain = domains.get(inputId);
+		return domain == null ? null : Collections.unmodifiableList(domain);
+	}
+
+	/**
+	 * 
+	 * @param inputId
+	 *            the ID of the {@link Benchmark} input to not sweep anymore
+	 */
+	public void removeDomain(Object inputId) {
+		domains.remove(inputId);
+	}
+
+	/**
+	 * 
+	 * @return the number of points of the sweep, pruned or not
+	 */
+	public long getPointCount() {
+		long count = 1;
+		for (List<Object> domain : domains.values()) {
+			count *= domain.size();
+		}
+		return count;
+	}
+
+	/**
+	 * 
+	 * @param pruner
+	 *            the {@link SweepPruner} deciding which points to skip,
+	 *            <code>null</code> to evaluate all of them
+	 */
+	public void setPruner(SweepPruner pruner) {
+		this.pruner = pruner;
+	}
+
+	public SweepPruner getPruner() {
+		return pruner;
+	}
+
+	public ExecutorService getExecutor() {
+		return executor;
+	}
+
+	/**
+	 * Evaluate all the points of the sweep which are not pruned and wait for
+	 * them to finish. Each {@link Benchmark} is executed like
+	 * {@link BenchmarkRunner#runAll()} does, and its {@link SweepResult} is
+	 * provided to the {@link SweepSink} once finished.
+	 * 
+	 * @param sink
+	 *            the {@link SweepSink} receiving the {@link SweepResult}s
+	 * @return the number of points evaluated, which excludes the points
+	 *         pruned
+	 */
+	public long run(SweepSink sink) {
+		CompletionService<SweepResult> completion = new ExecutorCompletionService<SweepResult>(
+				executor);
+		List<Future<SweepResult>> running = new ArrayList<Future<SweepResult>>();
+		List<Entry<Object, List<Object>>> entries = new ArrayList<Entry<Object, List<Object>>>(
+				domains.entrySet());
+		int[] indexes = new int[entries.size()];
+		boolean isRemaining = true;
+		long evaluated = 0;
+		try {
+			while (isRemaining || !running.isEmpty()) {
+				if (isRemaining && running.size() < parallelism) {
+					Map<Object, Object> point = new LinkedHashMap<Object, Object>();
+					for (int i = 0; i < indexes.length; i++) {
+						Entry<Object, List<Object>> entry = entries.get(i);
+						point.put(entry.getKey(),
+								entry.getValue().get(indexes[i]));
+					}
+					isRemaining = next(indexes, entries);
+					if (pruner != null && pruner.isPruned(point)) {
+						// skip this point
+					} else {
+						running.add(completion.submit(evaluate(point)));
+						evaluated++;
+					}
+				} else {
+					Future<SweepResult> future = completion.take();
+					running.remove(future);
+					sink.resultAvailable(future.get());
+				}
+			}
+		} catch (InterruptedException e) {
+			for (Future<SweepResult> future : running) {
+				future.cancel(true);
+			}
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException(
+					"Interrupted while waiting for the sweep.", e);
+		} catch (ExecutionException e) {
+			for (Future<SweepResult> future : running) {
+				future.cancel(true);
+			}
+			Throwable cause = e.getCause();
+			if (cause instanceof Error) {
+				throw (Error) cause;
+			} else {
+				throw new IllegalStateException("A point has crashed.", cause);
+			}
+		}
+		return evaluated;
+	}
+
+	/**
+	 * Shut down the {@link ExecutorService} if it has been created by this
+	 * {@link ParameterSweep}, after the points already submitted. An
+	 * {@link ExecutorService} provided at the creation is left unchanged.
+	 */
+	@Override
+	public void close() {
+		if (isOwned) {
+			executor.shutdown();
+		} else {
+			// managed by the caller
+		}
+	}
+
+	private Callable<SweepResult> evaluate(final Map<Object, Object> point) {
+		final Benchmark benchmark = template.createReplicas(1).get(0);
+		return new Callable<SweepResult>() {
+
+			@Override
+			public SweepResult call() {
+				for (Entry<Object, Object> entry : point.entrySet()) {
+					benchmark.setInput(entry.getKey(), entry.getValue());
+				}
+				RunSummary summary = new BenchmarkRunner(benchmark).runAll();
+				return new SweepResult(Collections.unmodifiableMap(point),
+						benchmark, summary);
+			}
+		};
+	}
+
+	private static boolean next(int[] indexes,
+			List<Entry<Object, List<Object>>> entries) {
+		for (int i = indexes.length - 1; i >= 0; i--) {
+			indexes[i]++;
+			if (indexes[i] < entries.get(i).getValue().size()) {
+				return true;
+			} else {
+				indexes[i] = 0;
+			}
+		}
+		return false;
+	}
+}
@@ -0,0 +1,81 @@
+package fr.vergne.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A {@link Phase} describes how long a {@link PhasedRunner} repeats the
+ * execution of its {@link Task}s, either as a number of iterations or as a
+ * duration. A {@link Phase} based on a duration always makes at least one
+ * iteration, and does not interrupt the iteration running when the duration
+ * is exceeded.
+ * 
+ * @author Matthieu Vergne <matthieu.vergne@gmail.com>
+ * 
+ */
+public class Phase {
+
+	private final int iterations;
+	private final long duration;
+
+	private Phase(int iterations, long duration) {
+		this.iterations = iterations;
+		this.duration = duration;
+	}
+
+	/**
+	 * 
+	 * @param iterations
+	 *            the number of iterations to make, 0 for none
+	 * @return a {@link Phase} which stops after this number of iterations
+	 */
+	public static Phase iterations(int iterations) {
+		if (iterations < 0) {
+			throw new IllegalArgumentException(
+					"The number of iterations should be positive: "
+							+ iterations);
+		} else {
+			return new Phase(iterations, -1);
+		}
+	}
+
+	/**
+	 * 
+	 * @param duration
+	 *            the time after which no new iteration is started
+	 * @param unit
+	 *            the {@link TimeUnit} of the duration
+	 * @return a {@link Phase} which stops once this duration is exceeded
+	 */
+	public static Phase duration(long duration, TimeUnit unit) {
+		if (duration <= 0) {
+			throw new IllegalArgumentException(
+					"The duration should be strictly positive: " + duration);
+		} else {
+			return new Phase(-1, unit.toNanos(duration));
+		}
+	}
+
+	/**
+	 * 
+	 * @param iterations
+	 *            the number of iterations made so far
+	 * @param elapsed
+	 *            the time spent since the start of the {@link Phase}
+	 * @param unit
+	 *            the {@link TimeUnit} of the elapsed time
+	 * @return <code>true</code> if no more iteration should be made,
+	 *         <code>false</code> otherwise
+	 */
+	public boolean isOver(int iterations, long elapsed, TimeUnit unit) {
+		if (duration < 0) {
+			return iterations >= this.iterations;
+		} else {
+			return iterations > 0 && unit.toNanos(elapsed) >= duration;
+		}
+	}
+
+	@Override
+	public String toString() {
+		return duration < 0 ? iterations + " iterations" : duration + " ns";
+	}
+}
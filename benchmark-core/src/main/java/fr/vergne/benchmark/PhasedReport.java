@@ -0,0 +1,98 @@
+package fr.vergne.benchmark;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import fr.vergne.benchmark.util.SampleStatistics;
+
+/**
+ * A {@link PhasedReport} describes the executions made by a
+ * {@link PhasedRunner}: the {@link RunSummary} of each iteration of the warmup
+ * and of the measurement, and the statistics of the execution times measured.
+ * 
+ * @author Matthieu Vergne <matthieu.vergne@gmail.com>
+ * 
+ */
+public class PhasedReport {
+
+	private final List<RunSummary> warmup;
+	private final List<RunSummary> measurement;
+	private final boolean isSteady;
+
+	PhasedReport(List<RunSummary> warmup, List<RunSummary> measurement,
+			boolean isSteady) {
+		this.warmup = Collections.unmodifiableList(warmup);
+		this.measurement = Collections.unmodifiableList(measurement);
+		this.isSteady = isSteady;
+	}
+
+	/**
+	 * 
+	 * @return the {@link RunSummary} of each iteration of the warmup
+	 */
+	public List<RunSummary> getWarmupSummaries() {
+		return warmup;
+	}
+
+	/**
+	 * 
+	 * @return the {@link RunSummary} of each iteration of the measurement
+	 */
+	public List<RunSummary> getMeasurementSummaries() {
+		return measurement;
+	}
+
+	/**
+	 * 
+	 * @return <code>true</code> if the warmup has been ended by the detection
+	 *         of a steady state, <code>false</code> otherwise
+	 */
+	public boolean isSteadyStateReached() {
+		return isSteady;
+	}
+
+	/**
+	 * 
+	 * @return <code>true</code> if a {@link Task} has failed during one of the
+	 *         phases, which stops the execution, <code>false</code> otherwise
+	 */
+	public boolean hasFailures() {
+		for (RunSummary summary : warmup) {
+			if (summary.hasFailures()) {
+				return true;
+			} else {
+				// check the next one
+			}
+		}
+		for (RunSummary summary : measurement) {
+			if (summary.hasFailures()) {
+				return true;
+			} else {
+				// check the next one
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * 
+	 * @param unit
+	 *            the {@link TimeUnit} of the execution times
+	 * @return the statistics of the execution times of the measurement
+	 *         iterations, warmup excluded
+	 */
+	public SampleStatistics getStatistics(TimeUnit unit) {
+		SampleStatistics statistics = new SampleStatistics();
+		for (RunSummary summary : measurement) {
+			statistics.add(summary.getExecutionTime(unit));
+		}
+		return statistics;
+	}
+
+	@Override
+	public String toString() {
+		return warmup.size() + " warmup iterations, " + measurement.size()
+				+ " measured iterations";
+	}
+}
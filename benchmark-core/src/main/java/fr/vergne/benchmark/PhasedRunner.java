@@ -0,0 +1,165 @@
+package fr.vergne.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import fr.vergne.benchmark.event.BenchmarkEvent;
+import fr.vergne.benchmark.event.WarmupEvent;
+import fr.vergne.benchmark.util.SteadyStateDetector;
+
+/**
+ * A {@link PhasedRunner} executes the same part of a {@link Benchmark}
+ * repeatedly in two phases: a warmup, which lets the JVM optimise the code of
+ * the {@link Task}s, and a measurement, which provides the representative
+ * executions. Each {@link Phase} is configured as a number of iterations or as
+ * a duration (see {@link #setWarmup(Phase)} and {@link #setMeasurement(Phase)}
+ * ). During the warmup, the {@link BenchmarkRunner} is in warmup (see
+ * {@link BenchmarkRunner#setWarmup(boolean)}), so its {@link BenchmarkEvent}s
+ * are wrapped into {@link WarmupEvent}s and the {@link WarmupAwareTask}s can
+ * ignore these executions. A {@link SteadyStateDetector} can be provided to
+ * end the warmup as soon as the execution times are stable (see
+ * {@link #setSteadyStateDetector(SteadyStateDetector)}), the warmup
+ * {@link Phase} being then the maximum to spend.<br/>
+ * <br/>
+ * Like for an {@link AdaptiveSampler}, the repeated part is a
+ * {@link ResettableSubgraph}, which is reset before each iteration and
+ * executed through its {@link BenchmarkRunner}.
+ * 
+ * @author Matthieu Vergne <matthieu.vergne@gmail.com>
+ * 
+ */
+public class PhasedRunner {
+
+	private final ResettableSubgraph subgraph;
+	private Phase warmup = Phase.iterations(5);
+	private Phase measurement = Phase.iterations(10);
+	private SteadyStateDetector detector = null;
+
+	/**
+	 * 
+	 * @param benchmark
+	 *            the {@link Benchmark} to execute
+	 * @param task
+	 *            the {@link Task} to reset before each iteration
+	 * @param resetInputId
+	 *            the ID of the reset input of the {@link Task}
+	 */
+	public PhasedRunner(Benchmark benchmark, Task task, Object resetInputId) {
+		this(new ResettableSubgraph(benchmark, task, resetInputId));
+	}
+
+	/**
+	 * 
+	 * @param subgraph
+	 *            the {@link ResettableSubgraph} to execute in each iteration
+	 */
+	public PhasedRunner(ResettableSubgraph subgraph) {
+		this.subgraph = subgraph;
+	}
+
+	public ResettableSubgraph getSubgraph() {
+		return subgraph;
+	}
+
+	/**
+	 * 
+	 * @param warmup
+	 *            the {@link Phase} of executions which are not measured, 5
+	 *            iterations by default
+	 */
+	public void setWarmup(Phase warmup) {
+		this.warmup = warmup;
+	}
+
+	public Phase getWarmup() {
+		return warmup;
+	}
+
+	/**
+	 * 
+	 * @param measurement
+	 *            the {@link Phase} of executions which are measured, 10
+	 *            iterations by default
+	 */
+	public void setMeasurement(Phase measurement) {
+		this.measurement = measurement;
+	}
+
+	public Phase getMeasurement() {
+		return measurement;
+	}
+
+	/**
+	 * 
+	 * @param detector
+	 *            the {@link SteadyStateDetector} which ends the warmup once
+	 *            the execution times are stable, <code>null</code> to always
+	 *            consume the whole warmup {@link Phase}
+	 */
+	public void setSteadyStateDetector(SteadyStateDetector detector) {
+		this.detector = detector;
+	}
+
+	public SteadyStateDetector getSteadyStateDetector() {
+		return detector;
+	}
+
+	/**
+	 * Execute the warmup then the measurement. If a {@link Task} fails, the
+	 * execution stops at the end of the iteration.
+	 * 
+	 * @return the {@link PhasedReport} of the executions
+	 */
+	public PhasedReport run() {
+		List<RunSummary> warmupSummaries = new ArrayList<RunSummary>();
+		List<RunSummary> measurementSummaries = new ArrayList<RunSummary>();
+		boolean isSteady = false;
+		if (detector != null) {
+			detector.clear();
+		} else {
+			// no steady state to detect
+		}
+
+		BenchmarkRunner runner = subgraph.getRunner();
+		runner.setWarmup(true);
+		try {
+			long start = System.nanoTime();
+			while (!warmup.isOver(warmupSummaries.size(), System.nanoTime()
+					- start, TimeUnit.NANOSECONDS)) {
+				RunSummary summary = subgraph.iterate();
+				warmupSummaries.add(summary);
+				if (summary.hasFailures()) {
+					return new PhasedReport(warmupSummaries,
+							measurementSummaries, isSteady);
+				} else if (detector != null) {
+					detector.add(summary.getExecutionTime(TimeUnit.NANOSECONDS));
+					if (detector.isSteady()) {
+						isSteady = true;
+						break;
+					} else {
+						// continue the warmup
+					}
+				} else {
+					// continue the warmup
+				}
+			}
+		} finally {
+			runner.setWarmup(false);
+		}
+
+		long start = System.nanoTime();
+		while (!measurement.isOver(measurementSummaries.size(),
+				System.nanoTime() - start, TimeUnit.NANOSECONDS)) {
+			RunSummary summary = subgraph.iterate();
+			measurementSummaries.add(summary);
+			if (summary.hasFailures()) {
+				break;
+			} else {
+				// continue the measurement
+			}
+		}
+		return new PhasedReport(warmupSummaries, measurementSummaries,
+				isSteady);
+	}
+}
@@ -0,0 +1,164 @@
+package fr.vergne.benchmark;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import fr.vergne.benchmark.event.BenchmarkEvent;
+import fr.vergne.benchmark.event.BenchmarkEventListener;
+import fr.vergne.benchmark.util.DaemonThreadFactory;
+
+/**
+ * A {@link ReplicationRunner} executes several replicas of the same
+ * {@link Benchmark}, usually created through
+ * {@link BenchmarkBuilder#createReplicas(int)}, in order to collect
+ * statistically meaningful results. Each replica is executed entirely by its
+ * own {@link BenchmarkRunner}, and the replicas are executed concurrently
+ * through an {@link ExecutorService}, so they should not share any
+ * {@link Task} instance. The results of all the replicas are merged in a
+ * {@link ReplicationSummary}.<br/>
+ * <br/>
+ * The {@link BenchmarkEventListener}s registered are registered in the
+ * {@link BenchmarkRunner} of each replica, so they receive the
+ * {@link BenchmarkEvent}s of all of them concurrently and should be thread
+ * safe.<br/>
+ * <br/>
+ * When the {@link ExecutorService} is created by the {@link ReplicationRunner}
+ * itself, it is shut down by {@link #close()}, which should be called once
+ * the {@link ReplicationRunner} is not used anymore.
+ * 
+ * @author Matthieu Vergne <matthieu.vergne@gmail.com>
+ * 
+ */
+public class ReplicationRunner implements Closeable {
+
+	private final ExecutorService executor;
+	private final boolean isOwned;
+	private final Collection<BenchmarkEventListener> listeners = new LinkedHashSet<BenchmarkEventListener>();
+
+	/**
+	 * Creates a {@link ReplicationRunner} which executes the replicas through
+	 * the given {@link ExecutorService}. This {@link ExecutorService} is not
+	 * shut down by this runner.
+	 * 
+	 * @param executor
+	 *            the {@link ExecutorService} to use
+	 */
+	public ReplicationRunner(ExecutorService executor) {
+		this(executor, false);
+	}
+
+	private ReplicationRunner(ExecutorService executor, boolean isOwned) {
+		this.executor = executor;
+		this.isOwned = isOwned;
+	}
+
+	/**
+	 * Creates a {@link ReplicationRunner} which executes up to the given
+	 * number of replicas at the same time. The threads used are daemon
+	 * threads, so they do not prevent the JVM to terminate, and they are
+	 * stopped by {@link #close()}.
+	 * 
+	 * @param threads
+	 *            the maximum number of replicas executed concurrently
+	 */
+	public ReplicationRunner(int threads) {
+		this(Executors.newFixedThreadPool(threads, new DaemonThreadFactory()),
+				true);
+	}
+
+	/**
+	 * Equivalent to {@link #ReplicationRunner(int)} with as many threads as
+	 * available processors.
+	 */
+	public ReplicationRunner() {
+		this(Runtime.getRuntime().availableProcessors());
+	}
+
+	public ExecutorService getExecutor() {
+		return executor;
+	}
+
+	public void registerListener(BenchmarkEventListener listener) {
+		listeners.add(listener);
+	}
+
+	public void unregisterListener(BenchmarkEventListener listener) {
+		listeners.remove(listener);
+	}
+
+	/**
+	 * Execute all the replicas until none of their {@link Task}s is ready to
+	 * be executed anymore, like {@link BenchmarkRunner#runAll()} does for a
+	 * single {@link Benchmark}, and wait for all of them to finish.
+	 * 
+	 * @param replicas
+	 *            the {@link Benchmark}s to execute
+	 * @return the {@link ReplicationSummary} merging the results of all the
+	 *         replicas
+	 */
+	public ReplicationSummary runAll(List<? extends Benchmark> replicas) {
+		final Collection<BenchmarkEventListener> listeners = new ArrayList<BenchmarkEventListener>(
+				this.listeners);
+		List<Future<RunSummary>> futures = new ArrayList<Future<RunSummary>>();
+		for (final Benchmark replica : replicas) {
+			futures.add(executor.submit(new Callable<RunSummary>() {
+
+				@Override
+				public RunSummary call() {
+					BenchmarkRunner runner = new BenchmarkRunner(replica);
+					for (BenchmarkEventListener listener : listeners) {
+						runner.registerListener(listener);
+					}
+					return runner.runAll();
+				}
+			}));
+		}
+
+		List<RunSummary> summaries = new ArrayList<RunSummary>();
+		try {
+			for (Future<RunSummary> future : futures) {
+				summaries.add(future.get());
+			}
+		} catch (InterruptedException e) {
+			for (Future<RunSummary> future : futures) {
+				future.cancel(true);
+			}
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException(
+					"Interrupted while waiting for the replicas.", e);
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof Error) {
+				throw (Error) cause;
+			} else {
+				throw new IllegalStateException("A replica has crashed.",
+						cause);
+			}
+		}
+		return new ReplicationSummary(
+				Collections.<Benchmark> unmodifiableList(replicas), summaries);
+	}
+
+	/**
+	 * Shut down the {@link ExecutorService} if it has been created by this
+	 * {@link ReplicationRunner}, after the replicas already submitted. An
+	 * {@link ExecutorService} provided at the creation is left unchanged.
+	 */
+	@Override
+	public void close() {
+		if (isOwned) {
+			executor.shutdown();
+		} else {
+			// managed by the caller
+		}
+	}
+}
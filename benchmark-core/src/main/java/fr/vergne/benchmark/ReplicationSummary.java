@@ -0,0 +1,139 @@
+package fr.vergne.benchmark;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import fr.vergne.benchmark.event.TaskFailedEvent;
+
+/**
+ * A {@link ReplicationSummary} merges the results of several replicas of the
+ * same {@link Benchmark} executed by a {@link ReplicationRunner}. The
+ * {@link RunSummary} of each replica remains available, in the order of the
+ * replicas, as well as the outputs of their {@link Benchmark}.
+ * 
+ * @author Matthieu Vergne <matthieu.vergne@gmail.com>
+ * 
+ */
+public class ReplicationSummary {
+
+	private final List<Benchmark> replicas;
+	private final List<RunSummary> summaries;
+
+	ReplicationSummary(List<Benchmark> replicas, List<RunSummary> summaries) {
+		this.replicas = replicas;
+		this.summaries = Collections.unmodifiableList(summaries);
+	}
+
+	/**
+	 * 
+	 * @return the {@link Benchmark}s executed, in the order they have been
+	 *         provided
+	 */
+	public List<Benchmark> getReplicas() {
+		return replicas;
+	}
+
+	/**
+	 * 
+	 * @return the {@link RunSummary} of each replica, in the same order than
+	 *         {@link #getReplicas()}
+	 */
+	public List<RunSummary> getRunSummaries() {
+		return summaries;
+	}
+
+	/**
+	 * 
+	 * @param id
+	 *            the ID of the {@link Benchmark} output
+	 * @return the value of this output for each replica, in the same order
+	 *         than {@link #getReplicas()}
+	 */
+	public <Output> List<Output> getOutputs(Object id) {
+		List<Output> outputs = new ArrayList<Output>();
+		for (Benchmark replica : replicas) {
+			outputs.add(replica.<Output> getOutput(id));
+		}
+		return outputs;
+	}
+
+	/**
+	 * 
+	 * @return the number of {@link Task}s executed over all the replicas
+	 */
+	public int getSteps() {
+		int steps = 0;
+		for (RunSummary summary : summaries) {
+			steps += summary.getSteps();
+		}
+		return steps;
+	}
+
+	/**
+	 * 
+	 * @return the failures which have occurred in all the replicas, replica
+	 *         by replica
+	 */
+	public List<TaskFailedEvent> getFailures() {
+		List<TaskFailedEvent> failures = new ArrayList<TaskFailedEvent>();
+		for (RunSummary summary : summaries) {
+			failures.addAll(summary.getFailures());
+		}
+		return failures;
+	}
+
+	/**
+	 * 
+	 * @return <code>true</code> if at least one {@link Task} has failed in a
+	 *         replica, <code>false</code> otherwise
+	 */
+	public boolean hasFailures() {
+		for (RunSummary summary : summaries) {
+			if (summary.hasFailures()) {
+				return true;
+			} else {
+				// check the next one
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * 
+	 * @return <code>true</code> if all the replicas have been completed,
+	 *         <code>false</code> otherwise
+	 */
+	public boolean isCompleted() {
+		for (RunSummary summary : summaries) {
+			if (!summary.isCompleted()) {
+				return false;
+			} else {
+				// check the next one
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * 
+	 * @param unit
+	 *            the {@link TimeUnit} to use
+	 * @return the time spent in the execution of the {@link Task}s, summed
+	 *         over all the replicas
+	 */
+	public long getExecutionTime(TimeUnit unit) {
+		long time = 0;
+		for (RunSummary summary : summaries) {
+			time += summary.getExecutionTime(TimeUnit.NANOSECONDS);
+		}
+		return unit.convert(time, TimeUnit.NANOSECONDS);
+	}
+
+	@Override
+	public String toString() {
+		return summaries.size() + " replicas, " + getSteps() + " steps, "
+				+ getFailures().size() + " failures";
+	}
+}
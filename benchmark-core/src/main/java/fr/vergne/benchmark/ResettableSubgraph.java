@@ -0,0 +1,90 @@
+package fr.vergne.benchmark;
+
+import java.util.Collections;
+
+import fr.vergne.benchmark.impl.AbstractSimpleTask;
+import fr.vergne.benchmark.impl.ImmutableBenchmark;
+
+/**
+ * A {@link ResettableSubgraph} is the part of a {@link Benchmark} which can be
+ * executed repeatedly: a {@link Task} having a reset input, like an
+ * {@link AbstractSimpleTask}, and all the {@link Task}s depending on it. Before
+ * each iteration, the {@link Task} is reset through this input and the
+ * {@link Task}s depending on it are invalidated (see
+ * {@link ImmutableBenchmark#invalidateDependents(Benchmark, Task)}), so they
+ * wait for its new values. The {@link Task}s which do not depend on it keep
+ * their outputs and are executed only once.
+ * 
+ * @author Matthieu Vergne <matthieu.vergne@gmail.com>
+ * 
+ */
+public class ResettableSubgraph {
+
+	private final Benchmark benchmark;
+	private final Task task;
+	private final Object resetInputId;
+	private BenchmarkRunner runner;
+
+	/**
+	 * 
+	 * @param benchmark
+	 *            the {@link Benchmark} to execute
+	 * @param task
+	 *            the {@link Task} to reset before each iteration
+	 * @param resetInputId
+	 *            the ID of the reset input of the {@link Task}
+	 */
+	public ResettableSubgraph(Benchmark benchmark, Task task,
+			Object resetInputId) {
+		this.benchmark = benchmark;
+		this.task = task;
+		this.resetInputId = resetInputId;
+		this.runner = new BenchmarkRunner(benchmark);
+	}
+
+	public Benchmark getBenchmark() {
+		return benchmark;
+	}
+
+	public Task getTask() {
+		return task;
+	}
+
+	public Object getResetInputId() {
+		return resetInputId;
+	}
+
+	/**
+	 * 
+	 * @param runner
+	 *            the {@link BenchmarkRunner} used to execute each iteration,
+	 *            which should manage the {@link Benchmark} of this
+	 *            {@link ResettableSubgraph}
+	 */
+	public void setRunner(BenchmarkRunner runner) {
+		this.runner = runner;
+	}
+
+	public BenchmarkRunner getRunner() {
+		return runner;
+	}
+
+	/**
+	 * Reset the {@link Task} and invalidate the {@link Task}s depending on
+	 * it, so they are executed again by the next run.
+	 */
+	public void reset() {
+		task.getInput(resetInputId).set(Collections.emptyList());
+		ImmutableBenchmark.invalidateDependents(benchmark, task);
+	}
+
+	/**
+	 * Reset this {@link ResettableSubgraph} and execute it entirely.
+	 * 
+	 * @return the {@link RunSummary} of the iteration
+	 */
+	public RunSummary iterate() {
+		reset();
+		return runner.runAll();
+	}
+}
@@ -0,0 +1,26 @@
+package fr.vergne.benchmark;
+
+import java.util.Map;
+
+import fr.vergne.benchmark.util.ResourceBudget;
+
+/**
+ * A {@link ResourceConsumer} is a {@link Task} which declares the resources it
+ * needs to be executed, so a {@link BenchmarkRunner} having a
+ * {@link ResourceBudget} does not execute it while the resources are used by
+ * other {@link Task}s. A resource is identified by any object, like "cpu" for
+ * a number of CPU slots, "heap" for a number of MB of heap, or "disk" for an
+ * exclusive access to a disk.
+ * 
+ * @author Matthieu Vergne <matthieu.vergne@gmail.com>
+ * 
+ */
+public interface ResourceConsumer extends Task {
+
+	/**
+	 * 
+	 * @return the amount needed for each resource, the resources not
+	 *         mentioned being not needed
+	 */
+	public Map<Object, Long> getResourceNeeds();
+}
@@ -0,0 +1,131 @@
+package fr.vergne.benchmark;
+
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import fr.vergne.benchmark.event.TaskFailedEvent;
+
+/**
+ * A {@link RunSummary} describes the execution of several {@link Task}s in a
+ * row by a {@link BenchmarkRunner}, like in {@link BenchmarkRunner#runAll()}.
+ * While the run is not finished, it describes what has been done so far.
+ * 
+ * @author Matthieu Vergne <matthieu.vergne@gmail.com>
+ * 
+ */
+public class RunSummary {
+
+	private final long start = System.nanoTime();
+	private long end = -1;
+	private int steps = 0;
+	private long executionTime = 0;
+	private final List<TaskFailedEvent> failures = new LinkedList<TaskFailedEvent>();
+	private boolean isCompleted = false;
+
+	void countStep() {
+		steps++;
+	}
+
+	void addExecutionTime(long duration) {
+		executionTime += duration;
+	}
+
+	void addFailure(TaskFailedEvent failure) {
+		failures.add(failure);
+	}
+
+	void finish(boolean isCompleted) {
+		this.isCompleted = isCompleted;
+		this.end = System.nanoTime();
+	}
+
+	/**
+	 * 
+	 * @return the number of {@link Task}s executed, successfully or not
+	 */
+	public int getSteps() {
+		return steps;
+	}
+
+	/**
+	 * 
+	 * @return the failures which have occurred, in the order they have been
+	 *         noticed
+	 */
+	public List<TaskFailedEvent> getFailures() {
+		return Collections.unmodifiableList(failures);
+	}
+
+	/**
+	 * 
+	 * @return <code>true</code> if at least one {@link Task} has failed,
+	 *         <code>false</code> otherwise
+	 */
+	public boolean hasFailures() {
+		return !failures.isEmpty();
+	}
+
+	/**
+	 * 
+	 * @param unit
+	 *            the {@link TimeUnit} to use
+	 * @return the time spent since the start of the run, until its end if it
+	 *         is finished
+	 */
+	public long getElapsedTime(TimeUnit unit) {
+		long last = end < 0 ? System.nanoTime() : end;
+		return unit.convert(last - start, TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * 
+	 * @param unit
+	 *            the {@link TimeUnit} to use
+	 * @return the time spent in the execution of the {@link Task}s, summed
+	 *         over all the {@link Task}s even if they have been executed
+	 *         concurrently
+	 */
+	public long getExecutionTime(TimeUnit unit) {
+		return unit.convert(executionTime, TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * The overhead is the part of the elapsed time which has not been spent
+	 * in the execution of the {@link Task}s, like selecting them, generating
+	 * the events and transferring the links. When the {@link Task}s are
+	 * executed concurrently, their execution times overlap, so the overhead
+	 * is only relevant for {@link Task}s which are fast compared to the
+	 * scheduling itself.
+	 * 
+	 * @param unit
+	 *            the {@link TimeUnit} to use
+	 * @return the average overhead per step, 0 if no step has been made
+	 */
+	public long getOverheadPerStep(TimeUnit unit) {
+		if (steps == 0) {
+			return 0;
+		} else {
+			long elapsed = getElapsedTime(TimeUnit.NANOSECONDS);
+			long overhead = Math.max(0, elapsed - executionTime) / steps;
+			return unit.convert(overhead, TimeUnit.NANOSECONDS);
+		}
+	}
+
+	/**
+	 * 
+	 * @return <code>true</code> if the run has stopped because no
+	 *         {@link Task} was remaining to execute, <code>false</code> if it
+	 *         is not finished or has been stopped before
+	 */
+	public boolean isCompleted() {
+		return isCompleted;
+	}
+
+	@Override
+	public String toString() {
+		return steps + " steps, " + failures.size() + " failures in "
+				+ getElapsedTime(TimeUnit.MILLISECONDS) + " ms";
+	}
+}
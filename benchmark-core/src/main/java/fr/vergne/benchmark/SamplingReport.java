@@ -0,0 +1,170 @@
+package fr.vergne.benchmark;
+
+import java.util.Collections;
+import java.util.List;
+
+import fr.vergne.benchmark.util.SampleStatistics;
+
+/**
+ * A {@link SamplingReport} describes the sampling made by an
+ * {@link AdaptiveSampler}: the statistics of the measured output, the reason
+ * why the sampling has stopped and the details of each iteration.
+ * 
+ * @author Matthieu Vergne <matthieu.vergne@gmail.com>
+ * 
+ */
+public class SamplingReport {
+
+	/**
+	 * The reasons for an {@link AdaptiveSampler} to stop sampling.
+	 */
+	public static enum StopReason {
+		/**
+		 * The confidence interval is tighter than the target.
+		 */
+		CONFIDENCE_REACHED,
+		/**
+		 * The maximum number of iterations has been made.
+		 */
+		ITERATIONS_EXHAUSTED,
+		/**
+		 * The time budget has been consumed.
+		 */
+		TIME_EXHAUSTED,
+		/**
+		 * A {@link Task} has failed during the last iteration.
+		 */
+		FAILURE
+	}
+
+	/**
+	 * An {@link Iteration} describes a single execution of the measured
+	 * {@link Task}s and the statistics obtained once its value is added to
+	 * the sample.
+	 */
+	public static class Iteration {
+		private final int index;
+		private final double value;
+		private final RunSummary summary;
+		private final double mean;
+		private final double halfWidth;
+
+		Iteration(int index, double value, RunSummary summary, double mean,
+				double halfWidth) {
+			this.index = index;
+			this.value = value;
+			this.summary = summary;
+			this.mean = mean;
+			this.halfWidth = halfWidth;
+		}
+
+		/**
+		 * 
+		 * @return the index of the iteration, starting from 0
+		 */
+		public int getIndex() {
+			return index;
+		}
+
+		/**
+		 * 
+		 * @return the value measured, {@link Double#NaN} if the iteration
+		 *         has failed
+		 */
+		public double getValue() {
+			return value;
+		}
+
+		/**
+		 * 
+		 * @return the {@link RunSummary} of the execution
+		 */
+		public RunSummary getSummary() {
+			return summary;
+		}
+
+		/**
+		 * 
+		 * @return the mean of the values measured so far
+		 */
+		public double getMean() {
+			return mean;
+		}
+
+		/**
+		 * 
+		 * @return the half width of the confidence interval of the mean after
+		 *         this iteration, {@link Double#NaN} if it cannot be computed
+		 *         yet
+		 */
+		public double getHalfWidth() {
+			return halfWidth;
+		}
+
+		@Override
+		public String toString() {
+			return "#" + index + ": " + value + " (mean " + mean + " +/- "
+					+ halfWidth + ")";
+		}
+	}
+
+	private final SampleStatistics statistics;
+	private final List<Iteration> iterations;
+	private final StopReason reason;
+	private final double confidence;
+
+	SamplingReport(SampleStatistics statistics, List<Iteration> iterations,
+			StopReason reason, double confidence) {
+		this.statistics = statistics;
+		this.iterations = Collections.unmodifiableList(iterations);
+		this.reason = reason;
+		this.confidence = confidence;
+	}
+
+	/**
+	 * 
+	 * @return the statistics of the values measured
+	 */
+	public SampleStatistics getStatistics() {
+		return statistics;
+	}
+
+	/**
+	 * 
+	 * @return the {@link Iteration}s made, in order
+	 */
+	public List<Iteration> getIterations() {
+		return iterations;
+	}
+
+	/**
+	 * 
+	 * @return the reason why the sampling has stopped
+	 */
+	public StopReason getStopReason() {
+		return reason;
+	}
+
+	/**
+	 * 
+	 * @return the mean of the values measured
+	 */
+	public double getMean() {
+		return statistics.getMean();
+	}
+
+	/**
+	 * 
+	 * @return the half width of the confidence interval of the mean, at the
+	 *         confidence level used for the sampling
+	 */
+	public double getHalfWidth() {
+		return statistics.getHalfWidth(confidence);
+	}
+
+	@Override
+	public String toString() {
+		return getMean() + " +/- " + getHalfWidth() + " after "
+				+ iterations.size() + " iterations (" + reason + ")";
+	}
+}
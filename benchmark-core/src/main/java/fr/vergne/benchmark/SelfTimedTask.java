@@ -0,0 +1,26 @@
+package fr.vergne.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import fr.vergne.benchmark.remote.RemoteTask;
+
+/**
+ * A {@link SelfTimedTask} is a {@link Task} which measures its own execution
+ * time. The {@link BenchmarkRunner}s use this measure rather than their own,
+ * which can include some overhead not related to the {@link Task} itself,
+ * like the communication with another JVM for a {@link RemoteTask}.
+ * 
+ * @author Matthieu Vergne <matthieu.vergne@gmail.com>
+ * 
+ */
+public interface SelfTimedTask extends Task {
+
+	/**
+	 * 
+	 * @param unit
+	 *            the {@link TimeUnit} to use
+	 * @return the time spent in the last execution of this {@link Task},
+	 *         <code>null</code> if it is not known
+	 */
+	public Long getExecutionTime(TimeUnit unit);
+}
@@ -0,0 +1,34 @@
+package fr.vergne.benchmark;
+
+import java.io.Serializable;
+
+import fr.vergne.benchmark.event.impl.CheckpointListener;
+
+/**
+ * A {@link StatefulTask} is a {@link Task} which can provide and restore its
+ * execution state, like the inputs already set or whether it has already been
+ * executed. It allows a {@link CheckpointListener} to save the progress of a
+ * {@link Benchmark} and to restore it in another JVM. The state does not need
+ * to include the values of the inputs, which are restored separately from the
+ * values transferred through the {@link Link}s, but it should include the
+ * values of the outputs, so a {@link Task} restored as executed still provides
+ * them to the {@link Task}s linked later.
+ * 
+ * @author Matthieu Vergne <matthieu.vergne@gmail.com>
+ * 
+ */
+public interface StatefulTask extends Task {
+
+	/**
+	 * 
+	 * @return the current state of this {@link Task}
+	 */
+	public Serializable getState();
+
+	/**
+	 * 
+	 * @param state
+	 *            a state previously provided by {@link #getState()}
+	 */
+	public void setState(Serializable state);
+}
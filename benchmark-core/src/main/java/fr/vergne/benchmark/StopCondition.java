@@ -0,0 +1,21 @@
+package fr.vergne.benchmark;
+
+/**
+ * A {@link StopCondition} tells a {@link BenchmarkRunner} when to stop
+ * executing {@link Task}s in {@link BenchmarkRunner#runUntil(StopCondition)}.
+ * 
+ * @author Matthieu Vergne <matthieu.vergne@gmail.com>
+ * 
+ */
+public interface StopCondition {
+
+	/**
+	 * 
+	 * @param summary
+	 *            the {@link RunSummary} of the current run, updated after each
+	 *            {@link Task} executed
+	 * @return <code>true</code> if no more {@link Task} should be executed,
+	 *         <code>false</code> otherwise
+	 */
+	public boolean isReached(RunSummary summary);
+}
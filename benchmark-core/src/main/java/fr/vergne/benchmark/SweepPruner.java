@@ -0,0 +1,27 @@
+package fr.vergne.benchmark;
+
+import java.util.Map;
+
+/**
+ * A {@link SweepPruner} allows a {@link ParameterSweep} to skip the points
+ * which are not worth evaluating, for instance because the results already
+ * obtained show that they cannot improve the best one.
+ * 
+ * @author Matthieu Vergne <matthieu.vergne@gmail.com>
+ * 
+ */
+public interface SweepPruner {
+
+	/**
+	 * This method is called by the thread running the {@link ParameterSweep}
+	 * just before to evaluate a point. All the {@link SweepResult}s provided
+	 * to the {@link SweepSink} so far have been provided by the same thread,
+	 * so they can be used to decide.
+	 * 
+	 * @param point
+	 *            the value of each input of the {@link Benchmark}
+	 * @return <code>true</code> if the point should be skipped,
+	 *         <code>false</code> if it should be evaluated
+	 */
+	public boolean isPruned(Map<Object, Object> point);
+}
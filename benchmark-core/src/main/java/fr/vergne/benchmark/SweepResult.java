@@ -0,0 +1,65 @@
+package fr.vergne.benchmark;
+
+import java.util.Map;
+
+/**
+ * A {@link SweepResult} describes the evaluation of a single point of a
+ * {@link ParameterSweep}: the values given to the inputs of the
+ * {@link Benchmark}, the {@link Benchmark} instance executed and the
+ * {@link RunSummary} of its execution.
+ * 
+ * @author Matthieu Vergne <matthieu.vergne@gmail.com>
+ * 
+ */
+public class SweepResult {
+
+	private final Map<Object, Object> point;
+	private final Benchmark benchmark;
+	private final RunSummary summary;
+
+	SweepResult(Map<Object, Object> point, Benchmark benchmark,
+			RunSummary summary) {
+		this.point = point;
+		this.benchmark = benchmark;
+		this.summary = summary;
+	}
+
+	/**
+	 * 
+	 * @return the value of each input of the {@link Benchmark} for this point
+	 */
+	public Map<Object, Object> getPoint() {
+		return point;
+	}
+
+	/**
+	 * 
+	 * @return the {@link Benchmark} executed for this point
+	 */
+	public Benchmark getBenchmark() {
+		return benchmark;
+	}
+
+	/**
+	 * 
+	 * @return the {@link RunSummary} of the execution
+	 */
+	public RunSummary getSummary() {
+		return summary;
+	}
+
+	/**
+	 * 
+	 * @param id
+	 *            the ID of the {@link Benchmark} output
+	 * @return the value of this output once executed
+	 */
+	public <Output> Output getOutput(Object id) {
+		return benchmark.getOutput(id);
+	}
+
+	@Override
+	public String toString() {
+		return point + ": " + summary;
+	}
+}
@@ -0,0 +1,22 @@
+package fr.vergne.benchmark;
+
+/**
+ * A {@link SweepSink} receives the {@link SweepResult}s of a
+ * {@link ParameterSweep} as soon as they are available, so they can be
+ * stored or analysed without waiting for the whole sweep to finish.
+ * 
+ * @author Matthieu Vergne <matthieu.vergne@gmail.com>
+ * 
+ */
+public interface SweepSink {
+
+	/**
+	 * This method is called by the thread running the {@link ParameterSweep},
+	 * one {@link SweepResult} at a time, in the order the points are
+	 * completed.
+	 * 
+	 * @param result
+	 *            the {@link SweepResult} of the point just evaluated
+	 */
+	public void resultAvailable(SweepResult result);
+}
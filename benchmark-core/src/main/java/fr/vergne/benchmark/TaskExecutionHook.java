@@ -0,0 +1,49 @@
+package fr.vergne.benchmark;
+
+import fr.vergne.benchmark.event.BenchmarkEvent;
+
+/**
+ * A {@link TaskExecutionHook} is notified just before and just after each
+ * call to {@link Task#execute()} made by a {@link BenchmarkRunner}, on the
+ * thread executing the {@link Task}. Contrary to the {@link BenchmarkEvent}s,
+ * which can be generated by another thread and include some overhead of the
+ * runner, it allows to measure what the {@link Task} does on its own thread,
+ * like the memory it allocates. Both methods are called on the same thread for
+ * a given execution, so a {@link ThreadLocal} can be used to relate them. They
+ * can be called concurrently for different {@link Task}s, so a
+ * {@link TaskExecutionHook} should be thread safe. The {@link AsyncTask}s are
+ * not concerned, because they are not executed through
+ * {@link Task#execute()}. The time spent in the {@link TaskExecutionHook}s is
+ * not part of the execution time measured by the {@link BenchmarkRunner}, and
+ * they are told whether the execution is made during a warmup (see
+ * {@link BenchmarkRunner#setWarmup(boolean)}), so they can ignore it.
+ * 
+ * @author Matthieu Vergne <matthieu.vergne@gmail.com>
+ * 
+ */
+public interface TaskExecutionHook {
+
+	/**
+	 * 
+	 * @param task
+	 *            the {@link Task} which is about to be executed
+	 * @param isWarmup
+	 *            <code>true</code> if the execution is made during a warmup,
+	 *            <code>false</code> if it is measured
+	 */
+	public void beforeExecution(Task task, boolean isWarmup);
+
+	/**
+	 * 
+	 * @param task
+	 *            the {@link Task} which has just been executed
+	 * @param isWarmup
+	 *            <code>true</code> if the execution has been made during a
+	 *            warmup, <code>false</code> if it is measured
+	 * @param isSuccessful
+	 *            <code>true</code> if the execution has finished normally,
+	 *            <code>false</code> if it has thrown an exception
+	 */
+	public void afterExecution(Task task, boolean isWarmup,
+			boolean isSuccessful);
+}
@@ -0,0 +1,24 @@
+package fr.vergne.benchmark;
+
+/**
+ * A {@link TaskFactory} creates new instances of a {@link Task}. Because a
+ * {@link Task} stores the values of its inputs and outputs, the same instance
+ * cannot be used by several {@link Benchmark}s executed concurrently. A
+ * {@link TaskFactory} allows the {@link BenchmarkBuilder} to create as many
+ * independent replicas of a {@link Benchmark} as needed through
+ * {@link BenchmarkBuilder#createReplicas(int)}.
+ * 
+ * @author Matthieu Vergne <matthieu.vergne@gmail.com>
+ * 
+ * @param <T>
+ *            the type of {@link Task} created
+ */
+public interface TaskFactory<T extends Task> {
+
+	/**
+	 * 
+	 * @return a new instance of {@link Task}, which does not share any state
+	 *         with the instances previously created
+	 */
+	public T createTask();
+}
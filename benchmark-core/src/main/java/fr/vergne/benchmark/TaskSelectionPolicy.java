@@ -0,0 +1,44 @@
+package fr.vergne.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import fr.vergne.benchmark.util.ReadyQueue;
+
+/**
+ * A {@link TaskSelectionPolicy} tells a {@link BenchmarkRunner} which
+ * {@link Task} to execute first when several of them are ready. Without
+ * policy, the {@link Task}s are executed in the order they have become
+ * ready.<br/>
+ * <br/>
+ * The priority of a {@link Task} is evaluated when it is queued in the
+ * {@link ReadyQueue}. The {@link BenchmarkRunner} notifies the policy of each
+ * execution time it measures, so the policy can refine its priorities for the
+ * next {@link Task}s.
+ * 
+ * @author Matthieu Vergne <matthieu.vergne@gmail.com>
+ * 
+ */
+public interface TaskSelectionPolicy {
+
+	/**
+	 * 
+	 * @param task
+	 *            a {@link Task} ready to be executed
+	 * @return the priority of the {@link Task}, the {@link Task}s with the
+	 *         highest priority being executed first
+	 */
+	public double getPriority(Task task);
+
+	/**
+	 * Notify the time spent to execute a {@link Task}, whether it has
+	 * succeeded or not.
+	 * 
+	 * @param task
+	 *            the {@link Task} executed
+	 * @param duration
+	 *            the time spent to execute it
+	 * @param unit
+	 *            the {@link TimeUnit} of the duration
+	 */
+	public void notifyExecution(Task task, long duration, TimeUnit unit);
+}
@@ -0,0 +1,23 @@
+package fr.vergne.benchmark;
+
+/**
+ * A {@link WarmupAwareTask} is a {@link Task} which behaves differently when
+ * it is executed during a warmup, like a {@link Task} storing the results
+ * which should ignore the executions not representative yet. The
+ * {@link BenchmarkRunner} notifies the {@link WarmupAwareTask}s of its
+ * {@link Benchmark} each time it enters or leaves the warmup (see
+ * {@link BenchmarkRunner#setWarmup(boolean)}).
+ * 
+ * @author Matthieu Vergne <matthieu.vergne@gmail.com>
+ * 
+ */
+public interface WarmupAwareTask extends Task {
+
+	/**
+	 * 
+	 * @param isWarmup
+	 *            <code>true</code> if the next executions are made during a
+	 *            warmup, <code>false</code> if they are measured
+	 */
+	public void setWarmup(boolean isWarmup);
+}
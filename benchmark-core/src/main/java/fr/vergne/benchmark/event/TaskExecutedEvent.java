@@ -1,17 +1,47 @@
 package fr.vergne.benchmark.event;
 
+import java.util.concurrent.TimeUnit;
+
 import fr.vergne.benchmark.Task;
 
 public class TaskExecutedEvent implements BenchmarkEvent {
 
 	private Task task;
+	private final long duration;
 
 	public TaskExecutedEvent(Task task) {
 		this.task = task;
+		this.duration = -1;
+	}
+
+	/**
+	 * 
+	 * @param task
+	 *            the {@link Task} executed
+	 * @param duration
+	 *            the execution time of the {@link Task}
+	 * @param unit
+	 *            the {@link TimeUnit} of the execution time
+	 */
+	public TaskExecutedEvent(Task task, long duration, TimeUnit unit) {
+		this.task = task;
+		this.duration = unit.toNanos(duration);
 	}
 
 	public Task getTask() {
 		return task;
 	}
 
+	/**
+	 * 
+	 * @param unit
+	 *            the {@link TimeUnit} to use
+	 * @return the execution time of the {@link Task}, <code>null</code> if it
+	 *         has not been provided
+	 */
+	public Long getExecutionTime(TimeUnit unit) {
+		return duration < 0 ? null : unit.convert(duration,
+				TimeUnit.NANOSECONDS);
+	}
+
 }
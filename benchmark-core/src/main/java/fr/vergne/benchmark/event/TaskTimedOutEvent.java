@@ -0,0 +1,38 @@
+package fr.vergne.benchmark.event;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import fr.vergne.benchmark.BenchmarkRunner;
+import fr.vergne.benchmark.Task;
+
+/**
+ * A {@link TaskTimedOutEvent} is a {@link TaskFailedEvent} generated when a
+ * {@link Task} has not finished its execution before the timeout configured
+ * in the {@link BenchmarkRunner}. The {@link Task} has been interrupted, but
+ * it could still be running if it does not react to interruptions. Its cause
+ * is a {@link TimeoutException}.
+ * 
+ * @author Matthieu Vergne <matthieu.vergne@gmail.com>
+ * 
+ */
+public class TaskTimedOutEvent extends TaskFailedEvent {
+
+	private final long timeout;
+
+	public TaskTimedOutEvent(Task task, long timeout, TimeUnit unit) {
+		super(task, new TimeoutException("Execution not finished after "
+				+ unit.toMillis(timeout) + " ms: " + task));
+		this.timeout = unit.toNanos(timeout);
+	}
+
+	/**
+	 * 
+	 * @param unit
+	 *            the {@link TimeUnit} to use
+	 * @return the timeout which has been exceeded
+	 */
+	public long getTimeout(TimeUnit unit) {
+		return unit.convert(timeout, TimeUnit.NANOSECONDS);
+	}
+}
@@ -0,0 +1,31 @@
+package fr.vergne.benchmark.event;
+
+import fr.vergne.benchmark.BenchmarkRunner;
+
+/**
+ * A {@link WarmupEvent} wraps a {@link BenchmarkEvent} generated while the
+ * {@link BenchmarkRunner} is in warmup (see
+ * {@link BenchmarkRunner#setWarmup(boolean)}), so the listeners can exclude
+ * the executions which are not representative yet, or retrieve the original
+ * {@link BenchmarkEvent} through {@link #getEvent()} to consider them anyway.
+ * 
+ * @author Matthieu Vergne <matthieu.vergne@gmail.com>
+ * 
+ */
+public class WarmupEvent implements BenchmarkEvent {
+
+	private final BenchmarkEvent event;
+
+	public WarmupEvent(BenchmarkEvent event) {
+		this.event = event;
+	}
+
+	public BenchmarkEvent getEvent() {
+		return event;
+	}
+
+	@Override
+	public String toString() {
+		return "Warmup: " + event;
+	}
+}
@@ -0,0 +1,397 @@
+package fr.vergne.benchmark.event.impl;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.RandomAccessFile;
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import fr.vergne.benchmark.Benchmark;
+import fr.vergne.benchmark.BenchmarkRunner;
+import fr.vergne.benchmark.Link;
+import fr.vergne.benchmark.StatefulTask;
+import fr.vergne.benchmark.Task;
+import fr.vergne.benchmark.event.BenchmarkEvent;
+import fr.vergne.benchmark.event.BenchmarkEventListener;
+import fr.vergne.benchmark.event.LinkTransferedEvent;
+import fr.vergne.benchmark.event.TaskExecutedEvent;
+import fr.vergne.benchmark.event.TaskSelectedEvent;
+import fr.vergne.benchmark.event.WarmupEvent;
+import fr.vergne.benchmark.impl.StreamLink;
+import fr.vergne.benchmark.util.FilteredObjectInputStream;
+
+/**
+ * A {@link CheckpointListener} is a {@link BenchmarkEventListener} which saves
+ * the progress of a {@link Benchmark} in a local file, so a long execution
+ * which has been interrupted can be resumed through
+ * {@link #resume(Benchmark, File)} instead of being restarted from scratch.<br/>
+ * <br/>
+ * The file is written incrementally in a binary format: each time a
+ * {@link Task} is executed, the state of the {@link Task} (if it is a
+ * {@link StatefulTask}) is recorded, as well as the value of each
+ * {@link Link} transferred. The records are appended to the file by groups, a
+ * group being committed when the next {@link Task} is selected (at most once
+ * per period, see {@link #setPeriod(long, TimeUnit)}) or when
+ * {@link #commit()} or {@link #close()} is called. Because the {@link Link}s
+ * are transferred after the execution of their source {@link Task}, it ensures
+ * that a {@link Task} is never restored as executed without the values it has
+ * provided. Each group is synchronized with the storage device once written,
+ * and a group partially written (e.g. because the JVM has crashed) is ignored
+ * when the file is read. If a record cannot be saved (e.g. a value which is
+ * not serializable), the {@link CheckpointListener} stops to save the
+ * progress without interrupting the execution, and the failure is thrown by
+ * the next call to {@link #commit()} or {@link #close()}.<br/>
+ * <br/>
+ * Restoring a {@link Benchmark} consists in replaying the records of the file
+ * in the order they have been written: the values of the {@link Link}s are set
+ * on the inputs of their target {@link Task}s and the states are set on their
+ * {@link StatefulTask}s. The {@link Benchmark} should be built the same way
+ * than the one which has been saved, and its inputs should be set again before
+ * to restore it, because they do not come from a {@link Link}: the file
+ * stores a fingerprint of the classes of the {@link Task}s and {@link Link}s
+ * and of how they are linked, so restoring a different {@link Benchmark} is
+ * refused. The
+ * {@link Task}s which are not {@link StatefulTask}s are restored only through
+ * their inputs, so they can be executed again. The values transferred as well
+ * as the states must be {@link Serializable}, excepted for the
+ * {@link StreamLink}s which are not saved, and they are read through a
+ * {@link FilteredObjectInputStream}, so their classes should be allowed by
+ * its default prefixes.
+ * 
+ * @author Matthieu Vergne <matthieu.vergne@gmail.com>
+ * 
+ */
+public class CheckpointListener implements BenchmarkEventListener, Closeable {
+
+	private static final int MAGIC = 0x42434b50;
+	private static final int VERSION = 3;
+	private static final int HEADER_LENGTH = 16;
+	private static final byte STATE = 1;
+	private static final byte VALUE = 2;
+
+	private final Map<Task, Integer> taskIndexes = new IdentityHashMap<Task, Integer>();
+	private final Map<Link<?>, Integer> linkIndexes = new IdentityHashMap<Link<?>, Integer>();
+	private final RandomAccessFile file;
+	private final ByteArrayOutputStream pending = new ByteArrayOutputStream();
+	private final DataOutputStream records = new DataOutputStream(pending);
+	private long period = 0;
+	private long lastCommit = System.nanoTime();
+	private IOException failure = null;
+
+	/**
+	 * Create a {@link CheckpointListener} which saves the progress of a
+	 * {@link Benchmark} in a new file. If the file already exists, it is
+	 * replaced.
+	 * 
+	 * @param benchmark
+	 *            the {@link Benchmark} to save
+	 * @param file
+	 *            the file to write
+	 * @throws IOException
+	 *             if the file cannot be written
+	 */
+	public CheckpointListener(Benchmark benchmark, File file)
+			throws IOException {
+		this(benchmark, file, 0);
+	}
+
+	private CheckpointListener(Benchmark benchmark, File file, long length)
+			throws IOException {
+		for (Task task : benchmark.getTasks()) {
+			taskIndexes.put(task, taskIndexes.size());
+		}
+		for (Link<?> link : benchmark.getLinks()) {
+			linkIndexes.put(link, linkIndexes.size());
+		}
+		this.file = new RandomAccessFile(file, "rw");
+		if (length == 0) {
+			this.file.setLength(0);
+			this.file.writeInt(MAGIC);
+			this.file.writeInt(VERSION);
+			this.file.writeLong(fingerprint(benchmark));
+			this.file.getFD().sync();
+		} else {
+			this.file.setLength(length);
+			this.file.seek(length);
+		}
+	}
+
+	/**
+	 * Restore the progress of a {@link Benchmark} saved in a file and create a
+	 * {@link CheckpointListener} which continues to save it in the same file.
+	 * If the file does not exist yet, nothing is restored and the file is
+	 * created. Once created, the {@link CheckpointListener} should be
+	 * registered in the {@link BenchmarkRunner} used to continue the
+	 * execution.
+	 * 
+	 * @param benchmark
+	 *            the {@link Benchmark} to restore, built the same way than the
+	 *            one saved
+	 * @param file
+	 *            the file to read and continue
+	 * @return the {@link CheckpointListener} to use for the rest of the
+	 *         execution
+	 * @throws IOException
+	 *             if the file cannot be read or written
+	 */
+	public static CheckpointListener resume(Benchmark benchmark, File file)
+			throws IOException {
+		long length = restore(benchmark, file);
+		return new CheckpointListener(benchmark, file, length);
+	}
+
+	/**
+	 * Restore the progress of a {@link Benchmark} saved in a file.
+	 * 
+	 * @param benchmark
+	 *            the {@link Benchmark} to restore, built the same way than the
+	 *            one saved
+	 * @param file
+	 *            the file to read
+	 * @return the length of the file which has been restored, which excludes
+	 *         the last group of records if it has not been completely written,
+	 *         or 0 if the file does not exist
+	 * @throws IOException
+	 *             if the file cannot be read or does not correspond to the
+	 *             {@link Benchmark}
+	 */
+	public static long restore(Benchmark benchmark, File file)
+			throws IOException {
+		if (!file.exists() || file.length() == 0) {
+			return 0;
+		} else {
+			// read the checkpoint
+		}
+
+		List<Task> tasks = new ArrayList<Task>(benchmark.getTasks());
+		List<Link<?>> links = new ArrayList<Link<?>>(benchmark.getLinks());
+		DataInputStream input = new DataInputStream(new FileInputStream(file));
+		try {
+			if (input.readInt() != MAGIC || input.readInt() != VERSION) {
+				throw new IOException("Not a checkpoint file: " + file);
+			} else if (input.readLong() != fingerprint(benchmark)) {
+				throw new IOException("The checkpoint " + file
+						+ " does not correspond to the benchmark");
+			} else {
+				// valid header
+			}
+			long length = HEADER_LENGTH;
+			while (true) {
+				byte[] group;
+				try {
+					group = new byte[input.readInt()];
+					input.readFully(group);
+				} catch (EOFException e) {
+					return length;
+				}
+				replay(group, tasks, links);
+				length += 4 + group.length;
+			}
+		} finally {
+			input.close();
+		}
+	}
+
+	/**
+	 * Compute a fingerprint of the structure of a {@link Benchmark}: the
+	 * classes of its {@link Task}s and {@link Link}s, in the order they are
+	 * provided, and the {@link Task}s and inputs that each {@link Link}
+	 * connects.
+	 */
+	private static long fingerprint(Benchmark benchmark) {
+		Map<Task, Integer> indexes = new IdentityHashMap<Task, Integer>();
+		StringBuilder structure = new StringBuilder();
+		for (Task task : benchmark.getTasks()) {
+			indexes.put(task, indexes.size());
+			structure.append(task.getClass().getName()).append('\n');
+		}
+		for (Link<?> link : benchmark.getLinks()) {
+			structure.append(link.getClass().getName()).append(' ')
+					.append(indexes.get(link.getSourceTask())).append(' ')
+					.append(indexes.get(link.getTargetTask())).append(' ')
+					.append(link.getTargetId()).append('\n');
+		}
+		try {
+			byte[] digest = MessageDigest.getInstance("SHA-256").digest(
+					structure.toString().getBytes(StandardCharsets.UTF_8));
+			return new DataInputStream(new ByteArrayInputStream(digest))
+					.readLong();
+		} catch (NoSuchAlgorithmException | IOException e) {
+			throw new IllegalStateException("Cannot compute the fingerprint",
+					e);
+		}
+	}
+
+	private static void replay(byte[] group, List<Task> tasks,
+			List<Link<?>> links) throws IOException {
+		DataInputStream input = new DataInputStream(new ByteArrayInputStream(
+				group));
+		while (input.available() > 0) {
+			byte kind = input.readByte();
+			int index = input.readInt();
+			byte[] bytes = new byte[input.readInt()];
+			input.readFully(bytes);
+			Object value = deserialize(bytes);
+			if (kind == STATE) {
+				((StatefulTask) tasks.get(index)).setState((Serializable) value);
+			} else if (kind == VALUE) {
+				Link<?> link = links.get(index);
+				link.getTargetTask().getInput(link.getTargetId()).set(value);
+			} else {
+				throw new IOException("Unknown record: " + kind);
+			}
+		}
+	}
+
+	/**
+	 * 
+	 * @param period
+	 *            the minimal time between two commits done when a {@link Task}
+	 *            is selected, 0 to commit each time
+	 * @param unit
+	 *            the {@link TimeUnit} of the period
+	 */
+	public synchronized void setPeriod(long period, TimeUnit unit) {
+		this.period = unit.toNanos(period);
+	}
+
+	/**
+	 * 
+	 * @param unit
+	 *            the {@link TimeUnit} to use
+	 * @return the minimal time between two commits done when a {@link Task}
+	 *         is selected
+	 */
+	public synchronized long getPeriod(TimeUnit unit) {
+		return unit.convert(period, TimeUnit.NANOSECONDS);
+	}
+
+	@Override
+	public synchronized void eventGenerated(BenchmarkEvent event) {
+		if (failure != null) {
+			// the progress is not saved anymore
+			return;
+		} else {
+			// save the event
+		}
+		try {
+			if (event instanceof WarmupEvent) {
+				eventGenerated(((WarmupEvent) event).getEvent());
+			} else if (event instanceof TaskSelectedEvent) {
+				if (System.nanoTime() - lastCommit >= period) {
+					commit();
+				} else {
+					// wait for the next period
+				}
+			} else if (event instanceof TaskExecutedEvent) {
+				Task task = ((TaskExecutedEvent) event).getTask();
+				if (task instanceof StatefulTask) {
+					write(STATE, taskIndexes.get(task),
+							((StatefulTask) task).getState());
+				} else {
+					// no state to save
+				}
+			} else if (event instanceof LinkTransferedEvent) {
+				Link<?> link = ((LinkTransferedEvent) event).getLink();
+				if (link instanceof StreamLink) {
+					// a stream cannot be restored, it is opened again
+				} else {
+					write(VALUE, linkIndexes.get(link), link.getValue());
+				}
+			} else {
+				// nothing to save
+			}
+		} catch (IOException e) {
+			// the following records would be inconsistent without this one
+			failure = e;
+		}
+	}
+
+	private void write(byte kind, int index, Object value) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		ObjectOutputStream output = new ObjectOutputStream(bytes);
+		output.writeObject(value);
+		output.close();
+		records.writeByte(kind);
+		records.writeInt(index);
+		records.writeInt(bytes.size());
+		bytes.writeTo(records);
+	}
+
+	private static Object deserialize(byte[] bytes) throws IOException {
+		ObjectInputStream input = new FilteredObjectInputStream(
+				new ByteArrayInputStream(bytes));
+		try {
+			return input.readObject();
+		} catch (ClassNotFoundException e) {
+			throw new IOException(e);
+		} finally {
+			input.close();
+		}
+	}
+
+	/**
+	 * Append the records not saved yet to the file and synchronize it with the
+	 * storage device.
+	 * 
+	 * @throws IOException
+	 *             if the file cannot be written, or if a previous record has
+	 *             failed to be saved
+	 */
+	public synchronized void commit() throws IOException {
+		if (failure == null) {
+			// no previous failure
+		} else {
+			throw failure;
+		}
+		records.flush();
+		if (pending.size() > 0) {
+			byte[] group = new byte[4 + pending.size()];
+			int size = pending.size();
+			group[0] = (byte) (size >>> 24);
+			group[1] = (byte) (size >>> 16);
+			group[2] = (byte) (size >>> 8);
+			group[3] = (byte) size;
+			System.arraycopy(pending.toByteArray(), 0, group, 4, size);
+			try {
+				file.write(group);
+				file.getFD().sync();
+			} catch (IOException e) {
+				failure = e;
+				throw e;
+			}
+			pending.reset();
+		} else {
+			// nothing to save
+		}
+		lastCommit = System.nanoTime();
+	}
+
+	/**
+	 * Commit the remaining records and close the file.
+	 */
+	@Override
+	public synchronized void close() throws IOException {
+		try {
+			commit();
+		} finally {
+			file.close();
+		}
+	}
+}
@@ -1,5 +1,6 @@
 package fr.vergne.benchmark.event.impl;
 
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Logger;
 
 import fr.vergne.benchmark.Link;
@@ -10,6 +11,8 @@ import fr.vergne.benchmark.event.LinkTransferedEvent;
 import fr.vergne.benchmark.event.TaskExecutedEvent;
 import fr.vergne.benchmark.event.TaskFailedEvent;
 import fr.vergne.benchmark.event.TaskSelectedEvent;
+import fr.vergne.benchmark.event.TaskTimedOutEvent;
+import fr.vergne.benchmark.event.WarmupEvent;
 import fr.vergne.logging.LoggerConfiguration;
 
 /**
@@ -40,23 +43,35 @@ public class LogListener implements BenchmarkEventListener {
 
 	@Override
 	public void eventGenerated(BenchmarkEvent event) {
-		if (event instanceof TaskSelectedEvent) {
+		log(event, "");
+	}
+
+	private void log(BenchmarkEvent event, String prefix) {
+		if (event instanceof WarmupEvent) {
+			log(((WarmupEvent) event).getEvent(), "Warmup - ");
+		} else if (event instanceof TaskSelectedEvent) {
 			Task task = ((TaskSelectedEvent) event).getTask();
-			logger.info("Task selected: " + task);
+			logger.info(prefix + "Task selected: " + task);
 		} else if (event instanceof TaskExecutedEvent) {
 			Task task = ((TaskExecutedEvent) event).getTask();
-			logger.info("Task executed: " + task);
+			logger.info(prefix + "Task executed: " + task);
+		} else if (event instanceof TaskTimedOutEvent) {
+			Task task = ((TaskTimedOutEvent) event).getTask();
+			long timeout = ((TaskTimedOutEvent) event)
+					.getTimeout(TimeUnit.MILLISECONDS);
+			logger.warning(prefix + "Task timed out after " + timeout
+					+ " ms: " + task);
 		} else if (event instanceof TaskFailedEvent) {
 			Task task = ((TaskFailedEvent) event).getTask();
 			Exception cause = ((TaskFailedEvent) event).getCause();
-			logger.warning("Task executed but failed: " + task);
-			logger.warning("Failure message: " + cause.getMessage());
+			logger.warning(prefix + "Task executed but failed: " + task);
+			logger.warning(prefix + "Failure message: " + cause.getMessage());
 		} else if (event instanceof LinkTransferedEvent) {
 			Link<?> link = ((LinkTransferedEvent) event).getLink();
-			logger.info("Link activated: " + link + " with value "
+			logger.info(prefix + "Link activated: " + link + " with value "
 					+ link.getValue());
 		} else {
-			logger.warning("Unmanaged event: " + event);
+			logger.warning(prefix + "Unmanaged event: " + event);
 		}
 	}
 }
@@ -0,0 +1,195 @@
+package fr.vergne.benchmark.event.impl;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.TimeUnit;
+
+import fr.vergne.benchmark.BenchmarkRunner;
+import fr.vergne.benchmark.Task;
+import fr.vergne.benchmark.event.BenchmarkEvent;
+import fr.vergne.benchmark.event.BenchmarkEventListener;
+import fr.vergne.benchmark.event.TaskExecutedEvent;
+import fr.vergne.benchmark.event.TaskSelectedEvent;
+import fr.vergne.benchmark.event.WarmupEvent;
+import fr.vergne.benchmark.util.LatencyHistogram;
+
+/**
+ * A {@link TimingListener} is a {@link BenchmarkEventListener} which records
+ * the execution time of each {@link Task} successfully executed into a
+ * {@link LatencyHistogram}, one per {@link Task}, so the percentiles of the
+ * execution times can be retrieved with a nanosecond resolution. The execution
+ * time is the one measured by the {@link BenchmarkRunner}, provided through
+ * the {@link TaskExecutedEvent}. If it is not provided, the time elapsed since
+ * the selection of the {@link Task} is measured through
+ * {@link System#nanoTime()}.<br/>
+ * <br/>
+ * The executions made during a warmup, notified through {@link WarmupEvent}s,
+ * are ignored unless {@link #setWarmupIncluded(boolean)} says otherwise. The
+ * {@link TimingListener}s of several runs, or of several runners used in
+ * parallel, can be merged through {@link #add(TimingListener)}. This class is
+ * thread safe.
+ * 
+ * @author Matthieu Vergne <matthieu.vergne@gmail.com>
+ * 
+ */
+public class TimingListener implements BenchmarkEventListener {
+
+	private final Map<Task, LatencyHistogram> histograms = new IdentityHashMap<Task, LatencyHistogram>();
+	private final Map<Task, Long> selections = new IdentityHashMap<Task, Long>();
+	private final long highestTrackable;
+	private final int precisionBits;
+	private boolean isWarmupIncluded = false;
+
+	/**
+	 * 
+	 * @param highestTrackable
+	 *            the highest execution time to distinguish
+	 * @param unit
+	 *            the {@link TimeUnit} of the highest execution time
+	 * @param precisionBits
+	 *            the precision of the {@link LatencyHistogram}s
+	 * @see LatencyHistogram#LatencyHistogram(long, TimeUnit, int)
+	 */
+	public TimingListener(long highestTrackable, TimeUnit unit,
+			int precisionBits) {
+		this.highestTrackable = unit.toNanos(highestTrackable);
+		this.precisionBits = precisionBits;
+		// fail early if the configuration is invalid
+		createHistogram();
+	}
+
+	/**
+	 * Creates a {@link TimingListener} with the default configuration of
+	 * {@link LatencyHistogram#LatencyHistogram()}.
+	 */
+	public TimingListener() {
+		this(1, TimeUnit.HOURS, 7);
+	}
+
+	private LatencyHistogram createHistogram() {
+		return new LatencyHistogram(highestTrackable, TimeUnit.NANOSECONDS,
+				precisionBits);
+	}
+
+	/**
+	 * 
+	 * @param isWarmupIncluded
+	 *            <code>true</code> to record the executions made during a
+	 *            warmup, <code>false</code> to ignore them
+	 */
+	public synchronized void setWarmupIncluded(boolean isWarmupIncluded) {
+		this.isWarmupIncluded = isWarmupIncluded;
+	}
+
+	public synchronized boolean isWarmupIncluded() {
+		return isWarmupIncluded;
+	}
+
+	@Override
+	public synchronized void eventGenerated(BenchmarkEvent event) {
+		if (event instanceof WarmupEvent) {
+			if (isWarmupIncluded) {
+				eventGenerated(((WarmupEvent) event).getEvent());
+			} else {
+				// ignore the warmup
+			}
+		} else if (event instanceof TaskSelectedEvent) {
+			selections.put(((TaskSelectedEvent) event).getTask(),
+					System.nanoTime());
+		} else if (event instanceof TaskExecutedEvent) {
+			TaskExecutedEvent execution = (TaskExecutedEvent) event;
+			Task task = execution.getTask();
+			Long selection = selections.remove(task);
+			Long duration = execution.getExecutionTime(TimeUnit.NANOSECONDS);
+			if (duration != null) {
+				getOrCreate(task).record(duration, TimeUnit.NANOSECONDS);
+			} else if (selection != null) {
+				getOrCreate(task).record(System.nanoTime() - selection,
+						TimeUnit.NANOSECONDS);
+			} else {
+				// no time available
+			}
+		} else {
+			// not related to the execution time
+		}
+	}
+
+	private LatencyHistogram getOrCreate(Task task) {
+		LatencyHistogram histogram = histograms.get(task);
+		if (histogram == null) {
+			histogram = createHistogram();
+			histograms.put(task, histogram);
+		} else {
+			// already created
+		}
+		return histogram;
+	}
+
+	/**
+	 * 
+	 * @return the {@link Task}s having at least one execution time recorded
+	 */
+	public synchronized Collection<Task> getTasks() {
+		return new ArrayList<Task>(histograms.keySet());
+	}
+
+	/**
+	 * 
+	 * @param task
+	 *            the {@link Task} to consider
+	 * @return a copy of the {@link LatencyHistogram} of the {@link Task}, empty
+	 *         if no execution time has been recorded for it
+	 */
+	public synchronized LatencyHistogram getHistogram(Task task) {
+		LatencyHistogram histogram = histograms.get(task);
+		return histogram == null ? createHistogram() : histogram.copy();
+	}
+
+	/**
+	 * 
+	 * @param task
+	 *            the {@link Task} to consider
+	 * @param percentile
+	 *            the percentile to compute, between 0 and 100
+	 * @param unit
+	 *            the {@link TimeUnit} to use
+	 * @return the execution time under which this percentage of the
+	 *         executions of the {@link Task} are
+	 */
+	public synchronized long getPercentile(Task task, double percentile,
+			TimeUnit unit) {
+		LatencyHistogram histogram = histograms.get(task);
+		return histogram == null ? 0 : histogram.getPercentile(percentile,
+				unit);
+	}
+
+	/**
+	 * Add the execution times recorded by another {@link TimingListener} to
+	 * this one. Both should use the same configuration.
+	 * 
+	 * @param listener
+	 *            the {@link TimingListener} to merge into this one
+	 */
+	public void add(TimingListener listener) {
+		Map<Task, LatencyHistogram> copies = new IdentityHashMap<Task, LatencyHistogram>();
+		for (Task task : listener.getTasks()) {
+			copies.put(task, listener.getHistogram(task));
+		}
+		synchronized (this) {
+			for (Entry<Task, LatencyHistogram> entry : copies.entrySet()) {
+				getOrCreate(entry.getKey()).add(entry.getValue());
+			}
+		}
+	}
+
+	/**
+	 * Forget all the execution times recorded.
+	 */
+	public synchronized void reset() {
+		histograms.clear();
+		selections.clear();
+	}
+}
@@ -18,6 +18,8 @@ import fr.vergne.benchmark.event.LinkTransferedEvent;
 import fr.vergne.benchmark.event.TaskExecutedEvent;
 import fr.vergne.benchmark.event.TaskFailedEvent;
 import fr.vergne.benchmark.event.TaskSelectedEvent;
+import fr.vergne.benchmark.event.TaskTimedOutEvent;
+import fr.vergne.benchmark.event.WarmupEvent;
 import fr.vergne.benchmark.impl.SyncLink;
 import fr.vergne.logging.LoggerConfiguration;
 
@@ -26,7 +28,9 @@ import fr.vergne.logging.LoggerConfiguration;
  * trace of all the events generated by the {@link BenchmarkRunner} it is
  * related to. Each execution of a {@link Task} is represented by a
  * {@link TaskExecution} which provides the properties of the execution and
- * describes how it is related to other {@link TaskExecution}s.
+ * describes how it is related to other {@link TaskExecution}s. The
+ * executions made during a warmup, notified through {@link WarmupEvent}s, are
+ * ignored unless {@link #setWarmupIncluded(boolean)} says otherwise.
  * 
  * @author Matthieu Vergne <matthieu.vergne@gmail.com>
  * 
@@ -49,10 +53,31 @@ public class TraceListener implements BenchmarkEventListener {
 	 */
 	private final Collection<TaskExecution> prepared = new LinkedList<TaskExecution>();
 	public final Logger logger = LoggerConfiguration.getSimpleLogger();
+	private boolean isWarmupIncluded = false;
+
+	/**
+	 * 
+	 * @param isWarmupIncluded
+	 *            <code>true</code> to trace the executions made during a
+	 *            warmup, <code>false</code> to ignore them
+	 */
+	public void setWarmupIncluded(boolean isWarmupIncluded) {
+		this.isWarmupIncluded = isWarmupIncluded;
+	}
+
+	public boolean isWarmupIncluded() {
+		return isWarmupIncluded;
+	}
 
 	@Override
 	public void eventGenerated(BenchmarkEvent event) {
-		if (event instanceof TaskSelectedEvent) {
+		if (event instanceof WarmupEvent) {
+			if (isWarmupIncluded) {
+				eventGenerated(((WarmupEvent) event).getEvent());
+			} else {
+				// ignore the warmup
+			}
+		} else if (event instanceof TaskSelectedEvent) {
 			Task task = ((TaskSelectedEvent) event).getTask();
 			TaskExecution wrapper = retrieve(prepared, task);
 			if (wrapper == null) {
@@ -66,6 +91,9 @@ public class TraceListener implements BenchmarkEventListener {
 		} else if (event instanceof TaskExecutedEvent) {
 			Task task = ((TaskExecutedEvent) event).getTask();
 			terminateTask(task, ExecutionState.SUCCESS);
+		} else if (event instanceof TaskTimedOutEvent) {
+			Task task = ((TaskTimedOutEvent) event).getTask();
+			terminateTask(task, ExecutionState.TIMEOUT);
 		} else if (event instanceof TaskFailedEvent) {
 			Task task = ((TaskFailedEvent) event).getTask();
 			terminateTask(task, ExecutionState.FAILURE);
@@ -386,6 +414,10 @@ public class TraceListener implements BenchmarkEventListener {
 		 * The {@link Task} has been interrupted before to finish.
 		 */
 		FAILURE,
+		/**
+		 * The {@link Task} has exceeded its timeout and has been abandoned.
+		 */
+		TIMEOUT,
 		/**
 		 * Unknown state. The task could have been executed or not, and if yes
 		 * it could have failed or not.
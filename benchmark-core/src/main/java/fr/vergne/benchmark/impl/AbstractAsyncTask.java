@@ -0,0 +1,84 @@
+package fr.vergne.benchmark.impl;
+
+import java.util.concurrent.CountDownLatch;
+
+import fr.vergne.benchmark.AsyncTask;
+import fr.vergne.benchmark.Task;
+
+/**
+ * Implementation of {@link AbstractSimpleTask} for {@link AsyncTask}s. The
+ * inputs, outputs and reset are managed the same way, but the actual process
+ * is implemented in {@link #doExecuteAsync(Callback)}, which should not
+ * block. The {@link Task} is considered executed once the {@link Callback} is
+ * notified of its success.<br/>
+ * <br/>
+ * When this {@link Task} is executed through {@link #execute()}, the calling
+ * thread waits for the {@link Callback} to be notified.
+ * 
+ * @author Matthieu Vergne <matthieu.vergne@gmail.com>
+ * 
+ */
+@SuppressWarnings("serial")
+public abstract class AbstractAsyncTask extends AbstractSimpleTask implements
+		AsyncTask {
+
+	/**
+	 * This method should start the actual process of this {@link Task} and
+	 * return without waiting for it to finish. The {@link Callback} should be
+	 * notified once the process is finished, whether it succeeds or fails.
+	 * 
+	 * @param callback
+	 *            the {@link Callback} to notify at the end of the process
+	 */
+	protected abstract void doExecuteAsync(Callback callback);
+
+	@Override
+	public void executeAsync(final Callback callback) {
+		doExecuteAsync(new Callback() {
+
+			@Override
+			public void succeeded() {
+				markAsExecuted();
+				callback.succeeded();
+			}
+
+			@Override
+			public void failed(Exception cause) {
+				callback.failed(cause);
+			}
+		});
+	}
+
+	@Override
+	protected void doExecute() {
+		final CountDownLatch latch = new CountDownLatch(1);
+		final Exception[] failure = { null };
+		doExecuteAsync(new Callback() {
+
+			@Override
+			public void succeeded() {
+				latch.countDown();
+			}
+
+			@Override
+			public void failed(Exception cause) {
+				failure[0] = cause;
+				latch.countDown();
+			}
+		});
+		try {
+			latch.await();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException("Interrupted while executing " + this,
+					e);
+		}
+		if (failure[0] == null) {
+			// execution succeeded
+		} else if (failure[0] instanceof RuntimeException) {
+			throw (RuntimeException) failure[0];
+		} else {
+			throw new RuntimeException(failure[0]);
+		}
+	}
+}
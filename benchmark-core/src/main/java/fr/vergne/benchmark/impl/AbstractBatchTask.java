@@ -0,0 +1,145 @@
+package fr.vergne.benchmark.impl;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+
+import fr.vergne.benchmark.InputSetter;
+import fr.vergne.benchmark.Link;
+import fr.vergne.benchmark.OutputGetter;
+import fr.vergne.benchmark.Task;
+import fr.vergne.benchmark.util.task.CsvStoring;
+
+/**
+ * Implementation of {@link AbstractSimpleTask} for {@link Task}s processing a
+ * batch of items in a single execution, to reduce the overhead paid for each
+ * execution (selection, events, {@link Link}s transfer). Each input receives
+ * a {@link List} of values, the i-th value of each input forming the i-th
+ * tuple of the batch, and each output provides a {@link List} of values built
+ * the same way from the results of {@link #executeBatch(List)}. Consequently,
+ * the outputs of an {@link AbstractBatchTask} can be linked through usual
+ * {@link Link}s to the inputs of another {@link AbstractBatchTask}, or to a
+ * {@link CsvStoring} in batch mode.
+ * 
+ * @author Matthieu Vergne <matthieu.vergne@gmail.com>
+ * 
+ */
+@SuppressWarnings("serial")
+public abstract class AbstractBatchTask extends AbstractSimpleTask {
+
+	public static final Object RESET = "reset";
+	private final Map<Object, List<?>> inputs = new LinkedHashMap<Object, List<?>>();
+	private final Map<Object, List<Object>> outputs = new LinkedHashMap<Object, List<Object>>();
+
+	/**
+	 * 
+	 * @param inputIds
+	 *            the IDs of the inputs, each receiving a {@link List} of
+	 *            values
+	 * @param outputIds
+	 *            the IDs of the outputs, each providing a {@link List} of
+	 *            values
+	 */
+	public AbstractBatchTask(Collection<?> inputIds, Collection<?> outputIds) {
+		for (Object id : new LinkedHashSet<Object>(inputIds)) {
+			inputs.put(id, null);
+		}
+		for (Object id : new LinkedHashSet<Object>(outputIds)) {
+			outputs.put(id, null);
+		}
+	}
+
+	/**
+	 * This method should implement the process of a whole batch.
+	 * 
+	 * @param tuples
+	 *            the values of the inputs for each item of the batch
+	 * @return the values of the outputs for each item of the batch, in the
+	 *         same order
+	 */
+	protected abstract List<Map<Object, Object>> executeBatch(
+			List<Map<Object, Object>> tuples);
+
+	@Override
+	protected Map<Object, InputSetter<?>> getInputs() {
+		Map<Object, InputSetter<?>> setters = new HashMap<Object, InputSetter<?>>();
+		for (final Object id : inputs.keySet()) {
+			setters.put(id, new InputSetter<List<?>>() {
+
+				@Override
+				public void set(List<?> input) {
+					inputs.put(id, input);
+				}
+			});
+		}
+		return setters;
+	}
+
+	@Override
+	protected Object getResetInputId() {
+		return RESET;
+	}
+
+	@Override
+	protected Map<Object, OutputGetter<?>> getOutputs() {
+		Map<Object, OutputGetter<?>> getters = new HashMap<Object, OutputGetter<?>>();
+		for (final Object id : outputs.keySet()) {
+			getters.put(id, new OutputGetter<List<Object>>() {
+
+				@Override
+				public List<Object> get() {
+					return outputs.get(id);
+				}
+
+				@Override
+				public boolean isSet() {
+					return outputs.get(id) != null;
+				}
+			});
+		}
+		return getters;
+	}
+
+	@Override
+	protected void doExecute() {
+		int size = -1;
+		for (Map.Entry<Object, List<?>> entry : inputs.entrySet()) {
+			int inputSize = entry.getValue().size();
+			if (size == -1 || size == inputSize) {
+				size = inputSize;
+			} else {
+				throw new IllegalStateException("The input " + entry.getKey()
+						+ " has " + inputSize + " values instead of " + size);
+			}
+		}
+		size = Math.max(size, 0);
+
+		List<Map<Object, Object>> tuples = new ArrayList<Map<Object, Object>>(
+				size);
+		for (int index = 0; index < size; index++) {
+			Map<Object, Object> tuple = new HashMap<Object, Object>();
+			for (Map.Entry<Object, List<?>> entry : inputs.entrySet()) {
+				tuple.put(entry.getKey(), entry.getValue().get(index));
+			}
+			tuples.add(tuple);
+		}
+
+		List<Map<Object, Object>> results = executeBatch(tuples);
+		if (results.size() != size) {
+			throw new IllegalStateException(results.size()
+					+ " results provided for " + size + " items");
+		} else {
+			for (Object id : outputs.keySet()) {
+				List<Object> column = new ArrayList<Object>(size);
+				for (Map<Object, Object> result : results) {
+					column.add(result.get(id));
+				}
+				outputs.put(id, column);
+			}
+		}
+	}
+}
@@ -0,0 +1,74 @@
+package fr.vergne.benchmark.impl;
+
+import java.util.Collection;
+import java.util.HashSet;
+
+import fr.vergne.benchmark.InputSetter;
+import fr.vergne.benchmark.Task;
+import fr.vergne.benchmark.util.Pipe;
+
+/**
+ * Implementation of {@link AbstractSimpleTask} for {@link Task}s producing a
+ * stream of items through a {@link StreamLink}. The {@link Pipe} to fill is
+ * received through the {@link #SINK} input, which does not need to be set for
+ * the {@link Task} to be executable: the runner sets it when the {@link Task}
+ * starts. The actual process is implemented in {@link #produce(Pipe)}, and the
+ * {@link Pipe} is closed once it is finished, or notified of the failure if
+ * an exception is thrown.
+ * 
+ * @author Matthieu Vergne <matthieu.vergne@gmail.com>
+ * 
+ */
+@SuppressWarnings("serial")
+public abstract class AbstractProducerTask<Item> extends AbstractSimpleTask {
+
+	public static final Object SINK = "sink";
+	private transient volatile Pipe<Item> sink = null;
+
+	/**
+	 * This method should produce all the items of this {@link Task}.
+	 * 
+	 * @param pipe
+	 *            the {@link Pipe} to fill
+	 */
+	protected abstract void produce(Pipe<Item> pipe);
+
+	@Override
+	public Collection<Object> getInputIds() {
+		Collection<Object> ids = new HashSet<Object>(super.getInputIds());
+		ids.add(SINK);
+		return ids;
+	}
+
+	@SuppressWarnings("unchecked")
+	@Override
+	public <In> InputSetter<In> getInput(Object id) {
+		if (SINK.equals(id)) {
+			return (InputSetter<In>) new InputSetter<Pipe<Item>>() {
+
+				@Override
+				public void set(Pipe<Item> input) {
+					sink = input;
+				}
+			};
+		} else {
+			return super.getInput(id);
+		}
+	}
+
+	@Override
+	protected void doExecute() {
+		Pipe<Item> pipe = sink;
+		if (pipe == null) {
+			throw new IllegalStateException("No stream opened for " + this);
+		} else {
+			try {
+				produce(pipe);
+			} catch (RuntimeException | Error e) {
+				pipe.fail(e);
+				throw e;
+			}
+			pipe.close();
+		}
+	}
+}
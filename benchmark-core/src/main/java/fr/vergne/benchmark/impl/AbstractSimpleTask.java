@@ -1,5 +1,6 @@
 package fr.vergne.benchmark.impl;
 
+import java.io.Serializable;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -8,8 +9,12 @@ import java.util.NoSuchElementException;
 
 import fr.vergne.benchmark.BenchmarkBuilder;
 import fr.vergne.benchmark.InputSetter;
+import fr.vergne.benchmark.InvalidatableTask;
 import fr.vergne.benchmark.OutputGetter;
+import fr.vergne.benchmark.StatefulTask;
 import fr.vergne.benchmark.Task;
+import fr.vergne.benchmark.event.impl.CheckpointListener;
+import fr.vergne.benchmark.remote.RemoteTask;
 
 /**
  * Simple implementation for {@link Task}s which need to have all their inputs
@@ -24,15 +29,25 @@ import fr.vergne.benchmark.Task;
  * The value is a {@link Collection} of input IDs to reset. If no ID is
  * provided, the {@link Task} can be re-executed immediately, otherwise the
  * corresponding inputs need to be re-generated before to execute the
- * {@link Task} again.
+ * {@link Task} again. The same can be requested without reset input through
+ * {@link #invalidate(Collection)}.<br/>
+ * <br/>
+ * This class is {@link Serializable}, so the {@link Task} can be executed in
+ * another JVM (see {@link RemoteTask}) as long as the fields of the subclass
+ * are serializable too. Its state (inputs set and execution status) can also
+ * be saved and restored separately, which allows to resume a {@link Task}
+ * through a {@link CheckpointListener}.
  * 
  * @author Matthieu Vergne <matthieu.vergne@gmail.com>
  * 
  */
-public abstract class AbstractSimpleTask implements Task {
+@SuppressWarnings("serial")
+public abstract class AbstractSimpleTask implements StatefulTask,
+		InvalidatableTask, Serializable {
 
 	private boolean shouldExecute = true;
 	private final Collection<Object> setInputs = new HashSet<Object>();
+	private final Map<Object, Object> restoredOutputs = new HashMap<Object, Object>();
 
 	public AbstractSimpleTask() {
 	}
@@ -67,8 +82,7 @@ public abstract class AbstractSimpleTask implements Task {
 
 				@Override
 				public void set(Collection<Object> input) {
-					setInputs.removeAll(input);
-					shouldExecute = true;
+					invalidate(input);
 				}
 			});
 		} else {
@@ -107,11 +121,31 @@ public abstract class AbstractSimpleTask implements Task {
 
 	@SuppressWarnings("unchecked")
 	@Override
-	public <Out> OutputGetter<Out> getOutput(Object id) {
-		if (getOutputIds().contains(id)) {
-			return (OutputGetter<Out>) getOutputs().get(id);
-		} else {
+	public <Out> OutputGetter<Out> getOutput(final Object id) {
+		if (!getOutputIds().contains(id)) {
 			throw new NoSuchElementException();
+		} else if (restoredOutputs.containsKey(id)) {
+			final OutputGetter<Out> outputGetter = (OutputGetter<Out>) getOutputs()
+					.get(id);
+			OutputGetter<Out> wrapper = new OutputGetter<Out>() {
+
+				@Override
+				public Out get() {
+					if (outputGetter.isSet()) {
+						return outputGetter.get();
+					} else {
+						return (Out) restoredOutputs.get(id);
+					}
+				}
+
+				@Override
+				public boolean isSet() {
+					return true;
+				}
+			};
+			return wrapper;
+		} else {
+			return (OutputGetter<Out>) getOutputs().get(id);
 		}
 	}
 
@@ -124,6 +158,12 @@ public abstract class AbstractSimpleTask implements Task {
 		shouldExecute = true;
 	}
 
+	@Override
+	public void invalidate(Collection<Object> inputIds) {
+		setInputs.removeAll(inputIds);
+		shouldExecute = true;
+	}
+
 	@Override
 	public boolean isExecutable() {
 		return setInputs.containsAll(getInputs().keySet());
@@ -144,7 +184,63 @@ public abstract class AbstractSimpleTask implements Task {
 	@Override
 	public void execute() {
 		doExecute();
+		markAsExecuted();
+	}
+
+	/**
+	 * Consider this {@link Task} as executed, so it should not be executed
+	 * again until it is reset.
+	 */
+	void markAsExecuted() {
 		shouldExecute = false;
+		restoredOutputs.clear();
+	}
+
+	/**
+	 * The state of an {@link AbstractSimpleTask} includes the values of its
+	 * outputs which are set and {@link Serializable}, so once restored the
+	 * {@link Task} provides them until it is executed again.
+	 */
+	@Override
+	public Serializable getState() {
+		HashMap<Object, Object> outputs = new HashMap<Object, Object>();
+		for (Object id : getOutputIds()) {
+			OutputGetter<Object> output = getOutput(id);
+			if (output.isSet() && output.get() instanceof Serializable) {
+				outputs.put(id, output.get());
+			} else {
+				// nothing to restore
+			}
+		}
+		return new State(shouldExecute, setInputs, outputs);
+	}
+
+	@Override
+	public void setState(Serializable state) {
+		if (state instanceof State) {
+			State simpleState = (State) state;
+			shouldExecute = simpleState.shouldExecute;
+			setInputs.clear();
+			setInputs.addAll(simpleState.setInputs);
+			restoredOutputs.clear();
+			restoredOutputs.putAll(simpleState.outputs);
+		} else {
+			throw new IllegalArgumentException("Unknown state: " + state);
+		}
+	}
+
+	private static class State implements Serializable {
+		private static final long serialVersionUID = 1L;
+		private final boolean shouldExecute;
+		private final HashSet<Object> setInputs;
+		private final HashMap<Object, Object> outputs;
+
+		public State(boolean shouldExecute, Collection<Object> setInputs,
+				Map<Object, Object> outputs) {
+			this.shouldExecute = shouldExecute;
+			this.setInputs = new HashSet<Object>(setInputs);
+			this.outputs = new HashMap<Object, Object>(outputs);
+		}
 	}
 
 }
@@ -0,0 +1,196 @@
+package fr.vergne.benchmark.impl;
+
+import java.util.concurrent.TimeUnit;
+
+import fr.vergne.benchmark.BenchmarkBuilder;
+import fr.vergne.benchmark.ExecutionPlan;
+import fr.vergne.benchmark.Task;
+import fr.vergne.benchmark.TaskSelectionPolicy;
+import fr.vergne.benchmark.util.ReadyQueue;
+
+/**
+ * A {@link CriticalPathPolicy} is a {@link TaskSelectionPolicy} which
+ * prioritises the {@link Task}s having the longest downstream path, meaning
+ * the longest chain of dependent {@link Task}s still to execute after them.
+ * When the {@link Task}s are executed in parallel, starting the longest chains
+ * first reduces the total time of the run.<br/>
+ * <br/>
+ * The length of a path is the sum of the durations of its {@link Task}s. The
+ * duration of a {@link Task} is the average of its execution times measured
+ * so far, which can be initialised with the durations recorded during earlier
+ * runs through {@link #setDuration(Task, long, TimeUnit)}. A {@link Task}
+ * without known duration is estimated with the average duration of the other
+ * {@link Task}s. The structure of the {@link Task}s comes from an
+ * {@link ExecutionPlan} (see {@link BenchmarkBuilder#createPlan()}).<br/>
+ * <br/>
+ * Computing the paths costs a traversal of the whole {@link ExecutionPlan}, so
+ * it is not done after each execution: the paths are computed again only when
+ * the duration of a {@link Task} moves away from the one used for them by
+ * more than a given tolerance (see {@link #setTolerance(double)}). A
+ * {@link Task} measured for the first time is compared to the estimate used
+ * for it, and the estimate of the {@link Task}s not measured yet is compared
+ * to the new average, so the first execution of {@link Task}s lasting as
+ * expected does not trigger a new computation.<br/>
+ * <br/>
+ * The priority of a {@link Task} is evaluated when it is queued in the
+ * {@link ReadyQueue}, so the {@link Task}s already queued keep the priority
+ * computed at that time, even if the paths are computed again before they are
+ * selected. The new paths apply to the {@link Task}s queued afterwards.
+ * 
+ * @author Matthieu Vergne <matthieu.vergne@gmail.com>
+ * 
+ */
+public class CriticalPathPolicy implements TaskSelectionPolicy {
+
+	private final ExecutionPlan plan;
+	private final double[] durations;
+	private final int[] measures;
+	private final double[] paths;
+	private final double[] computed;
+	private double measuredTotal = 0;
+	private int measuredCount = 0;
+	private double estimate = 0;
+	private double tolerance = 0.1;
+	private boolean isOutdated = true;
+
+	/**
+	 * 
+	 * @param plan
+	 *            the {@link ExecutionPlan} of the {@link Task}s to prioritise
+	 */
+	public CriticalPathPolicy(ExecutionPlan plan) {
+		this.plan = plan;
+		int count = plan.getTaskCount();
+		this.durations = new double[count];
+		this.measures = new int[count];
+		this.paths = new double[count];
+		this.computed = new double[count];
+	}
+
+	/**
+	 * Set how much the duration of a {@link Task} can change before the paths
+	 * are computed again. A tolerance of 0 computes them again after each
+	 * execution which changes a duration.
+	 * 
+	 * @param tolerance
+	 *            the relative change tolerated, 0.1 (10%) by default
+	 */
+	public void setTolerance(double tolerance) {
+		if (tolerance < 0) {
+			throw new IllegalArgumentException("Negative tolerance: "
+					+ tolerance);
+		} else {
+			this.tolerance = tolerance;
+		}
+	}
+
+	public double getTolerance() {
+		return tolerance;
+	}
+
+	/**
+	 * Set the duration of a {@link Task}, replacing the measures made so far.
+	 * 
+	 * @param task
+	 *            the {@link Task} to consider
+	 * @param duration
+	 *            its expected execution time
+	 * @param unit
+	 *            the {@link TimeUnit} of the duration
+	 */
+	public void setDuration(Task task, long duration, TimeUnit unit) {
+		int id = plan.getId(task);
+		forgetMeasures(id);
+		durations[id] = unit.toNanos(duration);
+		measures[id] = 1;
+		measuredTotal += durations[id];
+		isOutdated = true;
+	}
+
+	/**
+	 * 
+	 * @param task
+	 *            the {@link Task} to consider
+	 * @param unit
+	 *            the {@link TimeUnit} to use
+	 * @return the duration used for this {@link Task}, estimated if it has
+	 *         never been measured
+	 */
+	public long getDuration(Task task, TimeUnit unit) {
+		return unit.convert(Math.round(getDuration(plan.getId(task))),
+				TimeUnit.NANOSECONDS);
+	}
+
+	@Override
+	public void notifyExecution(Task task, long duration, TimeUnit unit) {
+		int id = plan.getId(task);
+		double total = durations[id] * measures[id] + unit.toNanos(duration);
+		forgetMeasures(id);
+		measures[id]++;
+		durations[id] = total / measures[id];
+		measuredTotal += durations[id];
+		if (isAway(durations[id], computed[id])) {
+			isOutdated = true;
+		} else if (measuredCount < durations.length
+				&& isAway(computeAverageDuration(), estimate)) {
+			// the estimated durations change too
+			isOutdated = true;
+		} else {
+			// paths still close enough
+		}
+	}
+
+	/**
+	 * Remove the duration of a {@link Task} from the average duration, and
+	 * count it as measured.
+	 */
+	private void forgetMeasures(int id) {
+		if (measures[id] > 0) {
+			measuredTotal -= durations[id];
+		} else {
+			measuredCount++;
+		}
+	}
+
+	private boolean isAway(double duration, double reference) {
+		return Math.abs(duration - reference) > tolerance * reference;
+	}
+
+	/**
+	 * The priority of a {@link Task} is the length of its longest downstream
+	 * path, in nanoseconds, including its own duration.
+	 */
+	@Override
+	public double getPriority(Task task) {
+		if (isOutdated) {
+			computePaths();
+			isOutdated = false;
+		} else {
+			// paths up to date
+		}
+		return paths[plan.getId(task)];
+	}
+
+	private void computePaths() {
+		estimate = computeAverageDuration();
+		int[] order = plan.getTopologicalOrder();
+		for (int index = order.length - 1; index >= 0; index--) {
+			int id = order[index];
+			double longest = 0;
+			for (int successor : plan.getSuccessors(id)) {
+				// successors in cycles may not be computed yet
+				longest = Math.max(longest, paths[successor]);
+			}
+			computed[id] = measures[id] > 0 ? durations[id] : estimate;
+			paths[id] = computed[id] + longest;
+		}
+	}
+
+	private double getDuration(int id) {
+		return measures[id] > 0 ? durations[id] : computeAverageDuration();
+	}
+
+	private double computeAverageDuration() {
+		return measuredCount == 0 ? 1 : measuredTotal / measuredCount;
+	}
+}
@@ -1,22 +1,52 @@
 package fr.vergne.benchmark.impl;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.LinkedList;
+import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
 
 import fr.vergne.benchmark.Benchmark;
+import fr.vergne.benchmark.BenchmarkRunner;
+import fr.vergne.benchmark.InvalidatableTask;
 import fr.vergne.benchmark.Link;
 import fr.vergne.benchmark.Task;
 import fr.vergne.benchmark.util.IOIdentifier;
 
+/**
+ * An {@link ImmutableBenchmark} is a {@link Benchmark} which {@link Task}s and
+ * {@link Link}s cannot be changed once created. The {@link Link}s related to
+ * each {@link Task} are indexed at the creation, so retrieving them through
+ * {@link #getOutgoingLinks(Task)} or {@link #getIncomingLinks(Task)} does not
+ * require to browse all the {@link Link}s of the {@link Benchmark}. The static
+ * methods {@link #getOutgoingLinks(Benchmark, Task)} and
+ * {@link #getIncomingLinks(Benchmark, Task)} use this index when available,
+ * and browse the {@link Link}s of the other {@link Benchmark}s.<br/>
+ * <br/>
+ * Setting an input through {@link #setInput(Object, Object)} invalidates the
+ * {@link Task}s depending on it (see {@link #invalidate(Task)}), so running
+ * the {@link Benchmark} again executes only the {@link Task}s affected by the
+ * new value.
+ * 
+ * @author Matthieu Vergne <matthieu.vergne@gmail.com>
+ * 
+ */
 public class ImmutableBenchmark implements Benchmark {
 
 	private final Collection<Task> tasks;
 	private final Collection<Link<?>> links;
 	private final Map<Object, IOIdentifier> inputs;
 	private final Map<Object, IOIdentifier> outputs;
+	private final Map<Task, Integer> indexes;
+	private final List<Collection<Link<?>>> outgoingLinks;
+	private final List<Collection<Link<?>>> incomingLinks;
 
 	public ImmutableBenchmark(Collection<Task> tasks,
 			Collection<Link<?>> links, Map<Object, IOIdentifier> inputs,
@@ -29,6 +59,48 @@ public class ImmutableBenchmark implements Benchmark {
 				.unmodifiableMap(new HashMap<Object, IOIdentifier>(inputs));
 		this.outputs = Collections
 				.unmodifiableMap(new HashMap<Object, IOIdentifier>(outputs));
+
+		indexes = new IdentityHashMap<Task, Integer>();
+		for (Task task : this.tasks) {
+			indexes.put(task, indexes.size());
+		}
+		int[] outgoingCounts = new int[indexes.size()];
+		int[] incomingCounts = new int[indexes.size()];
+		for (Link<?> link : this.links) {
+			outgoingCounts[getIndex(link.getSourceTask())]++;
+			incomingCounts[getIndex(link.getTargetTask())]++;
+		}
+		Link<?>[][] outgoing = new Link<?>[indexes.size()][];
+		Link<?>[][] incoming = new Link<?>[indexes.size()][];
+		for (int index = 0; index < indexes.size(); index++) {
+			outgoing[index] = new Link<?>[outgoingCounts[index]];
+			incoming[index] = new Link<?>[incomingCounts[index]];
+			outgoingCounts[index] = 0;
+			incomingCounts[index] = 0;
+		}
+		for (Link<?> link : this.links) {
+			int source = getIndex(link.getSourceTask());
+			int target = getIndex(link.getTargetTask());
+			outgoing[source][outgoingCounts[source]++] = link;
+			incoming[target][incomingCounts[target]++] = link;
+		}
+		outgoingLinks = new ArrayList<Collection<Link<?>>>(indexes.size());
+		incomingLinks = new ArrayList<Collection<Link<?>>>(indexes.size());
+		for (int index = 0; index < indexes.size(); index++) {
+			outgoingLinks.add(Collections.unmodifiableList(Arrays
+					.asList(outgoing[index])));
+			incomingLinks.add(Collections.unmodifiableList(Arrays
+					.asList(incoming[index])));
+		}
+	}
+
+	private int getIndex(Task task) {
+		Integer index = indexes.get(task);
+		if (index == null) {
+			throw new NoSuchElementException("Unknown task: " + task);
+		} else {
+			return index;
+		}
 	}
 
 	@Override
@@ -41,6 +113,80 @@ public class ImmutableBenchmark implements Benchmark {
 		return links;
 	}
 
+	/**
+	 * 
+	 * @param task
+	 *            a {@link Task} of this {@link Benchmark}
+	 * @return the {@link Link}s having this {@link Task} as source
+	 */
+	public Collection<Link<?>> getOutgoingLinks(Task task) {
+		return outgoingLinks.get(getIndex(task));
+	}
+
+	/**
+	 * 
+	 * @param task
+	 *            a {@link Task} of this {@link Benchmark}
+	 * @return the {@link Link}s having this {@link Task} as target
+	 */
+	public Collection<Link<?>> getIncomingLinks(Task task) {
+		return incomingLinks.get(getIndex(task));
+	}
+
+	/**
+	 * 
+	 * @param benchmark
+	 *            the {@link Benchmark} containing the {@link Task}
+	 * @param task
+	 *            a {@link Task} of the {@link Benchmark}
+	 * @return the {@link Link}s having this {@link Task} as source, taken
+	 *         from the index of an {@link ImmutableBenchmark} or found by
+	 *         browsing the {@link Link}s of any other {@link Benchmark}
+	 */
+	public static Collection<Link<?>> getOutgoingLinks(Benchmark benchmark,
+			Task task) {
+		if (benchmark instanceof ImmutableBenchmark) {
+			return ((ImmutableBenchmark) benchmark).getOutgoingLinks(task);
+		} else {
+			Collection<Link<?>> links = new LinkedList<Link<?>>();
+			for (Link<?> link : benchmark.getLinks()) {
+				if (link.getSourceTask() == task) {
+					links.add(link);
+				} else {
+					// unrelated link
+				}
+			}
+			return links;
+		}
+	}
+
+	/**
+	 * 
+	 * @param benchmark
+	 *            the {@link Benchmark} containing the {@link Task}
+	 * @param task
+	 *            a {@link Task} of the {@link Benchmark}
+	 * @return the {@link Link}s having this {@link Task} as target, taken
+	 *         from the index of an {@link ImmutableBenchmark} or found by
+	 *         browsing the {@link Link}s of any other {@link Benchmark}
+	 */
+	public static Collection<Link<?>> getIncomingLinks(Benchmark benchmark,
+			Task task) {
+		if (benchmark instanceof ImmutableBenchmark) {
+			return ((ImmutableBenchmark) benchmark).getIncomingLinks(task);
+		} else {
+			Collection<Link<?>> links = new LinkedList<Link<?>>();
+			for (Link<?> link : benchmark.getLinks()) {
+				if (link.getTargetTask() == task) {
+					links.add(link);
+				} else {
+					// unrelated link
+				}
+			}
+			return links;
+		}
+	}
+
 	@Override
 	public Collection<Object> getInputIds() {
 		return inputs.keySet();
@@ -49,9 +195,91 @@ public class ImmutableBenchmark implements Benchmark {
 	@Override
 	public <Input> void setInput(Object id, Input value) {
 		IOIdentifier ioIdentifier = inputs.get(id);
+		invalidate(ioIdentifier.getTask());
 		ioIdentifier.getTask().getInput(ioIdentifier.getId()).set(value);
 	}
 
+	/**
+	 * Request a {@link Task} to be executed again, as well as all the
+	 * {@link Task}s reachable from it through {@link Link}s. Each
+	 * {@link InvalidatableTask} reached is invalidated with the inputs fed by
+	 * the {@link Task}s invalidated before it, so it is executed only once
+	 * these {@link Task}s have been executed again and have transferred their
+	 * new values. The {@link Task}s which are not {@link InvalidatableTask}s
+	 * are left unchanged: they should decide by themselves whether the values
+	 * they receive require them to be executed again.<br/>
+	 * <br/>
+	 * Once invalidated, the {@link Task}s are executed by the next run of a
+	 * {@link BenchmarkRunner}, while the other {@link Task}s keep their
+	 * current outputs.
+	 * 
+	 * @param task
+	 *            the {@link Task} to execute again
+	 */
+	public void invalidate(Task task) {
+		invalidate(this, task, true);
+	}
+
+	/**
+	 * Same as {@link #invalidate(Task)}, but the given {@link Task} itself is
+	 * not invalidated, only the {@link Task}s depending on it. It is useful
+	 * when the {@link Task} is reset by other means, like the reset input of
+	 * an {@link AbstractSimpleTask}, so its dependents wait for the new values
+	 * it will provide.
+	 * 
+	 * @param benchmark
+	 *            the {@link Benchmark} containing the {@link Task}
+	 * @param task
+	 *            the {@link Task} which will be executed again
+	 */
+	public static void invalidateDependents(Benchmark benchmark, Task task) {
+		invalidate(benchmark, task, false);
+	}
+
+	private static void invalidate(Benchmark benchmark, Task task,
+			boolean isIncluded) {
+		Map<Task, Collection<Object>> invalidated = new IdentityHashMap<Task, Collection<Object>>();
+		invalidated.put(task, new HashSet<Object>());
+		LinkedList<Task> remaining = new LinkedList<Task>();
+		remaining.add(task);
+		Set<Task> visited = Collections
+				.newSetFromMap(new IdentityHashMap<Task, Boolean>());
+		while (!remaining.isEmpty()) {
+			Task source = remaining.removeFirst();
+			if (visited.add(source)) {
+				for (Link<?> link : getOutgoingLinks(benchmark, source)) {
+					Task target = link.getTargetTask();
+					Collection<Object> inputIds = invalidated.get(target);
+					if (inputIds == null) {
+						inputIds = new HashSet<Object>();
+						invalidated.put(target, inputIds);
+					} else {
+						// already reached
+					}
+					inputIds.add(link.getTargetId());
+					remaining.add(target);
+				}
+			} else {
+				// already propagated
+			}
+		}
+		if (!isIncluded) {
+			invalidated.remove(task);
+		} else {
+			// invalidate the task as well
+		}
+
+		for (Map.Entry<Task, Collection<Object>> entry : invalidated
+				.entrySet()) {
+			if (entry.getKey() instanceof InvalidatableTask) {
+				((InvalidatableTask) entry.getKey()).invalidate(entry
+						.getValue());
+			} else {
+				// cannot be invalidated
+			}
+		}
+	}
+
 	@Override
 	public Collection<Object> getOutputIds() {
 		return outputs.keySet();
@@ -0,0 +1,206 @@
+package fr.vergne.benchmark.impl;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+import fr.vergne.benchmark.InputSetter;
+import fr.vergne.benchmark.InvalidatableTask;
+import fr.vergne.benchmark.OutputGetter;
+import fr.vergne.benchmark.Task;
+import fr.vergne.benchmark.util.DiskCache;
+import fr.vergne.benchmark.util.MemoizationCache;
+import fr.vergne.benchmark.util.TaskOutputCache;
+
+/**
+ * A {@link MemoizingTask} decorates a deterministic {@link Task} to avoid
+ * executing it again with input values it has already processed. The values
+ * set through {@link #getInput(Object)} are recorded before to be provided to
+ * the {@link Task}, and when the {@link MemoizingTask} is executed, these
+ * values are searched in a {@link TaskOutputCache}:
+ * <ul>
+ * <li>if they are found, the {@link Task} is not executed and the outputs
+ * stored in the cache are provided by {@link #getOutput(Object)},</li>
+ * <li>otherwise, the {@link Task} is executed and its outputs are stored in
+ * the cache.</li>
+ * </ul>
+ * A typical use is a {@link Task} re-executed many times through resets (e.g.
+ * {@link AbstractSimpleTask} with a {@link ForcedLink}), which receives the
+ * same values several times. Once executed, a {@link MemoizingTask} should not
+ * be executed again until one of its inputs is set. The reset input of an
+ * {@link AbstractSimpleTask} is not considered as a value to memoize. The
+ * other values should implement {@link Object#equals(Object)} and
+ * {@link Object#hashCode()} properly.<br/>
+ * <br/>
+ * The outputs can be kept in memory through a {@link MemoizationCache}, or on
+ * the disk through a {@link DiskCache} to be reused from one run to another.
+ * 
+ * @author Matthieu Vergne <matthieu.vergne@gmail.com>
+ * 
+ */
+public class MemoizingTask implements InvalidatableTask {
+
+	private final Task delegate;
+	private final TaskOutputCache cache;
+	private final Object resetId;
+	private final Map<Object, Object> inputs = new HashMap<Object, Object>();
+	private Map<Object, Object> outputs = null;
+	private boolean isUpToDate = false;
+
+	/**
+	 * 
+	 * @param delegate
+	 *            the {@link Task} to memoize
+	 * @param cache
+	 *            the {@link TaskOutputCache} to use, which can be shared with
+	 *            other {@link MemoizingTask}s
+	 */
+	public MemoizingTask(Task delegate, TaskOutputCache cache) {
+		this.delegate = delegate;
+		this.cache = cache;
+		if (delegate instanceof AbstractSimpleTask) {
+			this.resetId = ((AbstractSimpleTask) delegate).getResetInputId();
+		} else {
+			this.resetId = null;
+		}
+	}
+
+	/**
+	 * 
+	 * @param delegate
+	 *            the {@link Task} to memoize
+	 * @param maxSize
+	 *            the maximum number of executions to remember
+	 */
+	public MemoizingTask(Task delegate, int maxSize) {
+		this(delegate, new MemoizationCache(maxSize));
+	}
+
+	/**
+	 * 
+	 * @return the {@link Task} memoized
+	 */
+	public Task getDelegate() {
+		return delegate;
+	}
+
+	/**
+	 * 
+	 * @return the {@link TaskOutputCache} used by this {@link MemoizingTask}
+	 */
+	public TaskOutputCache getCache() {
+		return cache;
+	}
+
+	@Override
+	public Collection<Object> getInputIds() {
+		return delegate.getInputIds();
+	}
+
+	@Override
+	public <In> InputSetter<In> getInput(final Object id) {
+		final InputSetter<In> setter = delegate.getInput(id);
+		return new InputSetter<In>() {
+
+			@Override
+			public void set(In input) {
+				synchronized (MemoizingTask.this) {
+					if (id.equals(resetId)) {
+						// not a value to memoize
+					} else {
+						inputs.put(id, input);
+					}
+					isUpToDate = false;
+				}
+				setter.set(input);
+			}
+		};
+	}
+
+	@Override
+	public Collection<Object> getOutputIds() {
+		return delegate.getOutputIds();
+	}
+
+	@Override
+	public synchronized <Out> OutputGetter<Out> getOutput(final Object id) {
+		if (outputs == null) {
+			return delegate.getOutput(id);
+		} else {
+			final Map<Object, Object> replayed = outputs;
+			return new OutputGetter<Out>() {
+
+				@SuppressWarnings("unchecked")
+				@Override
+				public Out get() {
+					return (Out) replayed.get(id);
+				}
+
+				@Override
+				public boolean isSet() {
+					return replayed.containsKey(id);
+				}
+			};
+		}
+	}
+
+	@Override
+	public synchronized boolean shouldBeExecuted() {
+		return !isUpToDate && delegate.shouldBeExecuted();
+	}
+
+	@Override
+	public boolean isExecutable() {
+		return delegate.isExecutable();
+	}
+
+	/**
+	 * Invalidate the decorated {@link Task} if it is an
+	 * {@link InvalidatableTask}, and consider the outputs replayed as
+	 * outdated.
+	 */
+	@Override
+	public void invalidate(Collection<Object> inputIds) {
+		if (delegate instanceof InvalidatableTask) {
+			((InvalidatableTask) delegate).invalidate(inputIds);
+		} else {
+			// nothing to invalidate in the task
+		}
+		synchronized (this) {
+			isUpToDate = false;
+		}
+	}
+
+	@Override
+	public void execute() {
+		Map<Object, Object> key;
+		synchronized (this) {
+			key = new HashMap<Object, Object>(inputs);
+		}
+		Map<Object, Object> cached = cache.get(delegate, key);
+		if (cached == null) {
+			delegate.execute();
+			cached = new HashMap<Object, Object>();
+			for (Object id : delegate.getOutputIds()) {
+				OutputGetter<Object> getter = delegate.getOutput(id);
+				if (getter.isSet()) {
+					cached.put(id, getter.get());
+				} else {
+					// nothing to replay
+				}
+			}
+			cache.put(delegate, key, cached);
+		} else {
+			// replay the outputs stored
+		}
+		synchronized (this) {
+			outputs = cached;
+			isUpToDate = true;
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "Memoizing(" + delegate + ")";
+	}
+}
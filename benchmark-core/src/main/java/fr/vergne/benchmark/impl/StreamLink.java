@@ -0,0 +1,158 @@
+package fr.vergne.benchmark.impl;
+
+import java.util.NoSuchElementException;
+
+import fr.vergne.benchmark.InputSetter;
+import fr.vergne.benchmark.Link;
+import fr.vergne.benchmark.ParallelBenchmarkRunner;
+import fr.vergne.benchmark.Task;
+import fr.vergne.benchmark.util.Pipe;
+import fr.vergne.benchmark.util.ResourceBudget;
+
+/**
+ * A {@link StreamLink} aims at linking a producer {@link Task} to a consumer
+ * {@link Task} through a {@link Pipe}, so the consumer processes the items
+ * while they are produced. Contrary to a {@link SyncLink}, the link is not
+ * transferred once the producer has been executed, but when it starts: the
+ * runner calls {@link #open()} to provide a new {@link Pipe} to the input of
+ * the producer used as sink, and transfers the link to provide the same
+ * {@link Pipe} to the consumer, which can then be executed concurrently (see
+ * {@link ParallelBenchmarkRunner}).<br/>
+ * <br/>
+ * A runner executing one {@link Task} at a time executes the consumer only
+ * once the producer is finished, so the capacity of the {@link Pipe} should
+ * be sufficient to store all the items: otherwise the producer fails when the
+ * {@link Pipe} is full (see {@link Pipe#forbidWaiting()}) rather than waiting
+ * forever. The same applies when the consumer cannot be executed while the
+ * producer is running, like with a {@link ResourceBudget} which does not
+ * admit the consumer. The concurrent runners execute the consumers on threads
+ * of their own, so they do not depend on the number of threads available.
+ * 
+ * @author Matthieu Vergne <matthieu.vergne@gmail.com>
+ * 
+ */
+public class StreamLink<Item> implements Link<Pipe<Item>> {
+
+	private final Task sourceTask;
+	private final Task targetTask;
+	private final Object sinkId;
+	private final Object targetId;
+	private final int capacity;
+	private Pipe<Item> pipe = null;
+	private boolean isOpen = false;
+
+	/**
+	 * 
+	 * @param from
+	 *            the producer {@link Task}
+	 * @param sinkId
+	 *            the ID of the producer input receiving the {@link Pipe} to
+	 *            fill
+	 * @param to
+	 *            the consumer {@link Task}
+	 * @param inputId
+	 *            the ID of the consumer input receiving the {@link Pipe} to
+	 *            read
+	 * @param capacity
+	 *            the capacity of the {@link Pipe}s created
+	 */
+	public StreamLink(Task from, Object sinkId, Task to, Object inputId,
+			int capacity) {
+		this.sourceTask = from;
+		this.targetTask = to;
+		this.sinkId = sinkId;
+		this.targetId = inputId;
+		this.capacity = capacity;
+	}
+
+	@Override
+	public Task getSourceTask() {
+		return sourceTask;
+	}
+
+	public Object getSinkId() {
+		return sinkId;
+	}
+
+	@Override
+	public Task getTargetTask() {
+		return targetTask;
+	}
+
+	@Override
+	public Object getTargetId() {
+		return targetId;
+	}
+
+	public InputSetter<Pipe<Item>> getTarget() {
+		return targetTask.getInput(targetId);
+	}
+
+	public int getCapacity() {
+		return capacity;
+	}
+
+	/**
+	 * Create a new {@link Pipe} and provide it to the producer, so this
+	 * {@link StreamLink} can be transferred to provide it to the consumer.
+	 * This method should be called before the producer is executed.
+	 */
+	public synchronized void open() {
+		pipe = new Pipe<Item>(capacity);
+		sourceTask.<Pipe<Item>> getInput(sinkId).set(pipe);
+		isOpen = true;
+	}
+
+	/**
+	 * @return the last {@link Pipe} created through {@link #open()}
+	 */
+	@Override
+	public synchronized Pipe<Item> getValue() {
+		if (pipe == null) {
+			throw new NoSuchElementException(
+					"No value available for a link which has not been opened.");
+		} else {
+			return pipe;
+		}
+	}
+
+	/**
+	 * @return <code>true</code> if {@link #open()} has been called since the
+	 *         last transfer, <code>false</code> otherwise
+	 */
+	@Override
+	public synchronized boolean isTransferable() {
+		return isOpen;
+	}
+
+	@Override
+	public synchronized void transfer() {
+		getTarget().set(getValue());
+		isOpen = false;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (obj == this) {
+			return true;
+		} else if (obj instanceof StreamLink) {
+			StreamLink<?> l = (StreamLink<?>) obj;
+			return l.sourceTask == sourceTask && l.sinkId == sinkId
+					&& l.targetTask == targetTask && l.targetId == targetId;
+		} else {
+			return false;
+		}
+	}
+
+	@Override
+	public int hashCode() {
+		return sourceTask.hashCode() * sinkId.hashCode()
+				* targetTask.hashCode() * targetId.hashCode();
+	}
+
+	@Override
+	public String toString() {
+		return sourceTask + "(" + sinkId + ") => " + targetTask + "("
+				+ targetId + ")";
+	}
+}
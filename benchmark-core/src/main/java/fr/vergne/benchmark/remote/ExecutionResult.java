@@ -0,0 +1,57 @@
+package fr.vergne.benchmark.remote;
+
+import java.io.Serializable;
+import java.util.concurrent.TimeUnit;
+
+import fr.vergne.benchmark.Task;
+
+/**
+ * An {@link ExecutionResult} is sent back by a {@link Worker} once it has
+ * executed a {@link Task}. It provides the {@link Task} in the state it has
+ * after its execution, with its outputs, or the {@link Exception} generated if
+ * the execution has failed.
+ * 
+ * @author Matthieu Vergne <matthieu.vergne@gmail.com>
+ * 
+ */
+@SuppressWarnings("serial")
+public class ExecutionResult implements Serializable {
+
+	private final Task task;
+	private final Exception failure;
+	private final long duration;
+
+	public ExecutionResult(Task task, Exception failure, long duration) {
+		this.task = task;
+		this.failure = failure;
+		this.duration = duration;
+	}
+
+	/**
+	 * 
+	 * @return the {@link Task} executed, in its state after the execution
+	 */
+	public Task getTask() {
+		return task;
+	}
+
+	/**
+	 * 
+	 * @return the {@link Exception} generated by the execution,
+	 *         <code>null</code> if it has succeeded
+	 */
+	public Exception getFailure() {
+		return failure;
+	}
+
+	/**
+	 * 
+	 * @param unit
+	 *            the {@link TimeUnit} to use
+	 * @return the time spent in {@link Task#execute()}, measured by the
+	 *         {@link Worker}
+	 */
+	public long getDuration(TimeUnit unit) {
+		return unit.convert(duration, TimeUnit.NANOSECONDS);
+	}
+}
@@ -0,0 +1,130 @@
+package fr.vergne.benchmark.remote;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import fr.vergne.benchmark.Task;
+
+/**
+ * A {@link ForkedTask} is a {@link RemoteTask} executed each time in a fresh
+ * JVM, started with the given JVM arguments and terminated just after the
+ * execution. The {@link Task} does not share its heap, JIT compilation or
+ * garbage collection with any other {@link Task}, so its execution time,
+ * measured in the forked JVM, is not disturbed by them. Starting a JVM takes
+ * time, but this time is not included in the execution time.<br/>
+ * <br/>
+ * A fresh JVM has not optimised the code of the {@link Task} yet, so its first
+ * executions are slower. Several iterations can be executed in the same forked
+ * JVM (see {@link #setIterations(int, int)}): the warmup iterations are
+ * executed first and ignored, then the execution time is the average of the
+ * measured iterations. All of them start from the same inputs, and the outputs
+ * are the ones of the last iteration.<br/>
+ * <br/>
+ * To reuse the same JVMs for several executions, use a {@link RemoteTask}
+ * with a {@link WorkerPool} whose {@link Worker}s are started through
+ * {@link WorkerPool#startLocalWorkers(int, List)}, which also accepts JVM
+ * arguments.
+ * 
+ * @author Matthieu Vergne <matthieu.vergne@gmail.com>
+ * 
+ */
+public class ForkedTask extends RemoteTask {
+
+	private final List<String> jvmArguments;
+	private int warmupIterations = 0;
+	private int measuredIterations = 1;
+
+	/**
+	 * 
+	 * @param delegate
+	 *            the {@link Task} to execute in a forked JVM
+	 * @param jvmArguments
+	 *            the arguments to give to the forked JVM (e.g. "-Xmx1g",
+	 *            "-XX:+UseSerialGC")
+	 */
+	public ForkedTask(Task delegate, List<String> jvmArguments) {
+		super(delegate, null);
+		this.jvmArguments = Collections
+				.unmodifiableList(new ArrayList<String>(jvmArguments));
+	}
+
+	/**
+	 * 
+	 * @return the arguments given to the forked JVMs
+	 */
+	public List<String> getJvmArguments() {
+		return jvmArguments;
+	}
+
+	/**
+	 * Set the number of iterations to execute in each forked JVM.
+	 * 
+	 * @param warmup
+	 *            the number of iterations executed before the measured ones,
+	 *            0 by default
+	 * @param measured
+	 *            the number of iterations measured, 1 by default
+	 */
+	public void setIterations(int warmup, int measured) {
+		if (warmup < 0 || measured < 1) {
+			throw new IllegalArgumentException("Invalid iterations: "
+					+ warmup + " warmup, " + measured + " measured");
+		} else {
+			this.warmupIterations = warmup;
+			this.measuredIterations = measured;
+		}
+	}
+
+	public int getWarmupIterations() {
+		return warmupIterations;
+	}
+
+	public int getMeasuredIterations() {
+		return measuredIterations;
+	}
+
+	@Override
+	protected ExecutionResult executeRemotely() {
+		WorkerPool pool = new WorkerPool();
+		try {
+			try {
+				pool.startLocalWorkers(1, jvmArguments);
+				WorkerConnection connection = pool.acquire();
+				Task task = getDelegate();
+				for (int i = 0; i < warmupIterations; i++) {
+					ExecutionResult result = connection.execute(task);
+					if (result.getFailure() == null) {
+						// ignored warmup
+					} else {
+						return result;
+					}
+				}
+				long total = 0;
+				ExecutionResult result = null;
+				for (int i = 0; i < measuredIterations; i++) {
+					result = connection.execute(task);
+					if (result.getFailure() == null) {
+						total += result.getDuration(TimeUnit.NANOSECONDS);
+					} else {
+						return result;
+					}
+				}
+				return new ExecutionResult(result.getTask(), null, total
+						/ measuredIterations);
+			} finally {
+				pool.close();
+			}
+		} catch (IOException e) {
+			throw new RemoteExecutionException("Forked execution failed for "
+					+ getDelegate(), e);
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "Forked(" + getDelegate() + ")";
+	}
+}
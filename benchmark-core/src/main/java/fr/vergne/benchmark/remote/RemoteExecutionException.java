@@ -0,0 +1,20 @@
+package fr.vergne.benchmark.remote;
+
+import fr.vergne.benchmark.Task;
+
+/**
+ * A {@link RemoteExecutionException} is thrown when a {@link RemoteTask} fails,
+ * either because the {@link Task} has failed in the {@link Worker} or because
+ * the communication with the {@link Worker} has failed.
+ * 
+ * @author Matthieu Vergne <matthieu.vergne@gmail.com>
+ * 
+ */
+@SuppressWarnings("serial")
+public class RemoteExecutionException extends RuntimeException {
+
+	public RemoteExecutionException(String message, Throwable cause) {
+		super(message, cause);
+	}
+
+}
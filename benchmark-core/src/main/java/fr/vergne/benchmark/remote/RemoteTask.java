@@ -0,0 +1,165 @@
+package fr.vergne.benchmark.remote;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+
+import fr.vergne.benchmark.InputSetter;
+import fr.vergne.benchmark.InvalidatableTask;
+import fr.vergne.benchmark.Link;
+import fr.vergne.benchmark.OutputGetter;
+import fr.vergne.benchmark.SelfTimedTask;
+import fr.vergne.benchmark.Task;
+import fr.vergne.benchmark.impl.AbstractSimpleTask;
+
+/**
+ * A {@link RemoteTask} executes a {@link Task} in a {@link Worker} of a
+ * {@link WorkerPool}, typically in another JVM. It is used in place of the
+ * {@link Task} when building the benchmark: the inputs set through the
+ * {@link Link}s are stored in a local copy of the {@link Task}, which is
+ * serialized with its inputs and sent to the {@link Worker} when the
+ * {@link RemoteTask} is executed. The {@link Worker} sends back the executed
+ * copy, which replaces the local one, so the outputs are available to the
+ * next {@link Link}s.<br/>
+ * <br/>
+ * Consequently, the {@link Task} and its inputs and outputs need to be
+ * serializable (see {@link AbstractSimpleTask}), and the original instance
+ * provided to this {@link RemoteTask} is not updated: use
+ * {@link #getDelegate()} to retrieve the current state.<br/>
+ * <br/>
+ * The execution time of the {@link Task} is measured by the {@link Worker},
+ * so it does not include the communication overhead.
+ * 
+ * @author Matthieu Vergne <matthieu.vergne@gmail.com>
+ * 
+ */
+public class RemoteTask implements SelfTimedTask, InvalidatableTask {
+
+	private final WorkerPool pool;
+	private volatile Task delegate;
+	private volatile Long executionTime = null;
+
+	/**
+	 * 
+	 * @param delegate
+	 *            the {@link Task} to execute remotely
+	 * @param pool
+	 *            the {@link WorkerPool} providing the {@link Worker}s
+	 */
+	public RemoteTask(Task delegate, WorkerPool pool) {
+		this.delegate = delegate;
+		this.pool = pool;
+	}
+
+	/**
+	 * 
+	 * @return the local copy of the {@link Task}, in its last known state
+	 */
+	public Task getDelegate() {
+		return delegate;
+	}
+
+	@Override
+	public Collection<Object> getInputIds() {
+		return delegate.getInputIds();
+	}
+
+	@Override
+	public <In> InputSetter<In> getInput(Object id) {
+		return delegate.getInput(id);
+	}
+
+	@Override
+	public Collection<Object> getOutputIds() {
+		return delegate.getOutputIds();
+	}
+
+	@Override
+	public <Out> OutputGetter<Out> getOutput(Object id) {
+		return delegate.getOutput(id);
+	}
+
+	@Override
+	public boolean shouldBeExecuted() {
+		return delegate.shouldBeExecuted();
+	}
+
+	@Override
+	public boolean isExecutable() {
+		return delegate.isExecutable();
+	}
+
+	/**
+	 * Invalidate the local copy of the {@link Task} if it is an
+	 * {@link InvalidatableTask}, otherwise do nothing.
+	 */
+	@Override
+	public void invalidate(Collection<Object> inputIds) {
+		Task task = delegate;
+		if (task instanceof InvalidatableTask) {
+			((InvalidatableTask) task).invalidate(inputIds);
+		} else {
+			// nothing to invalidate
+		}
+	}
+
+	/**
+	 * Execute the {@link Task} in the first {@link Worker} available.
+	 * 
+	 * @throws RemoteExecutionException
+	 *             if the {@link Task} has failed or if the communication with
+	 *             the {@link Worker} has failed
+	 */
+	@Override
+	public void execute() {
+		executionTime = null;
+		ExecutionResult result = executeRemotely();
+		executionTime = result.getDuration(TimeUnit.NANOSECONDS);
+		if (result.getFailure() == null) {
+			delegate = result.getTask();
+		} else {
+			throw new RemoteExecutionException("Remote execution failed for "
+					+ delegate, result.getFailure());
+		}
+	}
+
+	/**
+	 * Send the {@link Task} to a {@link Worker} and wait for its
+	 * {@link ExecutionResult}. The local copy of the {@link Task} is not
+	 * updated.
+	 * 
+	 * @return the {@link ExecutionResult} of the {@link Worker}
+	 * @throws RemoteExecutionException
+	 *             if the communication with the {@link Worker} has failed
+	 */
+	protected ExecutionResult executeRemotely() {
+		WorkerConnection connection = pool.acquire();
+		boolean isReusable = false;
+		try {
+			ExecutionResult result = connection.execute(delegate);
+			isReusable = true;
+			return result;
+		} catch (IOException e) {
+			throw new RemoteExecutionException("Communication failed for "
+					+ delegate, e);
+		} finally {
+			if (isReusable) {
+				pool.release(connection);
+			} else {
+				// the communication may be in an inconsistent state
+				pool.discard(connection);
+			}
+		}
+	}
+
+	@Override
+	public Long getExecutionTime(TimeUnit unit) {
+		Long time = executionTime;
+		return time == null ? null : unit.convert(time, TimeUnit.NANOSECONDS);
+	}
+
+	@Override
+	public String toString() {
+		return "Remote(" + delegate + ")";
+	}
+}
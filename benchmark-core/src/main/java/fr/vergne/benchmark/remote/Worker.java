@@ -0,0 +1,164 @@
+package fr.vergne.benchmark.remote;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+
+import fr.vergne.benchmark.Task;
+import fr.vergne.benchmark.util.FilteredObjectInputStream;
+
+/**
+ * A {@link Worker} executes the {@link Task}s sent by a coordinator through a
+ * {@link WorkerConnection}, and sends back their {@link ExecutionResult}s. It
+ * stops when the connection is closed. It is typically run in a dedicated JVM
+ * through {@link #main(String[])}, either started by a {@link WorkerPool}
+ * which communicates through its standard input and output, or started
+ * independently to connect to a {@link WorkerPool} waiting for it on a given
+ * host and port. In the latter case, the {@link Worker} authenticates with the
+ * token of the {@link WorkerPool} (see {@link WorkerPool#getToken()}), given
+ * through the environment variable {@value #TOKEN_VARIABLE}.<br/>
+ * <br/>
+ * Only the classes allowed by a {@link FilteredObjectInputStream} are
+ * deserialized, so the packages of the {@link Task}s to execute should be
+ * added to its default prefixes.
+ * 
+ * @author Matthieu Vergne <matthieu.vergne@gmail.com>
+ * 
+ */
+public class Worker {
+
+	/**
+	 * The environment variable providing the token to connect to a
+	 * {@link WorkerPool} through a socket.
+	 */
+	public static final String TOKEN_VARIABLE = "BENCHMARK_WORKER_TOKEN";
+
+	/**
+	 * Run a {@link Worker} until its coordinator closes the connection.
+	 * 
+	 * @param args
+	 *            no argument to communicate through the standard input and
+	 *            output, or a host and a port to connect to through a socket
+	 * @throws IOException
+	 *             if the communication fails
+	 */
+	public static void main(String[] args) throws IOException {
+		if (args.length == 0) {
+			OutputStream out = System.out;
+			// the standard output is reserved to the communication
+			System.setOut(System.err);
+			serve(System.in, out);
+		} else if (args.length == 2) {
+			String token = System.getenv(TOKEN_VARIABLE);
+			if (token == null) {
+				throw new IllegalStateException("No token provided through "
+						+ TOKEN_VARIABLE);
+			} else {
+				connect(args[0], Integer.parseInt(args[1]), token);
+			}
+		} else {
+			throw new IllegalArgumentException("Usage: "
+					+ Worker.class.getName() + " [host port]");
+		}
+	}
+
+	/**
+	 * Connect to a {@link WorkerPool} waiting for {@link Worker}s through
+	 * {@link WorkerPool#acceptWorkers(java.net.ServerSocket, int)}, and
+	 * execute the {@link Task}s it sends until it closes the connection.
+	 * 
+	 * @param host
+	 *            the host of the {@link WorkerPool}
+	 * @param port
+	 *            the port of the {@link WorkerPool}
+	 * @param token
+	 *            the token of the {@link WorkerPool}
+	 * @throws IOException
+	 *             if the communication fails
+	 */
+	public static void connect(String host, int port, String token)
+			throws IOException {
+		Socket socket = new Socket(host, port);
+		try {
+			DataOutputStream output = new DataOutputStream(
+					socket.getOutputStream());
+			output.writeUTF(token);
+			output.flush();
+			serve(socket.getInputStream(), socket.getOutputStream());
+		} finally {
+			socket.close();
+		}
+	}
+
+	/**
+	 * Execute the {@link Task}s received through the given streams until the
+	 * connection is closed.
+	 * 
+	 * @param in
+	 *            the stream providing the {@link Task}s to execute
+	 * @param out
+	 *            the stream receiving the {@link ExecutionResult}s
+	 * @throws IOException
+	 *             if the communication fails
+	 */
+	public static void serve(InputStream in, OutputStream out)
+			throws IOException {
+		ObjectOutputStream output = new ObjectOutputStream(out);
+		output.flush();
+		ObjectInputStream input = new FilteredObjectInputStream(in);
+		while (true) {
+			Task task;
+			try {
+				task = (Task) input.readObject();
+			} catch (EOFException e) {
+				// connection closed by the coordinator
+				break;
+			} catch (ClassNotFoundException e) {
+				throw new IOException("Unknown task class", e);
+			}
+
+			long start = System.nanoTime();
+			Exception failure = null;
+			try {
+				task.execute();
+			} catch (Exception ex) {
+				failure = ex;
+			}
+			long duration = System.nanoTime() - start;
+
+			output.reset();
+			output.writeObject(new ExecutionResult(task,
+					toSerializable(failure), duration));
+			output.flush();
+		}
+		output.close();
+	}
+
+	/**
+	 * Ensure that a failure can be sent to the coordinator. If it cannot be
+	 * serialized, it is replaced by a {@link RemoteExecutionException} having
+	 * the same message and stack trace.
+	 */
+	private static Exception toSerializable(Exception failure) {
+		if (failure == null) {
+			return null;
+		} else {
+			try {
+				new ObjectOutputStream(new ByteArrayOutputStream())
+						.writeObject(failure);
+				return failure;
+			} catch (IOException e) {
+				RemoteExecutionException replacement = new RemoteExecutionException(
+						failure.toString(), null);
+				replacement.setStackTrace(failure.getStackTrace());
+				return replacement;
+			}
+		}
+	}
+}
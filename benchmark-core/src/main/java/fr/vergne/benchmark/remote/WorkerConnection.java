@@ -0,0 +1,85 @@
+package fr.vergne.benchmark.remote;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+
+import fr.vergne.benchmark.Task;
+import fr.vergne.benchmark.util.FilteredObjectInputStream;
+
+/**
+ * A {@link WorkerConnection} is the coordinator side of the communication
+ * with a {@link Worker}. The {@link Task}s are sent through Java
+ * serialization, so a {@link Task} and the values it stores need to be
+ * serializable and their classes need to be available to the {@link Worker}.
+ * The results are read through a {@link FilteredObjectInputStream}, so their
+ * classes need to be allowed by its default prefixes.
+ * A {@link WorkerConnection} executes a single {@link Task} at a time.
+ * 
+ * @author Matthieu Vergne <matthieu.vergne@gmail.com>
+ * 
+ */
+public class WorkerConnection implements Closeable {
+
+	private final ObjectOutputStream output;
+	private final ObjectInputStream input;
+	private final Closeable resource;
+
+	/**
+	 * 
+	 * @param in
+	 *            the stream receiving the data sent by the {@link Worker}
+	 * @param out
+	 *            the stream sending data to the {@link Worker}
+	 * @param resource
+	 *            the resource to close with this {@link WorkerConnection}
+	 *            (e.g. a socket), <code>null</code> if there is none
+	 * @throws IOException
+	 *             if the connection cannot be established
+	 */
+	public WorkerConnection(InputStream in, OutputStream out,
+			Closeable resource) throws IOException {
+		this.output = new ObjectOutputStream(out);
+		this.output.flush();
+		this.input = new FilteredObjectInputStream(in);
+		this.resource = resource;
+	}
+
+	/**
+	 * Execute a {@link Task} in the {@link Worker}.
+	 * 
+	 * @param task
+	 *            the {@link Task} to execute, which is not modified
+	 * @return the {@link ExecutionResult} of the {@link Worker}
+	 * @throws IOException
+	 *             if the communication with the {@link Worker} has failed
+	 */
+	public synchronized ExecutionResult execute(Task task) throws IOException {
+		// forget the objects already sent, they may have changed since
+		output.reset();
+		output.writeObject(task);
+		output.flush();
+		try {
+			return (ExecutionResult) input.readObject();
+		} catch (ClassNotFoundException e) {
+			throw new IOException("Unknown class in the result of " + task, e);
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		try {
+			output.close();
+			input.close();
+		} finally {
+			if (resource == null) {
+				// nothing else to close
+			} else {
+				resource.close();
+			}
+		}
+	}
+}
@@ -0,0 +1,325 @@
+package fr.vergne.benchmark.remote;
+
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import fr.vergne.benchmark.ParallelBenchmarkRunner;
+import fr.vergne.benchmark.Task;
+import fr.vergne.benchmark.util.FilteredObjectInputStream;
+
+/**
+ * A {@link WorkerPool} gathers the {@link WorkerConnection}s available to
+ * execute {@link RemoteTask}s. Each {@link Worker} executes a single
+ * {@link Task} at a time, so a {@link RemoteTask} waits for a {@link Worker}
+ * to be available. Using a {@link ParallelBenchmarkRunner} with as many threads
+ * as {@link Worker}s allows to use all of them at the same time.<br/>
+ * <br/>
+ * The {@link Worker}s can be local processes started by
+ * {@link #startLocalWorkers(int, List)}, which communicate through pipes, or
+ * any {@link Worker} connecting through a socket (see
+ * {@link #acceptWorkers(ServerSocket, int)}), which also works for remote
+ * nodes. Since the {@link Worker}s execute the {@link Task}s they receive, a
+ * {@link Worker} connecting through a socket has to provide the token of this
+ * {@link WorkerPool} (see {@link #getToken()}), otherwise its connection is
+ * closed. {@link #acceptWorkers(int, int)} listens only to the loopback
+ * interface, which should be preferred when the {@link Worker}s run on the
+ * same node.
+ * 
+ * @author Matthieu Vergne <matthieu.vergne@gmail.com>
+ * 
+ */
+public class WorkerPool implements Closeable {
+
+	private final Collection<WorkerConnection> connections = new LinkedList<WorkerConnection>();
+	private final LinkedList<WorkerConnection> available = new LinkedList<WorkerConnection>();
+	private final String token = new BigInteger(130, new SecureRandom())
+			.toString(32);
+	private int handshakeTimeout = 10000;
+	private long terminationTimeout = TimeUnit.SECONDS.toNanos(10);
+
+	/**
+	 * 
+	 * @return the token that the {@link Worker}s connecting through a socket
+	 *         have to provide, randomly generated for this {@link WorkerPool}
+	 */
+	public String getToken() {
+		return token;
+	}
+
+	/**
+	 * 
+	 * @param timeout
+	 *            the time, in milliseconds, that a {@link Worker} connecting
+	 *            through a socket has to provide its token
+	 */
+	public void setHandshakeTimeout(int timeout) {
+		this.handshakeTimeout = timeout;
+	}
+
+	/**
+	 * Set the time that the local {@link Worker}s have to terminate once
+	 * their connection is closed, after which their process is destroyed.
+	 * 
+	 * @param timeout
+	 *            the time to wait
+	 * @param unit
+	 *            the {@link TimeUnit} of the time
+	 */
+	public void setTerminationTimeout(long timeout, TimeUnit unit) {
+		this.terminationTimeout = unit.toNanos(timeout);
+	}
+
+	/**
+	 * Add a {@link Worker} to this {@link WorkerPool}.
+	 * 
+	 * @param connection
+	 *            the {@link WorkerConnection} of the {@link Worker}
+	 */
+	public synchronized void addWorker(WorkerConnection connection) {
+		connections.add(connection);
+		available.add(connection);
+		notifyAll();
+	}
+
+	/**
+	 * Start {@link Worker}s in new JVMs, using the same Java installation and
+	 * class path than the current JVM. They communicate through their
+	 * standard input and output, while their error output is redirected to
+	 * the one of the current JVM.
+	 * 
+	 * @param count
+	 *            the number of {@link Worker}s to start
+	 * @param jvmArguments
+	 *            the arguments to give to the JVMs (e.g. "-Xmx1g")
+	 * @throws IOException
+	 *             if a {@link Worker} cannot be started
+	 */
+	public void startLocalWorkers(int count, List<String> jvmArguments)
+			throws IOException {
+		for (int i = 0; i < count; i++) {
+			List<String> command = new ArrayList<String>();
+			command.add(System.getProperty("java.home") + File.separator
+					+ "bin" + File.separator + "java");
+			command.addAll(jvmArguments);
+			String prefixes = System
+					.getProperty(FilteredObjectInputStream.PREFIXES_PROPERTY);
+			if (prefixes == null) {
+				// default prefixes only
+			} else {
+				command.add("-D" + FilteredObjectInputStream.PREFIXES_PROPERTY
+						+ "=" + prefixes);
+			}
+			command.add("-cp");
+			command.add(System.getProperty("java.class.path"));
+			command.add(Worker.class.getName());
+
+			ProcessBuilder builder = new ProcessBuilder(command);
+			builder.redirectError(ProcessBuilder.Redirect.INHERIT);
+			final Process process = builder.start();
+			addWorker(new WorkerConnection(process.getInputStream(),
+					process.getOutputStream(), new Closeable() {
+
+						@Override
+						public void close() throws IOException {
+							terminate(process);
+						}
+					}));
+		}
+	}
+
+	/**
+	 * Wait for a local {@link Worker} to terminate, and destroy its process if
+	 * it does not terminate in time.
+	 */
+	private void terminate(Process process) {
+		long deadline = System.nanoTime() + terminationTimeout;
+		try {
+			while (true) {
+				try {
+					process.exitValue();
+					return;
+				} catch (IllegalThreadStateException e) {
+					if (deadline - System.nanoTime() > 0) {
+						Thread.sleep(10);
+					} else {
+						process.destroy();
+						return;
+					}
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			process.destroy();
+		}
+	}
+
+	/**
+	 * Wait for {@link Worker}s to connect through the given
+	 * {@link ServerSocket}. The {@link Worker}s should be started with the
+	 * host and port of this {@link ServerSocket} as arguments, and with the
+	 * token of this {@link WorkerPool}. The connections which do not provide
+	 * this token in time are closed and not counted.
+	 * 
+	 * @param server
+	 *            the {@link ServerSocket} to listen to
+	 * @param count
+	 *            the number of {@link Worker}s to wait for
+	 * @throws IOException
+	 *             if a connection fails
+	 */
+	public void acceptWorkers(ServerSocket server, int count)
+			throws IOException {
+		int accepted = 0;
+		while (accepted < count) {
+			Socket socket = server.accept();
+			if (authenticate(socket)) {
+				addWorker(new WorkerConnection(socket.getInputStream(),
+						socket.getOutputStream(), socket));
+				accepted++;
+			} else {
+				socket.close();
+			}
+		}
+	}
+
+	/**
+	 * Same as {@link #acceptWorkers(ServerSocket, int)}, but listening only
+	 * to the loopback interface, so only the {@link Worker}s of the current
+	 * node can connect.
+	 * 
+	 * @param port
+	 *            the port to listen to
+	 * @param count
+	 *            the number of {@link Worker}s to wait for
+	 * @throws IOException
+	 *             if a connection fails
+	 */
+	public void acceptWorkers(int port, int count) throws IOException {
+		ServerSocket server = new ServerSocket(port, count,
+				InetAddress.getLoopbackAddress());
+		try {
+			acceptWorkers(server, count);
+		} finally {
+			server.close();
+		}
+	}
+
+	private boolean authenticate(Socket socket) throws IOException {
+		socket.setSoTimeout(handshakeTimeout);
+		try {
+			String received = new DataInputStream(socket.getInputStream())
+					.readUTF();
+			socket.setSoTimeout(0);
+			return MessageDigest.isEqual(
+					token.getBytes(StandardCharsets.UTF_8),
+					received.getBytes(StandardCharsets.UTF_8));
+		} catch (IOException e) {
+			// silent, broken or not a worker
+			return false;
+		}
+	}
+
+	/**
+	 * 
+	 * @return the number of {@link Worker}s of this {@link WorkerPool}
+	 */
+	public synchronized int size() {
+		return connections.size();
+	}
+
+	/**
+	 * Wait for a {@link Worker} to be available and reserve it. It should be
+	 * given back through {@link #release(WorkerConnection)} or
+	 * {@link #discard(WorkerConnection)}.
+	 * 
+	 * @return the {@link WorkerConnection} of the {@link Worker} reserved
+	 * @throws IllegalStateException
+	 *             if this {@link WorkerPool} has no {@link Worker}, including
+	 *             when the last one is discarded while waiting
+	 */
+	public synchronized WorkerConnection acquire() {
+		while (available.isEmpty()) {
+			if (connections.isEmpty()) {
+				throw new IllegalStateException("No worker in the pool");
+			} else {
+				try {
+					wait();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw new IllegalStateException(
+							"Interrupted while waiting for a worker", e);
+				}
+			}
+		}
+		return available.poll();
+	}
+
+	/**
+	 * Give back a {@link Worker} reserved through {@link #acquire()}.
+	 * 
+	 * @param connection
+	 *            the {@link WorkerConnection} of the {@link Worker}
+	 */
+	public synchronized void release(WorkerConnection connection) {
+		available.add(connection);
+		notifyAll();
+	}
+
+	/**
+	 * Remove a {@link Worker} reserved through {@link #acquire()}, typically
+	 * because its connection has failed, and close its connection.
+	 * 
+	 * @param connection
+	 *            the {@link WorkerConnection} of the {@link Worker}
+	 */
+	public void discard(WorkerConnection connection) {
+		synchronized (this) {
+			connections.remove(connection);
+			// the waiting threads may have no worker to wait for anymore
+			notifyAll();
+		}
+		try {
+			connection.close();
+		} catch (IOException e) {
+			// already broken
+		}
+	}
+
+	/**
+	 * Close the connections with all the {@link Worker}s, which terminates
+	 * them.
+	 */
+	@Override
+	public synchronized void close() throws IOException {
+		IOException failure = null;
+		for (WorkerConnection connection : connections) {
+			try {
+				connection.close();
+			} catch (IOException e) {
+				failure = e;
+			}
+		}
+		connections.clear();
+		available.clear();
+		notifyAll();
+		if (failure == null) {
+			// all closed
+		} else {
+			throw failure;
+		}
+	}
+}
@@ -0,0 +1,270 @@
+package fr.vergne.benchmark.util;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import com.sun.management.ThreadMXBean;
+
+import fr.vergne.benchmark.Benchmark;
+import fr.vergne.benchmark.BenchmarkRunner;
+import fr.vergne.benchmark.Task;
+import fr.vergne.benchmark.TaskExecutionHook;
+
+/**
+ * An {@link AllocationRecorder} is a {@link TaskExecutionHook} which measures
+ * the heap memory allocated by each execution of a {@link Task}, so the
+ * {@link Task}s responsible for the allocation pressure of a
+ * {@link Benchmark} can be identified. The allocated bytes
+ * are read through {@link ThreadMXBean#getThreadAllocatedBytes(long)} on the
+ * thread executing the {@link Task}, just before and just after its execution,
+ * together with its execution time. It should be registered through
+ * {@link BenchmarkRunner#registerHook(TaskExecutionHook)}.<br/>
+ * <br/>
+ * The measure is provided by the HotSpot JVM. If it is not available, even
+ * if the class {@link ThreadMXBean} itself is missing, {@link #isSupported()}
+ * returns <code>false</code> and nothing is recorded. The executions made
+ * during a warmup (see {@link BenchmarkRunner#setWarmup(boolean)}) are not
+ * recorded, because they are not representative.
+ * The memory allocated by other threads on behalf of the {@link Task}, like
+ * the ones of an {@link ExecutorService} it uses, is not
+ * attributed to it. The totals are accumulated until {@link #reset()} is
+ * called, so it can be called between two runs to obtain the totals of each
+ * run. This class is thread safe.
+ * 
+ * @author Matthieu Vergne <matthieu.vergne@gmail.com>
+ * 
+ */
+public class AllocationRecorder implements TaskExecutionHook {
+
+	private final AllocationCounter counter;
+	private final ThreadLocal<long[]> starts = new ThreadLocal<long[]>();
+	private final Map<Task, Record> records = new IdentityHashMap<Task, Record>();
+	private final Record total = new Record();
+
+	public AllocationRecorder() {
+		AllocationCounter counter;
+		try {
+			counter = HotSpotCounter.create();
+		} catch (LinkageError e) {
+			// com.sun.management not provided by this JVM
+			counter = null;
+		}
+		this.counter = counter;
+	}
+
+	/**
+	 * 
+	 * @return <code>true</code> if the JVM can measure the memory allocated by
+	 *         each thread, <code>false</code> if nothing can be recorded
+	 */
+	public boolean isSupported() {
+		return counter != null;
+	}
+
+	@Override
+	public void beforeExecution(Task task, boolean isWarmup) {
+		if (counter == null || isWarmup) {
+			// nothing to measure
+		} else {
+			starts.set(new long[] { counter.getAllocatedBytes(),
+					System.nanoTime() });
+		}
+	}
+
+	@Override
+	public void afterExecution(Task task, boolean isWarmup,
+			boolean isSuccessful) {
+		long[] start = starts.get();
+		if (counter == null || start == null) {
+			// nothing measured
+		} else {
+			long bytes = counter.getAllocatedBytes() - start[0];
+			long time = System.nanoTime() - start[1];
+			starts.remove();
+			synchronized (this) {
+				Record record = records.get(task);
+				if (record == null) {
+					record = new Record();
+					records.put(task, record);
+				} else {
+					// already recorded
+				}
+				record.add(bytes, time);
+				total.add(bytes, time);
+			}
+		}
+	}
+
+	/**
+	 * 
+	 * @return the {@link Task}s having at least one execution recorded
+	 */
+	public synchronized Collection<Task> getTasks() {
+		return new ArrayList<Task>(records.keySet());
+	}
+
+	/**
+	 * 
+	 * @param task
+	 *            the {@link Task} to consider
+	 * @return the number of executions of the {@link Task} recorded
+	 */
+	public synchronized long getExecutions(Task task) {
+		Record record = records.get(task);
+		return record == null ? 0 : record.executions;
+	}
+
+	/**
+	 * 
+	 * @param task
+	 *            the {@link Task} to consider
+	 * @return the bytes allocated by all the executions of the {@link Task}
+	 */
+	public synchronized long getAllocatedBytes(Task task) {
+		Record record = records.get(task);
+		return record == null ? 0 : record.bytes;
+	}
+
+	/**
+	 * 
+	 * @param task
+	 *            the {@link Task} to consider
+	 * @param unit
+	 *            the {@link TimeUnit} to use
+	 * @return the time spent in all the executions of the {@link Task}
+	 */
+	public synchronized long getExecutionTime(Task task, TimeUnit unit) {
+		Record record = records.get(task);
+		return record == null ? 0 : unit.convert(record.time,
+				TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * 
+	 * @param task
+	 *            the {@link Task} to consider
+	 * @return the bytes allocated per second of execution of the {@link Task},
+	 *         0 if it has not been executed
+	 */
+	public synchronized double getAllocationRate(Task task) {
+		Record record = records.get(task);
+		return record == null ? 0 : record.getRate();
+	}
+
+	/**
+	 * 
+	 * @return the bytes allocated by all the executions recorded
+	 */
+	public synchronized long getAllocatedBytes() {
+		return total.bytes;
+	}
+
+	/**
+	 * 
+	 * @param unit
+	 *            the {@link TimeUnit} to use
+	 * @return the time spent in all the executions recorded
+	 */
+	public synchronized long getExecutionTime(TimeUnit unit) {
+		return unit.convert(total.time, TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * 
+	 * @return the bytes allocated per second of execution, over all the
+	 *         executions recorded
+	 */
+	public synchronized double getAllocationRate() {
+		return total.getRate();
+	}
+
+	/**
+	 * Forget all the executions recorded.
+	 */
+	public synchronized void reset() {
+		records.clear();
+		total.bytes = 0;
+		total.time = 0;
+		total.executions = 0;
+	}
+
+	@Override
+	public synchronized String toString() {
+		StringBuilder builder = new StringBuilder();
+		for (Map.Entry<Task, Record> entry : records.entrySet()) {
+			builder.append(entry.getKey() + ": " + entry.getValue() + "\n");
+		}
+		builder.append("Total: " + total);
+		return builder.toString();
+	}
+
+	/**
+	 * Provide the bytes allocated by the current thread.
+	 */
+	private static interface AllocationCounter {
+		public long getAllocatedBytes();
+	}
+
+	/**
+	 * The only class referring to {@link ThreadMXBean}, so it fails to load,
+	 * rather than the {@link AllocationRecorder}, on a JVM which does not
+	 * provide it.
+	 */
+	private static class HotSpotCounter implements AllocationCounter {
+		private final ThreadMXBean bean;
+
+		private HotSpotCounter(ThreadMXBean bean) {
+			this.bean = bean;
+		}
+
+		public static AllocationCounter create() {
+			java.lang.management.ThreadMXBean bean = ManagementFactory
+					.getThreadMXBean();
+			if (bean instanceof ThreadMXBean
+					&& ((ThreadMXBean) bean).isThreadAllocatedMemorySupported()) {
+				ThreadMXBean hotSpotBean = (ThreadMXBean) bean;
+				if (!hotSpotBean.isThreadAllocatedMemoryEnabled()) {
+					hotSpotBean.setThreadAllocatedMemoryEnabled(true);
+				} else {
+					// already enabled
+				}
+				return new HotSpotCounter(hotSpotBean);
+			} else {
+				return null;
+			}
+		}
+
+		@Override
+		public long getAllocatedBytes() {
+			return bean.getThreadAllocatedBytes(Thread.currentThread()
+					.getId());
+		}
+	}
+
+	private static class Record {
+		private long bytes = 0;
+		private long time = 0;
+		private long executions = 0;
+
+		public void add(long bytes, long time) {
+			this.bytes += bytes;
+			this.time += time;
+			this.executions++;
+		}
+
+		public double getRate() {
+			return time == 0 ? 0 : bytes * 1e9 / time;
+		}
+
+		@Override
+		public String toString() {
+			return bytes + " bytes in " + executions + " executions ("
+					+ (long) getRate() + " bytes/s)";
+		}
+	}
+}
@@ -0,0 +1,24 @@
+package fr.vergne.benchmark.util;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * A {@link DaemonThreadFactory} creates the same threads than
+ * {@link Executors#defaultThreadFactory()}, but as daemon threads, so they do
+ * not prevent the JVM to terminate.
+ * 
+ * @author Matthieu Vergne <matthieu.vergne@gmail.com>
+ * 
+ */
+public class DaemonThreadFactory implements ThreadFactory {
+
+	private final ThreadFactory factory = Executors.defaultThreadFactory();
+
+	@Override
+	public Thread newThread(Runnable runnable) {
+		Thread thread = factory.newThread(runnable);
+		thread.setDaemon(true);
+		return thread;
+	}
+}
@@ -0,0 +1,517 @@
+package fr.vergne.benchmark.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.RandomAccessFile;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.channels.FileLock;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import fr.vergne.benchmark.Task;
+import fr.vergne.benchmark.impl.MemoizingTask;
+
+/**
+ * A {@link DiskCache} is a {@link TaskOutputCache} which stores the outputs in
+ * a local directory, so they can be reused by another run of the benchmark.
+ * An entry is identified by a hash of the class of the {@link Task}, of its
+ * configuration (see {@link #setConfiguration(Task, Serializable)}) and of the
+ * values of its inputs, so any {@link Task} of the same class with the same
+ * configuration and the same inputs can reuse it, like a {@link Task} left
+ * unchanged in a modified benchmark and decorated by a {@link MemoizingTask}.
+ * Consequently, the configuration and the values of the inputs and outputs
+ * need to be {@link Serializable}, and their serialized form should only
+ * depend on their content (e.g. not on the order of a {@link HashMap} of
+ * custom objects). Because two {@link Task}s of the same class may produce
+ * different outputs from the same inputs, a configuration is required for
+ * each {@link Task} using this cache, even a constant one for a {@link Task}
+ * without parameter. The outputs are read through a
+ * {@link FilteredObjectInputStream}, so their classes need to be allowed by
+ * its default prefixes.<br/>
+ * <br/>
+ * The entries are appended to segment files, which are read through memory
+ * mapping. When a segment exceeds the size requested, a new one is created,
+ * and when the total size exceeds the maximum size, the oldest segments are
+ * removed. Several {@link DiskCache}s, possibly in different JVMs, can use the
+ * same directory: the files are accessed under a file lock, and each
+ * {@link DiskCache} reads the entries added by the others when it does not
+ * find an entry.
+ * 
+ * @author Matthieu Vergne <matthieu.vergne@gmail.com>
+ * 
+ */
+public class DiskCache implements TaskOutputCache, Closeable {
+
+	private static final Map<File, Object> LOCKS = new HashMap<File, Object>();
+	private static final int MAGIC = 0x42434348;
+	private static final int KEY_SIZE = 32;
+	private static final int HEADER_SIZE = 4 + KEY_SIZE + 4;
+	private static final String EXTENSION = ".seg";
+
+	private final File directory;
+	private final long maxSize;
+	private final long segmentSize;
+	private final Object jvmLock;
+	private final RandomAccessFile lockFile;
+	private final Map<Task, Serializable> configurations = new IdentityHashMap<Task, Serializable>();
+	private final Map<String, Location> index = new HashMap<String, Location>();
+	private final SortedMap<Integer, Segment> segments = new TreeMap<Integer, Segment>();
+
+	/**
+	 * 
+	 * @param directory
+	 *            the directory where to store the entries, created if it does
+	 *            not exist
+	 * @param maxSize
+	 *            the total size (in bytes) above which the oldest entries are
+	 *            removed
+	 * @param segmentSize
+	 *            the size (in bytes) above which a new segment file is created
+	 * @throws IOException
+	 *             if the directory cannot be used
+	 */
+	public DiskCache(File directory, long maxSize, long segmentSize)
+			throws IOException {
+		if (segmentSize <= 0 || segmentSize > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("Invalid segment size: "
+					+ segmentSize);
+		} else if (maxSize < segmentSize) {
+			throw new IllegalArgumentException("The maximum size " + maxSize
+					+ " is lower than the segment size " + segmentSize);
+		} else {
+			this.maxSize = maxSize;
+			this.segmentSize = segmentSize;
+		}
+		if (!directory.isDirectory() && !directory.mkdirs()) {
+			throw new IOException("Cannot create the directory " + directory);
+		} else {
+			this.directory = directory;
+		}
+		synchronized (LOCKS) {
+			File key = directory.getCanonicalFile();
+			Object lock = LOCKS.get(key);
+			if (lock == null) {
+				lock = new Object();
+				LOCKS.put(key, lock);
+			} else {
+				// lock already shared with another cache
+			}
+			this.jvmLock = lock;
+		}
+		this.lockFile = new RandomAccessFile(new File(directory, "cache.lock"),
+				"rw");
+	}
+
+	/**
+	 * Create a {@link DiskCache} with segments of 1/8 of the maximum size.
+	 * 
+	 * @param directory
+	 *            the directory where to store the entries, created if it does
+	 *            not exist
+	 * @param maxSize
+	 *            the total size (in bytes) above which the oldest entries are
+	 *            removed
+	 * @throws IOException
+	 *             if the directory cannot be used
+	 */
+	public DiskCache(File directory, long maxSize) throws IOException {
+		this(directory, maxSize, Math.max(1, Math.min(maxSize / 8,
+				Integer.MAX_VALUE)));
+	}
+
+	/**
+	 * Set the configuration of a {@link Task}, meaning anything which impacts
+	 * its outputs apart from its class and its inputs, like parameters
+	 * provided at its creation. It must be set before the {@link Task} uses
+	 * this cache, and two {@link Task}s of the same class having equal
+	 * configurations are considered as equivalent.
+	 * 
+	 * @param task
+	 *            the {@link Task} to configure
+	 * @param configuration
+	 *            its configuration, <code>null</code> to remove it
+	 */
+	public synchronized void setConfiguration(Task task,
+			Serializable configuration) {
+		if (configuration == null) {
+			configurations.remove(task);
+		} else {
+			configurations.put(task, configuration);
+		}
+	}
+
+	/**
+	 * 
+	 * @param task
+	 *            the {@link Task} to consider
+	 * @return its configuration, <code>null</code> if it has none
+	 */
+	public synchronized Serializable getConfiguration(Task task) {
+		return configurations.get(task);
+	}
+
+	/**
+	 * 
+	 * @return the directory where the entries are stored
+	 */
+	public File getDirectory() {
+		return directory;
+	}
+
+	@Override
+	public Map<Object, Object> get(Task task, Map<Object, Object> inputs) {
+		try {
+			String key = toHex(computeKey(task, inputs));
+			byte[] bytes;
+			synchronized (jvmLock) {
+				FileLock lock = lockFile.getChannel().lock(0, Long.MAX_VALUE,
+						true);
+				try {
+					if (!index.containsKey(key)) {
+						refresh();
+					} else {
+						// already known
+					}
+					Location location = index.get(key);
+					if (location == null) {
+						return null;
+					} else {
+						bytes = read(location);
+					}
+				} finally {
+					lock.release();
+				}
+			}
+			@SuppressWarnings("unchecked")
+			Map<Object, Object> outputs = (Map<Object, Object>) deserialize(bytes);
+			return Collections.unmodifiableMap(outputs);
+		} catch (IOException e) {
+			throw new IllegalStateException("Cannot read the cache "
+					+ directory, e);
+		}
+	}
+
+	@Override
+	public void put(Task task, Map<Object, Object> inputs,
+			Map<Object, Object> outputs) {
+		try {
+			byte[] key = computeKey(task, inputs);
+			byte[] payload = serialize(new HashMap<Object, Object>(outputs));
+			ByteBuffer record = ByteBuffer.allocate(HEADER_SIZE
+					+ payload.length);
+			record.putInt(MAGIC).put(key).putInt(payload.length).put(payload);
+			synchronized (jvmLock) {
+				FileLock lock = lockFile.getChannel().lock();
+				try {
+					refresh();
+					if (index.containsKey(toHex(key))) {
+						// already stored by another cache
+					} else {
+						append(record.array());
+						evict();
+					}
+				} finally {
+					lock.release();
+				}
+			}
+		} catch (IOException e) {
+			throw new IllegalStateException("Cannot write the cache "
+					+ directory, e);
+		}
+	}
+
+	/**
+	 * 
+	 * @return the total size (in bytes) of the entries stored
+	 */
+	public long getSize() {
+		try {
+			synchronized (jvmLock) {
+				FileLock lock = lockFile.getChannel().lock(0, Long.MAX_VALUE,
+						true);
+				try {
+					refresh();
+					long size = 0;
+					for (Segment segment : segments.values()) {
+						size += segment.length;
+					}
+					return size;
+				} finally {
+					lock.release();
+				}
+			}
+		} catch (IOException e) {
+			throw new IllegalStateException("Cannot read the cache "
+					+ directory, e);
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		synchronized (jvmLock) {
+			lockFile.close();
+			segments.clear();
+			index.clear();
+		}
+	}
+
+	private byte[] computeKey(Task task, Map<Object, Object> inputs)
+			throws IOException {
+		Serializable configuration = getConfiguration(task);
+		if (configuration == null) {
+			throw new IllegalStateException("No configuration set for "
+					+ task + ", it would be confused with any task of the"
+					+ " same class");
+		} else {
+			// the task can be identified
+		}
+		MessageDigest digest = createDigest();
+		digest.update(task.getClass().getName().getBytes("UTF-8"));
+		digest.update(serialize(configuration));
+
+		// the inputs are hashed independently of their order
+		List<byte[]> hashes = new ArrayList<byte[]>(inputs.size());
+		for (Entry<Object, Object> entry : inputs.entrySet()) {
+			MessageDigest inputDigest = createDigest();
+			inputDigest.update(serialize(entry.getKey()));
+			inputDigest.update(serialize(entry.getValue()));
+			hashes.add(inputDigest.digest());
+		}
+		Collections.sort(hashes, new Comparator<byte[]>() {
+
+			@Override
+			public int compare(byte[] h1, byte[] h2) {
+				for (int i = 0; i < h1.length; i++) {
+					if (h1[i] != h2[i]) {
+						return h1[i] < h2[i] ? -1 : 1;
+					} else {
+						// check next byte
+					}
+				}
+				return 0;
+			}
+		});
+		for (byte[] hash : hashes) {
+			digest.update(hash);
+		}
+		return digest.digest();
+	}
+
+	private void refresh() throws IOException {
+		Set<Integer> found = new HashSet<Integer>();
+		File[] files = directory.listFiles();
+		for (File file : files == null ? new File[0] : files) {
+			String name = file.getName();
+			if (name.endsWith(EXTENSION)) {
+				try {
+					int number = Integer.parseInt(name.substring(0,
+							name.length() - EXTENSION.length()));
+					found.add(number);
+					if (!segments.containsKey(number)) {
+						segments.put(number, new Segment(file));
+					} else {
+						// already known
+					}
+				} catch (NumberFormatException e) {
+					// not a segment
+				}
+			} else {
+				// not a segment
+			}
+		}
+
+		Iterator<Entry<Integer, Segment>> iterator = segments.entrySet()
+				.iterator();
+		while (iterator.hasNext()) {
+			Entry<Integer, Segment> entry = iterator.next();
+			if (found.contains(entry.getKey())) {
+				if (entry.getValue().file.length() > entry.getValue().length) {
+					scan(entry.getKey(), entry.getValue());
+				} else {
+					// nothing new
+				}
+			} else {
+				// removed by another cache
+				iterator.remove();
+				forget(entry.getKey());
+			}
+		}
+	}
+
+	private void scan(int number, Segment segment) throws IOException {
+		RandomAccessFile file = new RandomAccessFile(segment.file, "r");
+		try {
+			segment.buffer = file.getChannel().map(MapMode.READ_ONLY, 0,
+					file.length());
+		} finally {
+			file.close();
+		}
+
+		MappedByteBuffer buffer = segment.buffer;
+		int position = (int) segment.length;
+		while (position + HEADER_SIZE <= buffer.capacity()
+				&& buffer.getInt(position) == MAGIC) {
+			int length = buffer.getInt(position + 4 + KEY_SIZE);
+			if (length < 0
+					|| position + HEADER_SIZE + length > buffer.capacity()) {
+				// incomplete record
+				break;
+			} else {
+				byte[] key = new byte[KEY_SIZE];
+				ByteBuffer view = buffer.duplicate();
+				view.position(position + 4);
+				view.get(key);
+				index.put(toHex(key), new Location(number, position
+						+ HEADER_SIZE, length));
+				position += HEADER_SIZE + length;
+			}
+		}
+		segment.length = position;
+	}
+
+	private void append(byte[] record) throws IOException {
+		int number;
+		Segment segment;
+		if (segments.isEmpty()) {
+			number = 0;
+			segment = null;
+		} else {
+			number = segments.lastKey();
+			segment = segments.get(number);
+		}
+		if (segment == null || segment.length > 0
+				&& segment.length + record.length > segmentSize) {
+			number = segment == null ? 0 : number + 1;
+			segment = new Segment(new File(directory, String.format("%08d",
+					number) + EXTENSION));
+			segments.put(number, segment);
+		} else {
+			// still room in the last segment
+		}
+
+		RandomAccessFile file = new RandomAccessFile(segment.file, "rw");
+		try {
+			// ignore any incomplete record left by a crashed writer
+			file.setLength(segment.length);
+			file.seek(segment.length);
+			file.write(record);
+		} finally {
+			file.close();
+		}
+		scan(number, segment);
+	}
+
+	private void evict() {
+		long size = 0;
+		for (Segment segment : segments.values()) {
+			size += segment.length;
+		}
+		while (size > maxSize && segments.size() > 1) {
+			int oldest = segments.firstKey();
+			Segment segment = segments.remove(oldest);
+			size -= segment.length;
+			segment.buffer = null;
+			segment.file.delete();
+			forget(oldest);
+		}
+	}
+
+	private void forget(int number) {
+		Iterator<Location> iterator = index.values().iterator();
+		while (iterator.hasNext()) {
+			if (iterator.next().segment == number) {
+				iterator.remove();
+			} else {
+				// other segment
+			}
+		}
+	}
+
+	private byte[] read(Location location) {
+		ByteBuffer view = segments.get(location.segment).buffer.duplicate();
+		view.position(location.offset);
+		byte[] bytes = new byte[location.length];
+		view.get(bytes);
+		return bytes;
+	}
+
+	private static MessageDigest createDigest() {
+		try {
+			return MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static byte[] serialize(Object value) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		ObjectOutputStream output = new ObjectOutputStream(bytes);
+		output.writeObject(value);
+		output.close();
+		return bytes.toByteArray();
+	}
+
+	private static Object deserialize(byte[] bytes) throws IOException {
+		ObjectInputStream input = new FilteredObjectInputStream(
+				new ByteArrayInputStream(bytes));
+		try {
+			return input.readObject();
+		} catch (ClassNotFoundException e) {
+			throw new IOException(e);
+		} finally {
+			input.close();
+		}
+	}
+
+	private static String toHex(byte[] bytes) {
+		StringBuilder builder = new StringBuilder(2 * bytes.length);
+		for (byte b : bytes) {
+			builder.append(Character.forDigit((b >> 4) & 0xF, 16));
+			builder.append(Character.forDigit(b & 0xF, 16));
+		}
+		return builder.toString();
+	}
+
+	private static class Segment {
+		private final File file;
+		private MappedByteBuffer buffer = null;
+		private long length = 0;
+
+		public Segment(File file) {
+			this.file = file;
+		}
+	}
+
+	private static class Location {
+		private final int segment;
+		private final int offset;
+		private final int length;
+
+		public Location(int segment, int offset, int length) {
+			this.segment = segment;
+			this.offset = offset;
+			this.length = length;
+		}
+	}
+}
@@ -0,0 +1,145 @@
+package fr.vergne.benchmark.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InvalidClassException;
+import java.io.ObjectInputStream;
+import java.io.ObjectStreamClass;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+
+import fr.vergne.benchmark.Task;
+
+/**
+ * A {@link FilteredObjectInputStream} is an {@link ObjectInputStream} which
+ * deserializes only the classes of an allow-list, so a corrupted or forged
+ * stream cannot instantiate arbitrary classes of the class path. A class is
+ * allowed if its name starts with one of the prefixes of the list, which are
+ * typically package names ending with a dot (e.g. "com.example.") or full
+ * class names. The arrays are allowed if their component type is, and the
+ * proxy classes are always rejected.<br/>
+ * <br/>
+ * The default prefixes ({@link #getDefaultPrefixes()}) cover the basic Java
+ * classes and the classes of this library. The classes of the {@link Task}s and
+ * of their values can be added through the system property
+ * {@value #PREFIXES_PROPERTY}, as a comma-separated list of prefixes, so the
+ * same list is used by all the JVMs started with this property.
+ * 
+ * @author Matthieu Vergne <matthieu.vergne@gmail.com>
+ * 
+ */
+public class FilteredObjectInputStream extends ObjectInputStream {
+
+	/**
+	 * The system property providing the additional prefixes of the default
+	 * list, separated by commas.
+	 */
+	public static final String PREFIXES_PROPERTY = "fr.vergne.benchmark.allowedClasses";
+	private static final Collection<String> BUILT_IN_PREFIXES = Arrays.asList(
+			"java.lang.", "java.util.", "java.math.", "java.io.",
+			"fr.vergne.benchmark.");
+
+	private final Collection<String> prefixes;
+
+	/**
+	 * Create a {@link FilteredObjectInputStream} using the default prefixes.
+	 * 
+	 * @param in
+	 *            the stream to read
+	 * @throws IOException
+	 *             if the stream header cannot be read
+	 */
+	public FilteredObjectInputStream(InputStream in) throws IOException {
+		this(in, getDefaultPrefixes());
+	}
+
+	/**
+	 * 
+	 * @param in
+	 *            the stream to read
+	 * @param prefixes
+	 *            the prefixes of the names of the classes allowed
+	 * @throws IOException
+	 *             if the stream header cannot be read
+	 */
+	public FilteredObjectInputStream(InputStream in,
+			Collection<String> prefixes) throws IOException {
+		super(in);
+		this.prefixes = new LinkedHashSet<String>(prefixes);
+	}
+
+	/**
+	 * 
+	 * @return the prefixes of the classes allowed by default: the basic Java
+	 *         packages, the package of this library, and the ones given
+	 *         through the system property {@value #PREFIXES_PROPERTY}
+	 */
+	public static Collection<String> getDefaultPrefixes() {
+		Collection<String> prefixes = new LinkedHashSet<String>(
+				BUILT_IN_PREFIXES);
+		String property = System.getProperty(PREFIXES_PROPERTY);
+		if (property == null) {
+			// no additional prefix
+		} else {
+			for (String prefix : property.split(",")) {
+				prefix = prefix.trim();
+				if (prefix.isEmpty()) {
+					// ignore empty entries
+				} else {
+					prefixes.add(prefix);
+				}
+			}
+		}
+		return Collections.unmodifiableCollection(prefixes);
+	}
+
+	/**
+	 * 
+	 * @param className
+	 *            the name of a class, as provided by {@link Class#getName()}
+	 * @return <code>true</code> if this class can be deserialized,
+	 *         <code>false</code> otherwise
+	 */
+	public boolean isAllowed(String className) {
+		String name = className;
+		while (name.startsWith("[")) {
+			name = name.substring(1);
+		}
+		if (name.length() == className.length()) {
+			// not an array
+		} else if (name.startsWith("L") && name.endsWith(";")) {
+			name = name.substring(1, name.length() - 1);
+		} else {
+			// array of primitives
+			return true;
+		}
+		for (String prefix : prefixes) {
+			if (name.startsWith(prefix)) {
+				return true;
+			} else {
+				// try the next prefix
+			}
+		}
+		return false;
+	}
+
+	@Override
+	protected Class<?> resolveClass(ObjectStreamClass desc) throws IOException,
+			ClassNotFoundException {
+		if (isAllowed(desc.getName())) {
+			return super.resolveClass(desc);
+		} else {
+			throw new InvalidClassException(desc.getName(),
+					"Class not allowed for deserialization");
+		}
+	}
+
+	@Override
+	protected Class<?> resolveProxyClass(String[] interfaces)
+			throws IOException, ClassNotFoundException {
+		throw new InvalidClassException(Arrays.toString(interfaces),
+				"Proxy classes not allowed for deserialization");
+	}
+}
@@ -0,0 +1,244 @@
+package fr.vergne.benchmark.util;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A {@link LatencyHistogram} records durations in a fixed amount of memory,
+ * whatever the number of durations recorded, through log-linear buckets like
+ * the ones of HdrHistogram: the durations are grouped by power of two, and each
+ * group is split into linear sub-buckets. With <i>n</i> precision bits, each
+ * duration is known with a relative error lower than 1/2<sup><i>n</i></sup>,
+ * so the percentiles remain accurate for short and long durations at the same
+ * time. Recording a duration consists in incrementing a single counter, so it
+ * can be done after each execution without significant overhead.<br/>
+ * <br/>
+ * The durations are recorded in nanoseconds. The durations greater than the
+ * highest trackable one are recorded as the highest one. The exact minimum,
+ * maximum and mean are kept as well. This class is not thread safe: a
+ * {@link LatencyHistogram} can be filled by each thread and they can be merged
+ * afterwards through {@link #add(LatencyHistogram)}, which is also how
+ * several runs can be combined.
+ * 
+ * @author Matthieu Vergne <matthieu.vergne@gmail.com>
+ * 
+ */
+public class LatencyHistogram {
+
+	private final int precisionBits;
+	private final long highestTrackable;
+	private final int halfCount;
+	private final long[] counts;
+	private long totalCount = 0;
+	private long sum = 0;
+	private long min = Long.MAX_VALUE;
+	private long max = 0;
+
+	/**
+	 * 
+	 * @param highestTrackable
+	 *            the highest duration to distinguish
+	 * @param unit
+	 *            the {@link TimeUnit} of the highest duration
+	 * @param precisionBits
+	 *            the number of bits used to split each power of two into
+	 *            2<sup>bits</sup> sub-buckets, between 1 and 16
+	 */
+	public LatencyHistogram(long highestTrackable, TimeUnit unit,
+			int precisionBits) {
+		if (precisionBits < 1 || precisionBits > 16) {
+			throw new IllegalArgumentException(
+					"The precision should be between 1 and 16 bits: "
+							+ precisionBits);
+		} else if (highestTrackable <= 0) {
+			throw new IllegalArgumentException(
+					"The highest trackable value should be strictly positive: "
+							+ highestTrackable);
+		} else {
+			this.precisionBits = precisionBits;
+			this.highestTrackable = unit.toNanos(highestTrackable);
+			this.halfCount = 1 << precisionBits;
+			this.counts = new long[index(this.highestTrackable) + 1];
+		}
+	}
+
+	/**
+	 * Equivalent to {@link #LatencyHistogram(long, TimeUnit, int)} with an
+	 * highest trackable duration of 1 hour and a precision of 7 bits, which
+	 * provides a relative error lower than 1% with less than 40 KB of memory.
+	 */
+	public LatencyHistogram() {
+		this(1, TimeUnit.HOURS, 7);
+	}
+
+	private int bucket(long value) {
+		return Math.max(0, 63 - Long.numberOfLeadingZeros(value)
+				- precisionBits);
+	}
+
+	private int index(long value) {
+		int bucket = bucket(value);
+		return bucket * halfCount + (int) (value >>> bucket);
+	}
+
+	private long lowestValue(int index) {
+		int bucket = Math.max(0, index / halfCount - 1);
+		return (long) (index - bucket * halfCount) << bucket;
+	}
+
+	private long highestValue(int index) {
+		int bucket = Math.max(0, index / halfCount - 1);
+		return lowestValue(index) + (1L << bucket) - 1;
+	}
+
+	/**
+	 * 
+	 * @param duration
+	 *            the duration to record
+	 * @param unit
+	 *            the {@link TimeUnit} of the duration
+	 */
+	public void record(long duration, TimeUnit unit) {
+		long value = unit.toNanos(duration);
+		if (value < 0) {
+			throw new IllegalArgumentException(
+					"A duration cannot be negative: " + duration);
+		} else {
+			counts[index(Math.min(value, highestTrackable))]++;
+			totalCount++;
+			sum += value;
+			min = Math.min(min, value);
+			max = Math.max(max, value);
+		}
+	}
+
+	/**
+	 * Add all the durations recorded in another {@link LatencyHistogram} to
+	 * this one. Both should have the same configuration.
+	 * 
+	 * @param histogram
+	 *            the {@link LatencyHistogram} to merge into this one
+	 */
+	public void add(LatencyHistogram histogram) {
+		if (histogram.precisionBits != precisionBits
+				|| histogram.highestTrackable != highestTrackable) {
+			throw new IllegalArgumentException(
+					"The histograms should have the same configuration.");
+		} else {
+			for (int i = 0; i < counts.length; i++) {
+				counts[i] += histogram.counts[i];
+			}
+			totalCount += histogram.totalCount;
+			sum += histogram.sum;
+			min = Math.min(min, histogram.min);
+			max = Math.max(max, histogram.max);
+		}
+	}
+
+	/**
+	 * 
+	 * @return a new {@link LatencyHistogram} having the same configuration
+	 *         and the same durations than this one
+	 */
+	public LatencyHistogram copy() {
+		LatencyHistogram copy = new LatencyHistogram(highestTrackable,
+				TimeUnit.NANOSECONDS, precisionBits);
+		copy.add(this);
+		return copy;
+	}
+
+	/**
+	 * Forget all the durations recorded.
+	 */
+	public void reset() {
+		Arrays.fill(counts, 0);
+		totalCount = 0;
+		sum = 0;
+		min = Long.MAX_VALUE;
+		max = 0;
+	}
+
+	/**
+	 * 
+	 * @return the number of durations recorded
+	 */
+	public long getCount() {
+		return totalCount;
+	}
+
+	/**
+	 * 
+	 * @param unit
+	 *            the {@link TimeUnit} to use
+	 * @return the smallest duration recorded, 0 if none has been recorded
+	 */
+	public long getMin(TimeUnit unit) {
+		return totalCount == 0 ? 0 : unit.convert(min, TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * 
+	 * @param unit
+	 *            the {@link TimeUnit} to use
+	 * @return the greatest duration recorded, 0 if none has been recorded
+	 */
+	public long getMax(TimeUnit unit) {
+		return unit.convert(max, TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * 
+	 * @param unit
+	 *            the {@link TimeUnit} to use
+	 * @return the mean of the durations recorded, 0 if none has been recorded
+	 */
+	public double getMean(TimeUnit unit) {
+		if (totalCount == 0) {
+			return 0;
+		} else {
+			return (double) sum / totalCount / unit.toNanos(1);
+		}
+	}
+
+	/**
+	 * 
+	 * @param percentile
+	 *            the percentile to compute, between 0 and 100
+	 * @param unit
+	 *            the {@link TimeUnit} to use
+	 * @return the duration under which this percentage of the durations
+	 *         recorded are, with the precision of the buckets, 0 if none has
+	 *         been recorded
+	 */
+	public long getPercentile(double percentile, TimeUnit unit) {
+		if (percentile < 0 || percentile > 100) {
+			throw new IllegalArgumentException(
+					"The percentile should be between 0 and 100: " + percentile);
+		} else if (totalCount == 0) {
+			return 0;
+		} else {
+			long target = Math.max(1,
+					(long) Math.ceil(percentile / 100 * totalCount));
+			long cumulated = 0;
+			int index = 0;
+			while (true) {
+				cumulated += counts[index];
+				if (cumulated >= target) {
+					break;
+				} else {
+					index++;
+				}
+			}
+			long value = Math.max(min, Math.min(max, highestValue(index)));
+			return unit.convert(value, TimeUnit.NANOSECONDS);
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "n=" + totalCount + ", p50="
+				+ getPercentile(50, TimeUnit.NANOSECONDS) + " ns, p99="
+				+ getPercentile(99, TimeUnit.NANOSECONDS) + " ns, max="
+				+ getMax(TimeUnit.NANOSECONDS) + " ns";
+	}
+}
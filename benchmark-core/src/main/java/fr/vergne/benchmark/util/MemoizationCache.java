@@ -0,0 +1,148 @@
+package fr.vergne.benchmark.util;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import fr.vergne.benchmark.Task;
+import fr.vergne.benchmark.impl.MemoizingTask;
+
+/**
+ * A {@link MemoizationCache} is a {@link TaskOutputCache} which stores the
+ * outputs in memory, so a {@link MemoizingTask} does not need to execute its
+ * {@link Task} again when it receives the same values. An entry is identified
+ * by the {@link Task} instance and the values of all its inputs, compared
+ * through {@link Object#equals(Object)}, so the values should implement it
+ * properly (e.g. arrays are compared by identity).<br/>
+ * <br/>
+ * The number of entries is limited: once the limit is reached, the least
+ * recently used entry is removed to store a new one. The same
+ * {@link MemoizationCache} can be shared by several {@link MemoizingTask}s to
+ * limit the memory used by all of them. This class is thread safe.
+ * 
+ * @author Matthieu Vergne <matthieu.vergne@gmail.com>
+ * 
+ */
+public class MemoizationCache implements TaskOutputCache {
+
+	private final int maxSize;
+	private final LinkedHashMap<Key, Map<Object, Object>> entries;
+	private long hits = 0;
+	private long misses = 0;
+
+	/**
+	 * 
+	 * @param maxSize
+	 *            the maximum number of entries to keep
+	 */
+	@SuppressWarnings("serial")
+	public MemoizationCache(final int maxSize) {
+		if (maxSize <= 0) {
+			throw new IllegalArgumentException(
+					"The size should be strictly positive: " + maxSize);
+		} else {
+			this.maxSize = maxSize;
+		}
+		this.entries = new LinkedHashMap<Key, Map<Object, Object>>(16, 0.75f,
+				true) {
+
+			@Override
+			protected boolean removeEldestEntry(
+					Map.Entry<Key, Map<Object, Object>> eldest) {
+				return size() > maxSize;
+			}
+		};
+	}
+
+	@Override
+	public synchronized Map<Object, Object> get(Task task,
+			Map<Object, Object> inputs) {
+		Map<Object, Object> outputs = entries.get(new Key(task, inputs));
+		if (outputs == null) {
+			misses++;
+		} else {
+			hits++;
+		}
+		return outputs;
+	}
+
+	@Override
+	public synchronized void put(Task task, Map<Object, Object> inputs,
+			Map<Object, Object> outputs) {
+		entries.put(new Key(task, new HashMap<Object, Object>(inputs)),
+				Collections.unmodifiableMap(new HashMap<Object, Object>(
+						outputs)));
+	}
+
+	/**
+	 * Remove all the entries of this {@link MemoizationCache}.
+	 */
+	public synchronized void clear() {
+		entries.clear();
+	}
+
+	/**
+	 * 
+	 * @return the number of entries stored
+	 */
+	public synchronized int size() {
+		return entries.size();
+	}
+
+	/**
+	 * 
+	 * @return the maximum number of entries to keep
+	 */
+	public int getMaxSize() {
+		return maxSize;
+	}
+
+	/**
+	 * 
+	 * @return the number of calls to {@link #get(Task, Map)} which have found
+	 *         an entry
+	 */
+	public synchronized long getHits() {
+		return hits;
+	}
+
+	/**
+	 * 
+	 * @return the number of calls to {@link #get(Task, Map)} which have not
+	 *         found any entry
+	 */
+	public synchronized long getMisses() {
+		return misses;
+	}
+
+	private static class Key {
+		private final Task task;
+		private final Map<Object, Object> inputs;
+		private final int hash;
+
+		public Key(Task task, Map<Object, Object> inputs) {
+			this.task = task;
+			this.inputs = inputs;
+			this.hash = 31 * System.identityHashCode(task) + inputs.hashCode();
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (obj == this) {
+				return true;
+			} else if (obj instanceof Key) {
+				Key other = (Key) obj;
+				return other.task == task && other.hash == hash
+						&& other.inputs.equals(inputs);
+			} else {
+				return false;
+			}
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+	}
+}
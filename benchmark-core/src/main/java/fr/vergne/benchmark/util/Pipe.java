@@ -0,0 +1,257 @@
+package fr.vergne.benchmark.util;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import fr.vergne.benchmark.Task;
+import fr.vergne.benchmark.impl.AbstractProducerTask;
+import fr.vergne.benchmark.impl.StreamLink;
+
+/**
+ * A {@link Pipe} is a bounded queue of items produced by a {@link Task} and
+ * consumed by another one while it is produced (see {@link StreamLink}). When
+ * the {@link Pipe} is full, the producer waits for the consumer to take some
+ * items, so the producer cannot go faster than the consumer. Once all the
+ * items have been produced, the producer closes the {@link Pipe}, or makes it
+ * fail if it cannot produce them all (see {@link AbstractProducerTask}).<br/>
+ * <br/>
+ * The consumer takes the items one by one through {@link #take()} or by
+ * iterating over the {@link Pipe}. If several consumers read the same
+ * {@link Pipe}, each item is provided to only one of them. A consumer which
+ * stops before the end should call {@link #cancel()} to not block the
+ * producer.<br/>
+ * <br/>
+ * If the consumer cannot be executed while the producer is running (e.g. a
+ * runner executing a single {@link Task} at a time), a producer waiting for
+ * room would wait forever. In this case, {@link #forbidWaiting()} makes the
+ * producer fail as soon as the {@link Pipe} is full.
+ * 
+ * @author Matthieu Vergne <matthieu.vergne@gmail.com>
+ * 
+ * @param <Item>
+ */
+public class Pipe<Item> implements Iterable<Item> {
+
+	private final int capacity;
+	private final Deque<Item> items = new ArrayDeque<Item>();
+	private final Lock lock = new ReentrantLock();
+	private final Condition notFull = lock.newCondition();
+	private final Condition notEmpty = lock.newCondition();
+	private boolean isClosed = false;
+	private boolean isCancelled = false;
+	private boolean isWaitingForbidden = false;
+	private Throwable failure = null;
+
+	/**
+	 * 
+	 * @param capacity
+	 *            the maximum number of items waiting to be consumed
+	 */
+	public Pipe(int capacity) {
+		if (capacity <= 0) {
+			throw new IllegalArgumentException(
+					"The capacity should be strictly positive: " + capacity);
+		} else {
+			this.capacity = capacity;
+		}
+	}
+
+	/**
+	 * 
+	 * @return the maximum number of items waiting to be consumed
+	 */
+	public int getCapacity() {
+		return capacity;
+	}
+
+	/**
+	 * Add an item to this {@link Pipe}, waiting for some room if it is full.
+	 * 
+	 * @param item
+	 *            the item to add, not <code>null</code>
+	 * @throws IllegalStateException
+	 *             if the {@link Pipe} is closed, if it is full while waiting
+	 *             is forbidden, or if the thread is interrupted
+	 * @throws CancellationException
+	 *             if the consumer has cancelled the {@link Pipe}
+	 */
+	public void put(Item item) {
+		if (item == null) {
+			throw new NullPointerException("No null item allowed");
+		} else {
+			// valid item
+		}
+		try {
+			lock.lockInterruptibly();
+			try {
+				while (items.size() >= capacity && !isCancelled) {
+					if (isWaitingForbidden) {
+						throw new IllegalStateException("The pipe is full ("
+								+ capacity + " items) and its consumer cannot"
+								+ " be executed concurrently");
+					} else {
+						notFull.await();
+					}
+				}
+				if (isCancelled) {
+					throw new CancellationException(
+							"The pipe has been cancelled");
+				} else if (isClosed) {
+					throw new IllegalStateException("The pipe is closed");
+				} else {
+					items.add(item);
+					notEmpty.signal();
+				}
+			} finally {
+				lock.unlock();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while producing", e);
+		}
+	}
+
+	/**
+	 * Make the producer fail instead of waiting when this {@link Pipe} is
+	 * full, because no consumer can take the items concurrently. A producer
+	 * already waiting fails immediately.
+	 */
+	public void forbidWaiting() {
+		lock.lock();
+		try {
+			isWaitingForbidden = true;
+			notFull.signalAll();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Notify the consumer that all the items have been produced.
+	 */
+	public void close() {
+		lock.lock();
+		try {
+			isClosed = true;
+			notEmpty.signalAll();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Notify the consumer that the producer has failed, so no more items will
+	 * be produced. The consumer receives the items already produced before to
+	 * be notified of the failure.
+	 * 
+	 * @param cause
+	 *            the failure of the producer
+	 */
+	public void fail(Throwable cause) {
+		lock.lock();
+		try {
+			failure = cause;
+			isClosed = true;
+			notEmpty.signalAll();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Notify the producer that the items are not consumed anymore. The items
+	 * waiting are discarded and the producer fails to add new ones.
+	 */
+	public void cancel() {
+		lock.lock();
+		try {
+			isCancelled = true;
+			items.clear();
+			notFull.signalAll();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Take the next item of this {@link Pipe}, waiting for it to be produced
+	 * if necessary.
+	 * 
+	 * @return the next item, <code>null</code> if the {@link Pipe} is closed
+	 *         and all its items have been consumed
+	 * @throws IllegalStateException
+	 *             if the producer has failed or the thread is interrupted
+	 */
+	public Item take() {
+		try {
+			lock.lockInterruptibly();
+			try {
+				while (items.isEmpty() && !isClosed) {
+					notEmpty.await();
+				}
+				if (!items.isEmpty()) {
+					Item item = items.poll();
+					notFull.signal();
+					return item;
+				} else if (failure != null) {
+					throw new IllegalStateException("The producer has failed",
+							failure);
+				} else {
+					return null;
+				}
+			} finally {
+				lock.unlock();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while consuming", e);
+		}
+	}
+
+	/**
+	 * 
+	 * @return an {@link Iterator} which consumes the items of this
+	 *         {@link Pipe} through {@link #take()}
+	 */
+	@Override
+	public Iterator<Item> iterator() {
+		return new Iterator<Item>() {
+
+			private Item next = null;
+			private boolean isFinished = false;
+
+			@Override
+			public boolean hasNext() {
+				if (next == null && !isFinished) {
+					next = take();
+					isFinished = next == null;
+				} else {
+					// already known
+				}
+				return next != null;
+			}
+
+			@Override
+			public Item next() {
+				if (hasNext()) {
+					Item item = next;
+					next = null;
+					return item;
+				} else {
+					throw new NoSuchElementException();
+				}
+			}
+
+			@Override
+			public void remove() {
+				throw new UnsupportedOperationException();
+			}
+		};
+	}
+}
@@ -0,0 +1,215 @@
+package fr.vergne.benchmark.util;
+
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.Set;
+
+import fr.vergne.benchmark.Benchmark;
+import fr.vergne.benchmark.Link;
+import fr.vergne.benchmark.Task;
+import fr.vergne.benchmark.TaskSelectionPolicy;
+
+/**
+ * A {@link ReadyQueue} keeps track of the {@link Task}s of a {@link Benchmark}
+ * which are ready to be executed, meaning that they are both executable and
+ * should be executed. Rather than checking all the {@link Task}s each time one
+ * is needed, a {@link Task} is checked only when it is notified through
+ * {@link #check(Task)}, typically when one of its inputs has been set through
+ * a {@link Link}. The {@link Task}s found ready are queued in the order they
+ * have been checked, and {@link #poll()} returns them in this order, unless a
+ * {@link TaskSelectionPolicy} is provided: the {@link Task}s with the highest
+ * priority are then returned first, the ones having the same priority being
+ * returned in the order they have been checked.<br/>
+ * <br/>
+ * Because some changes can happen without the {@link ReadyQueue} being aware
+ * of them (e.g. an input set manually), {@link #checkAll()} allows to check
+ * all the {@link Task}s at once.
+ * 
+ * @author Matthieu Vergne <matthieu.vergne@gmail.com>
+ * 
+ */
+public class ReadyQueue {
+
+	private final Collection<Task> tasks;
+	private final TaskSelectionPolicy policy;
+	private final Queue<Entry> queue;
+	private long checks = 0;
+	private final Set<Task> queued = Collections
+			.newSetFromMap(new IdentityHashMap<Task, Boolean>());
+	private final Set<Task> held = Collections
+			.newSetFromMap(new IdentityHashMap<Task, Boolean>());
+	private final Set<Task> suspended = Collections
+			.newSetFromMap(new IdentityHashMap<Task, Boolean>());
+
+	/**
+	 * 
+	 * @param tasks
+	 *            the {@link Task}s to consider in {@link #checkAll()}
+	 */
+	public ReadyQueue(Collection<Task> tasks) {
+		this(tasks, null);
+	}
+
+	/**
+	 * 
+	 * @param tasks
+	 *            the {@link Task}s to consider in {@link #checkAll()}
+	 * @param policy
+	 *            the {@link TaskSelectionPolicy} to order the {@link Task}s,
+	 *            <code>null</code> to keep them in the order they are checked
+	 */
+	public ReadyQueue(Collection<Task> tasks, TaskSelectionPolicy policy) {
+		this.tasks = tasks;
+		this.policy = policy;
+		if (policy == null) {
+			this.queue = new ArrayDeque<Entry>();
+		} else {
+			this.queue = new PriorityQueue<Entry>(11, new Comparator<Entry>() {
+
+				@Override
+				public int compare(Entry e1, Entry e2) {
+					int comparison = Double.compare(e2.priority, e1.priority);
+					return comparison != 0 ? comparison : Long.compare(
+							e1.order, e2.order);
+				}
+			});
+		}
+	}
+
+	/**
+	 * Check whether a {@link Task} is ready to be executed and, if it is,
+	 * queue it. A {@link Task} already queued or held is ignored. If the
+	 * {@link Task} has been suspended, it is not anymore.
+	 * 
+	 * @param task
+	 *            the {@link Task} to check
+	 */
+	public void check(Task task) {
+		suspended.remove(task);
+		checkReadiness(task);
+	}
+
+	private void checkReadiness(Task task) {
+		if (queued.contains(task) || held.contains(task)) {
+			// already managed
+		} else if (isReady(task)) {
+			double priority = policy == null ? 0 : policy.getPriority(task);
+			queue.add(new Entry(task, priority, checks++));
+			queued.add(task);
+		} else {
+			// not ready yet
+		}
+	}
+
+	/**
+	 * Check all the {@link Task}s of this {@link ReadyQueue} which are not
+	 * suspended, in the order they have been provided.
+	 */
+	public void checkAll() {
+		for (Task task : tasks) {
+			if (suspended.contains(task)) {
+				// ignored until explicitly checked
+			} else {
+				checkReadiness(task);
+			}
+		}
+	}
+
+	/**
+	 * 
+	 * @return the first {@link Task} queued which is still ready and neither
+	 *         held nor suspended, <code>null</code> if there is none
+	 */
+	public Task poll() {
+		while (!queue.isEmpty()) {
+			Task task = queue.poll().task;
+			queued.remove(task);
+			if (!held.contains(task) && !suspended.contains(task)
+					&& isReady(task)) {
+				return task;
+			} else {
+				// not ready anymore
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Hold a {@link Task}, so it is ignored by this {@link ReadyQueue} until
+	 * {@link #release(Task)} is called for it. This is typically used for a
+	 * {@link Task} being executed.
+	 * 
+	 * @param task
+	 *            the {@link Task} to hold
+	 */
+	public void hold(Task task) {
+		held.add(task);
+	}
+
+	/**
+	 * Release a {@link Task} previously held and check it, unless it is
+	 * suspended.
+	 * 
+	 * @param task
+	 *            the {@link Task} to release
+	 */
+	public void release(Task task) {
+		held.remove(task);
+		if (suspended.contains(task)) {
+			// ignored until explicitly checked
+		} else {
+			checkReadiness(task);
+		}
+	}
+
+	/**
+	 * Suspend a {@link Task}, so it is ignored by {@link #checkAll()} and
+	 * {@link #poll()} until it is explicitly notified through
+	 * {@link #check(Task)}. This is typically used for a {@link Task} which
+	 * has failed, so it is not executed again until it receives new inputs.
+	 * 
+	 * @param task
+	 *            the {@link Task} to suspend
+	 */
+	public void suspend(Task task) {
+		suspended.add(task);
+	}
+
+	/**
+	 * Stop to suspend all the {@link Task}s suspended through
+	 * {@link #suspend(Task)}.
+	 */
+	public void resumeAll() {
+		suspended.clear();
+	}
+
+	/**
+	 * 
+	 * @return <code>true</code> if no {@link Task} is queued,
+	 *         <code>false</code> otherwise
+	 */
+	public boolean isEmpty() {
+		return queue.isEmpty();
+	}
+
+	private boolean isReady(Task task) {
+		return task.isExecutable() && task.shouldBeExecuted();
+	}
+
+	private static class Entry {
+		private final Task task;
+		private final double priority;
+		private final long order;
+
+		public Entry(Task task, double priority, long order) {
+			this.task = task;
+			this.priority = priority;
+			this.order = order;
+		}
+	}
+}
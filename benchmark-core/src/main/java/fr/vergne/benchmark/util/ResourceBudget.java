@@ -0,0 +1,173 @@
+package fr.vergne.benchmark.util;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import fr.vergne.benchmark.BenchmarkRunner;
+import fr.vergne.benchmark.ResourceConsumer;
+import fr.vergne.benchmark.Task;
+
+/**
+ * A {@link ResourceBudget} limits the {@link Task}s executed at the same time
+ * depending on the resources they need. Each resource has a capacity (e.g. 4
+ * CPU slots, 2048 MB of heap, or 1 for an exclusive resource), and a
+ * {@link Task} can be executed only if the resources it needs are still
+ * available. The needs of a {@link Task} are the ones declared through
+ * {@link #setNeed(Task, Object, long)} or, for a {@link ResourceConsumer}, the
+ * ones it declares itself. A resource without capacity is not limited.<br/>
+ * <br/>
+ * A {@link Task} needing more than the capacity of a resource would never be
+ * executed, so it is accepted when no other {@link Task} uses this resource:
+ * it is then executed alone with respect to this resource.<br/>
+ * <br/>
+ * This class is thread safe: the {@link BenchmarkRunner}s acquire the
+ * resources from their coordinating thread, but the resources of a
+ * {@link Task} which has timed out are released by the thread which finishes
+ * its abandoned execution.
+ * 
+ * @author Matthieu Vergne <matthieu.vergne@gmail.com>
+ * 
+ */
+public class ResourceBudget {
+
+	private final Map<Object, Long> capacities = new HashMap<Object, Long>();
+	private final Map<Object, Long> usages = new HashMap<Object, Long>();
+	private final Map<Task, Map<Object, Long>> needs = new IdentityHashMap<Task, Map<Object, Long>>();
+	private final Map<Task, Map<Object, Long>> acquired = new IdentityHashMap<Task, Map<Object, Long>>();
+
+	/**
+	 * 
+	 * @param resource
+	 *            the resource to limit
+	 * @param capacity
+	 *            the total amount available for this resource
+	 */
+	public synchronized void setCapacity(Object resource, long capacity) {
+		capacities.put(resource, capacity);
+	}
+
+	/**
+	 * 
+	 * @param resource
+	 *            the resource to consider
+	 * @return the capacity of this resource, {@link Long#MAX_VALUE} if it is
+	 *         not limited
+	 */
+	public synchronized long getCapacity(Object resource) {
+		Long capacity = capacities.get(resource);
+		return capacity == null ? Long.MAX_VALUE : capacity;
+	}
+
+	/**
+	 * 
+	 * @param resource
+	 *            the resource to consider
+	 * @return the amount of this resource currently used by the {@link Task}s
+	 *         which have acquired it
+	 */
+	public synchronized long getUsage(Object resource) {
+		Long usage = usages.get(resource);
+		return usage == null ? 0 : usage;
+	}
+
+	/**
+	 * Declare the need of a {@link Task} for a resource. It replaces the need
+	 * declared by the {@link Task} itself if it is a {@link ResourceConsumer}.
+	 * 
+	 * @param task
+	 *            the {@link Task} needing the resource
+	 * @param resource
+	 *            the resource needed
+	 * @param amount
+	 *            the amount needed
+	 */
+	public synchronized void setNeed(Task task, Object resource, long amount) {
+		Map<Object, Long> taskNeeds = needs.get(task);
+		if (taskNeeds == null) {
+			taskNeeds = new HashMap<Object, Long>();
+			needs.put(task, taskNeeds);
+		} else {
+			// add to the existing needs
+		}
+		taskNeeds.put(resource, amount);
+	}
+
+	/**
+	 * 
+	 * @param task
+	 *            the {@link Task} to consider
+	 * @return the amount needed by this {@link Task} for each resource
+	 */
+	public synchronized Map<Object, Long> getNeeds(Task task) {
+		Map<Object, Long> taskNeeds = new HashMap<Object, Long>();
+		if (task instanceof ResourceConsumer) {
+			taskNeeds.putAll(((ResourceConsumer) task).getResourceNeeds());
+		} else {
+			// no need declared by the task itself
+		}
+		Map<Object, Long> declared = needs.get(task);
+		if (declared == null) {
+			// no need declared for the task
+		} else {
+			taskNeeds.putAll(declared);
+		}
+		return Collections.unmodifiableMap(taskNeeds);
+	}
+
+	/**
+	 * Acquire the resources needed by a {@link Task} if they are available.
+	 * 
+	 * @param task
+	 *            the {@link Task} to execute
+	 * @return <code>true</code> if the resources have been acquired,
+	 *         <code>false</code> if some are not available
+	 * @throws IllegalStateException
+	 *             if the {@link Task} has already acquired its resources
+	 */
+	public synchronized boolean tryAcquire(Task task) {
+		if (acquired.containsKey(task)) {
+			throw new IllegalStateException("Resources already acquired for "
+					+ task);
+		} else {
+			Map<Object, Long> taskNeeds = getNeeds(task);
+			for (Entry<Object, Long> entry : taskNeeds.entrySet()) {
+				Object resource = entry.getKey();
+				long usage = getUsage(resource);
+				if (usage == 0
+						|| usage + entry.getValue() <= getCapacity(resource)) {
+					// enough resource
+				} else {
+					return false;
+				}
+			}
+			for (Entry<Object, Long> entry : taskNeeds.entrySet()) {
+				Object resource = entry.getKey();
+				usages.put(resource, getUsage(resource) + entry.getValue());
+			}
+			acquired.put(task, taskNeeds);
+			return true;
+		}
+	}
+
+	/**
+	 * Release the resources acquired by a {@link Task}. Nothing happens if it
+	 * has not acquired them.
+	 * 
+	 * @param task
+	 *            the {@link Task} which does not need its resources anymore
+	 */
+	public synchronized void release(Task task) {
+		Map<Object, Long> taskNeeds = acquired.remove(task);
+		if (taskNeeds == null) {
+			// nothing acquired
+		} else {
+			for (Entry<Object, Long> entry : taskNeeds.entrySet()) {
+				Object resource = entry.getKey();
+				usages.put(resource, getUsage(resource) - entry.getValue());
+			}
+		}
+	}
+}
@@ -0,0 +1,171 @@
+package fr.vergne.benchmark.util;
+
+/**
+ * A {@link SampleStatistics} computes the statistics of a sample of values
+ * incrementally, without storing the values, through the algorithm of
+ * Welford. The confidence interval of the mean is computed from the Student
+ * distribution, so it remains relevant for small samples as long as the values
+ * are approximately normally distributed.
+ * 
+ * @author Matthieu Vergne <matthieu.vergne@gmail.com>
+ * 
+ */
+public class SampleStatistics {
+
+	private long count = 0;
+	private double mean = 0;
+	private double squares = 0;
+	private double min = Double.NaN;
+	private double max = Double.NaN;
+
+	/**
+	 * 
+	 * @param value
+	 *            the value to add to the sample
+	 */
+	public void add(double value) {
+		count++;
+		double delta = value - mean;
+		mean += delta / count;
+		squares += delta * (value - mean);
+		min = count == 1 ? value : Math.min(min, value);
+		max = count == 1 ? value : Math.max(max, value);
+	}
+
+	/**
+	 * 
+	 * @return the number of values added
+	 */
+	public long getCount() {
+		return count;
+	}
+
+	/**
+	 * 
+	 * @return the mean of the values, {@link Double#NaN} if no value has been
+	 *         added
+	 */
+	public double getMean() {
+		return count == 0 ? Double.NaN : mean;
+	}
+
+	/**
+	 * 
+	 * @return the unbiased variance of the values, {@link Double#NaN} if less
+	 *         than 2 values have been added
+	 */
+	public double getVariance() {
+		return count < 2 ? Double.NaN : squares / (count - 1);
+	}
+
+	/**
+	 * 
+	 * @return the square root of {@link #getVariance()}
+	 */
+	public double getStandardDeviation() {
+		return Math.sqrt(getVariance());
+	}
+
+	/**
+	 * 
+	 * @return the smallest value added, {@link Double#NaN} if no value has
+	 *         been added
+	 */
+	public double getMin() {
+		return min;
+	}
+
+	/**
+	 * 
+	 * @return the greatest value added, {@link Double#NaN} if no value has
+	 *         been added
+	 */
+	public double getMax() {
+		return max;
+	}
+
+	/**
+	 * 
+	 * @param confidence
+	 *            the confidence level, like 0.95 for 95%
+	 * @return the half width of the confidence interval of the mean,
+	 *         {@link Double#NaN} if less than 2 values have been added
+	 */
+	public double getHalfWidth(double confidence) {
+		if (confidence <= 0 || confidence >= 1) {
+			throw new IllegalArgumentException(
+					"The confidence should be in ]0;1[: " + confidence);
+		} else if (count < 2) {
+			return Double.NaN;
+		} else {
+			double quantile = studentQuantile(1 - (1 - confidence) / 2,
+					count - 1);
+			return quantile * getStandardDeviation() / Math.sqrt(count);
+		}
+	}
+
+	/**
+	 * Quantile of the Student distribution, exact for 1 and 2 degrees of
+	 * freedom and approximated through the Cornish-Fisher expansion
+	 * (Abramowitz & Stegun 26.7.5) otherwise.
+	 */
+	static double studentQuantile(double p, long degrees) {
+		if (degrees == 1) {
+			return Math.tan(Math.PI * (p - 0.5));
+		} else if (degrees == 2) {
+			return (2 * p - 1) / Math.sqrt(2 * p * (1 - p));
+		} else {
+			double x = normalQuantile(p);
+			double x2 = x * x;
+			double n = degrees;
+			double g1 = (x2 + 1) * x / 4;
+			double g2 = ((5 * x2 + 16) * x2 + 3) * x / 96;
+			double g3 = (((3 * x2 + 19) * x2 + 17) * x2 - 15) * x / 384;
+			double g4 = ((((79 * x2 + 776) * x2 + 1482) * x2 - 1920) * x2 - 945)
+					* x / 92160;
+			return x + g1 / n + g2 / (n * n) + g3 / (n * n * n) + g4
+					/ (n * n * n * n);
+		}
+	}
+
+	/**
+	 * Quantile of the standard normal distribution, approximated through the
+	 * algorithm of Acklam (relative error below 1.15e-9).
+	 */
+	static double normalQuantile(double p) {
+		double[] a = { -3.969683028665376e+01, 2.209460984245205e+02,
+				-2.759285104469687e+02, 1.383577518672690e+02,
+				-3.066479806614716e+01, 2.506628277459239e+00 };
+		double[] b = { -5.447609879822406e+01, 1.615858368580409e+02,
+				-1.556989798598866e+02, 6.680131188771972e+01,
+				-1.328068155288572e+01 };
+		double[] c = { -7.784894002430293e-03, -3.223964580411365e-01,
+				-2.400758277161838e+00, -2.549732539343734e+00,
+				4.374664141464968e+00, 2.938163982698783e+00 };
+		double[] d = { 7.784695709041462e-03, 3.224671290700398e-01,
+				2.445134137142996e+00, 3.754408661907416e+00 };
+		double low = 0.02425;
+		if (p < low) {
+			double q = Math.sqrt(-2 * Math.log(p));
+			return (((((c[0] * q + c[1]) * q + c[2]) * q + c[3]) * q + c[4])
+					* q + c[5])
+					/ ((((d[0] * q + d[1]) * q + d[2]) * q + d[3]) * q + 1);
+		} else if (p > 1 - low) {
+			return -normalQuantile(1 - p);
+		} else {
+			double q = p - 0.5;
+			double r = q * q;
+			return (((((a[0] * r + a[1]) * r + a[2]) * r + a[3]) * r + a[4])
+					* r + a[5])
+					* q
+					/ (((((b[0] * r + b[1]) * r + b[2]) * r + b[3]) * r + b[4])
+							* r + 1);
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "n=" + count + ", mean=" + getMean() + ", sd="
+				+ getStandardDeviation();
+	}
+}
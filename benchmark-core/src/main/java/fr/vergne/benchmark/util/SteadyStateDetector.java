@@ -0,0 +1,87 @@
+package fr.vergne.benchmark.util;
+
+import java.util.LinkedList;
+
+import fr.vergne.benchmark.Task;
+
+/**
+ * A {@link SteadyStateDetector} tells when a series of measures has
+ * stabilised, like the execution times of a {@link Task}
+ * once the JVM has optimised its code. The measures are considered as steady
+ * once the coefficient of variation (standard deviation divided by the mean)
+ * of the last measures is lower than or equal to a threshold.
+ * 
+ * @author Matthieu Vergne <matthieu.vergne@gmail.com>
+ * 
+ */
+public class SteadyStateDetector {
+
+	private final int window;
+	private final double maxVariation;
+	private final LinkedList<Double> values = new LinkedList<Double>();
+
+	/**
+	 * 
+	 * @param window
+	 *            the number of last measures to consider, at least 2
+	 * @param maxVariation
+	 *            the maximum coefficient of variation of these measures, like
+	 *            0.05 for 5%
+	 */
+	public SteadyStateDetector(int window, double maxVariation) {
+		if (window < 2) {
+			throw new IllegalArgumentException(
+					"The window should contain at least 2 measures: " + window);
+		} else {
+			this.window = window;
+			this.maxVariation = maxVariation;
+		}
+	}
+
+	/**
+	 * 
+	 * @param value
+	 *            the new measure
+	 */
+	public void add(double value) {
+		values.addLast(value);
+		if (values.size() > window) {
+			values.removeFirst();
+		} else {
+			// window not full yet
+		}
+	}
+
+	/**
+	 * 
+	 * @return <code>true</code> if the window is full and its measures vary
+	 *         less than the threshold, <code>false</code> otherwise
+	 */
+	public boolean isSteady() {
+		if (values.size() < window) {
+			return false;
+		} else {
+			SampleStatistics statistics = new SampleStatistics();
+			for (double value : values) {
+				statistics.add(value);
+			}
+			double mean = Math.abs(statistics.getMean());
+			return statistics.getStandardDeviation() <= maxVariation * mean;
+		}
+	}
+
+	/**
+	 * Forget the measures added so far.
+	 */
+	public void clear() {
+		values.clear();
+	}
+
+	public int getWindow() {
+		return window;
+	}
+
+	public double getMaxVariation() {
+		return maxVariation;
+	}
+}
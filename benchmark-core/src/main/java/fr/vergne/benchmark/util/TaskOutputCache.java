@@ -0,0 +1,40 @@
+package fr.vergne.benchmark.util;
+
+import java.util.Map;
+
+import fr.vergne.benchmark.Task;
+import fr.vergne.benchmark.impl.MemoizingTask;
+
+/**
+ * A {@link TaskOutputCache} stores the outputs produced by {@link Task}s for
+ * given input values, so a {@link MemoizingTask} does not need to execute its
+ * {@link Task} again when it receives the same values.
+ * 
+ * @author Matthieu Vergne <matthieu.vergne@gmail.com>
+ * 
+ */
+public interface TaskOutputCache {
+
+	/**
+	 * 
+	 * @param task
+	 *            the {@link Task} executed
+	 * @param inputs
+	 *            the values of its inputs
+	 * @return the outputs stored for these inputs, <code>null</code> if there
+	 *         is none
+	 */
+	public Map<Object, Object> get(Task task, Map<Object, Object> inputs);
+
+	/**
+	 * 
+	 * @param task
+	 *            the {@link Task} executed
+	 * @param inputs
+	 *            the values of its inputs
+	 * @param outputs
+	 *            the outputs it has produced with these inputs
+	 */
+	public void put(Task task, Map<Object, Object> inputs,
+			Map<Object, Object> outputs);
+}
@@ -11,11 +11,15 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.LinkedList;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 
+import fr.vergne.benchmark.BenchmarkRunner;
 import fr.vergne.benchmark.InputSetter;
 import fr.vergne.benchmark.OutputGetter;
+import fr.vergne.benchmark.WarmupAwareTask;
+import fr.vergne.benchmark.impl.AbstractBatchTask;
 import fr.vergne.benchmark.impl.AbstractSimpleTask;
 import fr.vergne.ioutils.FileUtils;
 import fr.vergne.ioutils.StringUtils;
@@ -26,13 +30,22 @@ import fr.vergne.ioutils.StringUtils;
  * {@link Renderer}s should be provided, but if the values provided have their
  * own {@link String} representation <code>null</code> can be provided as a
  * {@link Renderer}. A simple {@link Renderer} will be automatically assigned.
- * If it applies to all inputs, one can simply provide the IDs of the inputs.
+ * If it applies to all inputs, one can simply provide the IDs of the inputs.<br/>
+ * <br/>
+ * In batch mode (see {@link #setBatchMode(boolean)}), each input receives a
+ * {@link List} of values, like the outputs of an {@link AbstractBatchTask},
+ * and each execution stores one row per item of the batch.<br/>
+ * <br/>
+ * The executions made during a warmup (see
+ * {@link BenchmarkRunner#setWarmup(boolean)}) do not store anything, so the
+ * CSV file contains only the measured values.
  * 
  * @author Matthieu Vergne <matthieu.vergne@gmail.com>
  * 
  */
-// FIXME test
-public class CsvStoring extends AbstractSimpleTask {
+@SuppressWarnings("serial")
+public class CsvStoring extends AbstractSimpleTask implements
+		WarmupAwareTask {
 
 	public static final Object CSV = "csv";
 	public static final Object RESET = "reset";
@@ -43,6 +56,8 @@ public class CsvStoring extends AbstractSimpleTask {
 	private final Map<String, Object> recordedInputs;
 	private final Map<String, Renderer> renderers;
 	private final String separator;
+	private boolean isBatchMode = false;
+	private boolean isWarmup = false;
 	private static final Renderer DEFAULT_RENDERER = new Renderer() {
 
 		@Override
@@ -124,6 +139,32 @@ public class CsvStoring extends AbstractSimpleTask {
 		return map;
 	}
 
+	/**
+	 * 
+	 * @param isBatchMode
+	 *            <code>true</code> if each input receives a {@link List} of
+	 *            values to store in as many rows, <code>false</code> if it
+	 *            receives a single value
+	 */
+	public void setBatchMode(boolean isBatchMode) {
+		this.isBatchMode = isBatchMode;
+	}
+
+	/**
+	 * 
+	 * @return <code>true</code> if each input receives a {@link List} of
+	 *         values to store in as many rows, <code>false</code> if it
+	 *         receives a single value
+	 */
+	public boolean isBatchMode() {
+		return isBatchMode;
+	}
+
+	@Override
+	public void setWarmup(boolean isWarmup) {
+		this.isWarmup = isWarmup;
+	}
+
 	@Override
 	protected Map<Object, InputSetter<?>> getInputs() {
 		Map<Object, InputSetter<?>> inputs = new HashMap<Object, InputSetter<?>>();
@@ -203,15 +244,46 @@ public class CsvStoring extends AbstractSimpleTask {
 
 	@Override
 	protected void doExecute() {
+		if (isWarmup) {
+			return;
+		} else {
+			// store the values
+		}
 		if (!headerPrinted) {
 			csv.println(StringUtils.join(recordedInputs.keySet(), separator));
 			headerPrinted = true;
 		} else {
 			// header already printed
 		}
+		if (isBatchMode) {
+			int size = -1;
+			for (String id : recordedInputs.keySet()) {
+				int inputSize = ((List<?>) recordedInputs.get(id)).size();
+				if (size == -1 || size == inputSize) {
+					size = inputSize;
+				} else {
+					throw new IllegalStateException("The input " + id
+							+ " has " + inputSize + " values instead of "
+							+ size);
+				}
+			}
+			for (int index = 0; index < size; index++) {
+				printRow(index);
+			}
+		} else {
+			printRow(-1);
+		}
+	}
+
+	private void printRow(int index) {
 		Collection<String> values = new LinkedList<String>();
 		for (String id : recordedInputs.keySet()) {
 			Object object = recordedInputs.get(id);
+			if (index >= 0) {
+				object = ((List<?>) object).get(index);
+			} else {
+				// single value
+			}
 			String value = renderers.get(id).render(object);
 			values.add(value);
 		}
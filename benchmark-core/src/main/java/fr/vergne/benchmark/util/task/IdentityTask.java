@@ -24,6 +24,7 @@ import fr.vergne.benchmark.impl.AbstractSimpleTask;
  * 
  */
 // FIXME test or improve the benchmark class for 1-to-N inputs
+@SuppressWarnings("serial")
 public class IdentityTask<T> extends AbstractSimpleTask {
 
 	public static final Object CONTENT = "content";
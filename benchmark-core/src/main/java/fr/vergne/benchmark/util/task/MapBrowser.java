@@ -16,6 +16,7 @@ import fr.vergne.benchmark.impl.AbstractSimpleTask;
  * @param <K>
  * @param <V>
  */
+@SuppressWarnings("serial")
 public class MapBrowser<K, V> extends AbstractSimpleTask {
 
 	public static final String MAP = "map";
@@ -20,6 +20,7 @@ import fr.vergne.benchmark.impl.AbstractSimpleTask;
  * 
  * @param <Item>
  */
+@SuppressWarnings("serial")
 public class RandomSelector<Item> extends AbstractSimpleTask {
 
 	public static final String COLLECTION = "collection";
@@ -0,0 +1,121 @@
+package fr.vergne.benchmark;
+
+import static org.junit.Assert.*;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+import fr.vergne.benchmark.SamplingReport.StopReason;
+import fr.vergne.benchmark.impl.AbstractSimpleTask;
+import fr.vergne.benchmark.testMaterial.SquareTask;
+
+public class AdaptiveSamplerTest {
+
+	private final SquareTask source = new SquareTask();
+	private final NoisyTask noisy = new NoisyTask();
+	private final SquareTask target = new SquareTask();
+
+	private Benchmark createBenchmark(int spread) {
+		source.getInput(SquareTask.VALUE).set(10);
+		noisy.spread = spread;
+		BenchmarkBuilder builder = new BenchmarkBuilder();
+		builder.addAll(source, noisy, target);
+		builder.linkOutput(source, SquareTask.VALUE, noisy, NoisyTask.MEAN);
+		builder.linkOutput(noisy, NoisyTask.VALUE, target, SquareTask.VALUE);
+		builder.setBenchmarkOutput("out", target, SquareTask.VALUE);
+		return builder.createInstance();
+	}
+
+	@Test
+	public void testConfidenceReached() {
+		Benchmark benchmark = createBenchmark(1);
+		AdaptiveSampler sampler = new AdaptiveSampler(benchmark, noisy,
+				NoisyTask.RESET, "out");
+		sampler.setRelativeTarget(0.01);
+		SamplingReport report = sampler.sample();
+
+		assertEquals(StopReason.CONFIDENCE_REACHED, report.getStopReason());
+		assertTrue(report.getHalfWidth() <= 0.01 * report.getMean());
+		assertEquals(10000, report.getMean(), 200);
+		assertEquals(1, source.getExecutions());
+		assertEquals(report.getIterations().size(), noisy.executions);
+		assertEquals(report.getIterations().size(), target.getExecutions());
+		for (SamplingReport.Iteration iteration : report.getIterations()) {
+			int steps = iteration.getIndex() == 0 ? 3 : 2;
+			assertEquals(steps, iteration.getSummary().getSteps());
+		}
+	}
+
+	@Test
+	public void testIterationsExhausted() {
+		Benchmark benchmark = createBenchmark(10);
+		AdaptiveSampler sampler = new AdaptiveSampler(benchmark, noisy,
+				NoisyTask.RESET, "out");
+		sampler.setAbsoluteTarget(0);
+		sampler.setMaxIterations(5);
+		SamplingReport report = sampler.sample();
+
+		assertEquals(StopReason.ITERATIONS_EXHAUSTED, report.getStopReason());
+		assertEquals(5, report.getIterations().size());
+		assertEquals(5, report.getStatistics().getCount());
+		assertEquals(5, target.getExecutions());
+	}
+
+	@SuppressWarnings("serial")
+	private static class NoisyTask extends AbstractSimpleTask {
+
+		public static final String MEAN = "mean";
+		public static final String VALUE = "value";
+		public static final String RESET = "reset";
+		private final Random random = new Random(0);
+		private int spread;
+		private Integer mean;
+		private Integer value;
+		private int executions = 0;
+
+		@Override
+		protected Map<Object, InputSetter<?>> getInputs() {
+			Map<Object, InputSetter<?>> inputs = new HashMap<Object, InputSetter<?>>();
+			inputs.put(MEAN, new InputSetter<Integer>() {
+
+				@Override
+				public void set(Integer input) {
+					mean = input;
+				}
+			});
+			return inputs;
+		}
+
+		@Override
+		protected Object getResetInputId() {
+			return RESET;
+		}
+
+		@Override
+		protected Map<Object, OutputGetter<?>> getOutputs() {
+			Map<Object, OutputGetter<?>> outputs = new HashMap<Object, OutputGetter<?>>();
+			outputs.put(VALUE, new OutputGetter<Integer>() {
+
+				@Override
+				public Integer get() {
+					return value;
+				}
+
+				@Override
+				public boolean isSet() {
+					return value != null;
+				}
+			});
+			return outputs;
+		}
+
+		@Override
+		protected void doExecute() {
+			executions++;
+			value = mean + random.nextInt(2 * spread + 1) - spread;
+		}
+	}
+}
@@ -1,10 +1,17 @@
 package fr.vergne.benchmark;
 
+import static fr.vergne.benchmark.impl.ImmutableBenchmark.*;
 import static org.junit.Assert.*;
 
+import java.util.Arrays;
+import java.util.Collection;
+
 import org.junit.Test;
 
+import fr.vergne.benchmark.impl.AbstractProducerTask;
+import fr.vergne.benchmark.testMaterial.CountingProducerTask;
 import fr.vergne.benchmark.testMaterial.LinearTask;
+import fr.vergne.benchmark.testMaterial.SumConsumerTask;
 
 public class BenchmarkBuilderTest {
 
@@ -220,4 +227,86 @@ public class BenchmarkBuilderTest {
 		assertFalse(builder.createInstance().getTasks().contains(t3));
 	}
 
+	@Test
+	public void testLinksIndex() {
+		LinearTask t1 = new LinearTask();
+		LinearTask t2 = new LinearTask();
+		LinearTask t3 = new LinearTask();
+		LinearTask t4 = new LinearTask();
+
+		BenchmarkBuilder builder = new BenchmarkBuilder();
+		builder.addAll(t1, t2, t3, t4);
+		builder.linkOutput(t1, LinearTask.IN_OUT_ID, t2, LinearTask.IN_OUT_ID);
+		builder.linkOutput(t1, LinearTask.IN_OUT_ID, t3, LinearTask.IN_OUT_ID);
+		builder.linkOutput(t2, LinearTask.IN_OUT_ID, t3, LinearTask.IN_OUT_ID);
+		final Benchmark indexed = builder.createInstance();
+		Benchmark browsed = new Benchmark() {
+
+			@Override
+			public Collection<Task> getTasks() {
+				return indexed.getTasks();
+			}
+
+			@Override
+			public Collection<Link<?>> getLinks() {
+				return indexed.getLinks();
+			}
+
+			@Override
+			public Collection<Object> getInputIds() {
+				return indexed.getInputIds();
+			}
+
+			@Override
+			public <Input> void setInput(Object id, Input value) {
+				indexed.setInput(id, value);
+			}
+
+			@Override
+			public Collection<Object> getOutputIds() {
+				return indexed.getOutputIds();
+			}
+
+			@Override
+			public <Output> Output getOutput(Object id) {
+				return indexed.getOutput(id);
+			}
+		};
+
+		for (Benchmark benchmark : Arrays.asList(indexed, browsed)) {
+			assertEquals(2, getOutgoingLinks(benchmark, t1).size());
+			assertEquals(1, getOutgoingLinks(benchmark, t2).size());
+			assertEquals(0, getOutgoingLinks(benchmark, t3).size());
+			assertEquals(0, getOutgoingLinks(benchmark, t4).size());
+			assertEquals(0, getIncomingLinks(benchmark, t1).size());
+			assertEquals(1, getIncomingLinks(benchmark, t2).size());
+			assertEquals(2, getIncomingLinks(benchmark, t3).size());
+			assertEquals(0, getIncomingLinks(benchmark, t4).size());
+			for (Link<?> link : getOutgoingLinks(benchmark, t1)) {
+				assertSame(t1, link.getSourceTask());
+				assertTrue(getIncomingLinks(benchmark, link.getTargetTask())
+						.contains(link));
+			}
+		}
+	}
+
+	@Test
+	public void testLinkStreamSingleConsumer() {
+		CountingProducerTask producer = new CountingProducerTask(10);
+		SumConsumerTask c1 = new SumConsumerTask();
+		SumConsumerTask c2 = new SumConsumerTask();
+		BenchmarkBuilder builder = new BenchmarkBuilder();
+		builder.addAll(producer, c1, c2);
+		builder.linkStream(producer, AbstractProducerTask.SINK, c1,
+				SumConsumerTask.ITEMS, 4);
+		builder.linkStream(producer, AbstractProducerTask.SINK, c1,
+				SumConsumerTask.ITEMS, 4);
+
+		try {
+			builder.linkStream(producer, AbstractProducerTask.SINK, c2,
+					SumConsumerTask.ITEMS, 4);
+			fail("The sink should not be linked twice.");
+		} catch (IllegalArgumentException e) {
+		}
+	}
 }
@@ -2,6 +2,9 @@ package fr.vergne.benchmark;
 
 import static org.junit.Assert.*;
 
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
 import org.junit.Test;
 
 import fr.vergne.benchmark.event.BenchmarkEvent;
@@ -10,9 +13,15 @@ import fr.vergne.benchmark.event.LinkTransferedEvent;
 import fr.vergne.benchmark.event.TaskExecutedEvent;
 import fr.vergne.benchmark.event.TaskFailedEvent;
 import fr.vergne.benchmark.event.TaskSelectedEvent;
+import fr.vergne.benchmark.event.TaskTimedOutEvent;
+import fr.vergne.benchmark.impl.AbstractProducerTask;
 import fr.vergne.benchmark.impl.SyncLink;
 import fr.vergne.benchmark.testMaterial.AdditionTask;
+import fr.vergne.benchmark.testMaterial.CountingProducerTask;
 import fr.vergne.benchmark.testMaterial.LinearTask;
+import fr.vergne.benchmark.testMaterial.SleepingTask;
+import fr.vergne.benchmark.testMaterial.SquareTask;
+import fr.vergne.benchmark.testMaterial.SumConsumerTask;
 
 public class BenchmarkRunnerTest {
 
@@ -274,4 +283,259 @@ public class BenchmarkRunnerTest {
 		} catch (FailedTaskException e) {
 		}
 	}
+
+	@Test
+	public void testIncrementalSelection() throws NoTaskToRunException {
+		final int[] checks = { 0 };
+		LinearTask idle = new LinearTask() {
+			@Override
+			public boolean isExecutable() {
+				checks[0]++;
+				return false;
+			}
+		};
+		LinearTask t1 = new LinearTask();
+		LinearTask t2 = new LinearTask();
+		LinearTask t3 = new LinearTask();
+		LinearTask t4 = new LinearTask();
+		String id = LinearTask.IN_OUT_ID;
+
+		BenchmarkBuilder builder = new BenchmarkBuilder();
+		builder.addAll(idle, t1, t2, t3, t4);
+		builder.linkOutput(t1, id, t2, id);
+		builder.linkOutput(t2, id, t3, id);
+		builder.linkOutput(t3, id, t4, id);
+		t1.getInput(id).set(1);
+
+		BenchmarkRunner runner = new BenchmarkRunner();
+		runner.setBenchmark(builder.createInstance());
+		runner.run();
+		runner.run();
+		runner.run();
+		runner.run();
+		assertEquals(1, t4.getOutput(id).get());
+		assertEquals(1, checks[0]);
+
+		try {
+			runner.run();
+			fail("No task should be run.");
+		} catch (NoTaskToRunException e) {
+		}
+		assertEquals(2, checks[0]);
+
+		LinearTask t5 = new LinearTask();
+		runner.setBenchmark(builder.add(t5).createInstance());
+		t5.getInput(id).set(2);
+		runner.run();
+		assertEquals(2, t5.getOutput(id).get());
+	}
+
+	@Test
+	public void testRunAll() {
+		LinearTask t1 = new LinearTask();
+		LinearTask t2 = new LinearTask();
+		LinearTask t3 = new LinearTask();
+		LinearTask t4 = new LinearTask();
+		String id = LinearTask.IN_OUT_ID;
+
+		BenchmarkBuilder builder = new BenchmarkBuilder();
+		builder.addAll(t1, t2, t3, t4);
+		builder.linkOutput(t1, id, t2, id);
+		builder.linkOutput(t2, id, t3, id);
+		builder.linkOutput(t3, id, t4, id);
+		t1.getInput(id).set(1);
+
+		BenchmarkRunner runner = new BenchmarkRunner();
+		runner.setBenchmark(builder.createInstance());
+
+		RunSummary summary = runner.runSteps(2);
+		assertEquals(2, summary.getSteps());
+		assertFalse(summary.isCompleted());
+		assertFalse(summary.hasFailures());
+		assertEquals(1, t2.getOutput(id).get());
+		assertNull(t3.getOutput(id).get());
+
+		summary = runner.runUntil(new StopCondition() {
+
+			@Override
+			public boolean isReached(RunSummary summary) {
+				return summary.getSteps() == 1;
+			}
+		});
+		assertEquals(1, summary.getSteps());
+		assertEquals(1, t3.getOutput(id).get());
+		assertNull(t4.getOutput(id).get());
+
+		summary = runner.runAll();
+		assertEquals(1, summary.getSteps());
+		assertTrue(summary.isCompleted());
+		assertEquals(1, t4.getOutput(id).get());
+
+		summary = runner.runAll();
+		assertEquals(0, summary.getSteps());
+		assertTrue(summary.isCompleted());
+	}
+
+	@Test
+	public void testRunAllWithFailure() {
+		LinearTask t1 = new LinearTask();
+		LinearTask t2 = new LinearTask() {
+			@Override
+			public void execute() {
+				throw new RuntimeException();
+			}
+		};
+		LinearTask t3 = new LinearTask();
+		LinearTask t4 = new LinearTask();
+		String id = LinearTask.IN_OUT_ID;
+
+		BenchmarkBuilder builder = new BenchmarkBuilder();
+		builder.addAll(t1, t2, t3, t4);
+		builder.linkOutput(t1, id, t2, id);
+		builder.linkOutput(t1, id, t3, id);
+		builder.linkOutput(t3, id, t4, id);
+		t1.getInput(id).set(1);
+
+		BenchmarkRunner runner = new BenchmarkRunner();
+		runner.setBenchmark(builder.createInstance());
+		RunSummary summary = runner.runAll();
+		assertEquals(4, summary.getSteps());
+		assertTrue(summary.isCompleted());
+		assertEquals(1, summary.getFailures().size());
+		assertEquals(t2, summary.getFailures().get(0).getTask());
+		assertEquals(1, t4.getOutput(id).get());
+	}
+
+	@Test
+	public void testTimeout() {
+		LinearTask t1 = new LinearTask();
+		LinearTask t2 = new SleepingTask(10000);
+		LinearTask t3 = new LinearTask();
+		LinearTask t4 = new LinearTask();
+		String id = LinearTask.IN_OUT_ID;
+
+		BenchmarkBuilder builder = new BenchmarkBuilder();
+		builder.addAll(t1, t2, t3, t4);
+		builder.linkOutput(t1, id, t2, id);
+		builder.linkOutput(t1, id, t3, id);
+		builder.linkOutput(t2, id, t4, id);
+		builder.linkOutput(t3, id, t4, id);
+		t1.getInput(id).set(1);
+
+		BenchmarkRunner runner = new BenchmarkRunner();
+		runner.setBenchmark(builder.createInstance());
+		runner.setTimeout(t2, 100, TimeUnit.MILLISECONDS);
+		RunSummary summary = runner.runAll();
+		assertEquals(3, summary.getSteps());
+		assertEquals(1, summary.getFailures().size());
+		TaskFailedEvent failure = summary.getFailures().get(0);
+		assertTrue(failure instanceof TaskTimedOutEvent);
+		assertEquals(t2, failure.getTask());
+		assertTrue(failure.getCause() instanceof TimeoutException);
+		assertEquals(1, t3.getOutput(id).get());
+		assertNull(t4.getOutput(id).get());
+		assertTrue(summary.getElapsedTime(TimeUnit.MILLISECONDS) < 5000);
+	}
+
+	@Test
+	public void testTimedOutTaskNotRunTwice() throws NoTaskToRunException {
+		LinearTask task = new LinearTask() {
+			@Override
+			public void execute() {
+				long end = System.currentTimeMillis() + 500;
+				while (System.currentTimeMillis() < end) {
+					// ignore the interruption
+				}
+				super.execute();
+			}
+		};
+		String id = LinearTask.IN_OUT_ID;
+
+		BenchmarkBuilder builder = new BenchmarkBuilder();
+		builder.add(task);
+		task.getInput(id).set(1);
+
+		BenchmarkRunner runner = new BenchmarkRunner();
+		runner.setBenchmark(builder.createInstance());
+		runner.setTimeout(task, 50, TimeUnit.MILLISECONDS);
+		try {
+			runner.run();
+			fail("No timeout detected");
+		} catch (FailedTaskException e) {
+			assertTrue(e.getCause() instanceof TimeoutException);
+		}
+		try {
+			runner.run();
+			fail("Task executed again while still running");
+		} catch (NoTaskToRunException e) {
+			// still running
+		}
+	}
+
+	@Test
+	public void testIncrementalRun() {
+		SquareTask s1 = new SquareTask();
+		SquareTask s2 = new SquareTask();
+		SquareTask s3 = new SquareTask();
+		SquareTask s4 = new SquareTask();
+		String id = SquareTask.VALUE;
+
+		BenchmarkBuilder builder = new BenchmarkBuilder();
+		builder.addAll(s1, s2, s3, s4);
+		builder.setBenchmarkInput("in1", s1, id);
+		builder.setBenchmarkInput("in2", s4, id);
+		builder.linkOutput(s1, id, s2, id);
+		builder.linkOutput(s2, id, s3, id);
+		builder.setBenchmarkOutput("out", s3, id);
+		Benchmark benchmark = builder.createInstance();
+		benchmark.setInput("in1", 2);
+		benchmark.setInput("in2", 5);
+
+		BenchmarkRunner runner = new BenchmarkRunner(benchmark);
+		assertEquals(4, runner.runAll().getSteps());
+		assertEquals(256, benchmark.getOutput("out"));
+
+		benchmark.setInput("in1", 3);
+		assertTrue(s3.shouldBeExecuted());
+		assertFalse(s3.isExecutable());
+		assertFalse(s4.shouldBeExecuted());
+		assertEquals(3, runner.runAll().getSteps());
+		assertEquals(6561, benchmark.getOutput("out"));
+		assertEquals(2, s3.getExecutions());
+		assertEquals(1, s4.getExecutions());
+	}
+
+	@Test(timeout = 10000)
+	public void testStreamingFailsFastWhenPipeFull() {
+		CountingProducerTask producer = new CountingProducerTask(10);
+		SumConsumerTask consumer = new SumConsumerTask();
+		BenchmarkBuilder builder = new BenchmarkBuilder();
+		builder.addAll(producer, consumer);
+		builder.linkStream(producer, AbstractProducerTask.SINK, consumer,
+				SumConsumerTask.ITEMS, 4);
+
+		BenchmarkRunner runner = new BenchmarkRunner();
+		runner.setBenchmark(builder.createInstance());
+		RunSummary summary = runner.runAll();
+
+		assertTrue(summary.hasFailures());
+		assertEquals(producer, summary.getFailures().get(0).getTask());
+	}
+
+	@Test(timeout = 10000)
+	public void testStreamingWithSufficientCapacity() {
+		CountingProducerTask producer = new CountingProducerTask(10);
+		SumConsumerTask consumer = new SumConsumerTask();
+		BenchmarkBuilder builder = new BenchmarkBuilder();
+		builder.addAll(producer, consumer);
+		builder.linkStream(producer, AbstractProducerTask.SINK, consumer,
+				SumConsumerTask.ITEMS, 10);
+
+		BenchmarkRunner runner = new BenchmarkRunner();
+		runner.setBenchmark(builder.createInstance());
+		RunSummary summary = runner.runAll();
+
+		assertFalse(summary.hasFailures());
+		assertEquals(55L, consumer.getOutput(SumConsumerTask.SUM).get());
+	}
 }
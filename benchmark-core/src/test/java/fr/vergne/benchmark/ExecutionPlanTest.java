@@ -0,0 +1,128 @@
+package fr.vergne.benchmark;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Test;
+
+import fr.vergne.benchmark.testMaterial.LinearTask;
+import fr.vergne.benchmark.util.task.IdentityTask;
+import fr.vergne.benchmark.util.task.MapBrowser;
+
+public class ExecutionPlanTest {
+
+	@Test
+	public void testTopologicalLevels() {
+		LinearTask t1 = new LinearTask();
+		LinearTask t2 = new LinearTask();
+		LinearTask t3 = new LinearTask();
+		LinearTask t4 = new LinearTask();
+		LinearTask t5 = new LinearTask();
+		String id = LinearTask.IN_OUT_ID;
+
+		BenchmarkBuilder builder = new BenchmarkBuilder();
+		builder.addAll(t4, t3, t2, t1, t5);
+		builder.linkOutput(t1, id, t2, id);
+		builder.linkOutput(t1, id, t3, id);
+		builder.linkOutput(t2, id, t4, id);
+		builder.linkOutput(t3, id, t4, id);
+		builder.linkOutput(t1, id, t4, id);
+		ExecutionPlan plan = builder.createPlan();
+
+		assertEquals(5, plan.getTaskCount());
+		assertTrue(plan.isAcyclic());
+		assertEquals(3, plan.getLevelCount());
+		assertEquals(0, plan.getLevel(plan.getId(t1)));
+		assertEquals(1, plan.getLevel(plan.getId(t2)));
+		assertEquals(1, plan.getLevel(plan.getId(t3)));
+		assertEquals(2, plan.getLevel(plan.getId(t4)));
+		assertEquals(0, plan.getLevel(plan.getId(t5)));
+
+		int[] order = plan.getTopologicalOrder();
+		assertEquals(5, order.length);
+		for (int index = 0; index < order.length; index++) {
+			for (int successor : plan.getSuccessors(order[index])) {
+				boolean isAfter = false;
+				for (int next = index + 1; next < order.length; next++) {
+					isAfter |= order[next] == successor;
+				}
+				assertTrue(isAfter);
+			}
+		}
+
+		assertEquals(3, plan.getSuccessors(plan.getId(t1)).length);
+		assertEquals(3, plan.getPredecessors(plan.getId(t4)).length);
+		assertEquals(0, plan.getPredecessors(plan.getId(t5)).length);
+		for (int task : plan.getTasksAtLevel(1)) {
+			assertTrue(plan.getTask(task) == t2 || plan.getTask(task) == t3);
+		}
+	}
+
+	@Test
+	public void testCycles() {
+		LinearTask t1 = new LinearTask();
+		LinearTask t2 = new LinearTask();
+		LinearTask t3 = new LinearTask();
+		String id = LinearTask.IN_OUT_ID;
+
+		BenchmarkBuilder builder = new BenchmarkBuilder();
+		builder.addAll(t1, t2, t3);
+		builder.linkOutput(t1, id, t2, id);
+		builder.linkOutput(t2, id, t3, id);
+		ExecutionPlan plan = builder.createPlan();
+		assertTrue(plan.isAcyclic());
+		assertTrue(plan.getCyclicTasks().isEmpty());
+
+		builder.linkValue(t3, Collections.emptyList(), t2, "reset");
+		plan = builder.createPlan();
+		assertFalse(plan.isAcyclic());
+		assertEquals(Arrays.asList(t2, t3),
+				new ArrayList<Task>(plan.getCyclicTasks()));
+		assertEquals(plan.getId(t1), plan.getTopologicalOrder()[0]);
+	}
+
+	@Test
+	public void testNeverExecutableTasks() {
+		IdentityTask<Integer> t1 = new IdentityTask<Integer>();
+		IdentityTask<Integer> t2 = new IdentityTask<Integer>();
+		LinearTask t3 = new LinearTask();
+		Object id = IdentityTask.CONTENT;
+
+		BenchmarkBuilder builder = new BenchmarkBuilder();
+		builder.addAll(t1, t2, t3);
+		builder.linkOutput(t1, id, t2, id);
+		assertEquals(Arrays.asList(t1, t2), new ArrayList<Task>(builder
+				.createPlan().getNeverExecutableTasks()));
+
+		builder.setBenchmarkInput("in", t1, id);
+		assertTrue(builder.createPlan().getNeverExecutableTasks().isEmpty());
+
+		builder.unrelate(t1);
+		builder.linkOutput(t3, LinearTask.IN_OUT_ID, t2, id);
+		assertEquals(Arrays.asList(t1), new ArrayList<Task>(builder
+				.createPlan().getNeverExecutableTasks()));
+	}
+
+	@Test
+	public void testNeverExecutableInput() {
+		IdentityTask<Object> t1 = new IdentityTask<Object>();
+		IdentityTask<Object> t2 = new IdentityTask<Object>();
+		MapBrowser<Object, Object> browser = new MapBrowser<Object, Object>();
+		Object id = IdentityTask.CONTENT;
+
+		BenchmarkBuilder builder = new BenchmarkBuilder();
+		builder.addAll(t1, t2, browser);
+		builder.setBenchmarkInput("map", t1, id);
+		builder.linkOutput(t1, id, browser, MapBrowser.MAP);
+		builder.linkOutput(t2, id, browser, MapBrowser.INDEX);
+		builder.linkValue(t2, Collections.emptyList(), t1, IdentityTask.RESET);
+		assertEquals(Arrays.asList(t2, browser), new ArrayList<Task>(builder
+				.createPlan().getNeverExecutableTasks()));
+
+		builder.setBenchmarkInput("index", t2, id);
+		assertTrue(builder.createPlan().getNeverExecutableTasks().isEmpty());
+	}
+}
@@ -0,0 +1,371 @@
+package fr.vergne.benchmark;
+
+import static org.junit.Assert.*;
+
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.BrokenBarrierException;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import fr.vergne.benchmark.event.BenchmarkEvent;
+import fr.vergne.benchmark.event.BenchmarkEventListener;
+import fr.vergne.benchmark.event.TaskExecutedEvent;
+import fr.vergne.benchmark.event.TaskFailedEvent;
+import fr.vergne.benchmark.impl.AbstractProducerTask;
+import fr.vergne.benchmark.testMaterial.AdditionTask;
+import fr.vergne.benchmark.testMaterial.CountingProducerTask;
+import fr.vergne.benchmark.testMaterial.LinearTask;
+import fr.vergne.benchmark.testMaterial.SleepingTask;
+import fr.vergne.benchmark.testMaterial.SumConsumerTask;
+import fr.vergne.benchmark.util.ResourceBudget;
+
+public class ForkJoinBenchmarkRunnerTest {
+
+	@Test
+	public void testLayersBenchmark() throws NoTaskToRunException {
+		AdditionTask a1 = new AdditionTask();
+		AdditionTask a2 = new AdditionTask();
+		AdditionTask b1 = new AdditionTask();
+		AdditionTask b2 = new AdditionTask();
+		AdditionTask c1 = new AdditionTask();
+
+		BenchmarkBuilder builder = new BenchmarkBuilder();
+		builder.addAll(a1, a2, b1, b2, c1);
+		String out = AdditionTask.RESULT;
+		builder.linkOutput(a1, out, b1, 1);
+		builder.linkOutput(a1, out, b2, 1);
+		builder.linkOutput(a2, out, b1, 2);
+		builder.linkOutput(a2, out, b2, 2);
+		builder.linkOutput(b1, out, c1, 1);
+		builder.linkOutput(b2, out, c1, 2);
+
+		a1.getInput(1).set(1);
+		a1.getInput(2).set(1);
+		a2.getInput(1).set(5);
+
+		ForkJoinBenchmarkRunner runner = new ForkJoinBenchmarkRunner(4);
+		runner.setBenchmark(builder.createInstance());
+		runner.run();
+
+		assertEquals(2, a1.getOutput(out).get().intValue());
+		assertEquals(5, a2.getOutput(out).get().intValue());
+		assertEquals(7, b1.getOutput(out).get().intValue());
+		assertEquals(7, b2.getOutput(out).get().intValue());
+		assertEquals(14, c1.getOutput(out).get().intValue());
+
+		try {
+			runner.run();
+			fail("No task should be run.");
+		} catch (NoTaskToRunException e) {
+		}
+	}
+
+	@Test
+	public void testLongChain() {
+		int count = 10000;
+		String id = LinearTask.IN_OUT_ID;
+		BenchmarkBuilder builder = new BenchmarkBuilder();
+		LinearTask first = new LinearTask();
+		first.getInput(id).set(42);
+		builder.add(first);
+		LinearTask previous = first;
+		for (int i = 1; i < count; i++) {
+			LinearTask task = new LinearTask();
+			builder.add(task);
+			builder.linkOutput(previous, id, task, id);
+			previous = task;
+		}
+
+		final List<Task> executed = new LinkedList<Task>();
+		ForkJoinBenchmarkRunner runner = new ForkJoinBenchmarkRunner(2);
+		runner.setBenchmark(builder.createInstance());
+		runner.registerListener(new BenchmarkEventListener() {
+
+			@Override
+			public void eventGenerated(BenchmarkEvent event) {
+				if (event instanceof TaskExecutedEvent) {
+					executed.add(((TaskExecutedEvent) event).getTask());
+				} else {
+					// irrelevant event
+				}
+			}
+		});
+		RunSummary summary = runner.runAll();
+
+		assertEquals(count, summary.getSteps());
+		assertEquals(count, executed.size());
+		assertFalse(summary.hasFailures());
+		assertEquals(42, previous.getOutput(id).get());
+	}
+
+	@Test
+	public void testConcurrentExecution() throws NoTaskToRunException {
+		CyclicBarrier barrier = new CyclicBarrier(3);
+		String id = LinearTask.IN_OUT_ID;
+		BenchmarkBuilder builder = new BenchmarkBuilder();
+		for (int i = 0; i < 3; i++) {
+			LinearTask task = new BarrierTask(barrier);
+			task.getInput(id).set(i);
+			builder.add(task);
+		}
+
+		ForkJoinBenchmarkRunner runner = new ForkJoinBenchmarkRunner(3);
+		runner.setBenchmark(builder.createInstance());
+		RunSummary summary = runner.runAll();
+		assertEquals(3, summary.getSteps());
+		assertFalse(summary.hasFailures());
+	}
+
+	@Test(timeout = 10000)
+	public void testTargetWaitsForRunningSources() {
+		LinearTask a = new LinearTask();
+		SleepingTask b = new SleepingTask(200);
+		final LinearTask c = new LinearTask();
+		String id = LinearTask.IN_OUT_ID;
+		a.getInput(id).set(1);
+		b.getInput(id).set(2);
+
+		BenchmarkBuilder builder = new BenchmarkBuilder();
+		builder.addAll(a, b, c);
+		builder.linkOutput(a, id, c, id);
+		builder.linkOutput(b, id, c, id);
+		ForkJoinBenchmarkRunner runner = new ForkJoinBenchmarkRunner(2);
+		runner.setBenchmark(builder.createInstance());
+		final List<Task> executed = new LinkedList<Task>();
+		runner.registerListener(new BenchmarkEventListener() {
+
+			@Override
+			public void eventGenerated(BenchmarkEvent event) {
+				if (event instanceof TaskExecutedEvent) {
+					executed.add(((TaskExecutedEvent) event).getTask());
+				} else {
+					// irrelevant event
+				}
+			}
+		});
+		RunSummary summary = runner.runAll();
+
+		assertEquals(3, summary.getSteps());
+		assertEquals(c, executed.get(2));
+		assertEquals(2, c.getOutput(id).get());
+	}
+
+	@Test(timeout = 10000, expected = AssertionError.class)
+	public void testErrorIsRethrown() {
+		LinearTask t1 = new LinearTask() {
+			@Override
+			public void execute() {
+				throw new AssertionError();
+			}
+		};
+		t1.getInput(LinearTask.IN_OUT_ID).set(1);
+
+		BenchmarkBuilder builder = new BenchmarkBuilder();
+		builder.add(t1);
+		ForkJoinBenchmarkRunner runner = new ForkJoinBenchmarkRunner(2);
+		runner.setBenchmark(builder.createInstance());
+		runner.runAll();
+	}
+
+	@Test(timeout = 10000)
+	public void testRunAfterError() throws InterruptedException {
+		final AtomicInteger errors = new AtomicInteger();
+		LinearTask a = new LinearTask() {
+			@Override
+			public void execute() {
+				if (errors.getAndIncrement() == 0) {
+					throw new AssertionError();
+				} else {
+					super.execute();
+				}
+			}
+		};
+		SleepingTask b = new SleepingTask(300);
+		LinearTask c = new LinearTask();
+		String id = LinearTask.IN_OUT_ID;
+		a.getInput(id).set(1);
+		b.getInput(id).set(2);
+
+		BenchmarkBuilder builder = new BenchmarkBuilder();
+		builder.addAll(a, b, c);
+		builder.linkOutput(b, id, c, id);
+		ForkJoinBenchmarkRunner runner = new ForkJoinBenchmarkRunner(2);
+		runner.setBenchmark(builder.createInstance());
+		boolean isRethrown = false;
+		try {
+			runner.runAll();
+		} catch (AssertionError e) {
+			isRethrown = true;
+		}
+		assertTrue(isRethrown);
+		assertTrue(b.getOutput(id).isSet());
+		Thread.sleep(100);
+		assertFalse(c.getOutput(id).isSet());
+
+		RunSummary summary = runner.runAll();
+		assertEquals(2, summary.getSteps());
+		assertFalse(summary.hasFailures());
+		assertEquals(2, c.getOutput(id).get());
+	}
+
+	@Test
+	public void testTimedOutTaskKeepsResources() throws InterruptedException {
+		ResourceBudget budget = new ResourceBudget();
+		budget.setCapacity("heap", 100);
+		String id = LinearTask.IN_OUT_ID;
+		LinearTask stubborn = new LinearTask() {
+			@Override
+			public void execute() {
+				long end = System.currentTimeMillis() + 500;
+				while (System.currentTimeMillis() < end) {
+					// ignore the interruption
+				}
+				super.execute();
+			}
+		};
+		stubborn.getInput(id).set(1);
+		budget.setNeed(stubborn, "heap", 60);
+		LinearTask heavy = new LinearTask();
+		heavy.getInput(id).set(2);
+		budget.setNeed(heavy, "heap", 60);
+
+		BenchmarkBuilder builder = new BenchmarkBuilder();
+		builder.addAll(stubborn, heavy);
+		ForkJoinBenchmarkRunner runner = new ForkJoinBenchmarkRunner(2);
+		runner.setResourceBudget(budget);
+		runner.setBenchmark(builder.createInstance());
+		runner.setTimeout(stubborn, 50, TimeUnit.MILLISECONDS);
+		RunSummary summary = runner.runAll();
+
+		assertEquals(1, summary.getSteps());
+		assertFalse(summary.isCompleted());
+		assertNull(heavy.getOutput(id).get());
+
+		long end = System.currentTimeMillis() + 5000;
+		while (budget.getUsage("heap") > 0
+				&& System.currentTimeMillis() < end) {
+			Thread.sleep(10);
+		}
+		assertEquals(0, budget.getUsage("heap"));
+		runner.setTimeout(stubborn, 0, TimeUnit.MILLISECONDS);
+		runner.runAll();
+		assertEquals(2, heavy.getOutput(id).get());
+	}
+
+	@Test
+	public void testRunAllWithFailure() {
+		LinearTask t1 = new LinearTask();
+		LinearTask t2 = new LinearTask() {
+			@Override
+			public void execute() {
+				throw new RuntimeException();
+			}
+		};
+		LinearTask t3 = new LinearTask();
+		LinearTask t4 = new LinearTask();
+		String id = LinearTask.IN_OUT_ID;
+
+		BenchmarkBuilder builder = new BenchmarkBuilder();
+		builder.addAll(t1, t2, t3, t4);
+		builder.linkOutput(t1, id, t2, id);
+		builder.linkOutput(t1, id, t3, id);
+		builder.linkOutput(t3, id, t4, id);
+		t1.getInput(id).set(1);
+
+		ForkJoinBenchmarkRunner runner = new ForkJoinBenchmarkRunner(2);
+		runner.setBenchmark(builder.createInstance());
+		RunSummary summary = runner.runAll();
+		assertEquals(4, summary.getSteps());
+		assertTrue(summary.isCompleted());
+		assertEquals(1, summary.getFailures().size());
+		TaskFailedEvent failure = summary.getFailures().get(0);
+		assertEquals(t2, failure.getTask());
+		assertEquals(1, t4.getOutput(id).get());
+		assertNull(t2.getOutput(id).get());
+	}
+
+	private static class BarrierTask extends LinearTask {
+		private final CyclicBarrier barrier;
+
+		public BarrierTask(CyclicBarrier barrier) {
+			this.barrier = barrier;
+		}
+
+		@Override
+		public void execute() {
+			try {
+				// all the tasks need to run at the same time to pass it
+				barrier.await(5, TimeUnit.SECONDS);
+			} catch (InterruptedException | BrokenBarrierException
+					| TimeoutException e) {
+				throw new RuntimeException(e);
+			}
+			super.execute();
+		}
+	}
+
+	@Test(timeout = 10000)
+	public void testStreaming() {
+		CountingProducerTask producer = new CountingProducerTask(1000);
+		SumConsumerTask consumer = new SumConsumerTask();
+		BenchmarkBuilder builder = new BenchmarkBuilder();
+		builder.addAll(producer, consumer);
+		builder.linkStream(producer, AbstractProducerTask.SINK, consumer,
+				SumConsumerTask.ITEMS, 4);
+
+		ForkJoinBenchmarkRunner runner = new ForkJoinBenchmarkRunner(2);
+		runner.setBenchmark(builder.createInstance());
+		RunSummary summary = runner.runAll();
+
+		assertFalse(summary.hasFailures());
+		assertEquals(2, summary.getSteps());
+		assertEquals(500500L, consumer.getOutput(SumConsumerTask.SUM).get());
+	}
+
+	@Test(timeout = 10000)
+	public void testStreamingWithSingleWorker() {
+		CountingProducerTask producer = new CountingProducerTask(10);
+		SumConsumerTask consumer = new SumConsumerTask();
+		BenchmarkBuilder builder = new BenchmarkBuilder();
+		builder.addAll(producer, consumer);
+		builder.linkStream(producer, AbstractProducerTask.SINK, consumer,
+				SumConsumerTask.ITEMS, 4);
+
+		ForkJoinBenchmarkRunner runner = new ForkJoinBenchmarkRunner(1);
+		runner.setBenchmark(builder.createInstance());
+		RunSummary summary = runner.runAll();
+
+		assertFalse(summary.hasFailures());
+		assertEquals(55L, consumer.getOutput(SumConsumerTask.SUM).get());
+	}
+
+	@Test(timeout = 10000)
+	public void testStreamingWithMoreStreamsThanWorkers() {
+		BenchmarkBuilder builder = new BenchmarkBuilder();
+		List<SumConsumerTask> consumers = new LinkedList<SumConsumerTask>();
+		for (int i = 0; i < 2; i++) {
+			CountingProducerTask producer = new CountingProducerTask(1000);
+			SumConsumerTask consumer = new SumConsumerTask();
+			builder.addAll(producer, consumer);
+			builder.linkStream(producer, AbstractProducerTask.SINK, consumer,
+					SumConsumerTask.ITEMS, 4);
+			consumers.add(consumer);
+		}
+
+		ForkJoinBenchmarkRunner runner = new ForkJoinBenchmarkRunner(2);
+		runner.setBenchmark(builder.createInstance());
+		RunSummary summary = runner.runAll();
+
+		assertFalse(summary.hasFailures());
+		assertEquals(4, summary.getSteps());
+		for (SumConsumerTask consumer : consumers) {
+			assertEquals(500500L, consumer.getOutput(SumConsumerTask.SUM)
+					.get());
+		}
+	}
+}
@@ -0,0 +1,644 @@
+package fr.vergne.benchmark;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BrokenBarrierException;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import fr.vergne.benchmark.event.BenchmarkEvent;
+import fr.vergne.benchmark.event.BenchmarkEventListener;
+import fr.vergne.benchmark.event.LinkTransferedEvent;
+import fr.vergne.benchmark.event.TaskExecutedEvent;
+import fr.vergne.benchmark.event.TaskFailedEvent;
+import fr.vergne.benchmark.event.TaskSelectedEvent;
+import fr.vergne.benchmark.event.TaskTimedOutEvent;
+import fr.vergne.benchmark.impl.AbstractProducerTask;
+import fr.vergne.benchmark.testMaterial.AdditionTask;
+import fr.vergne.benchmark.testMaterial.CountingProducerTask;
+import fr.vergne.benchmark.testMaterial.LinearTask;
+import fr.vergne.benchmark.testMaterial.SleepingTask;
+import fr.vergne.benchmark.testMaterial.SumConsumerTask;
+import fr.vergne.benchmark.util.ResourceBudget;
+
+public class ParallelBenchmarkRunnerTest {
+
+	@Test
+	public void testLayersBenchmark() throws NoTaskToRunException {
+		AdditionTask a1 = new AdditionTask();
+		AdditionTask a2 = new AdditionTask();
+		AdditionTask a3 = new AdditionTask();
+		AdditionTask b1 = new AdditionTask();
+		AdditionTask b2 = new AdditionTask();
+		AdditionTask b3 = new AdditionTask();
+		AdditionTask c1 = new AdditionTask();
+		AdditionTask c2 = new AdditionTask();
+		AdditionTask c3 = new AdditionTask();
+
+		BenchmarkBuilder builder = new BenchmarkBuilder();
+		builder.addAll(a1, a2, a3, b1, b2, b3, c1, c2, c3);
+		String out = AdditionTask.RESULT;
+		builder.linkOutput(a1, out, b1, 1);
+		builder.linkOutput(a1, out, b2, 1);
+		builder.linkOutput(a1, out, b3, 1);
+		builder.linkOutput(a2, out, b1, 2);
+		builder.linkOutput(a2, out, b2, 2);
+		builder.linkOutput(a3, out, b3, 2);
+		builder.linkOutput(b1, out, c1, 1);
+		builder.linkOutput(b1, out, c2, 1);
+		builder.linkOutput(b1, out, c3, 1);
+		builder.linkOutput(b2, out, c1, 2);
+		builder.linkOutput(b2, out, c2, 2);
+		builder.linkOutput(b2, out, c3, 2);
+		builder.linkOutput(b3, out, c1, 3);
+		builder.linkOutput(b3, out, c2, 3);
+		builder.linkOutput(b3, out, c3, 3);
+
+		a1.getInput(1).set(1);
+		a1.getInput(2).set(1);
+		a2.getInput(1).set(5);
+		a3.getInput(1).set(1);
+		a3.getInput(2).set(1);
+		a3.getInput(3).set(1);
+
+		ParallelBenchmarkRunner runner = new ParallelBenchmarkRunner(4);
+		runner.setBenchmark(builder.createInstance());
+		runner.run();
+
+		assertEquals(2, a1.getOutput(out).get().intValue());
+		assertEquals(5, a2.getOutput(out).get().intValue());
+		assertEquals(3, a3.getOutput(out).get().intValue());
+		assertEquals(7, b1.getOutput(out).get().intValue());
+		assertEquals(7, b2.getOutput(out).get().intValue());
+		assertEquals(5, b3.getOutput(out).get().intValue());
+		assertEquals(19, c1.getOutput(out).get().intValue());
+		assertEquals(19, c2.getOutput(out).get().intValue());
+		assertEquals(19, c3.getOutput(out).get().intValue());
+
+		try {
+			runner.run();
+			fail("No task should be run.");
+		} catch (NoTaskToRunException e) {
+		}
+	}
+
+	@Test
+	public void testAdditionKeepsChangedInputsUntilExecuted() {
+		/*
+		 * The parallel runner transfers the links in the order the sources
+		 * finish, so a changed input can be followed by an unchanged one. The
+		 * task should still be executed again.
+		 */
+		AdditionTask task = new AdditionTask();
+		task.getInput(1).set(1);
+		task.getInput(2).set(1);
+		task.execute();
+		assertFalse(task.shouldBeExecuted());
+
+		task.getInput(2).set(2);
+		task.getInput(1).set(1);
+		assertTrue(task.shouldBeExecuted());
+	}
+
+	@Test
+	public void testConcurrentExecution() throws NoTaskToRunException {
+		final CyclicBarrier barrier = new CyclicBarrier(3);
+		LinearTask t1 = new BarrierTask(barrier);
+		LinearTask t2 = new BarrierTask(barrier);
+		LinearTask t3 = new BarrierTask(barrier);
+		String id = LinearTask.IN_OUT_ID;
+		t1.getInput(id).set(1);
+		t2.getInput(id).set(2);
+		t3.getInput(id).set(3);
+
+		BenchmarkBuilder builder = new BenchmarkBuilder();
+		builder.addAll(t1, t2, t3);
+
+		ParallelBenchmarkRunner runner = new ParallelBenchmarkRunner(3);
+		runner.setBenchmark(builder.createInstance());
+		runner.run();
+
+		assertEquals(1, t1.getOutput(id).get());
+		assertEquals(2, t2.getOutput(id).get());
+		assertEquals(3, t3.getOutput(id).get());
+	}
+
+	@Test
+	public void testEventsOrder() throws NoTaskToRunException {
+		LinearTask t1 = new LinearTask();
+		LinearTask t2 = new LinearTask();
+		LinearTask t3 = new LinearTask();
+		LinearTask t4 = new LinearTask();
+		String id = LinearTask.IN_OUT_ID;
+
+		BenchmarkBuilder builder = new BenchmarkBuilder();
+		builder.addAll(t1, t2, t3, t4);
+		builder.linkOutput(t1, id, t2, id);
+		builder.linkOutput(t1, id, t3, id);
+		builder.linkOutput(t2, id, t4, id);
+		t1.getInput(id).set(1);
+
+		final Thread caller = Thread.currentThread();
+		final Map<Task, List<Class<?>>> events = new HashMap<Task, List<Class<?>>>();
+		ParallelBenchmarkRunner runner = new ParallelBenchmarkRunner(4);
+		runner.setBenchmark(builder.createInstance());
+		runner.registerListener(new BenchmarkEventListener() {
+
+			@Override
+			public void eventGenerated(BenchmarkEvent event) {
+				assertSame(caller, Thread.currentThread());
+				Task task;
+				if (event instanceof TaskSelectedEvent) {
+					task = ((TaskSelectedEvent) event).getTask();
+				} else if (event instanceof TaskExecutedEvent) {
+					task = ((TaskExecutedEvent) event).getTask();
+				} else if (event instanceof LinkTransferedEvent) {
+					task = ((LinkTransferedEvent) event).getLink()
+							.getSourceTask();
+				} else {
+					fail("Unexpected event: " + event);
+					return;
+				}
+				if (!events.containsKey(task)) {
+					events.put(task, new LinkedList<Class<?>>());
+				} else {
+					// already known
+				}
+				events.get(task).add(event.getClass());
+			}
+		});
+		runner.run();
+
+		assertEquals(4, events.size());
+		assertEquals(
+				Arrays.asList(TaskSelectedEvent.class,
+						TaskExecutedEvent.class, LinkTransferedEvent.class,
+						LinkTransferedEvent.class), events.get(t1));
+		assertEquals(Arrays.asList(TaskSelectedEvent.class,
+				TaskExecutedEvent.class, LinkTransferedEvent.class),
+				events.get(t2));
+		assertEquals(Arrays.asList(TaskSelectedEvent.class,
+				TaskExecutedEvent.class), events.get(t3));
+		assertEquals(Arrays.asList(TaskSelectedEvent.class,
+				TaskExecutedEvent.class), events.get(t4));
+		assertEquals(1, t4.getOutput(id).get());
+	}
+
+	@Test(timeout = 10000, expected = AssertionError.class)
+	public void testErrorIsRethrown() {
+		LinearTask t1 = new LinearTask() {
+			@Override
+			public void execute() {
+				throw new AssertionError();
+			}
+		};
+		t1.getInput(LinearTask.IN_OUT_ID).set(1);
+
+		BenchmarkBuilder builder = new BenchmarkBuilder();
+		builder.add(t1);
+		ParallelBenchmarkRunner runner = new ParallelBenchmarkRunner(2);
+		runner.setBenchmark(builder.createInstance());
+		runner.runAll();
+	}
+
+	@Test(timeout = 10000)
+	public void testRunAfterError() {
+		final AtomicInteger errors = new AtomicInteger();
+		LinearTask a = new LinearTask() {
+			@Override
+			public void execute() {
+				if (errors.getAndIncrement() == 0) {
+					throw new AssertionError();
+				} else {
+					super.execute();
+				}
+			}
+		};
+		SleepingTask b = new SleepingTask(300);
+		LinearTask c = new LinearTask();
+		String id = LinearTask.IN_OUT_ID;
+		a.getInput(id).set(1);
+		b.getInput(id).set(2);
+
+		BenchmarkBuilder builder = new BenchmarkBuilder();
+		builder.addAll(a, b, c);
+		builder.linkOutput(b, id, c, id);
+		ParallelBenchmarkRunner runner = new ParallelBenchmarkRunner(2);
+		runner.setBenchmark(builder.createInstance());
+		boolean isRethrown = false;
+		try {
+			runner.runAll();
+		} catch (AssertionError e) {
+			isRethrown = true;
+		}
+		assertTrue(isRethrown);
+		assertTrue(b.getOutput(id).isSet());
+		assertFalse(c.getOutput(id).isSet());
+
+		RunSummary summary = runner.runAll();
+		assertEquals(2, summary.getSteps());
+		assertFalse(summary.hasFailures());
+		assertEquals(2, c.getOutput(id).get());
+	}
+
+	@Test
+	public void testFailure() throws NoTaskToRunException {
+		LinearTask t1 = new LinearTask();
+		LinearTask t2 = new LinearTask() {
+			@Override
+			public void execute() {
+				throw new RuntimeException();
+			}
+		};
+		LinearTask t3 = new LinearTask();
+		String id = LinearTask.IN_OUT_ID;
+
+		BenchmarkBuilder builder = new BenchmarkBuilder();
+		builder.addAll(t1, t2, t3);
+		builder.linkOutput(t1, id, t2, id);
+		builder.linkOutput(t2, id, t3, id);
+		t1.getInput(id).set(1);
+
+		final List<Task> failed = new LinkedList<Task>();
+		ParallelBenchmarkRunner runner = new ParallelBenchmarkRunner(2);
+		runner.setBenchmark(builder.createInstance());
+		runner.registerListener(new BenchmarkEventListener() {
+
+			@Override
+			public void eventGenerated(BenchmarkEvent event) {
+				if (event instanceof TaskFailedEvent) {
+					failed.add(((TaskFailedEvent) event).getTask());
+				} else {
+					// irrelevant event
+				}
+			}
+		});
+		try {
+			runner.run();
+			fail("No exception thrown");
+		} catch (FailedTaskException e) {
+		}
+		assertEquals(1, t1.getOutput(id).get());
+		assertEquals(Arrays.asList(t2), failed);
+		assertNull(t3.getOutput(id).get());
+	}
+
+	@Test
+	public void testRunAllWithFailure() {
+		LinearTask t1 = new LinearTask();
+		LinearTask t2 = new LinearTask() {
+			@Override
+			public void execute() {
+				throw new RuntimeException();
+			}
+		};
+		LinearTask t3 = new LinearTask();
+		LinearTask t4 = new LinearTask();
+		String id = LinearTask.IN_OUT_ID;
+
+		BenchmarkBuilder builder = new BenchmarkBuilder();
+		builder.addAll(t1, t2, t3, t4);
+		builder.linkOutput(t1, id, t2, id);
+		builder.linkOutput(t1, id, t3, id);
+		builder.linkOutput(t3, id, t4, id);
+		t1.getInput(id).set(1);
+
+		ParallelBenchmarkRunner runner = new ParallelBenchmarkRunner(2);
+		runner.setBenchmark(builder.createInstance());
+		RunSummary summary = runner.runAll();
+		assertEquals(4, summary.getSteps());
+		assertTrue(summary.isCompleted());
+		assertEquals(1, summary.getFailures().size());
+		assertEquals(t2, summary.getFailures().get(0).getTask());
+		assertEquals(1, t4.getOutput(id).get());
+	}
+
+	@Test
+	public void testRunSteps() {
+		LinearTask t1 = new LinearTask();
+		LinearTask t2 = new LinearTask();
+		LinearTask t3 = new LinearTask();
+		String id = LinearTask.IN_OUT_ID;
+		t1.getInput(id).set(1);
+		t2.getInput(id).set(2);
+		t3.getInput(id).set(3);
+
+		BenchmarkBuilder builder = new BenchmarkBuilder();
+		builder.addAll(t1, t2, t3);
+
+		ParallelBenchmarkRunner runner = new ParallelBenchmarkRunner(3);
+		runner.setBenchmark(builder.createInstance());
+		RunSummary summary = runner.runSteps(2);
+		assertEquals(2, summary.getSteps());
+		assertFalse(summary.isCompleted());
+
+		summary = runner.runSteps(2);
+		assertEquals(1, summary.getSteps());
+		assertEquals(3, t3.getOutput(id).get());
+	}
+
+	@Test
+	public void testVirtualThreads() {
+		if (!ParallelBenchmarkRunner.isVirtualThreadSupported()) {
+			try {
+				ParallelBenchmarkRunner.createWithVirtualThreads();
+				fail("No exception thrown");
+			} catch (UnsupportedOperationException e) {
+			}
+		} else {
+			int count = 500;
+			CyclicBarrier barrier = new CyclicBarrier(count);
+			BenchmarkBuilder builder = new BenchmarkBuilder();
+			for (int i = 0; i < count; i++) {
+				LinearTask task = new BarrierTask(barrier);
+				task.getInput(LinearTask.IN_OUT_ID).set(i);
+				builder.add(task);
+			}
+
+			ParallelBenchmarkRunner runner = ParallelBenchmarkRunner
+					.createWithVirtualThreads();
+			runner.setBenchmark(builder.createInstance());
+			RunSummary summary = runner.runAll();
+			runner.getExecutor().shutdown();
+			assertEquals(count, summary.getSteps());
+			assertFalse(summary.hasFailures());
+		}
+	}
+
+	@Test
+	public void testTimeout() {
+		LinearTask t1 = new LinearTask();
+		LinearTask t2 = new SleepingTask(10000);
+		// finishes after the timeout of t2, so t4 is already skipped
+		LinearTask t3 = new SleepingTask(300);
+		LinearTask t4 = new LinearTask();
+		String id = LinearTask.IN_OUT_ID;
+
+		BenchmarkBuilder builder = new BenchmarkBuilder();
+		builder.addAll(t1, t2, t3, t4);
+		builder.linkOutput(t1, id, t2, id);
+		builder.linkOutput(t1, id, t3, id);
+		builder.linkOutput(t2, id, t4, id);
+		builder.linkOutput(t3, id, t4, id);
+		t1.getInput(id).set(1);
+
+		ParallelBenchmarkRunner runner = new ParallelBenchmarkRunner(2);
+		runner.setBenchmark(builder.createInstance());
+		runner.setTimeout(t2, 100, TimeUnit.MILLISECONDS);
+		RunSummary summary = runner.runAll();
+		assertEquals(3, summary.getSteps());
+		assertEquals(1, summary.getFailures().size());
+		TaskFailedEvent failure = summary.getFailures().get(0);
+		assertTrue(failure instanceof TaskTimedOutEvent);
+		assertEquals(t2, failure.getTask());
+		assertTrue(failure.getCause() instanceof TimeoutException);
+		assertEquals(1, t3.getOutput(id).get());
+		assertNull(t4.getOutput(id).get());
+		assertTrue(summary.getElapsedTime(TimeUnit.MILLISECONDS) < 5000);
+	}
+
+	@Test
+	public void testResourceBudget() {
+		ResourceBudget budget = new ResourceBudget();
+		budget.setCapacity("heap", 100);
+		AtomicInteger heavyRunning = new AtomicInteger();
+		AtomicInteger maxHeavyRunning = new AtomicInteger();
+		String id = LinearTask.IN_OUT_ID;
+		BenchmarkBuilder builder = new BenchmarkBuilder();
+		for (int i = 0; i < 4; i++) {
+			LinearTask heavy = new CountingTask(heavyRunning, maxHeavyRunning);
+			heavy.getInput(id).set(i);
+			budget.setNeed(heavy, "heap", 60);
+			builder.add(heavy);
+
+			LinearTask light = new LinearTask();
+			light.getInput(id).set(i);
+			budget.setNeed(light, "heap", 10);
+			builder.add(light);
+		}
+
+		ParallelBenchmarkRunner runner = new ParallelBenchmarkRunner(4);
+		runner.setResourceBudget(budget);
+		runner.setBenchmark(builder.createInstance());
+		RunSummary summary = runner.runAll();
+
+		assertEquals(8, summary.getSteps());
+		assertFalse(summary.hasFailures());
+		assertEquals(1, maxHeavyRunning.get());
+		assertEquals(0, budget.getUsage("heap"));
+	}
+
+	@Test
+	public void testTimedOutTaskKeepsResources() throws InterruptedException {
+		ResourceBudget budget = new ResourceBudget();
+		budget.setCapacity("heap", 100);
+		String id = LinearTask.IN_OUT_ID;
+		LinearTask stubborn = new LinearTask() {
+			@Override
+			public void execute() {
+				long end = System.currentTimeMillis() + 500;
+				while (System.currentTimeMillis() < end) {
+					// ignore the interruption
+				}
+				super.execute();
+			}
+		};
+		stubborn.getInput(id).set(1);
+		budget.setNeed(stubborn, "heap", 60);
+		LinearTask heavy = new LinearTask();
+		heavy.getInput(id).set(2);
+		budget.setNeed(heavy, "heap", 60);
+
+		BenchmarkBuilder builder = new BenchmarkBuilder();
+		builder.addAll(stubborn, heavy);
+		ParallelBenchmarkRunner runner = new ParallelBenchmarkRunner(2);
+		runner.setResourceBudget(budget);
+		runner.setBenchmark(builder.createInstance());
+		runner.setTimeout(stubborn, 50, TimeUnit.MILLISECONDS);
+		RunSummary summary = runner.runAll();
+
+		assertEquals(1, summary.getSteps());
+		assertFalse(summary.isCompleted());
+		assertNull(heavy.getOutput(id).get());
+
+		long end = System.currentTimeMillis() + 5000;
+		while (budget.getUsage("heap") > 0
+				&& System.currentTimeMillis() < end) {
+			Thread.sleep(10);
+		}
+		assertEquals(0, budget.getUsage("heap"));
+		runner.setTimeout(stubborn, 0, TimeUnit.MILLISECONDS);
+		runner.runAll();
+		assertEquals(2, heavy.getOutput(id).get());
+	}
+
+	private static class BarrierTask extends LinearTask {
+		private final CyclicBarrier barrier;
+
+		public BarrierTask(CyclicBarrier barrier) {
+			this.barrier = barrier;
+		}
+
+		@Override
+		public void execute() {
+			try {
+				// all the tasks need to run at the same time to pass it
+				barrier.await(5, TimeUnit.SECONDS);
+			} catch (InterruptedException | BrokenBarrierException
+					| TimeoutException e) {
+				throw new RuntimeException(e);
+			}
+			super.execute();
+		}
+	}
+
+	private static class CountingTask extends SleepingTask {
+		private final AtomicInteger running;
+		private final AtomicInteger maxRunning;
+
+		public CountingTask(AtomicInteger running, AtomicInteger maxRunning) {
+			super(20);
+			this.running = running;
+			this.maxRunning = maxRunning;
+		}
+
+		@Override
+		public void execute() {
+			int count = running.incrementAndGet();
+			synchronized (maxRunning) {
+				maxRunning.set(Math.max(maxRunning.get(), count));
+			}
+			try {
+				super.execute();
+			} finally {
+				running.decrementAndGet();
+			}
+		}
+	}
+
+	@Test(timeout = 10000)
+	public void testStreaming() {
+		CountingProducerTask producer = new CountingProducerTask(1000);
+		SumConsumerTask consumer = new SumConsumerTask();
+		BenchmarkBuilder builder = new BenchmarkBuilder();
+		builder.addAll(producer, consumer);
+		builder.linkStream(producer, AbstractProducerTask.SINK, consumer,
+				SumConsumerTask.ITEMS, 4);
+
+		ParallelBenchmarkRunner runner = new ParallelBenchmarkRunner(2);
+		runner.setBenchmark(builder.createInstance());
+		RunSummary summary = runner.runAll();
+
+		assertFalse(summary.hasFailures());
+		assertEquals(2, summary.getSteps());
+		assertEquals(500500L, consumer.getOutput(SumConsumerTask.SUM).get());
+	}
+
+	@Test(timeout = 10000)
+	public void testStreamingWithSingleThread() {
+		CountingProducerTask producer = new CountingProducerTask(10);
+		SumConsumerTask consumer = new SumConsumerTask();
+		BenchmarkBuilder builder = new BenchmarkBuilder();
+		builder.addAll(producer, consumer);
+		builder.linkStream(producer, AbstractProducerTask.SINK, consumer,
+				SumConsumerTask.ITEMS, 4);
+
+		ParallelBenchmarkRunner runner = new ParallelBenchmarkRunner(1);
+		runner.setBenchmark(builder.createInstance());
+		RunSummary summary = runner.runAll();
+
+		assertFalse(summary.hasFailures());
+		assertEquals(55L, consumer.getOutput(SumConsumerTask.SUM).get());
+	}
+
+	@Test(timeout = 10000)
+	public void testStreamingFailsFastWithBlockedConsumer() {
+		CountingProducerTask producer = new CountingProducerTask(10);
+		SumConsumerTask consumer = new SumConsumerTask();
+		BenchmarkBuilder builder = new BenchmarkBuilder();
+		builder.addAll(producer, consumer);
+		builder.linkStream(producer, AbstractProducerTask.SINK, consumer,
+				SumConsumerTask.ITEMS, 4);
+		ResourceBudget budget = new ResourceBudget();
+		budget.setCapacity("heap", 100);
+		budget.setNeed(producer, "heap", 60);
+		budget.setNeed(consumer, "heap", 60);
+
+		ParallelBenchmarkRunner runner = new ParallelBenchmarkRunner(2);
+		runner.setResourceBudget(budget);
+		runner.setBenchmark(builder.createInstance());
+		RunSummary summary = runner.runAll();
+
+		assertTrue(summary.hasFailures());
+	}
+
+	@Test
+	public void testHooksNotMeasured() {
+		LinearTask task = new LinearTask();
+		task.getInput(LinearTask.IN_OUT_ID).set(1);
+		BenchmarkBuilder builder = new BenchmarkBuilder();
+		builder.add(task);
+
+		ParallelBenchmarkRunner runner = new ParallelBenchmarkRunner(2);
+		runner.setBenchmark(builder.createInstance());
+		runner.registerHook(new TaskExecutionHook() {
+
+			@Override
+			public void beforeExecution(Task task, boolean isWarmup) {
+				sleep(100);
+			}
+
+			@Override
+			public void afterExecution(Task task, boolean isWarmup,
+					boolean isSuccessful) {
+				sleep(100);
+			}
+
+			private void sleep(long millis) {
+				try {
+					Thread.sleep(millis);
+				} catch (InterruptedException e) {
+					throw new RuntimeException(e);
+				}
+			}
+		});
+		RunSummary summary = runner.runAll();
+
+		assertFalse(summary.hasFailures());
+		assertTrue(summary.getExecutionTime(TimeUnit.MILLISECONDS) < 100);
+	}
+
+	@Test(timeout = 10000)
+	public void testStreamingWithMoreStreamsThanThreads() {
+		BenchmarkBuilder builder = new BenchmarkBuilder();
+		List<SumConsumerTask> consumers = new LinkedList<SumConsumerTask>();
+		for (int i = 0; i < 2; i++) {
+			CountingProducerTask producer = new CountingProducerTask(1000);
+			SumConsumerTask consumer = new SumConsumerTask();
+			builder.addAll(producer, consumer);
+			builder.linkStream(producer, AbstractProducerTask.SINK, consumer,
+					SumConsumerTask.ITEMS, 4);
+			consumers.add(consumer);
+		}
+
+		ParallelBenchmarkRunner runner = new ParallelBenchmarkRunner(2);
+		runner.setBenchmark(builder.createInstance());
+		RunSummary summary = runner.runAll();
+
+		assertFalse(summary.hasFailures());
+		assertEquals(4, summary.getSteps());
+		for (SumConsumerTask consumer : consumers) {
+			assertEquals(500500L, consumer.getOutput(SumConsumerTask.SUM)
+					.get());
+		}
+	}
+}
@@ -0,0 +1,104 @@
+package fr.vergne.benchmark;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.Test;
+
+import fr.vergne.benchmark.testMaterial.AdditionTask;
+
+public class ParameterSweepTest {
+
+	private BenchmarkBuilder createTemplate() {
+		BenchmarkBuilder builder = new BenchmarkBuilder();
+		AdditionTask task = builder.add(new TaskFactory<AdditionTask>() {
+
+			@Override
+			public AdditionTask createTask() {
+				return new AdditionTask();
+			}
+		});
+		builder.setBenchmarkInput("a", task, "a");
+		builder.setBenchmarkInput("b", task, "b");
+		builder.setBenchmarkOutput("sum", task, AdditionTask.RESULT);
+		return builder;
+	}
+
+	@Test
+	public void testFullGrid() {
+		ParameterSweep sweep = new ParameterSweep(createTemplate(), 4);
+		sweep.setDomain("a", Arrays.asList(0, 1, 2, 3, 4));
+		sweep.setDomain("b", Arrays.asList(0, 10, 20));
+		assertEquals(15, sweep.getPointCount());
+
+		final List<SweepResult> results = new LinkedList<SweepResult>();
+		long evaluated = sweep.run(new SweepSink() {
+
+			@Override
+			public void resultAvailable(SweepResult result) {
+				results.add(result);
+			}
+		});
+
+		assertEquals(15, evaluated);
+		assertEquals(15, results.size());
+		Set<Map<Object, Object>> points = new HashSet<Map<Object, Object>>();
+		for (SweepResult result : results) {
+			Map<Object, Object> point = result.getPoint();
+			points.add(point);
+			int expected = (Integer) point.get("a") + (Integer) point.get("b");
+			assertEquals(expected, result.<Number> getOutput("sum").intValue());
+			assertEquals(1, result.getSummary().getSteps());
+		}
+		assertEquals(15, points.size());
+
+		sweep.close();
+		assertTrue(sweep.getExecutor().isShutdown());
+	}
+
+	@Test
+	public void testPruning() {
+		ParameterSweep sweep = new ParameterSweep(createTemplate(), 2);
+		sweep.setDomain("a", Arrays.asList(0, 1, 2, 3, 4));
+		sweep.setDomain("b", Arrays.asList(0, 10, 20));
+		sweep.setPruner(new SweepPruner() {
+
+			@Override
+			public boolean isPruned(Map<Object, Object> point) {
+				return (Integer) point.get("a") > 2;
+			}
+		});
+
+		final List<SweepResult> results = new LinkedList<SweepResult>();
+		long evaluated = sweep.run(new SweepSink() {
+
+			@Override
+			public void resultAvailable(SweepResult result) {
+				results.add(result);
+			}
+		});
+
+		assertEquals(9, evaluated);
+		assertEquals(9, results.size());
+		for (SweepResult result : results) {
+			assertTrue((Integer) result.getPoint().get("a") <= 2);
+		}
+	}
+
+	@Test
+	public void testProvidedExecutorNotShutDown() {
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		ParameterSweep sweep = new ParameterSweep(createTemplate(), executor, 1);
+		sweep.close();
+		assertFalse(executor.isShutdown());
+		executor.shutdown();
+	}
+}
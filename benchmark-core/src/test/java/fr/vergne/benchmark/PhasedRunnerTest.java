@@ -0,0 +1,90 @@
+package fr.vergne.benchmark;
+
+import static org.junit.Assert.*;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import fr.vergne.benchmark.event.BenchmarkEvent;
+import fr.vergne.benchmark.event.BenchmarkEventListener;
+import fr.vergne.benchmark.event.TaskExecutedEvent;
+import fr.vergne.benchmark.event.WarmupEvent;
+import fr.vergne.benchmark.testMaterial.SquareTask;
+import fr.vergne.benchmark.util.SteadyStateDetector;
+
+public class PhasedRunnerTest {
+
+	private final SquareTask task = new SquareTask();
+
+	private PhasedRunner createRunner() {
+		task.getInput(SquareTask.VALUE).set(3);
+		BenchmarkBuilder builder = new BenchmarkBuilder();
+		builder.add(task);
+		return new PhasedRunner(builder.createInstance(), task,
+				SquareTask.RESET);
+	}
+
+	@Test
+	public void testPhasesByCount() {
+		PhasedRunner runner = createRunner();
+		runner.setWarmup(Phase.iterations(3));
+		runner.setMeasurement(Phase.iterations(4));
+		final int[] executions = { 0, 0 };
+		runner.getSubgraph().getRunner()
+				.registerListener(new BenchmarkEventListener() {
+
+					@Override
+					public void eventGenerated(BenchmarkEvent event) {
+						if (event instanceof WarmupEvent
+								&& ((WarmupEvent) event).getEvent() instanceof TaskExecutedEvent) {
+							executions[0]++;
+						} else if (event instanceof TaskExecutedEvent) {
+							executions[1]++;
+						} else {
+							// not counted
+						}
+					}
+				});
+		PhasedReport report = runner.run();
+
+		assertEquals(3, report.getWarmupSummaries().size());
+		assertEquals(4, report.getMeasurementSummaries().size());
+		assertEquals(3, executions[0]);
+		assertEquals(4, executions[1]);
+		assertEquals(7, task.getExecutions());
+		assertEquals(4, report.getStatistics(TimeUnit.NANOSECONDS).getCount());
+		assertFalse(report.isSteadyStateReached());
+		assertFalse(runner.getSubgraph().getRunner().isWarmup());
+	}
+
+	@Test
+	public void testMeasurementByDuration() {
+		PhasedRunner runner = createRunner();
+		runner.setWarmup(Phase.iterations(0));
+		runner.setMeasurement(Phase.duration(20, TimeUnit.MILLISECONDS));
+		long start = System.nanoTime();
+		PhasedReport report = runner.run();
+		long elapsed = System.nanoTime() - start;
+
+		assertEquals(0, report.getWarmupSummaries().size());
+		assertFalse(report.getMeasurementSummaries().isEmpty());
+		assertTrue(elapsed >= TimeUnit.MILLISECONDS.toNanos(20));
+		assertEquals(report.getMeasurementSummaries().size(),
+				task.getExecutions());
+	}
+
+	@Test
+	public void testSteadyStateEndsWarmup() {
+		PhasedRunner runner = createRunner();
+		runner.setWarmup(Phase.iterations(100));
+		runner.setMeasurement(Phase.iterations(2));
+		runner.setSteadyStateDetector(new SteadyStateDetector(3,
+				Double.MAX_VALUE));
+		PhasedReport report = runner.run();
+
+		assertTrue(report.isSteadyStateReached());
+		assertEquals(3, report.getWarmupSummaries().size());
+		assertEquals(2, report.getMeasurementSummaries().size());
+	}
+}
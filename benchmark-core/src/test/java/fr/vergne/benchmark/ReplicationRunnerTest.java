@@ -0,0 +1,95 @@
+package fr.vergne.benchmark;
+
+import static org.junit.Assert.*;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.Test;
+
+import fr.vergne.benchmark.testMaterial.SquareTask;
+
+public class ReplicationRunnerTest {
+
+	private static final TaskFactory<SquareTask> SQUARE = new TaskFactory<SquareTask>() {
+
+		@Override
+		public SquareTask createTask() {
+			return new SquareTask();
+		}
+	};
+
+	@Test
+	public void testReplicasAreIndependent() {
+		BenchmarkBuilder builder = new BenchmarkBuilder();
+		SquareTask t1 = builder.add(SQUARE);
+		SquareTask t2 = builder.add(SQUARE);
+		builder.linkOutput(t1, SquareTask.VALUE, t2, SquareTask.VALUE);
+		builder.setBenchmarkInput("x", t1, SquareTask.VALUE);
+		builder.setBenchmarkOutput("y", t2, SquareTask.VALUE);
+
+		int count = 10;
+		List<Benchmark> replicas = builder.createReplicas(count);
+		assertEquals(count, replicas.size());
+		Set<Task> tasks = Collections
+				.newSetFromMap(new IdentityHashMap<Task, Boolean>());
+		for (Benchmark replica : replicas) {
+			assertEquals(2, replica.getTasks().size());
+			assertEquals(1, replica.getLinks().size());
+			tasks.addAll(replica.getTasks());
+		}
+		assertEquals(2 * count, tasks.size());
+		assertFalse(tasks.contains(t1));
+		assertFalse(tasks.contains(t2));
+	}
+
+	@Test
+	public void testRunAll() {
+		BenchmarkBuilder builder = new BenchmarkBuilder();
+		SquareTask t1 = builder.add(SQUARE);
+		SquareTask t2 = builder.add(SQUARE);
+		builder.linkOutput(t1, SquareTask.VALUE, t2, SquareTask.VALUE);
+		builder.setBenchmarkInput("x", t1, SquareTask.VALUE);
+		builder.setBenchmarkOutput("y", t2, SquareTask.VALUE);
+
+		int count = 20;
+		List<Benchmark> replicas = builder.createReplicas(count);
+		for (int i = 0; i < count; i++) {
+			replicas.get(i).setInput("x", i);
+		}
+		ReplicationRunner runner = new ReplicationRunner(4);
+		ReplicationSummary summary = runner.runAll(replicas);
+		runner.close();
+		assertTrue(runner.getExecutor().isShutdown());
+
+		assertEquals(count, summary.getRunSummaries().size());
+		assertEquals(2 * count, summary.getSteps());
+		assertFalse(summary.hasFailures());
+		assertTrue(summary.isCompleted());
+		List<Integer> outputs = summary.getOutputs("y");
+		for (int i = 0; i < count; i++) {
+			assertEquals((Integer) (i * i * i * i), outputs.get(i));
+		}
+	}
+
+	@Test
+	public void testProvidedExecutorNotShutDown() {
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		ReplicationRunner runner = new ReplicationRunner(executor);
+		runner.close();
+		assertFalse(executor.isShutdown());
+		executor.shutdown();
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testReplicaWithoutFactory() {
+		BenchmarkBuilder builder = new BenchmarkBuilder();
+		builder.add(SQUARE);
+		builder.add(new SquareTask());
+		builder.createReplicas(2);
+	}
+}
@@ -0,0 +1,175 @@
+package fr.vergne.benchmark.event.impl;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.NotSerializableException;
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+
+import org.junit.Test;
+
+import fr.vergne.benchmark.Benchmark;
+import fr.vergne.benchmark.BenchmarkBuilder;
+import fr.vergne.benchmark.BenchmarkRunner;
+import fr.vergne.benchmark.Task;
+import fr.vergne.benchmark.event.BenchmarkEvent;
+import fr.vergne.benchmark.event.BenchmarkEventListener;
+import fr.vergne.benchmark.event.TaskExecutedEvent;
+import fr.vergne.benchmark.testMaterial.SquareTask;
+import fr.vergne.benchmark.util.task.IdentityTask;
+
+public class CheckpointListenerTest {
+
+	private final List<IdentityTask<Integer>> tasks = new LinkedList<IdentityTask<Integer>>();
+	private SquareTask square;
+
+	private Benchmark createBenchmark() {
+		tasks.clear();
+		Object id = IdentityTask.CONTENT;
+		BenchmarkBuilder builder = new BenchmarkBuilder();
+		IdentityTask<Integer> previous = null;
+		for (int i = 0; i < 3; i++) {
+			IdentityTask<Integer> task = new IdentityTask<Integer>();
+			builder.add(task);
+			if (previous == null) {
+				builder.setBenchmarkInput("in", task, id);
+			} else {
+				builder.linkOutput(previous, id, task, id);
+			}
+			tasks.add(task);
+			previous = task;
+		}
+		square = new SquareTask();
+		builder.add(square);
+		builder.linkOutput(previous, id, square, SquareTask.VALUE);
+		Benchmark benchmark = builder.createInstance();
+		benchmark.setInput("in", 42);
+		return benchmark;
+	}
+
+	private List<Task> runAll(Benchmark benchmark, CheckpointListener checkpoint)
+			throws IOException {
+		final List<Task> executed = new LinkedList<Task>();
+		BenchmarkRunner runner = new BenchmarkRunner(benchmark);
+		runner.registerListener(checkpoint);
+		runner.registerListener(new BenchmarkEventListener() {
+
+			@Override
+			public void eventGenerated(BenchmarkEvent event) {
+				if (event instanceof TaskExecutedEvent) {
+					executed.add(((TaskExecutedEvent) event).getTask());
+				} else {
+					// not counted
+				}
+			}
+		});
+		runner.runAll();
+		checkpoint.close();
+		return executed;
+	}
+
+	@Test
+	public void testResume() throws IOException {
+		File file = File.createTempFile("checkpoint", ".bin");
+		file.deleteOnExit();
+
+		BenchmarkRunner runner = new BenchmarkRunner(createBenchmark());
+		CheckpointListener checkpoint = new CheckpointListener(
+				runner.getBenchmark(), file);
+		runner.registerListener(checkpoint);
+		runner.runSteps(2);
+		checkpoint.close();
+
+		Benchmark benchmark = createBenchmark();
+		List<Task> executed = runAll(benchmark,
+				CheckpointListener.resume(benchmark, file));
+		assertEquals(Arrays.asList(tasks.get(2), square), executed);
+		assertEquals(42, (int) tasks.get(2).getOutput(IdentityTask.CONTENT)
+				.<Integer> get());
+
+		benchmark = createBenchmark();
+		executed = runAll(benchmark, CheckpointListener.resume(benchmark, file));
+		assertTrue(executed.isEmpty());
+		assertEquals(0, square.getExecutions());
+		assertEquals(1764, (int) square.getOutput(SquareTask.VALUE)
+				.<Integer> get());
+	}
+
+	@Test
+	public void testIncompleteGroupIgnored() throws IOException {
+		File file = File.createTempFile("checkpoint", ".bin");
+		file.deleteOnExit();
+
+		BenchmarkRunner runner = new BenchmarkRunner(createBenchmark());
+		CheckpointListener checkpoint = new CheckpointListener(
+				runner.getBenchmark(), file);
+		runner.registerListener(checkpoint);
+		runner.runSteps(1);
+		checkpoint.close();
+		long length = file.length();
+
+		FileOutputStream output = new FileOutputStream(file, true);
+		output.write(new byte[] { 0, 0, 1, 0, 1, 2, 3 });
+		output.close();
+
+		assertEquals(length,
+				CheckpointListener.restore(createBenchmark(), file));
+		Benchmark benchmark = createBenchmark();
+		List<Task> executed = runAll(benchmark,
+				CheckpointListener.resume(benchmark, file));
+		assertEquals(3, executed.size());
+	}
+
+	@Test
+	public void testDifferentStructureRefused() throws IOException {
+		File file = File.createTempFile("checkpoint", ".bin");
+		file.deleteOnExit();
+		Benchmark saved = createBenchmark();
+		runAll(saved, new CheckpointListener(saved, file));
+
+		Object id = IdentityTask.CONTENT;
+		IdentityTask<Integer> t1 = new IdentityTask<Integer>();
+		IdentityTask<Integer> t2 = new IdentityTask<Integer>();
+		IdentityTask<Integer> t3 = new IdentityTask<Integer>();
+		BenchmarkBuilder builder = new BenchmarkBuilder();
+		builder.addAll(t1, t2, t3);
+		builder.setBenchmarkInput("in", t1, id);
+		builder.linkOutput(t1, id, t2, id);
+		builder.linkOutput(t1, id, t3, id);
+		try {
+			CheckpointListener.restore(builder.createInstance(), file);
+			fail("Different benchmark restored");
+		} catch (IOException e) {
+			// refused as expected
+		}
+	}
+
+	@Test
+	public void testFailureReportedOnClose() throws IOException {
+		File file = File.createTempFile("checkpoint", ".bin");
+		file.deleteOnExit();
+		Object id = IdentityTask.CONTENT;
+		IdentityTask<Object> t1 = new IdentityTask<Object>();
+		IdentityTask<Object> t2 = new IdentityTask<Object>();
+		BenchmarkBuilder builder = new BenchmarkBuilder();
+		builder.addAll(t1, t2);
+		builder.setBenchmarkInput("in", t1, id);
+		builder.linkOutput(t1, id, t2, id);
+		Benchmark benchmark = builder.createInstance();
+		benchmark.setInput("in", new Object());
+
+		CheckpointListener checkpoint = new CheckpointListener(benchmark,
+				file);
+		try {
+			List<Task> executed = runAll(benchmark, checkpoint);
+			fail("Failure not reported, executed: " + executed);
+		} catch (NotSerializableException e) {
+			// reported as expected
+		}
+		assertNotNull(t2.getOutput(id).get());
+	}
+}
@@ -0,0 +1,69 @@
+package fr.vergne.benchmark.event.impl;
+
+import static org.junit.Assert.*;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import fr.vergne.benchmark.BenchmarkBuilder;
+import fr.vergne.benchmark.BenchmarkRunner;
+import fr.vergne.benchmark.event.TaskExecutedEvent;
+import fr.vergne.benchmark.event.WarmupEvent;
+import fr.vergne.benchmark.testMaterial.SquareTask;
+
+public class TimingListenerTest {
+
+	@Test
+	public void testRecordsExecutions() {
+		SquareTask task = new SquareTask();
+		task.getInput(SquareTask.VALUE).set(3);
+		BenchmarkBuilder builder = new BenchmarkBuilder();
+		builder.add(task);
+		BenchmarkRunner runner = new BenchmarkRunner(builder.createInstance());
+		TimingListener listener = new TimingListener();
+		runner.registerListener(listener);
+		for (int i = 0; i < 10; i++) {
+			task.getInput(SquareTask.RESET).set(Collections.emptyList());
+			runner.runAll();
+		}
+
+		assertEquals(1, listener.getTasks().size());
+		assertEquals(10, listener.getHistogram(task).getCount());
+		assertTrue(listener.getPercentile(task, 100, TimeUnit.NANOSECONDS) > 0);
+	}
+
+	@Test
+	public void testWarmupExclusion() {
+		SquareTask task = new SquareTask();
+		TimingListener listener = new TimingListener();
+		listener.eventGenerated(new WarmupEvent(new TaskExecutedEvent(task,
+				5, TimeUnit.MICROSECONDS)));
+		assertEquals(0, listener.getHistogram(task).getCount());
+
+		listener.setWarmupIncluded(true);
+		listener.eventGenerated(new WarmupEvent(new TaskExecutedEvent(task,
+				5, TimeUnit.MICROSECONDS)));
+		assertEquals(1, listener.getHistogram(task).getCount());
+		assertEquals(5000, listener.getPercentile(task, 50,
+				TimeUnit.NANOSECONDS), 5000 / 128);
+	}
+
+	@Test
+	public void testMerge() {
+		SquareTask task = new SquareTask();
+		TimingListener l1 = new TimingListener();
+		TimingListener l2 = new TimingListener();
+		for (int i = 0; i < 10; i++) {
+			l1.eventGenerated(new TaskExecutedEvent(task, 1,
+					TimeUnit.MICROSECONDS));
+			l2.eventGenerated(new TaskExecutedEvent(task, 1,
+					TimeUnit.MILLISECONDS));
+		}
+		l1.add(l2);
+		assertEquals(20, l1.getHistogram(task).getCount());
+		assertEquals(1, l1.getPercentile(task, 100, TimeUnit.MILLISECONDS));
+		assertEquals(10, l2.getHistogram(task).getCount());
+	}
+}
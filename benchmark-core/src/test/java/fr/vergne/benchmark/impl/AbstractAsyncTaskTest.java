@@ -0,0 +1,157 @@
+package fr.vergne.benchmark.impl;
+
+import static org.junit.Assert.*;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import fr.vergne.benchmark.BenchmarkBuilder;
+import fr.vergne.benchmark.BenchmarkRunner;
+import fr.vergne.benchmark.InputSetter;
+import fr.vergne.benchmark.NoTaskToRunException;
+import fr.vergne.benchmark.OutputGetter;
+import fr.vergne.benchmark.ParallelBenchmarkRunner;
+import fr.vergne.benchmark.RunSummary;
+
+public class AbstractAsyncTaskTest {
+
+	@Test
+	public void testBlockingExecution() throws NoTaskToRunException {
+		AsyncCopyTask t1 = new AsyncCopyTask(new CountDownLatch(0));
+		AsyncCopyTask t2 = new AsyncCopyTask(new CountDownLatch(0));
+		t1.getInput(AsyncCopyTask.INPUT).set(3);
+
+		BenchmarkBuilder builder = new BenchmarkBuilder();
+		builder.addAll(t1, t2);
+		builder.linkOutput(t1, AsyncCopyTask.OUTPUT, t2, AsyncCopyTask.INPUT);
+
+		BenchmarkRunner runner = new BenchmarkRunner();
+		runner.setBenchmark(builder.createInstance());
+		runner.run();
+		runner.run();
+
+		assertEquals(3, t2.getOutput(AsyncCopyTask.OUTPUT).get());
+		assertFalse(t1.shouldBeExecuted());
+		assertFalse(t2.shouldBeExecuted());
+	}
+
+	@Test
+	public void testNonBlockingExecution() {
+		int count = 5;
+		CountDownLatch started = new CountDownLatch(count);
+		BenchmarkBuilder builder = new BenchmarkBuilder();
+		AsyncCopyTask last = new AsyncCopyTask(new CountDownLatch(0));
+		builder.add(last);
+		for (int i = 0; i < count; i++) {
+			AsyncCopyTask task = new AsyncCopyTask(started);
+			task.getInput(AsyncCopyTask.INPUT).set(i);
+			builder.add(task);
+			builder.linkOutput(task, AsyncCopyTask.OUTPUT, last,
+					AsyncCopyTask.INPUT);
+		}
+
+		// a single thread, so the tasks could not wait for each other
+		ParallelBenchmarkRunner runner = new ParallelBenchmarkRunner(1);
+		runner.setBenchmark(builder.createInstance());
+		RunSummary summary = runner.runAll();
+
+		assertFalse(summary.hasFailures());
+		assertEquals(count + 1, summary.getSteps());
+		assertNotNull(last.getOutput(AsyncCopyTask.OUTPUT).get());
+	}
+
+	@Test
+	public void testFailure() {
+		AsyncCopyTask task = new AsyncCopyTask(new CountDownLatch(0));
+		task.getInput(AsyncCopyTask.INPUT).set(null);
+
+		ParallelBenchmarkRunner runner = new ParallelBenchmarkRunner(1);
+		runner.setBenchmark(new BenchmarkBuilder().add(task).createInstance());
+		RunSummary summary = runner.runAll();
+
+		assertEquals(1, summary.getFailures().size());
+		assertTrue(summary.getFailures().get(0).getCause() instanceof NullPointerException);
+		assertTrue(task.shouldBeExecuted());
+	}
+
+	/**
+	 * Copy its input to its output from another thread, once all the
+	 * {@link AsyncCopyTask}s sharing the same latch have been started.
+	 */
+	private static class AsyncCopyTask extends AbstractAsyncTask {
+
+		public static final Object INPUT = "input";
+		public static final Object OUTPUT = "output";
+		private final CountDownLatch started;
+		private Integer input = null;
+		private Integer output = null;
+
+		public AsyncCopyTask(CountDownLatch started) {
+			this.started = started;
+		}
+
+		@Override
+		protected Object getResetInputId() {
+			return null;
+		}
+
+		@Override
+		protected Map<Object, InputSetter<?>> getInputs() {
+			Map<Object, InputSetter<?>> inputs = new HashMap<Object, InputSetter<?>>();
+			inputs.put(INPUT, new InputSetter<Integer>() {
+
+				@Override
+				public void set(Integer value) {
+					input = value;
+				}
+			});
+			return inputs;
+		}
+
+		@Override
+		protected Map<Object, OutputGetter<?>> getOutputs() {
+			return Collections.<Object, OutputGetter<?>> singletonMap(OUTPUT,
+					new OutputGetter<Integer>() {
+
+						@Override
+						public Integer get() {
+							return output;
+						}
+
+						@Override
+						public boolean isSet() {
+							return output != null;
+						}
+					});
+		}
+
+		@Override
+		protected void doExecuteAsync(final Callback callback) {
+			started.countDown();
+			new Thread(new Runnable() {
+
+				@Override
+				public void run() {
+					try {
+						if (!started.await(5, TimeUnit.SECONDS)) {
+							callback.failed(new IllegalStateException(
+									"Not all the tasks have been started"));
+						} else if (input == null) {
+							callback.failed(new NullPointerException());
+						} else {
+							output = input;
+							callback.succeeded();
+						}
+					} catch (InterruptedException e) {
+						callback.failed(e);
+					}
+				}
+			}).start();
+		}
+	}
+}
@@ -0,0 +1,78 @@
+package fr.vergne.benchmark.impl;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+import fr.vergne.benchmark.BenchmarkBuilder;
+import fr.vergne.benchmark.BenchmarkRunner;
+import fr.vergne.benchmark.RunSummary;
+
+public class AbstractBatchTaskTest {
+
+	@Test
+	public void testBatchChain() {
+		int size = 1000;
+		List<Integer> values = new ArrayList<Integer>();
+		for (int i = 0; i < size; i++) {
+			values.add(i);
+		}
+		AdditionBatchTask t1 = new AdditionBatchTask();
+		t1.getInput(AdditionBatchTask.A).set(values);
+		t1.getInput(AdditionBatchTask.B).set(values);
+		AdditionBatchTask t2 = new AdditionBatchTask();
+		t2.getInput(AdditionBatchTask.B).set(Collections.nCopies(size, 1));
+
+		BenchmarkBuilder builder = new BenchmarkBuilder();
+		builder.addAll(t1, t2);
+		builder.linkOutput(t1, AdditionBatchTask.SUM, t2, AdditionBatchTask.A);
+		RunSummary summary = new BenchmarkRunner(builder.createInstance())
+				.runAll();
+
+		assertEquals(2, summary.getSteps());
+		List<?> results = (List<?>) t2.getOutput(AdditionBatchTask.SUM).get();
+		assertEquals(size, results.size());
+		for (int i = 0; i < size; i++) {
+			assertEquals(2 * i + 1, results.get(i));
+		}
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testInconsistentBatchSizes() {
+		AdditionBatchTask task = new AdditionBatchTask();
+		task.getInput(AdditionBatchTask.A).set(Arrays.asList(1, 2));
+		task.getInput(AdditionBatchTask.B).set(Arrays.asList(1));
+		task.execute();
+	}
+
+	@SuppressWarnings("serial")
+	private static class AdditionBatchTask extends AbstractBatchTask {
+
+		public static final String A = "a";
+		public static final String B = "b";
+		public static final String SUM = "sum";
+
+		public AdditionBatchTask() {
+			super(Arrays.asList(A, B), Arrays.asList(SUM));
+		}
+
+		@Override
+		protected List<Map<Object, Object>> executeBatch(
+				List<Map<Object, Object>> tuples) {
+			List<Map<Object, Object>> results = new ArrayList<Map<Object, Object>>();
+			for (Map<Object, Object> tuple : tuples) {
+				Map<Object, Object> result = new HashMap<Object, Object>();
+				result.put(SUM, (Integer) tuple.get(A) + (Integer) tuple.get(B));
+				results.add(result);
+			}
+			return results;
+		}
+	}
+}
@@ -0,0 +1,160 @@
+package fr.vergne.benchmark.impl;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import fr.vergne.benchmark.BenchmarkBuilder;
+import fr.vergne.benchmark.BenchmarkRunner;
+import fr.vergne.benchmark.Task;
+import fr.vergne.benchmark.event.BenchmarkEvent;
+import fr.vergne.benchmark.event.BenchmarkEventListener;
+import fr.vergne.benchmark.event.TaskSelectedEvent;
+import fr.vergne.benchmark.testMaterial.LinearTask;
+
+public class CriticalPathPolicyTest {
+
+	@Test
+	public void testPriorities() {
+		LinearTask a = new LinearTask();
+		LinearTask b = new LinearTask();
+		LinearTask c = new LinearTask();
+		LinearTask d = new LinearTask();
+		String id = LinearTask.IN_OUT_ID;
+
+		BenchmarkBuilder builder = new BenchmarkBuilder();
+		builder.addAll(a, b, c, d);
+		builder.linkOutput(a, id, b, id);
+		builder.linkOutput(b, id, c, id);
+		CriticalPathPolicy policy = new CriticalPathPolicy(builder.createPlan());
+		for (Task task : Arrays.asList(a, b, c, d)) {
+			policy.setDuration(task, 10, TimeUnit.MILLISECONDS);
+		}
+
+		assertEquals(TimeUnit.MILLISECONDS.toNanos(30), policy.getPriority(a),
+				0);
+		assertEquals(TimeUnit.MILLISECONDS.toNanos(20), policy.getPriority(b),
+				0);
+		assertEquals(TimeUnit.MILLISECONDS.toNanos(10), policy.getPriority(c),
+				0);
+		assertEquals(TimeUnit.MILLISECONDS.toNanos(10), policy.getPriority(d),
+				0);
+
+		policy.notifyExecution(d, 90, TimeUnit.MILLISECONDS);
+		assertEquals(50, policy.getDuration(d, TimeUnit.MILLISECONDS));
+		assertTrue(policy.getPriority(d) > policy.getPriority(a));
+	}
+
+	@Test
+	public void testTolerance() {
+		LinearTask a = new LinearTask();
+		LinearTask b = new LinearTask();
+		CriticalPathPolicy policy = new CriticalPathPolicy(
+				new BenchmarkBuilder().addAll(a, b).createPlan());
+		policy.setDuration(a, 100, TimeUnit.MILLISECONDS);
+		policy.setDuration(b, 100, TimeUnit.MILLISECONDS);
+		double priority = policy.getPriority(a);
+
+		policy.notifyExecution(a, 110, TimeUnit.MILLISECONDS);
+		assertEquals(105, policy.getDuration(a, TimeUnit.MILLISECONDS));
+		assertEquals(priority, policy.getPriority(a), 0);
+
+		policy.notifyExecution(a, 160, TimeUnit.MILLISECONDS);
+		assertEquals(TimeUnit.MILLISECONDS.toNanos(123), policy.getPriority(a),
+				TimeUnit.MILLISECONDS.toNanos(1));
+
+		policy.setTolerance(0);
+		policy.notifyExecution(a, 127, TimeUnit.MILLISECONDS);
+		assertEquals(TimeUnit.MILLISECONDS.toNanos(124), policy.getPriority(a),
+				TimeUnit.MILLISECONDS.toNanos(1));
+	}
+
+	@Test
+	public void testFirstMeasureWithinTolerance() {
+		LinearTask a = new LinearTask();
+		LinearTask b = new LinearTask();
+		LinearTask c = new LinearTask();
+		String id = LinearTask.IN_OUT_ID;
+		BenchmarkBuilder builder = new BenchmarkBuilder();
+		builder.addAll(a, b, c);
+		builder.linkOutput(a, id, b, id);
+		CriticalPathPolicy policy = new CriticalPathPolicy(builder.createPlan());
+
+		policy.notifyExecution(a, 100, TimeUnit.MILLISECONDS);
+		assertEquals(TimeUnit.MILLISECONDS.toNanos(200), policy.getPriority(a),
+				0);
+
+		policy.notifyExecution(b, 104, TimeUnit.MILLISECONDS);
+		assertEquals(TimeUnit.MILLISECONDS.toNanos(200), policy.getPriority(a),
+				0);
+		assertEquals(TimeUnit.MILLISECONDS.toNanos(100), policy.getPriority(c),
+				0);
+
+		policy.notifyExecution(b, 200, TimeUnit.MILLISECONDS);
+		assertEquals(TimeUnit.MILLISECONDS.toNanos(252), policy.getPriority(a),
+				0);
+		assertEquals(TimeUnit.MILLISECONDS.toNanos(126), policy.getPriority(c),
+				0);
+	}
+
+	@Test
+	public void testEstimatedDuration() {
+		LinearTask a = new LinearTask();
+		LinearTask b = new LinearTask();
+		CriticalPathPolicy policy = new CriticalPathPolicy(
+				new BenchmarkBuilder().addAll(a, b).createPlan());
+
+		policy.notifyExecution(a, 10, TimeUnit.MILLISECONDS);
+		policy.notifyExecution(a, 20, TimeUnit.MILLISECONDS);
+		assertEquals(15, policy.getDuration(a, TimeUnit.MILLISECONDS));
+		assertEquals(15, policy.getDuration(b, TimeUnit.MILLISECONDS));
+	}
+
+	@Test
+	public void testSelectionOrder() {
+		LinearTask a = new LinearTask();
+		LinearTask b = new LinearTask();
+		LinearTask c = new LinearTask();
+		LinearTask d = new LinearTask();
+		LinearTask e = new LinearTask();
+		String id = LinearTask.IN_OUT_ID;
+		a.getInput(id).set(1);
+		d.getInput(id).set(2);
+		e.getInput(id).set(3);
+
+		BenchmarkBuilder builder = new BenchmarkBuilder();
+		builder.addAll(d, e, a, b, c);
+		builder.linkOutput(a, id, b, id);
+		builder.linkOutput(b, id, c, id);
+
+		CriticalPathPolicy policy = new CriticalPathPolicy(builder.createPlan());
+		for (Task task : Arrays.asList(a, b, d, e)) {
+			policy.setDuration(task, 1, TimeUnit.MILLISECONDS);
+		}
+		policy.setDuration(c, 2, TimeUnit.MILLISECONDS);
+
+		final List<Task> selected = new LinkedList<Task>();
+		BenchmarkRunner runner = new BenchmarkRunner();
+		runner.setSelectionPolicy(policy);
+		runner.setBenchmark(builder.createInstance());
+		runner.registerListener(new BenchmarkEventListener() {
+
+			@Override
+			public void eventGenerated(BenchmarkEvent event) {
+				if (event instanceof TaskSelectedEvent) {
+					selected.add(((TaskSelectedEvent) event).getTask());
+				} else {
+					// irrelevant event
+				}
+			}
+		});
+		runner.runAll();
+
+		assertEquals(Arrays.asList(a, b, c, d, e), selected);
+	}
+}
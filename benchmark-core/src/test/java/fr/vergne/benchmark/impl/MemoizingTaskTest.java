@@ -0,0 +1,58 @@
+package fr.vergne.benchmark.impl;
+
+import static org.junit.Assert.*;
+
+import java.util.Collections;
+
+import org.junit.Test;
+
+import fr.vergne.benchmark.testMaterial.SquareTask;
+import fr.vergne.benchmark.util.MemoizationCache;
+
+public class MemoizingTaskTest {
+
+	@Test
+	public void testReplayedOutputs() {
+		SquareTask square = new SquareTask();
+		MemoizationCache cache = new MemoizationCache(10);
+		MemoizingTask task = new MemoizingTask(square, cache);
+
+		task.getInput(SquareTask.VALUE).set(3);
+		assertTrue(task.shouldBeExecuted());
+		task.execute();
+		assertFalse(task.shouldBeExecuted());
+		assertEquals(9, task.getOutput(SquareTask.VALUE).get());
+		assertEquals(1, square.getExecutions());
+
+		task.getInput(SquareTask.RESET).set(Collections.emptyList());
+		task.getInput(SquareTask.VALUE).set(4);
+		task.execute();
+		assertEquals(16, task.getOutput(SquareTask.VALUE).get());
+		assertEquals(2, square.getExecutions());
+
+		task.getInput(SquareTask.RESET).set(Collections.emptyList());
+		task.getInput(SquareTask.VALUE).set(3);
+		assertTrue(task.shouldBeExecuted());
+		task.execute();
+		assertFalse(task.shouldBeExecuted());
+		assertEquals(9, task.getOutput(SquareTask.VALUE).get());
+		assertEquals(2, square.getExecutions());
+		assertEquals(1, cache.getHits());
+	}
+
+	@Test
+	public void testLeastRecentlyUsedEviction() {
+		SquareTask square = new SquareTask();
+		MemoizationCache cache = new MemoizationCache(2);
+		MemoizingTask task = new MemoizingTask(square, cache);
+
+		for (int value : new int[] { 1, 2, 1, 3, 1, 2 }) {
+			task.getInput(SquareTask.RESET).set(Collections.emptyList());
+			task.getInput(SquareTask.VALUE).set(value);
+			task.execute();
+			assertEquals(value * value, task.getOutput(SquareTask.VALUE).get());
+		}
+		assertEquals(2, cache.size());
+		assertEquals(4, square.getExecutions());
+	}
+}
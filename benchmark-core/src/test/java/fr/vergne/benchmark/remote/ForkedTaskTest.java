@@ -0,0 +1,69 @@
+package fr.vergne.benchmark.remote;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import fr.vergne.benchmark.BenchmarkBuilder;
+import fr.vergne.benchmark.BenchmarkRunner;
+import fr.vergne.benchmark.RunSummary;
+import fr.vergne.benchmark.testMaterial.ProcessNameTask;
+
+public class ForkedTaskTest {
+
+	private static final String VALUE = ProcessNameTask.VALUE;
+	private static final String PROCESS = ProcessNameTask.PROCESS;
+
+	@Test
+	public void testFreshJvm() {
+		ForkedTask t1 = new ForkedTask(new ProcessNameTask(),
+				Arrays.asList("-Xmx64m"));
+		ForkedTask t2 = new ForkedTask(new ProcessNameTask(),
+				Arrays.asList("-Xmx64m"));
+		BenchmarkBuilder builder = new BenchmarkBuilder();
+		builder.addAll(t1, t2);
+		builder.linkOutput(t1, VALUE, t2, VALUE);
+		t1.getInput(VALUE).set(1);
+
+		assertNull(t1.getExecutionTime(TimeUnit.NANOSECONDS));
+		BenchmarkRunner runner = new BenchmarkRunner();
+		runner.setBenchmark(builder.createInstance());
+		RunSummary summary = runner.runAll();
+
+		assertEquals(2, summary.getSteps());
+		assertFalse(summary.hasFailures());
+		assertEquals(3, t2.getOutput(VALUE).get());
+		String p1 = t1.<String> getOutput(PROCESS).get();
+		String p2 = t2.<String> getOutput(PROCESS).get();
+		assertFalse(p1.equals(p2));
+		assertFalse(p1.equals(ProcessNameTask.getCurrentProcess()));
+
+		// the JVM startups are not part of the execution time
+		long time1 = t1.getExecutionTime(TimeUnit.NANOSECONDS);
+		long time2 = t2.getExecutionTime(TimeUnit.NANOSECONDS);
+		assertEquals(time1 + time2,
+				summary.getExecutionTime(TimeUnit.NANOSECONDS));
+		assertTrue(summary.getExecutionTime(TimeUnit.NANOSECONDS) < summary
+				.getElapsedTime(TimeUnit.NANOSECONDS));
+	}
+
+	@Test
+	public void testIterations() {
+		ForkedTask task = new ForkedTask(new ProcessNameTask(),
+				Arrays.asList("-Xmx64m"));
+		task.setIterations(2, 3);
+		task.getInput(VALUE).set(1);
+
+		BenchmarkRunner runner = new BenchmarkRunner();
+		runner.setBenchmark(new BenchmarkBuilder().add(task).createInstance());
+		RunSummary summary = runner.runAll();
+
+		assertEquals(1, summary.getSteps());
+		assertFalse(summary.hasFailures());
+		assertEquals(2, task.getOutput(VALUE).get());
+		assertEquals(5, task.getOutput(ProcessNameTask.EXECUTIONS).get());
+	}
+}
@@ -0,0 +1,122 @@
+package fr.vergne.benchmark.remote;
+
+import static org.junit.Assert.*;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.Collections;
+
+import org.junit.Test;
+
+import fr.vergne.benchmark.BenchmarkBuilder;
+import fr.vergne.benchmark.BenchmarkRunner;
+import fr.vergne.benchmark.NoTaskToRunException;
+import fr.vergne.benchmark.ParallelBenchmarkRunner;
+import fr.vergne.benchmark.RunSummary;
+import fr.vergne.benchmark.testMaterial.ProcessNameTask;
+
+public class RemoteTaskTest {
+
+	private static final String VALUE = ProcessNameTask.VALUE;
+	private static final String PROCESS = ProcessNameTask.PROCESS;
+
+	@Test
+	public void testSocketWorker() throws IOException, InterruptedException,
+			NoTaskToRunException {
+		final ServerSocket server = new ServerSocket(0, 2,
+				InetAddress.getLoopbackAddress());
+		final WorkerPool pool = new WorkerPool();
+		Thread thread = new Thread(new Runnable() {
+
+			@Override
+			public void run() {
+				try {
+					Worker.connect("localhost", server.getLocalPort(),
+							pool.getToken());
+				} catch (IOException e) {
+					throw new RuntimeException(e);
+				}
+			}
+		});
+		Socket intruder = new Socket("localhost", server.getLocalPort());
+		new DataOutputStream(intruder.getOutputStream()).writeUTF("wrong");
+		thread.start();
+		pool.acceptWorkers(server, 1);
+		server.close();
+		assertEquals(1, pool.size());
+		assertEquals(-1, intruder.getInputStream().read());
+		intruder.close();
+
+		ProcessNameTask original = new ProcessNameTask();
+		RemoteTask t1 = new RemoteTask(original, pool);
+		RemoteTask t2 = new RemoteTask(new ProcessNameTask(), pool);
+		BenchmarkBuilder builder = new BenchmarkBuilder();
+		builder.addAll(t1, t2);
+		builder.linkOutput(t1, VALUE, t2, VALUE);
+		t1.getInput(VALUE).set(3);
+
+		BenchmarkRunner runner = new BenchmarkRunner();
+		runner.setBenchmark(builder.createInstance());
+		RunSummary summary = runner.runAll();
+		pool.close();
+		thread.join(5000);
+
+		assertEquals(2, summary.getSteps());
+		assertFalse(summary.hasFailures());
+		assertEquals(5, t2.getOutput(VALUE).get());
+		assertFalse(t1.shouldBeExecuted());
+		assertNotSame(original, t1.getDelegate());
+		assertNull(original.getOutput(VALUE).get());
+		assertFalse(thread.isAlive());
+	}
+
+	@Test
+	public void testLocalProcesses() throws IOException {
+		WorkerPool pool = new WorkerPool();
+		pool.startLocalWorkers(2, Collections.<String> emptyList());
+		assertEquals(2, pool.size());
+
+		BenchmarkBuilder builder = new BenchmarkBuilder();
+		RemoteTask[] tasks = new RemoteTask[4];
+		for (int i = 0; i < tasks.length; i++) {
+			tasks[i] = new RemoteTask(new ProcessNameTask(), pool);
+			tasks[i].getInput(VALUE).set(i);
+			builder.add(tasks[i]);
+		}
+		ParallelBenchmarkRunner runner = new ParallelBenchmarkRunner(2);
+		runner.setBenchmark(builder.createInstance());
+		RunSummary summary = runner.runAll();
+		pool.close();
+
+		assertEquals(4, summary.getSteps());
+		assertFalse(summary.hasFailures());
+		for (int i = 0; i < tasks.length; i++) {
+			assertEquals(i + 1, tasks[i].getOutput(VALUE).get());
+			String process = tasks[i].<String> getOutput(PROCESS).get();
+			assertNotNull(process);
+			assertFalse(process.equals(ProcessNameTask.getCurrentProcess()));
+		}
+	}
+
+	@Test
+	public void testRemoteFailure() throws IOException {
+		WorkerPool pool = new WorkerPool();
+		pool.startLocalWorkers(1, Collections.<String> emptyList());
+		RemoteTask task = new RemoteTask(new ProcessNameTask(), pool);
+		task.getInput(VALUE).set(null);
+
+		BenchmarkRunner runner = new BenchmarkRunner();
+		runner.setBenchmark(new BenchmarkBuilder().add(task).createInstance());
+		RunSummary summary = runner.runAll();
+		pool.close();
+
+		assertEquals(1, summary.getFailures().size());
+		Exception cause = summary.getFailures().get(0).getCause();
+		assertTrue(cause instanceof RemoteExecutionException);
+		assertTrue(cause.getCause() instanceof IllegalArgumentException);
+		assertTrue(task.shouldBeExecuted());
+	}
+}
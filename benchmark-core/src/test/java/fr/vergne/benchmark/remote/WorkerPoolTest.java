@@ -0,0 +1,71 @@
+package fr.vergne.benchmark.remote;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Test;
+
+public class WorkerPoolTest {
+
+	private WorkerConnection createConnection() throws IOException {
+		ByteArrayOutputStream header = new ByteArrayOutputStream();
+		new ObjectOutputStream(header).close();
+		return new WorkerConnection(new ByteArrayInputStream(
+				header.toByteArray()), new ByteArrayOutputStream(), null);
+	}
+
+	@Test
+	public void testAcquireRelease() throws IOException {
+		WorkerPool pool = new WorkerPool();
+		WorkerConnection connection = createConnection();
+		pool.addWorker(connection);
+		assertSame(connection, pool.acquire());
+		pool.release(connection);
+		assertSame(connection, pool.acquire());
+	}
+
+	@Test
+	public void testNoWorker() {
+		try {
+			new WorkerPool().acquire();
+			fail("No exception thrown");
+		} catch (IllegalStateException e) {
+			// thrown as expected
+		}
+	}
+
+	@Test(timeout = 5000)
+	public void testLastWorkerDiscardedWhileWaiting() throws IOException,
+			InterruptedException {
+		final WorkerPool pool = new WorkerPool();
+		WorkerConnection connection = createConnection();
+		pool.addWorker(connection);
+		assertSame(connection, pool.acquire());
+
+		final AtomicReference<Throwable> thrown = new AtomicReference<Throwable>();
+		Thread waiter = new Thread(new Runnable() {
+
+			@Override
+			public void run() {
+				try {
+					pool.acquire();
+				} catch (IllegalStateException e) {
+					thrown.set(e);
+				}
+			}
+		});
+		waiter.start();
+		Thread.sleep(100);
+		assertTrue(waiter.isAlive());
+
+		pool.discard(connection);
+		waiter.join();
+		assertTrue(thrown.get() instanceof IllegalStateException);
+		assertEquals(0, pool.size());
+	}
+}
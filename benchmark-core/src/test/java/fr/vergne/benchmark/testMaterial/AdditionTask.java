@@ -30,7 +30,7 @@ public class AdditionTask implements Task {
 			@Override
 			public void set(Number input) {
 				Number old = inputs.put(id, input);
-				areInputsChanged = !(old == null && old == input || old != null
+				areInputsChanged |= !(old == null && old == input || old != null
 						&& old.equals(input));
 			}
 		};
@@ -0,0 +1,41 @@
+package fr.vergne.benchmark.testMaterial;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import fr.vergne.benchmark.InputSetter;
+import fr.vergne.benchmark.OutputGetter;
+import fr.vergne.benchmark.impl.AbstractProducerTask;
+import fr.vergne.benchmark.util.Pipe;
+
+@SuppressWarnings("serial")
+public class CountingProducerTask extends AbstractProducerTask<Integer> {
+
+	private final int count;
+
+	public CountingProducerTask(int count) {
+		this.count = count;
+	}
+
+	@Override
+	protected Map<Object, InputSetter<?>> getInputs() {
+		return new HashMap<Object, InputSetter<?>>();
+	}
+
+	@Override
+	protected Object getResetInputId() {
+		return null;
+	}
+
+	@Override
+	protected Map<Object, OutputGetter<?>> getOutputs() {
+		return new HashMap<Object, OutputGetter<?>>();
+	}
+
+	@Override
+	protected void produce(Pipe<Integer> pipe) {
+		for (int i = 1; i <= count; i++) {
+			pipe.put(i);
+		}
+	}
+}
@@ -0,0 +1,98 @@
+package fr.vergne.benchmark.testMaterial;
+
+import java.lang.management.ManagementFactory;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import fr.vergne.benchmark.InputSetter;
+import fr.vergne.benchmark.OutputGetter;
+import fr.vergne.benchmark.impl.AbstractSimpleTask;
+
+@SuppressWarnings("serial")
+public class ProcessNameTask extends AbstractSimpleTask {
+
+	public static final String VALUE = "value";
+	public static final String PROCESS = "process";
+	public static final String EXECUTIONS = "executions";
+	private static final AtomicInteger processExecutions = new AtomicInteger();
+	private Integer input = null;
+	private Integer output = null;
+	private String process = null;
+	private Integer executions = null;
+
+	public static String getCurrentProcess() {
+		return ManagementFactory.getRuntimeMXBean().getName();
+	}
+
+	@Override
+	protected Map<Object, InputSetter<?>> getInputs() {
+		Map<Object, InputSetter<?>> inputs = new HashMap<Object, InputSetter<?>>();
+		inputs.put(VALUE, new InputSetter<Integer>() {
+
+			@Override
+			public void set(Integer value) {
+				input = value;
+			}
+		});
+		return inputs;
+	}
+
+	@Override
+	protected Object getResetInputId() {
+		return null;
+	}
+
+	@Override
+	protected Map<Object, OutputGetter<?>> getOutputs() {
+		Map<Object, OutputGetter<?>> outputs = new HashMap<Object, OutputGetter<?>>();
+		outputs.put(VALUE, new OutputGetter<Integer>() {
+
+			@Override
+			public Integer get() {
+				return output;
+			}
+
+			@Override
+			public boolean isSet() {
+				return output != null;
+			}
+		});
+		outputs.put(PROCESS, new OutputGetter<String>() {
+
+			@Override
+			public String get() {
+				return process;
+			}
+
+			@Override
+			public boolean isSet() {
+				return process != null;
+			}
+		});
+		outputs.put(EXECUTIONS, new OutputGetter<Integer>() {
+
+			@Override
+			public Integer get() {
+				return executions;
+			}
+
+			@Override
+			public boolean isSet() {
+				return executions != null;
+			}
+		});
+		return outputs;
+	}
+
+	@Override
+	protected void doExecute() {
+		if (input == null) {
+			throw new IllegalArgumentException("No value provided");
+		} else {
+			output = input + 1;
+			process = getCurrentProcess();
+			executions = processExecutions.incrementAndGet();
+		}
+	}
+}
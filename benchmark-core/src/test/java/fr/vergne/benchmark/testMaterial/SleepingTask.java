@@ -0,0 +1,20 @@
+package fr.vergne.benchmark.testMaterial;
+
+public class SleepingTask extends LinearTask {
+
+	private final long duration;
+
+	public SleepingTask(long duration) {
+		this.duration = duration;
+	}
+
+	@Override
+	public void execute() {
+		try {
+			Thread.sleep(duration);
+		} catch (InterruptedException e) {
+			throw new RuntimeException(e);
+		}
+		super.execute();
+	}
+}
@@ -0,0 +1,64 @@
+package fr.vergne.benchmark.testMaterial;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import fr.vergne.benchmark.InputSetter;
+import fr.vergne.benchmark.OutputGetter;
+import fr.vergne.benchmark.impl.AbstractSimpleTask;
+
+@SuppressWarnings("serial")
+public class SquareTask extends AbstractSimpleTask {
+
+	public static final String VALUE = "value";
+	public static final String RESET = "reset";
+	private Integer value;
+	private Integer result;
+	private int executions = 0;
+
+	@Override
+	protected Map<Object, InputSetter<?>> getInputs() {
+		Map<Object, InputSetter<?>> inputs = new HashMap<Object, InputSetter<?>>();
+		inputs.put(VALUE, new InputSetter<Integer>() {
+
+			@Override
+			public void set(Integer input) {
+				value = input;
+			}
+		});
+		return inputs;
+	}
+
+	@Override
+	protected Object getResetInputId() {
+		return RESET;
+	}
+
+	@Override
+	protected Map<Object, OutputGetter<?>> getOutputs() {
+		Map<Object, OutputGetter<?>> outputs = new HashMap<Object, OutputGetter<?>>();
+		outputs.put(VALUE, new OutputGetter<Integer>() {
+
+			@Override
+			public Integer get() {
+				return result;
+			}
+
+			@Override
+			public boolean isSet() {
+				return result != null;
+			}
+		});
+		return outputs;
+	}
+
+	@Override
+	protected void doExecute() {
+		executions++;
+		result = value * value;
+	}
+
+	public int getExecutions() {
+		return executions;
+	}
+}
@@ -0,0 +1,63 @@
+package fr.vergne.benchmark.testMaterial;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import fr.vergne.benchmark.InputSetter;
+import fr.vergne.benchmark.OutputGetter;
+import fr.vergne.benchmark.impl.AbstractSimpleTask;
+import fr.vergne.benchmark.util.Pipe;
+
+@SuppressWarnings("serial")
+public class SumConsumerTask extends AbstractSimpleTask {
+
+	public static final String ITEMS = "items";
+	public static final String SUM = "sum";
+	private transient Pipe<Integer> items;
+	private Long sum = null;
+
+	@Override
+	protected Map<Object, InputSetter<?>> getInputs() {
+		Map<Object, InputSetter<?>> inputs = new HashMap<Object, InputSetter<?>>();
+		inputs.put(ITEMS, new InputSetter<Pipe<Integer>>() {
+
+			@Override
+			public void set(Pipe<Integer> input) {
+				items = input;
+			}
+		});
+		return inputs;
+	}
+
+	@Override
+	protected Object getResetInputId() {
+		return null;
+	}
+
+	@Override
+	protected Map<Object, OutputGetter<?>> getOutputs() {
+		Map<Object, OutputGetter<?>> outputs = new HashMap<Object, OutputGetter<?>>();
+		outputs.put(SUM, new OutputGetter<Long>() {
+
+			@Override
+			public Long get() {
+				return sum;
+			}
+
+			@Override
+			public boolean isSet() {
+				return sum != null;
+			}
+		});
+		return outputs;
+	}
+
+	@Override
+	protected void doExecute() {
+		long total = 0;
+		for (int item : items) {
+			total += item;
+		}
+		sum = total;
+	}
+}
@@ -0,0 +1,107 @@
+package fr.vergne.benchmark.util;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.*;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import fr.vergne.benchmark.BenchmarkBuilder;
+import fr.vergne.benchmark.BenchmarkRunner;
+import fr.vergne.benchmark.InputSetter;
+import fr.vergne.benchmark.OutputGetter;
+import fr.vergne.benchmark.ParallelBenchmarkRunner;
+import fr.vergne.benchmark.impl.AbstractSimpleTask;
+
+public class AllocationRecorderTest {
+
+	private static final int SIZE = 10000000;
+
+	private void testAttribution(BenchmarkRunner runner) {
+		AllocationRecorder recorder = new AllocationRecorder();
+		assumeTrue(recorder.isSupported());
+		AllocatingTask heavy = new AllocatingTask(SIZE);
+		AllocatingTask light = new AllocatingTask(0);
+		BenchmarkBuilder builder = new BenchmarkBuilder();
+		builder.addAll(heavy, light);
+		runner.setBenchmark(builder.createInstance());
+		runner.registerHook(recorder);
+		runner.runAll();
+
+		assertEquals(1, recorder.getExecutions(heavy));
+		assertEquals(1, recorder.getExecutions(light));
+		assertTrue(recorder.getAllocatedBytes(heavy) >= SIZE);
+		assertTrue(recorder.getAllocatedBytes(light) < SIZE / 10);
+		assertEquals(recorder.getAllocatedBytes(heavy)
+				+ recorder.getAllocatedBytes(light),
+				recorder.getAllocatedBytes());
+		assertTrue(recorder.getExecutionTime(heavy, TimeUnit.NANOSECONDS) > 0);
+		assertTrue(recorder.getAllocationRate(heavy) > 0);
+
+		recorder.reset();
+		assertEquals(0, recorder.getAllocatedBytes());
+		assertTrue(recorder.getTasks().isEmpty());
+	}
+
+	@Test
+	public void testSequentialRunner() {
+		testAttribution(new BenchmarkRunner());
+	}
+
+	@Test
+	public void testParallelRunner() {
+		testAttribution(new ParallelBenchmarkRunner(2));
+	}
+
+	@SuppressWarnings("serial")
+	private static class AllocatingTask extends AbstractSimpleTask {
+
+		private final int size;
+		@SuppressWarnings("unused")
+		private byte[] data;
+
+		public AllocatingTask(int size) {
+			this.size = size;
+		}
+
+		@Override
+		protected Map<Object, InputSetter<?>> getInputs() {
+			return Collections.emptyMap();
+		}
+
+		@Override
+		protected Object getResetInputId() {
+			return null;
+		}
+
+		@Override
+		protected Map<Object, OutputGetter<?>> getOutputs() {
+			return Collections.emptyMap();
+		}
+
+		@Override
+		protected void doExecute() {
+			data = size == 0 ? null : new byte[size];
+		}
+	}
+
+	@Test
+	public void testWarmupIgnored() {
+		AllocationRecorder recorder = new AllocationRecorder();
+		assumeTrue(recorder.isSupported());
+		AllocatingTask task = new AllocatingTask(SIZE);
+		BenchmarkBuilder builder = new BenchmarkBuilder();
+		builder.add(task);
+		BenchmarkRunner runner = new BenchmarkRunner();
+		runner.setBenchmark(builder.createInstance());
+		runner.registerHook(recorder);
+
+		runner.setWarmup(true);
+		runner.runAll();
+		assertEquals(0, recorder.getExecutions(task));
+		assertEquals(0, recorder.getAllocatedBytes());
+	}
+}
@@ -0,0 +1,115 @@
+package fr.vergne.benchmark.util;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import fr.vergne.benchmark.impl.MemoizingTask;
+import fr.vergne.benchmark.testMaterial.SquareTask;
+
+public class DiskCacheTest {
+
+	private File directory;
+
+	@Before
+	public void createDirectory() throws IOException {
+		directory = Files.createTempDirectory("cache").toFile();
+	}
+
+	@After
+	public void deleteDirectory() {
+		for (File file : directory.listFiles()) {
+			file.delete();
+		}
+		directory.delete();
+	}
+
+	private Map<Object, Object> map(Object key, Object value) {
+		Map<Object, Object> map = new HashMap<Object, Object>();
+		map.put(key, value);
+		return map;
+	}
+
+	@Test
+	public void testReuseAcrossRuns() throws IOException {
+		SquareTask square = new SquareTask();
+		DiskCache cache = new DiskCache(directory, 1 << 20);
+		cache.setConfiguration(square, "default");
+		MemoizingTask task = new MemoizingTask(square, cache);
+		task.getInput(SquareTask.VALUE).set(3);
+		task.execute();
+		assertEquals(9, task.getOutput(SquareTask.VALUE).get());
+		assertEquals(1, square.getExecutions());
+		cache.close();
+
+		SquareTask square2 = new SquareTask();
+		DiskCache cache2 = new DiskCache(directory, 1 << 20);
+		cache2.setConfiguration(square2, "default");
+		MemoizingTask task2 = new MemoizingTask(square2, cache2);
+		task2.getInput(SquareTask.VALUE).set(3);
+		task2.execute();
+		assertEquals(9, task2.getOutput(SquareTask.VALUE).get());
+		assertEquals(0, square2.getExecutions());
+
+		cache2.setConfiguration(square2, "other");
+		task2.getInput(SquareTask.RESET).set(Collections.emptyList());
+		task2.getInput(SquareTask.VALUE).set(3);
+		task2.execute();
+		assertEquals(1, square2.getExecutions());
+		cache2.close();
+	}
+
+	@Test
+	public void testConcurrentCaches() throws IOException {
+		DiskCache cache1 = new DiskCache(directory, 1 << 20);
+		DiskCache cache2 = new DiskCache(directory, 1 << 20);
+		SquareTask task = new SquareTask();
+		cache1.setConfiguration(task, "default");
+		cache2.setConfiguration(task, "default");
+
+		assertNull(cache2.get(task, map("in", 1)));
+		cache1.put(task, map("in", 1), map("out", "a"));
+		cache2.put(task, map("in", 2), map("out", "b"));
+		assertEquals("a", cache2.get(task, map("in", 1)).get("out"));
+		assertEquals("b", cache1.get(task, map("in", 2)).get("out"));
+		cache1.close();
+		cache2.close();
+	}
+
+	@Test
+	public void testEviction() throws IOException {
+		DiskCache cache = new DiskCache(directory, 4096, 1024);
+		SquareTask task = new SquareTask();
+		cache.setConfiguration(task, "default");
+		byte[] data = new byte[200];
+		for (int i = 0; i < 100; i++) {
+			cache.put(task, map("in", i), map("out", data));
+		}
+		assertTrue(cache.getSize() <= 4096);
+		assertNull(cache.get(task, map("in", 0)));
+		assertNotNull(cache.get(task, map("in", 99)));
+		cache.close();
+	}
+
+	@Test
+	public void testConfigurationRequired() throws IOException {
+		DiskCache cache = new DiskCache(directory, 1 << 20);
+		try {
+			cache.get(new SquareTask(), map("in", 1));
+			fail("Task without configuration accepted");
+		} catch (IllegalStateException e) {
+			// refused as expected
+		} finally {
+			cache.close();
+		}
+	}
+}
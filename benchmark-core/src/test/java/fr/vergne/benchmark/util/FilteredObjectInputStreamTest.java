@@ -0,0 +1,75 @@
+package fr.vergne.benchmark.util;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InvalidClassException;
+import java.io.ObjectOutputStream;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import fr.vergne.benchmark.testMaterial.SquareTask;
+
+public class FilteredObjectInputStreamTest {
+
+	@Test
+	public void testAllowedClasses() throws IOException,
+			ClassNotFoundException {
+		SquareTask task = new SquareTask();
+		task.getInput(SquareTask.VALUE).set(3);
+		List<Object> values = Arrays.<Object> asList(task, new int[] { 1 },
+				new String[] { "a" });
+
+		FilteredObjectInputStream input = new FilteredObjectInputStream(
+				new ByteArrayInputStream(serialize(values)));
+		List<?> read = (List<?>) input.readObject();
+		input.close();
+
+		assertEquals(3, read.size());
+		SquareTask copy = (SquareTask) read.get(0);
+		copy.execute();
+		assertEquals(9, copy.getOutput(SquareTask.VALUE).get());
+	}
+
+	@Test
+	public void testRejectedClass() throws IOException,
+			ClassNotFoundException {
+		FilteredObjectInputStream input = new FilteredObjectInputStream(
+				new ByteArrayInputStream(serialize(new AtomicInteger(3))),
+				Collections.singleton("java.lang."));
+		try {
+			input.readObject();
+			fail("Class not rejected");
+		} catch (InvalidClassException e) {
+			// rejected as expected
+		} finally {
+			input.close();
+		}
+	}
+
+	@Test
+	public void testArrays() throws IOException {
+		FilteredObjectInputStream input = new FilteredObjectInputStream(
+				new ByteArrayInputStream(serialize(null)),
+				Collections.singleton("java.lang."));
+		assertTrue(input.isAllowed("[I"));
+		assertTrue(input.isAllowed("[[Ljava.lang.String;"));
+		assertFalse(input.isAllowed("[Ljava.util.List;"));
+		assertFalse(input.isAllowed("javax.swing.JFrame"));
+		input.close();
+	}
+
+	private byte[] serialize(Object object) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		ObjectOutputStream output = new ObjectOutputStream(bytes);
+		output.writeObject(object);
+		output.close();
+		return bytes.toByteArray();
+	}
+}
@@ -0,0 +1,70 @@
+package fr.vergne.benchmark.util;
+
+import static org.junit.Assert.*;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class LatencyHistogramTest {
+
+	@Test
+	public void testSmallValuesAreExact() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		for (int i = 1; i <= 100; i++) {
+			histogram.record(i, TimeUnit.NANOSECONDS);
+		}
+		assertEquals(100, histogram.getCount());
+		assertEquals(1, histogram.getMin(TimeUnit.NANOSECONDS));
+		assertEquals(100, histogram.getMax(TimeUnit.NANOSECONDS));
+		assertEquals(50.5, histogram.getMean(TimeUnit.NANOSECONDS), 1e-9);
+		assertEquals(50, histogram.getPercentile(50, TimeUnit.NANOSECONDS));
+		assertEquals(99, histogram.getPercentile(99, TimeUnit.NANOSECONDS));
+		assertEquals(100, histogram.getPercentile(100, TimeUnit.NANOSECONDS));
+	}
+
+	@Test
+	public void testRelativePrecision() {
+		LatencyHistogram histogram = new LatencyHistogram(1, TimeUnit.HOURS, 7);
+		long[] values = { 1234, 56789, 1234567, 987654321, 12345678901L };
+		for (long value : values) {
+			histogram.reset();
+			histogram.record(value, TimeUnit.NANOSECONDS);
+			histogram.record(value * 2, TimeUnit.NANOSECONDS);
+			long p50 = histogram.getPercentile(50, TimeUnit.NANOSECONDS);
+			assertTrue(value <= p50);
+			assertEquals(value, p50, value / 128.0);
+		}
+	}
+
+	@Test
+	public void testHighestTrackableIsSaturated() {
+		LatencyHistogram histogram = new LatencyHistogram(1,
+				TimeUnit.MILLISECONDS, 7);
+		histogram.record(1, TimeUnit.SECONDS);
+		assertEquals(1, histogram.getCount());
+		assertEquals(1000, histogram.getMax(TimeUnit.MILLISECONDS));
+		assertTrue(histogram.getPercentile(50, TimeUnit.MILLISECONDS) >= 1);
+	}
+
+	@Test
+	public void testMerge() {
+		LatencyHistogram h1 = new LatencyHistogram();
+		LatencyHistogram h2 = new LatencyHistogram();
+		for (int i = 0; i < 50; i++) {
+			h1.record(10, TimeUnit.NANOSECONDS);
+			h2.record(20, TimeUnit.NANOSECONDS);
+		}
+		h1.add(h2);
+		assertEquals(100, h1.getCount());
+		assertEquals(10, h1.getPercentile(50, TimeUnit.NANOSECONDS));
+		assertEquals(20, h1.getPercentile(51, TimeUnit.NANOSECONDS));
+		assertEquals(15, h1.getMean(TimeUnit.NANOSECONDS), 1e-9);
+		assertEquals(50, h2.getCount());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testMergeIncompatible() {
+		new LatencyHistogram().add(new LatencyHistogram(1, TimeUnit.HOURS, 5));
+	}
+}
@@ -0,0 +1,92 @@
+package fr.vergne.benchmark.util;
+
+import static org.junit.Assert.*;
+
+import java.util.Collections;
+import java.util.Map;
+
+import org.junit.Test;
+
+import fr.vergne.benchmark.ResourceConsumer;
+import fr.vergne.benchmark.testMaterial.LinearTask;
+
+public class ResourceBudgetTest {
+
+	@Test
+	public void testAcquireAndRelease() {
+		ResourceBudget budget = new ResourceBudget();
+		budget.setCapacity("heap", 100);
+		LinearTask t1 = new LinearTask();
+		LinearTask t2 = new LinearTask();
+		LinearTask t3 = new LinearTask();
+		budget.setNeed(t1, "heap", 60);
+		budget.setNeed(t2, "heap", 60);
+		budget.setNeed(t3, "heap", 40);
+
+		assertTrue(budget.tryAcquire(t1));
+		assertEquals(60, budget.getUsage("heap"));
+		assertFalse(budget.tryAcquire(t2));
+		assertTrue(budget.tryAcquire(t3));
+		assertEquals(100, budget.getUsage("heap"));
+
+		budget.release(t1);
+		assertEquals(40, budget.getUsage("heap"));
+		assertTrue(budget.tryAcquire(t2));
+		budget.release(t2);
+		budget.release(t3);
+		assertEquals(0, budget.getUsage("heap"));
+	}
+
+	@Test
+	public void testOversizedTask() {
+		ResourceBudget budget = new ResourceBudget();
+		budget.setCapacity("cpu", 4);
+		LinearTask big = new LinearTask();
+		LinearTask small = new LinearTask();
+		budget.setNeed(big, "cpu", 8);
+		budget.setNeed(small, "cpu", 1);
+
+		assertTrue(budget.tryAcquire(small));
+		assertFalse(budget.tryAcquire(big));
+		budget.release(small);
+		assertTrue(budget.tryAcquire(big));
+		assertFalse(budget.tryAcquire(small));
+	}
+
+	@Test
+	public void testUnlimitedResource() {
+		ResourceBudget budget = new ResourceBudget();
+		LinearTask t1 = new LinearTask();
+		LinearTask t2 = new LinearTask();
+		budget.setNeed(t1, "disk", 1);
+		budget.setNeed(t2, "disk", 1);
+
+		assertEquals(Long.MAX_VALUE, budget.getCapacity("disk"));
+		assertTrue(budget.tryAcquire(t1));
+		assertTrue(budget.tryAcquire(t2));
+	}
+
+	@Test
+	public void testResourceConsumer() {
+		ResourceBudget budget = new ResourceBudget();
+		budget.setCapacity("disk", 1);
+		DiskTask t1 = new DiskTask();
+		DiskTask t2 = new DiskTask();
+
+		assertEquals(Collections.singletonMap("disk", 1L), budget.getNeeds(t1));
+		assertTrue(budget.tryAcquire(t1));
+		assertFalse(budget.tryAcquire(t2));
+
+		budget.setNeed(t2, "disk", 0);
+		assertTrue(budget.tryAcquire(t2));
+	}
+
+	private static class DiskTask extends LinearTask implements
+			ResourceConsumer {
+
+		@Override
+		public Map<Object, Long> getResourceNeeds() {
+			return Collections.<Object, Long> singletonMap("disk", 1L);
+		}
+	}
+}
@@ -0,0 +1,43 @@
+package fr.vergne.benchmark.util;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class SampleStatisticsTest {
+
+	@Test
+	public void testStatistics() {
+		SampleStatistics statistics = new SampleStatistics();
+		assertEquals(0, statistics.getCount());
+		assertTrue(Double.isNaN(statistics.getMean()));
+
+		for (double value : new double[] { 2, 4, 4, 4, 5, 5, 7, 9 }) {
+			statistics.add(value);
+		}
+		assertEquals(8, statistics.getCount());
+		assertEquals(5, statistics.getMean(), 1e-9);
+		assertEquals(32.0 / 7, statistics.getVariance(), 1e-9);
+		assertEquals(2, statistics.getMin(), 0);
+		assertEquals(9, statistics.getMax(), 0);
+	}
+
+	@Test
+	public void testHalfWidth() {
+		SampleStatistics statistics = new SampleStatistics();
+		statistics.add(1);
+		assertTrue(Double.isNaN(statistics.getHalfWidth(0.95)));
+		statistics.add(3);
+		// t(0.975, 1) = 12.706, sd = sqrt(2)
+		assertEquals(12.706, statistics.getHalfWidth(0.95), 1e-3);
+	}
+
+	@Test
+	public void testQuantiles() {
+		assertEquals(1.95996, SampleStatistics.normalQuantile(0.975), 1e-5);
+		assertEquals(-2.32635, SampleStatistics.normalQuantile(0.01), 1e-5);
+		assertEquals(4.303, SampleStatistics.studentQuantile(0.975, 2), 1e-3);
+		assertEquals(2.228, SampleStatistics.studentQuantile(0.975, 10), 1e-3);
+		assertEquals(2.042, SampleStatistics.studentQuantile(0.975, 30), 1e-3);
+	}
+}
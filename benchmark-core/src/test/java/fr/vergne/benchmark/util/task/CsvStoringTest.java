@@ -0,0 +1,112 @@
+package fr.vergne.benchmark.util.task;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+import fr.vergne.benchmark.BenchmarkBuilder;
+import fr.vergne.benchmark.BenchmarkRunner;
+import fr.vergne.benchmark.RunSummary;
+import fr.vergne.benchmark.impl.AbstractBatchTask;
+
+public class CsvStoringTest {
+
+	private File createFile() throws IOException {
+		File file = File.createTempFile("storing", ".csv");
+		file.delete();
+		file.deleteOnExit();
+		return file;
+	}
+
+	private List<String> readLines(File file) throws IOException {
+		return Files.readAllLines(file.toPath(), StandardCharsets.UTF_8);
+	}
+
+	@Test
+	public void testSingleValues() throws IOException {
+		File file = createFile();
+		CsvStoring storing = new CsvStoring(Arrays.asList("x", "y"));
+		storing.getInput(CsvStoring.CSV).set(file);
+		storing.getInput("x").set(1);
+		storing.getInput("y").set("a");
+		storing.execute();
+
+		assertEquals(Arrays.asList("x,y", "1,a"), readLines(file));
+		assertEquals(1L, storing.getOutput(CsvStoring.ROW_COUNTER).get());
+	}
+
+	@Test
+	public void testBatchFromBatchTask() throws IOException {
+		File file = createFile();
+		SquareBatchTask square = new SquareBatchTask();
+		square.getInput(SquareBatchTask.VALUE).set(Arrays.asList(1, 2, 3));
+		CsvStoring storing = new CsvStoring(Arrays.asList("value", "square"));
+		storing.setBatchMode(true);
+		storing.getInput(CsvStoring.CSV).set(file);
+
+		BenchmarkBuilder builder = new BenchmarkBuilder();
+		builder.addAll(square, storing);
+		builder.linkOutput(square, SquareBatchTask.VALUE, storing, "value");
+		builder.linkOutput(square, SquareBatchTask.SQUARE, storing, "square");
+		RunSummary summary = new BenchmarkRunner(builder.createInstance())
+				.runAll();
+
+		assertEquals(2, summary.getSteps());
+		assertEquals(Arrays.asList("value,square", "1,1", "2,4", "3,9"),
+				readLines(file));
+		assertEquals(3L, storing.getOutput(CsvStoring.ROW_COUNTER).get());
+	}
+
+	@Test
+	public void testBatchSizeMismatch() throws IOException {
+		File file = createFile();
+		CsvStoring storing = new CsvStoring(Arrays.asList("x", "y"));
+		storing.setBatchMode(true);
+		storing.getInput(CsvStoring.CSV).set(file);
+		storing.getInput("x").set(Arrays.asList(1, 2));
+		storing.getInput("y").set(Arrays.asList(1));
+		try {
+			storing.execute();
+			fail("No exception thrown");
+		} catch (IllegalStateException e) {
+			// thrown as expected
+		}
+		assertEquals(Arrays.asList("x,y"), readLines(file));
+		assertEquals(0L, storing.getOutput(CsvStoring.ROW_COUNTER).get());
+	}
+
+	@SuppressWarnings("serial")
+	private static class SquareBatchTask extends AbstractBatchTask {
+
+		public static final String VALUE = "value";
+		public static final String SQUARE = "square";
+
+		public SquareBatchTask() {
+			super(Arrays.asList(VALUE), Arrays.asList(VALUE, SQUARE));
+		}
+
+		@Override
+		protected List<Map<Object, Object>> executeBatch(
+				List<Map<Object, Object>> tuples) {
+			List<Map<Object, Object>> results = new ArrayList<Map<Object, Object>>();
+			for (Map<Object, Object> tuple : tuples) {
+				int value = (Integer) tuple.get(VALUE);
+				Map<Object, Object> result = new HashMap<Object, Object>();
+				result.put(VALUE, value);
+				result.put(SQUARE, value * value);
+				results.add(result);
+			}
+			return results;
+		}
+	}
+}
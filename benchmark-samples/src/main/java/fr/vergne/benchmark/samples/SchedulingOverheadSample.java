@@ -0,0 +1,69 @@
+package fr.vergne.benchmark.samples;
+
+import java.util.concurrent.TimeUnit;
+
+import fr.vergne.benchmark.Benchmark;
+import fr.vergne.benchmark.BenchmarkBuilder;
+import fr.vergne.benchmark.BenchmarkRunner;
+import fr.vergne.benchmark.ForkJoinBenchmarkRunner;
+import fr.vergne.benchmark.ParallelBenchmarkRunner;
+import fr.vergne.benchmark.RunSummary;
+import fr.vergne.benchmark.util.task.IdentityTask;
+
+/**
+ * This sample measures the scheduling overhead of the different
+ * {@link BenchmarkRunner}s on a graph made only of {@link IdentityTask}s,
+ * which do nearly nothing: almost all the time spent is the work of the
+ * runner itself. The graph is made of independent chains of
+ * {@link IdentityTask}s, each of them starting with a value provided
+ * manually.
+ * 
+ * @author Matthieu Vergne <matthieu.vergne@gmail.com>
+ * 
+ */
+public class SchedulingOverheadSample {
+
+	private static final int CHAINS = 200;
+	private static final int LENGTH = 100;
+	private static final int REPEATS = 5;
+
+	public static void main(String[] args) {
+		ParallelBenchmarkRunner parallel = new ParallelBenchmarkRunner();
+		ForkJoinBenchmarkRunner forkJoin = new ForkJoinBenchmarkRunner();
+		for (int repeat = 0; repeat < REPEATS; repeat++) {
+			System.out.println("Repeat " + (repeat + 1) + "/" + REPEATS);
+			measure("Sequential", new BenchmarkRunner());
+			measure("Parallel", parallel);
+			measure("ForkJoin", forkJoin);
+		}
+		parallel.getExecutor().shutdown();
+		forkJoin.getPool().shutdown();
+	}
+
+	private static void measure(String name, BenchmarkRunner runner) {
+		runner.setBenchmark(createBenchmark());
+		RunSummary summary = runner.runAll();
+		System.out.println(String.format(
+				"%-10s %6d steps in %5d ms, overhead of %6d ns per step",
+				name, summary.getSteps(),
+				summary.getElapsedTime(TimeUnit.MILLISECONDS),
+				summary.getOverheadPerStep(TimeUnit.NANOSECONDS)));
+	}
+
+	private static Benchmark createBenchmark() {
+		Object id = IdentityTask.CONTENT;
+		BenchmarkBuilder builder = new BenchmarkBuilder();
+		for (int chain = 0; chain < CHAINS; chain++) {
+			IdentityTask<Integer> previous = new IdentityTask<Integer>();
+			previous.getInput(id).set(chain);
+			builder.add(previous);
+			for (int index = 1; index < LENGTH; index++) {
+				IdentityTask<Integer> next = new IdentityTask<Integer>();
+				builder.add(next);
+				builder.linkOutput(previous, id, next, id);
+				previous = next;
+			}
+		}
+		return builder.createInstance();
+	}
+}